@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.List;
+
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.tests.model.Instance;
+import io.jsondb.tests.model.Volume;
+
+/**
+ * Creates the databases and documents the benchmarks run against, from the test models. The
+ * "instances" collection holds {@link Instance} documents which have a @Secret field, the "volumes"
+ * collection holds {@link Volume} documents which have none. Both are opened with encryption enabled.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public final class BenchmarkData {
+  public static final String INSTANCES = "instances";
+  public static final String VOLUMES = "volumes";
+  public static final String CIPHER_KEY = "1r8+24pibarAWgS85/Heeg==";
+
+  private BenchmarkData() {
+  }
+
+  public static File newDbFolder() throws IOException {
+    return Files.createTempDirectory("jsondb-jmh").toFile();
+  }
+
+  public static void deleteDbFolder(File dbFolder) {
+    if (null != dbFolder) {
+      Util.delete(dbFolder);
+    }
+  }
+
+  public static JsonDBConfig newConfig(File dbFolder) throws GeneralSecurityException {
+    return new JsonDBConfig(dbFolder.getPath(), "io.jsondb.tests.model", new DefaultAESCBCCipher(CIPHER_KEY), false, null);
+  }
+
+  /**
+   * @return the id of the i-th generated document, zero padded so ids sort in generation order
+   */
+  public static String idOf(int i) {
+    return String.format("%08d", i);
+  }
+
+  public static Class<?> entityClass(String collectionName) {
+    return INSTANCES.equals(collectionName) ? Instance.class : Volume.class;
+  }
+
+  public static Object newDocument(String collectionName, int i) {
+    if (INSTANCES.equals(collectionName)) {
+      Instance instance = new Instance();
+      instance.setId(idOf(i));
+      instance.setHostname("ec2-54-191-" + i);
+      instance.setPrivateKey("b87eb02f5dd7e5232d7b0fc30a5015e4");
+      instance.setPublicKey("d3aa045f71bf4d1dffd2c5f485a4bc1d");
+      return instance;
+    }
+    Volume volume = new Volume();
+    volume.setId(idOf(i));
+    volume.setName("vol-" + i);
+    volume.setSize(1024L * (i % 512));
+    volume.setFlash((i % 2) == 0);
+    return volume;
+  }
+
+  /**
+   * Creates the collection and inserts documents 0 to size - 1 into it in one batch.
+   */
+  @SuppressWarnings({"unchecked", "rawtypes"})
+  public static void populate(JsonDBTemplate jsonDBTemplate, String collectionName, int size) {
+    jsonDBTemplate.createCollection(collectionName);
+    List documents = new ArrayList(size);
+    for (int i = 0; i < size; i++) {
+      documents.add(newDocument(collectionName, i));
+    }
+    jsonDBTemplate.insert(documents, collectionName);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.benchmark;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.jsondb.id.SequenceIdGenerator;
+import io.jsondb.id.SnowflakeIdGenerator;
+import io.jsondb.id.UUIDIdGenerator;
+
+/**
+ * Throughput of the id generators, from 4 threads so contention on the shared state shows.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class IdGeneratorBenchmark {
+  private static final Set<Object> NO_IDS = Collections.emptySet();
+
+  private final UUIDIdGenerator uuid = new UUIDIdGenerator();
+  private final SequenceIdGenerator sequence = new SequenceIdGenerator();
+  private final SnowflakeIdGenerator snowflake = new SnowflakeIdGenerator();
+
+  @Benchmark
+  public Object uuid() {
+    return uuid.nextId(BenchmarkData.VOLUMES, NO_IDS);
+  }
+
+  @Benchmark
+  public Object sequence() {
+    return sequence.nextId(BenchmarkData.VOLUMES, NO_IDS);
+  }
+
+  @Benchmark
+  public Object snowflake() {
+    return snowflake.nextId(BenchmarkData.VOLUMES, NO_IDS);
+  }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.jsondb.JsonDBTemplate;
+
+/**
+ * Reading a collection file into memory, the cost a cold start pays per collection. Goes through
+ * reloadCollection, opening a new JsonDBTemplate per invocation would also measure the classpath scan.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoadBenchmark {
+
+  @Param({BenchmarkData.INSTANCES, BenchmarkData.VOLUMES})
+  public String collectionName;
+
+  @Param({"1000", "10000", "100000"})
+  public int size;
+
+  private File dbFolder;
+  private JsonDBTemplate jsonDBTemplate;
+
+  @Setup
+  public void setUp() throws Exception {
+    dbFolder = BenchmarkData.newDbFolder();
+    jsonDBTemplate = new JsonDBTemplate(BenchmarkData.newConfig(dbFolder));
+    BenchmarkData.populate(jsonDBTemplate, collectionName, size);
+  }
+
+  @TearDown
+  public void tearDown() {
+    jsonDBTemplate.shutdown();
+    BenchmarkData.deleteDbFolder(dbFolder);
+  }
+
+  @Benchmark
+  public void loadCollection() {
+    jsonDBTemplate.reloadCollection(collectionName);
+  }
+}
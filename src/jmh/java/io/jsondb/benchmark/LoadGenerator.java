@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.benchmark;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.metrics.InMemoryMetricsRegistry;
+import io.jsondb.metrics.LatencyHistogram;
+
+/**
+ * A load generator that drives a mix of reads, queries and writes against one collection from many
+ * threads for a fixed duration. Unlike the JMH benchmarks it exposes contention between readers and
+ * the collection write lock. It reports throughput, latency percentiles per operation, the engine's
+ * own lock wait and file write latencies, and how much the collection file grew, as JSON.
+ *
+ * <p>Options, all of the form --name=value:
+ * <ul>
+ * <li>threads: number of client threads, default 8</li>
+ * <li>virtualThreads: true to run the clients on virtual threads, needs Java 21, default false</li>
+ * <li>duration: seconds to measure for, default 30</li>
+ * <li>warmup: seconds to run before measuring, default 5</li>
+ * <li>collection: instances (has a @Secret field) or volumes, default volumes</li>
+ * <li>documents: documents in the collection at the start, default 10000</li>
+ * <li>mix: relative weights of the operations, default read:70,query:10,insert:10,update:10</li>
+ * <li>output: file the JSON report is written to, default stdout only</li>
+ * </ul>
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class LoadGenerator {
+
+  /**
+   * The operations a client picks from, each a single JsonDBTemplate call.
+   */
+  enum Operation {
+    /** findById of a random existing document */
+    READ,
+    /** find selecting about 100 documents */
+    QUERY,
+    /** insert of a new document */
+    INSERT,
+    /** save over a random existing document */
+    UPDATE,
+    /** remove of a random existing document followed by its re-insert, two rewrites */
+    REMOVE
+  }
+
+  private final Map<String, String> options;
+  private final int threads;
+  private final boolean virtualThreads;
+  private final long durationSeconds;
+  private final long warmupSeconds;
+  private final String collectionName;
+  private final int documents;
+  private final Map<Operation, Integer> mix;
+  private final Operation[] schedule;
+
+  private final Map<Operation, LatencyHistogram> latencies = new LinkedHashMap<Operation, LatencyHistogram>();
+  private final Map<Operation, LongAdder> errors = new LinkedHashMap<Operation, LongAdder>();
+  private final AtomicInteger nextId = new AtomicInteger();
+
+  private JsonDBTemplate jsonDBTemplate;
+  private volatile boolean measuring;
+  private volatile boolean running;
+
+  public LoadGenerator(Map<String, String> options) {
+    this.options = options;
+    this.threads = Integer.parseInt(option("threads", "8"));
+    this.virtualThreads = Boolean.parseBoolean(option("virtualThreads", "false"));
+    this.durationSeconds = Long.parseLong(option("duration", "30"));
+    this.warmupSeconds = Long.parseLong(option("warmup", "5"));
+    this.collectionName = option("collection", BenchmarkData.VOLUMES);
+    this.documents = Integer.parseInt(option("documents", "10000"));
+    this.mix = parseMix(option("mix", "read:70,query:10,insert:10,update:10"));
+
+    List<Operation> weighted = new ArrayList<Operation>();
+    for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+      for (int i = 0; i < entry.getValue(); i++) {
+        weighted.add(entry.getKey());
+      }
+    }
+    if (weighted.isEmpty()) {
+      throw new IllegalArgumentException("The operation mix must have at least one non zero weight");
+    }
+    this.schedule = weighted.toArray(new Operation[weighted.size()]);
+    for (Operation operation : Operation.values()) {
+      latencies.put(operation, new LatencyHistogram());
+      errors.put(operation, new LongAdder());
+    }
+  }
+
+  private String option(String name, String defaultValue) {
+    String value = options.get(name);
+    return (null == value) ? defaultValue : value;
+  }
+
+  static Map<Operation, Integer> parseMix(String mixString) {
+    Map<Operation, Integer> weights = new LinkedHashMap<Operation, Integer>();
+    for (String part : mixString.split(",")) {
+      String[] nameAndWeight = part.trim().split(":");
+      if (nameAndWeight.length != 2) {
+        throw new IllegalArgumentException("Expected operation:weight in mix but found '" + part + "'");
+      }
+      int weight = Integer.parseInt(nameAndWeight[1].trim());
+      if (weight < 0) {
+        throw new IllegalArgumentException("Operation weights cannot be negative, found '" + part + "'");
+      }
+      weights.put(Operation.valueOf(nameAndWeight[0].trim().toUpperCase()), weight);
+    }
+    return weights;
+  }
+
+  /**
+   * Populates a fresh database, runs the warmup and the measurement, and returns the report.
+   */
+  public Map<String, Object> run() throws Exception {
+    File dbFolder = BenchmarkData.newDbFolder();
+    InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+    try {
+      JsonDBConfig dbConfig = BenchmarkData.newConfig(dbFolder);
+      jsonDBTemplate = new JsonDBTemplate(dbConfig);
+      BenchmarkData.populate(jsonDBTemplate, collectionName, documents);
+      nextId.set(documents);
+      File collectionFile = new File(dbFolder, collectionName + ".json");
+
+      ExecutorService executor = newExecutor();
+      CountDownLatch done = new CountDownLatch(threads);
+      running = true;
+      for (int i = 0; i < threads; i++) {
+        executor.execute(new Client(done));
+      }
+
+      TimeUnit.SECONDS.sleep(warmupSeconds);
+      long startFileSize = collectionFile.length();
+      int startDocuments = jsonDBTemplate.findAll(collectionName).size();
+      // Only the measured phase feeds the engine side histograms
+      dbConfig.setMetricsRegistry(metrics);
+      measuring = true;
+      long start = System.nanoTime();
+      TimeUnit.SECONDS.sleep(durationSeconds);
+      measuring = false;
+      long elapsedNanos = System.nanoTime() - start;
+      dbConfig.setMetricsRegistry(null);
+      running = false;
+      done.await();
+      executor.shutdown();
+
+      return report(elapsedNanos, startFileSize, collectionFile.length(), startDocuments,
+          jsonDBTemplate.findAll(collectionName).size(), metrics);
+    } finally {
+      if (null != jsonDBTemplate) {
+        jsonDBTemplate.shutdown();
+      }
+      BenchmarkData.deleteDbFolder(dbFolder);
+    }
+  }
+
+  private ExecutorService newExecutor() {
+    if (!virtualThreads) {
+      return Executors.newFixedThreadPool(threads);
+    }
+    try {
+      // Reflective so the harness still compiles for Java 8
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalStateException("Virtual threads need Java 21 or newer", e);
+    }
+  }
+
+  private class Client implements Runnable {
+    private final CountDownLatch done;
+
+    Client(CountDownLatch done) {
+      this.done = done;
+    }
+
+    @Override
+    public void run() {
+      try {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+          Operation operation = schedule[random.nextInt(schedule.length)];
+          boolean measured = measuring;
+          long start = System.nanoTime();
+          try {
+            execute(operation, random);
+          } catch (RuntimeException e) {
+            if (measured) {
+              errors.get(operation).increment();
+            }
+          }
+          if (measured && measuring) {
+            latencies.get(operation).record(System.nanoTime() - start);
+          }
+        }
+      } finally {
+        done.countDown();
+      }
+    }
+  }
+
+  private void execute(Operation operation, ThreadLocalRandom random) {
+    switch (operation) {
+      case READ:
+        jsonDBTemplate.findById(BenchmarkData.idOf(random.nextInt(documents)), collectionName);
+        break;
+      case QUERY:
+        int from = random.nextInt(Math.max(1, documents - 100));
+        jsonDBTemplate.find("/.[id>='" + BenchmarkData.idOf(from) + "' and id<'" + BenchmarkData.idOf(from + 100) + "']",
+            collectionName);
+        break;
+      case INSERT:
+        jsonDBTemplate.insert(BenchmarkData.newDocument(collectionName, nextId.getAndIncrement()), collectionName);
+        break;
+      case UPDATE:
+        jsonDBTemplate.save(BenchmarkData.newDocument(collectionName, random.nextInt(documents)), collectionName);
+        break;
+      case REMOVE:
+        Object document = BenchmarkData.newDocument(collectionName, random.nextInt(documents));
+        jsonDBTemplate.remove(document, collectionName);
+        jsonDBTemplate.insert(document, collectionName);
+        break;
+      default:
+        throw new IllegalStateException("Unknown operation " + operation);
+    }
+  }
+
+  private Map<String, Object> report(long elapsedNanos, long startFileSize, long endFileSize,
+      int startDocuments, int endDocuments, InMemoryMetricsRegistry metrics) {
+    double seconds = elapsedNanos / 1e9;
+
+    Map<String, Object> config = new LinkedHashMap<String, Object>();
+    config.put("threads", threads);
+    config.put("virtualThreads", virtualThreads);
+    config.put("durationSeconds", durationSeconds);
+    config.put("warmupSeconds", warmupSeconds);
+    config.put("collection", collectionName);
+    config.put("documents", documents);
+    Map<String, Object> weights = new LinkedHashMap<String, Object>();
+    for (Map.Entry<Operation, Integer> entry : mix.entrySet()) {
+      weights.put(entry.getKey().name().toLowerCase(), entry.getValue());
+    }
+    config.put("mix", weights);
+    config.put("javaVersion", System.getProperty("java.version"));
+    config.put("availableProcessors", Runtime.getRuntime().availableProcessors());
+
+    long totalOperations = 0;
+    Map<String, Object> operations = new LinkedHashMap<String, Object>();
+    for (Operation operation : Operation.values()) {
+      LatencyHistogram histogram = latencies.get(operation);
+      if (histogram.getCount() == 0 && errors.get(operation).sum() == 0) {
+        continue;
+      }
+      totalOperations += histogram.getCount();
+      Map<String, Object> summary = summarize(histogram);
+      summary.put("throughputPerSecond", histogram.getCount() / seconds);
+      summary.put("errors", errors.get(operation).sum());
+      operations.put(operation.name().toLowerCase(), summary);
+    }
+
+    Map<String, Object> engine = new LinkedHashMap<String, Object>();
+    for (Map.Entry<String, LatencyHistogram> entry : metrics.getHistograms().entrySet()) {
+      engine.put(entry.getKey(), summarize(entry.getValue()));
+    }
+
+    Map<String, Object> file = new LinkedHashMap<String, Object>();
+    file.put("startBytes", startFileSize);
+    file.put("endBytes", endFileSize);
+    file.put("growthBytes", endFileSize - startFileSize);
+    file.put("growthBytesPerSecond", (endFileSize - startFileSize) / seconds);
+    file.put("startDocuments", startDocuments);
+    file.put("endDocuments", endDocuments);
+
+    Map<String, Object> result = new LinkedHashMap<String, Object>();
+    result.put("config", config);
+    result.put("elapsedSeconds", seconds);
+    result.put("totalOperations", totalOperations);
+    result.put("throughputPerSecond", totalOperations / seconds);
+    result.put("operations", operations);
+    result.put("engine", engine);
+    result.put("collectionFile", file);
+    return result;
+  }
+
+  private static Map<String, Object> summarize(LatencyHistogram histogram) {
+    Map<String, Object> summary = new LinkedHashMap<String, Object>();
+    summary.put("count", histogram.getCount());
+    summary.put("meanMicros", histogram.getMeanNanos() / 1000.0);
+    summary.put("p50Micros", histogram.getPercentileNanos(50) / 1000.0);
+    summary.put("p90Micros", histogram.getPercentileNanos(90) / 1000.0);
+    summary.put("p99Micros", histogram.getPercentileNanos(99) / 1000.0);
+    summary.put("p999Micros", histogram.getPercentileNanos(99.9) / 1000.0);
+    summary.put("maxMicros", histogram.getMaxNanos() / 1000.0);
+    return summary;
+  }
+
+  static Map<String, String> parseOptions(String[] args) {
+    Map<String, String> options = new LinkedHashMap<String, String>();
+    for (String arg : args) {
+      if (!arg.startsWith("--") || (arg.indexOf('=') < 0)) {
+        throw new IllegalArgumentException("Expected --name=value but found '" + arg + "'");
+      }
+      int equals = arg.indexOf('=');
+      options.put(arg.substring(2, equals), arg.substring(equals + 1));
+    }
+    return options;
+  }
+
+  public static void main(String[] args) throws Exception {
+    Map<String, String> options = parseOptions(args);
+    Map<String, Object> result = new LoadGenerator(options).run();
+
+    ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+    String output = options.get("output");
+    if (null != output) {
+      File outputFile = new File(output);
+      if (null != outputFile.getParentFile()) {
+        outputFile.getParentFile().mkdirs();
+      }
+      objectMapper.writeValue(outputFile, result);
+    }
+    System.out.println(objectMapper.writeValueAsString(result));
+    System.exit(0);
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.benchmark;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.jsondb.JsonDBTemplate;
+
+/**
+ * Single document insert, save and remove, each of which rewrites the collection file, at several
+ * collection sizes and with and without @Secret fields.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WriteBenchmark {
+
+  @Param({BenchmarkData.INSTANCES, BenchmarkData.VOLUMES})
+  public String collectionName;
+
+  @Param({"100", "1000", "10000"})
+  public int size;
+
+  private File dbFolder;
+  private JsonDBTemplate jsonDBTemplate;
+  private int nextId;
+  private int saveCount;
+
+  @Setup(Level.Iteration)
+  public void setUp() throws Exception {
+    dbFolder = BenchmarkData.newDbFolder();
+    jsonDBTemplate = new JsonDBTemplate(BenchmarkData.newConfig(dbFolder));
+    BenchmarkData.populate(jsonDBTemplate, collectionName, size);
+    nextId = size;
+  }
+
+  @TearDown(Level.Iteration)
+  public void tearDown() {
+    jsonDBTemplate.shutdown();
+    BenchmarkData.deleteDbFolder(dbFolder);
+  }
+
+  @Benchmark
+  public void insert() {
+    jsonDBTemplate.insert(BenchmarkData.newDocument(collectionName, nextId++), collectionName);
+  }
+
+  @Benchmark
+  public void save() {
+    jsonDBTemplate.save(BenchmarkData.newDocument(collectionName, (saveCount++) % size), collectionName);
+  }
+
+  /**
+   * Removes a document and inserts it back, so the collection keeps its size. Costs two rewrites.
+   */
+  @Benchmark
+  public Object removeAndInsert() {
+    Object document = BenchmarkData.newDocument(collectionName, (saveCount++) % size);
+    Object removed = jsonDBTemplate.remove(document, collectionName);
+    jsonDBTemplate.insert(document, collectionName);
+    return removed;
+  }
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import io.jsondb.query.Update;
+
+/**
+ * Non blocking counterpart of the document operations of {@link JsonDBOperations}.
+ *
+ * Every method queues the corresponding blocking operation and returns at once, the returned future
+ * completes with its result or with the exception it threw. Operations on the same collection take
+ * effect in the order they were called: a read sees every write called before it and none called
+ * after it, reads called one after another without a write in between may run concurrently.
+ * There is no ordering between different collections.
+ *
+ * Documents passed to a write must not be modified until its future has completed.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public interface AsyncJsonDBOperations {
+
+  <T> CompletableFuture<List<T>> find(String jxQuery, Class<T> entityClass);
+  <T> CompletableFuture<List<T>> find(String jxQuery, String collectionName);
+
+  <T> CompletableFuture<List<T>> findAll(Class<T> entityClass);
+  <T> CompletableFuture<List<T>> findAll(String collectionName);
+
+  <T> CompletableFuture<Integer> count(String jxQuery, Class<T> entityClass);
+  <T> CompletableFuture<Integer> count(String jxQuery, String collectionName);
+
+  <T> CompletableFuture<T> findById(Object id, Class<T> entityClass);
+  <T> CompletableFuture<T> findById(Object id, String collectionName);
+
+  <T> CompletableFuture<List<T>> findByIds(Collection<?> ids, Class<T> entityClass);
+  <T> CompletableFuture<List<T>> findByIds(Collection<?> ids, String collectionName);
+
+  <T> CompletableFuture<T> findOne(String jxQuery, Class<T> entityClass);
+  <T> CompletableFuture<T> findOne(String jxQuery, String collectionName);
+
+  CompletableFuture<Void> insert(Object objectToSave);
+  CompletableFuture<Void> insert(Object objectToSave, String collectionName);
+  <T> CompletableFuture<Void> insert(Collection<? extends T> batchToSave, Class<T> entityClass);
+  <T> CompletableFuture<Void> insert(Collection<? extends T> batchToSave, String collectionName);
+
+  <T> CompletableFuture<Void> save(Object objectToSave, Class<T> entityClass);
+  CompletableFuture<Void> save(Object objectToSave, String collectionName);
+
+  CompletableFuture<Void> upsert(Object objectToSave);
+  CompletableFuture<Void> upsert(Object objectToSave, String collectionName);
+  <T> CompletableFuture<Void> upsert(Collection<? extends T> batchToSave, Class<T> entityClass);
+  <T> CompletableFuture<Void> upsert(Collection<? extends T> batchToSave, String collectionName);
+
+  <T> CompletableFuture<T> remove(Object objectToRemove, Class<T> entityClass);
+  <T> CompletableFuture<T> remove(Object objectToRemove, String collectionName);
+  <T> CompletableFuture<List<T>> remove(Collection<? extends T> batchToRemove, Class<T> entityClass);
+  <T> CompletableFuture<List<T>> remove(Collection<? extends T> batchToRemove, String collectionName);
+
+  <T> CompletableFuture<T> findAndRemove(String jxQuery, Class<T> entityClass);
+  <T> CompletableFuture<T> findAndRemove(String jxQuery, String collectionName);
+  <T> CompletableFuture<List<T>> findAllAndRemove(String jxQuery, Class<T> entityClass);
+  <T> CompletableFuture<List<T>> findAllAndRemove(String jxQuery, String collectionName);
+
+  <T> CompletableFuture<T> findAndModify(String jxQuery, Update update, Class<T> entityClass);
+  <T> CompletableFuture<T> findAndModify(String jxQuery, Update update, String collectionName);
+  <T> CompletableFuture<List<T>> findAllAndModify(String jxQuery, Update update, Class<T> entityClass);
+  <T> CompletableFuture<List<T>> findAllAndModify(String jxQuery, Update update, String collectionName);
+}
@@ -0,0 +1,688 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import io.jsondb.query.Update;
+
+/**
+ * {@link AsyncJsonDBOperations} on top of a blocking {@link JsonDBOperations}.
+ *
+ * Writes, which rewrite collection files, run on an I/O executor. Reads only touch the in-memory
+ * collections and run on a separate CPU executor, so a burst of slow writes cannot starve them of
+ * threads. By default the I/O executor uses a virtual thread per operation when the JVM offers them
+ * (JDK 21 and later) and otherwise a fixed pool of daemon threads, the CPU executor is a fixed pool of
+ * daemon threads of its own, reads can wait on collection locks and must not tie up the common pool.
+ * Executors created by this class are shut down by {@link #shutdown()}.
+ *
+ * Documents handed to insert, save and upsert are copied when the operation is submitted, changes the
+ * caller makes afterwards are not written and the caller's objects are never modified, so an id the db
+ * generates is not set on them.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class AsyncJsonDBTemplate implements AsyncJsonDBOperations {
+  private static Logger logger = LoggerFactory.getLogger(AsyncJsonDBTemplate.class);
+
+  private final JsonDBOperations db;
+  private final Executor ioExecutor;
+  private final Executor cpuExecutor;
+  private final List<ExecutorService> ownedExecutors = new ArrayList<ExecutorService>();
+  private final ConcurrentHashMap<String, CollectionQueue> queues = new ConcurrentHashMap<String, CollectionQueue>();
+
+  public AsyncJsonDBTemplate(JsonDBTemplate db) {
+    this(db, defaultIoExecutor(), defaultCpuExecutor(), true);
+  }
+
+  /**
+   * @param db the db to run operations on
+   * @param ioExecutor executor for the writes
+   * @param cpuExecutor executor for the reads
+   */
+  public AsyncJsonDBTemplate(JsonDBOperations db, Executor ioExecutor, Executor cpuExecutor) {
+    this(db, ioExecutor, cpuExecutor, false);
+  }
+
+  private AsyncJsonDBTemplate(JsonDBOperations db, Executor ioExecutor, Executor cpuExecutor, boolean ownsExecutors) {
+    if ((null == db) || (null == ioExecutor) || (null == cpuExecutor)) {
+      throw new InvalidJsonDbApiUsageException("db, ioExecutor and cpuExecutor are required");
+    }
+    this.db = db;
+    this.ioExecutor = ioExecutor;
+    this.cpuExecutor = cpuExecutor;
+    if (ownsExecutors) {
+      ownedExecutors.add((ExecutorService) ioExecutor);
+      ownedExecutors.add((ExecutorService) cpuExecutor);
+    }
+  }
+
+  /**
+   * Creates a virtual thread per task executor when running on a JDK that has them, else a fixed pool.
+   */
+  static ExecutorService defaultIoExecutor() {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+      logger.debug("Virtual threads not available, using a pool of {} threads for async I/O", threads);
+      return Executors.newFixedThreadPool(threads,
+          new ThreadFactoryBuilder().setNameFormat("jsondb-async-io-%d").setDaemon(true).build());
+    }
+  }
+
+  /**
+   * Creates a fixed pool of daemon threads for the reads.
+   */
+  static ExecutorService defaultCpuExecutor() {
+    int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+    return Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setNameFormat("jsondb-async-cpu-%d").setDaemon(true).build());
+  }
+
+  /**
+   * Shuts down the executors created by this class, queued operations still run.
+   */
+  public void shutdown() {
+    for (ExecutorService executor : ownedExecutors) {
+      executor.shutdown();
+    }
+  }
+
+  private CollectionQueue queueFor(String collectionName) {
+    CollectionQueue queue = queues.get(collectionName);
+    if (null == queue) {
+      queue = new CollectionQueue();
+      CollectionQueue existing = queues.putIfAbsent(collectionName, queue);
+      if (null != existing) {
+        queue = existing;
+      }
+    }
+    return queue;
+  }
+
+  private <R> CompletableFuture<R> read(String collectionName, Supplier<R> operation) {
+    return queueFor(collectionName).read(operation, cpuExecutor);
+  }
+
+  private <R> CompletableFuture<R> write(String collectionName, Supplier<R> operation) {
+    return queueFor(collectionName).write(operation, ioExecutor);
+  }
+
+  private static String collectionOf(Object document) {
+    if (null == document) {
+      throw new InvalidJsonDbApiUsageException("Null Object cannot be inserted into DB");
+    }
+    return Util.determineEntityCollectionName(document);
+  }
+
+  /**
+   * Copies a document at submit time so that the queued write neither sees later changes the caller
+   * makes to it nor modifies it from the I/O thread.
+   */
+  private static Object copyOf(Object document) {
+    return (null == document) ? null : Util.deepCopy(document);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <T> List<T> copyOf(Collection<? extends T> batch) {
+    if (null == batch) {
+      return null;
+    }
+    List<T> copies = new ArrayList<T>(batch.size());
+    for (T document : batch) {
+      copies.add((T) copyOf(document));
+    }
+    return copies;
+  }
+
+  /**
+   * Orders the operations on one collection. A write starts once every operation queued before it
+   * has finished, a read starts once the last write queued before it has finished.
+   */
+  private static class CollectionQueue {
+    private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+    private List<CompletableFuture<?>> readsSinceWrite = new ArrayList<CompletableFuture<?>>();
+
+    synchronized <R> CompletableFuture<R> read(final Supplier<R> operation, Executor executor) {
+      CompletableFuture<R> future = lastWrite.thenApplyAsync(new Function<Void, R>() {
+        @Override
+        public R apply(Void ignored) {
+          return operation.get();
+        }
+      }, executor);
+      Iterator<CompletableFuture<?>> itr = readsSinceWrite.iterator();
+      while (itr.hasNext()) {
+        if (itr.next().isDone()) {
+          itr.remove();
+        }
+      }
+      readsSinceWrite.add(future);
+      return future;
+    }
+
+    synchronized <R> CompletableFuture<R> write(final Supplier<R> operation, Executor executor) {
+      readsSinceWrite.add(lastWrite);
+      CompletableFuture<R> future = CompletableFuture.allOf(readsSinceWrite.toArray(new CompletableFuture<?>[readsSinceWrite.size()]))
+          .handle(new BiFunction<Void, Throwable, Void>() {
+            @Override
+            public Void apply(Void ignored, Throwable failure) {
+              //A failed operation must not hold up the ones queued after it
+              return null;
+            }
+          })
+          .thenApplyAsync(new Function<Void, R>() {
+            @Override
+            public R apply(Void ignored) {
+              return operation.get();
+            }
+          }, executor);
+      lastWrite = future.handle(new BiFunction<R, Throwable, Void>() {
+        @Override
+        public Void apply(R result, Throwable failure) {
+          return null;
+        }
+      });
+      readsSinceWrite = new ArrayList<CompletableFuture<?>>();
+      return future;
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#find(java.lang.String, java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<List<T>> find(final String jxQuery, final Class<T> entityClass) {
+    return read(Util.determineCollectionName(entityClass), new Supplier<List<T>>() {
+      @Override
+      public List<T> get() {
+        return db.find(jxQuery, entityClass);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#find(java.lang.String, java.lang.String)
+   */
+  @Override
+  public <T> CompletableFuture<List<T>> find(final String jxQuery, final String collectionName) {
+    return read(collectionName, new Supplier<List<T>>() {
+      @Override
+      public List<T> get() {
+        return db.<T>find(jxQuery, collectionName);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findAll(java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<List<T>> findAll(final Class<T> entityClass) {
+    return read(Util.determineCollectionName(entityClass), new Supplier<List<T>>() {
+      @Override
+      public List<T> get() {
+        return db.findAll(entityClass);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findAll(java.lang.String)
+   */
+  @Override
+  public <T> CompletableFuture<List<T>> findAll(final String collectionName) {
+    return read(collectionName, new Supplier<List<T>>() {
+      @Override
+      public List<T> get() {
+        return db.<T>findAll(collectionName);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#count(java.lang.String, java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<Integer> count(final String jxQuery, final Class<T> entityClass) {
+    return read(Util.determineCollectionName(entityClass), new Supplier<Integer>() {
+      @Override
+      public Integer get() {
+        return db.count(jxQuery, entityClass);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#count(java.lang.String, java.lang.String)
+   */
+  @Override
+  public <T> CompletableFuture<Integer> count(final String jxQuery, final String collectionName) {
+    return read(collectionName, new Supplier<Integer>() {
+      @Override
+      public Integer get() {
+        return db.count(jxQuery, collectionName);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findById(java.lang.Object, java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<T> findById(final Object id, final Class<T> entityClass) {
+    return read(Util.determineCollectionName(entityClass), new Supplier<T>() {
+      @Override
+      public T get() {
+        return db.findById(id, entityClass);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findById(java.lang.Object, java.lang.String)
+   */
+  @Override
+  public <T> CompletableFuture<T> findById(final Object id, final String collectionName) {
+    return read(collectionName, new Supplier<T>() {
+      @Override
+      public T get() {
+        return db.<T>findById(id, collectionName);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findByIds(java.util.Collection, java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<List<T>> findByIds(final Collection<?> ids, final Class<T> entityClass) {
+    return read(Util.determineCollectionName(entityClass), new Supplier<List<T>>() {
+      @Override
+      public List<T> get() {
+        return db.findByIds(ids, entityClass);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findByIds(java.util.Collection, java.lang.String)
+   */
+  @Override
+  public <T> CompletableFuture<List<T>> findByIds(final Collection<?> ids, final String collectionName) {
+    return read(collectionName, new Supplier<List<T>>() {
+      @Override
+      public List<T> get() {
+        return db.<T>findByIds(ids, collectionName);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findOne(java.lang.String, java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<T> findOne(final String jxQuery, final Class<T> entityClass) {
+    return read(Util.determineCollectionName(entityClass), new Supplier<T>() {
+      @Override
+      public T get() {
+        return db.findOne(jxQuery, entityClass);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findOne(java.lang.String, java.lang.String)
+   */
+  @Override
+  public <T> CompletableFuture<T> findOne(final String jxQuery, final String collectionName) {
+    return read(collectionName, new Supplier<T>() {
+      @Override
+      public T get() {
+        return db.<T>findOne(jxQuery, collectionName);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#insert(java.lang.Object)
+   */
+  @Override
+  public CompletableFuture<Void> insert(final Object objectToSave) {
+    final Object copy = copyOf(objectToSave);
+    return write(collectionOf(objectToSave), new Supplier<Void>() {
+      @Override
+      public Void get() {
+        db.insert(copy);
+        return null;
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#insert(java.lang.Object, java.lang.String)
+   */
+  @Override
+  public CompletableFuture<Void> insert(final Object objectToSave, final String collectionName) {
+    final Object copy = copyOf(objectToSave);
+    return write(collectionName, new Supplier<Void>() {
+      @Override
+      public Void get() {
+        db.insert(copy, collectionName);
+        return null;
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#insert(java.util.Collection, java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<Void> insert(final Collection<? extends T> batchToSave, final Class<T> entityClass) {
+    final List<T> copies = copyOf(batchToSave);
+    return write(Util.determineCollectionName(entityClass), new Supplier<Void>() {
+      @Override
+      public Void get() {
+        db.insert(copies, entityClass);
+        return null;
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#insert(java.util.Collection, java.lang.String)
+   */
+  @Override
+  public <T> CompletableFuture<Void> insert(final Collection<? extends T> batchToSave, final String collectionName) {
+    final List<T> copies = copyOf(batchToSave);
+    return write(collectionName, new Supplier<Void>() {
+      @Override
+      public Void get() {
+        db.<T>insert(copies, collectionName);
+        return null;
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#save(java.lang.Object, java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<Void> save(final Object objectToSave, final Class<T> entityClass) {
+    final Object copy = copyOf(objectToSave);
+    return write(Util.determineCollectionName(entityClass), new Supplier<Void>() {
+      @Override
+      public Void get() {
+        db.save(copy, entityClass);
+        return null;
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#save(java.lang.Object, java.lang.String)
+   */
+  @Override
+  public CompletableFuture<Void> save(final Object objectToSave, final String collectionName) {
+    final Object copy = copyOf(objectToSave);
+    return write(collectionName, new Supplier<Void>() {
+      @Override
+      public Void get() {
+        db.save(copy, collectionName);
+        return null;
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#upsert(java.lang.Object)
+   */
+  @Override
+  public CompletableFuture<Void> upsert(final Object objectToSave) {
+    final Object copy = copyOf(objectToSave);
+    return write(collectionOf(objectToSave), new Supplier<Void>() {
+      @Override
+      public Void get() {
+        db.upsert(copy);
+        return null;
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#upsert(java.lang.Object, java.lang.String)
+   */
+  @Override
+  public CompletableFuture<Void> upsert(final Object objectToSave, final String collectionName) {
+    final Object copy = copyOf(objectToSave);
+    return write(collectionName, new Supplier<Void>() {
+      @Override
+      public Void get() {
+        db.upsert(copy, collectionName);
+        return null;
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#upsert(java.util.Collection, java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<Void> upsert(final Collection<? extends T> batchToSave, final Class<T> entityClass) {
+    final List<T> copies = copyOf(batchToSave);
+    return write(Util.determineCollectionName(entityClass), new Supplier<Void>() {
+      @Override
+      public Void get() {
+        db.upsert(copies, entityClass);
+        return null;
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#upsert(java.util.Collection, java.lang.String)
+   */
+  @Override
+  public <T> CompletableFuture<Void> upsert(final Collection<? extends T> batchToSave, final String collectionName) {
+    final List<T> copies = copyOf(batchToSave);
+    return write(collectionName, new Supplier<Void>() {
+      @Override
+      public Void get() {
+        db.<T>upsert(copies, collectionName);
+        return null;
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#remove(java.lang.Object, java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<T> remove(final Object objectToRemove, final Class<T> entityClass) {
+    return write(Util.determineCollectionName(entityClass), new Supplier<T>() {
+      @Override
+      public T get() {
+        return db.remove(objectToRemove, entityClass);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#remove(java.lang.Object, java.lang.String)
+   */
+  @Override
+  public <T> CompletableFuture<T> remove(final Object objectToRemove, final String collectionName) {
+    return write(collectionName, new Supplier<T>() {
+      @Override
+      public T get() {
+        return db.<T>remove(objectToRemove, collectionName);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#remove(java.util.Collection, java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<List<T>> remove(final Collection<? extends T> batchToRemove, final Class<T> entityClass) {
+    return write(Util.determineCollectionName(entityClass), new Supplier<List<T>>() {
+      @Override
+      public List<T> get() {
+        return db.remove(batchToRemove, entityClass);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#remove(java.util.Collection, java.lang.String)
+   */
+  @Override
+  public <T> CompletableFuture<List<T>> remove(final Collection<? extends T> batchToRemove, final String collectionName) {
+    return write(collectionName, new Supplier<List<T>>() {
+      @Override
+      public List<T> get() {
+        return db.<T>remove(batchToRemove, collectionName);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findAndRemove(java.lang.String, java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<T> findAndRemove(final String jxQuery, final Class<T> entityClass) {
+    return write(Util.determineCollectionName(entityClass), new Supplier<T>() {
+      @Override
+      public T get() {
+        return db.findAndRemove(jxQuery, entityClass);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findAndRemove(java.lang.String, java.lang.String)
+   */
+  @Override
+  public <T> CompletableFuture<T> findAndRemove(final String jxQuery, final String collectionName) {
+    return write(collectionName, new Supplier<T>() {
+      @Override
+      public T get() {
+        return db.<T>findAndRemove(jxQuery, collectionName);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findAllAndRemove(java.lang.String, java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<List<T>> findAllAndRemove(final String jxQuery, final Class<T> entityClass) {
+    return write(Util.determineCollectionName(entityClass), new Supplier<List<T>>() {
+      @Override
+      public List<T> get() {
+        return db.findAllAndRemove(jxQuery, entityClass);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findAllAndRemove(java.lang.String, java.lang.String)
+   */
+  @Override
+  public <T> CompletableFuture<List<T>> findAllAndRemove(final String jxQuery, final String collectionName) {
+    return write(collectionName, new Supplier<List<T>>() {
+      @Override
+      public List<T> get() {
+        return db.<T>findAllAndRemove(jxQuery, collectionName);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findAndModify(java.lang.String, io.jsondb.query.Update, java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<T> findAndModify(final String jxQuery, final Update update, final Class<T> entityClass) {
+    return write(Util.determineCollectionName(entityClass), new Supplier<T>() {
+      @Override
+      public T get() {
+        return db.findAndModify(jxQuery, update, entityClass);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findAndModify(java.lang.String, io.jsondb.query.Update, java.lang.String)
+   */
+  @Override
+  public <T> CompletableFuture<T> findAndModify(final String jxQuery, final Update update, final String collectionName) {
+    return write(collectionName, new Supplier<T>() {
+      @Override
+      public T get() {
+        return db.<T>findAndModify(jxQuery, update, collectionName);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findAllAndModify(java.lang.String, io.jsondb.query.Update, java.lang.Class)
+   */
+  @Override
+  public <T> CompletableFuture<List<T>> findAllAndModify(final String jxQuery, final Update update, final Class<T> entityClass) {
+    return write(Util.determineCollectionName(entityClass), new Supplier<List<T>>() {
+      @Override
+      public List<T> get() {
+        return db.findAllAndModify(jxQuery, update, entityClass);
+      }
+    });
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.AsyncJsonDBOperations#findAllAndModify(java.lang.String, io.jsondb.query.Update, java.lang.String)
+   */
+  @Override
+  public <T> CompletableFuture<List<T>> findAllAndModify(final String jxQuery, final Update update, final String collectionName) {
+    return write(collectionName, new Supplier<List<T>>() {
+      @Override
+      public List<T> get() {
+        return db.<T>findAllAndModify(jxQuery, update, collectionName);
+      }
+    });
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb;
+
+/**
+ * Management interface of a collection, registered as
+ * io.jsondb:type=Collection,database=&lt;dbFilesLocation&gt;,name=&lt;collectionName&gt;
+ * for every @Document annotated class when {@link JsonDBConfig#setJmxEnabled} is set.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public interface CollectionMXBean {
+
+  String getCollectionName();
+
+  /**
+   * @return true if the collection has been created
+   */
+  boolean isExists();
+
+  boolean isReadOnly();
+
+  /**
+   * @return number of documents held in memory, including expired ones not yet removed
+   */
+  int getDocumentCount();
+
+  /**
+   * @return size in bytes of the collection file, 0 if there is none
+   */
+  long getFileSize();
+
+  /**
+   * @return estimated heap retained by the collection, see {@link JsonDBOperations#memoryStats(String)},
+   *         null if the collection has not been created
+   */
+  MemoryStats getMemoryStats();
+
+  /**
+   * @return time the collection file was last written in milliseconds since the epoch, 0 if there is none
+   */
+  long getLastWriteTime();
+
+  /**
+   * @return estimated number of threads waiting for the collection lock
+   */
+  int getLockQueueLength();
+
+  /**
+   * @return number of times a wait for the collection lock timed out
+   */
+  long getLockTimeouts();
+
+  /**
+   * @return mean time in nanoseconds spent waiting for the collection lock
+   */
+  long getMeanLockWaitNanos();
+
+  /**
+   * @return number of changes made to the collection since the db was opened
+   */
+  long getWriteCount();
+
+  /**
+   * @return changes per second, averaged over the time since the previous sample was taken and at least a second
+   */
+  double getWritesPerSecond();
+
+  /**
+   * Reloads the collection from its file.
+   */
+  void reload();
+
+  /**
+   * Removes the expired documents and rewrites the collection file.
+   */
+  void compact();
+
+  /**
+   * Rewrites the collection file from the in-memory state.
+   */
+  void flush();
+}
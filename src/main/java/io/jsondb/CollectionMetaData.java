@@ -25,18 +25,25 @@ import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.Date;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.reflections.Reflections;
 
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
 import io.jsondb.annotation.Document;
+import io.jsondb.annotation.ExpiresAt;
 import io.jsondb.annotation.Id;
+import io.jsondb.annotation.Indexed;
 import io.jsondb.annotation.Secret;
+import io.jsondb.annotation.TextIndexed;
 
 /**
  * @version 1.0 25-Sep-2016
@@ -53,13 +60,19 @@ public class CollectionMetaData {
   private Method idAnnotatedFieldSetterMethod;
 
   private final ReentrantReadWriteLock collectionLock;
+  private final LockWaitStats lockWaitStats = new LockWaitStats();
+  private final AtomicLong modificationCount = new AtomicLong();
 
   private List<String> secretAnnotatedFieldNames = new ArrayList<String>();
+  private List<String> textIndexedFieldNames = new ArrayList<String>();
+  private Map<String, Boolean> indexedFields = new LinkedHashMap<String, Boolean>();
+  private String expiresAtFieldName;
   private Map<String, Method> getterMethodMap = new TreeMap<String, Method>();
   private Map<String, Method> setterMethodMap = new TreeMap<String, Method>();
 
   private boolean hasSecret;
   private boolean readonly;
+  private final boolean schemaless;
 
   public CollectionMetaData(String collectionName, Class<?> clazz, String schemaVersion, Comparator<String> schemaComparator) {
     super();
@@ -67,6 +80,7 @@ public class CollectionMetaData {
     this.schemaVersion = schemaVersion;
     this.schemaComparator = schemaComparator;
     this.clazz = clazz;
+    this.schemaless = false;
 
     this.collectionLock = new ReentrantReadWriteLock();
 
@@ -88,6 +102,24 @@ public class CollectionMetaData {
           this.hasSecret = true;
         }
       }
+      if (f.isAnnotationPresent(TextIndexed.class) && !f.isAnnotationPresent(Secret.class)) {
+        this.textIndexedFieldNames.add(fieldName);
+      }
+      if (f.isAnnotationPresent(Indexed.class) && !f.isAnnotationPresent(Secret.class)) {
+        this.indexedFields.put(fieldName, f.getAnnotation(Indexed.class).unique());
+      }
+      if (f.isAnnotationPresent(ExpiresAt.class)) {
+        //A primitive long defaults to 0 which would expire every document that does not set it
+        if (!Date.class.equals(f.getType()) && !Long.class.equals(f.getType())) {
+          throw new InvalidJsonDbApiUsageException("@ExpiresAt field '" + fieldName + "' of " + clazz.getName()
+              + " must be a java.util.Date or a java.lang.Long, found " + f.getType().getName());
+        }
+        if (f.isAnnotationPresent(Secret.class)) {
+          throw new InvalidJsonDbApiUsageException("@ExpiresAt field '" + fieldName + "' of " + clazz.getName()
+              + " cannot also be @Secret, its deadline must be readable without the cipher");
+        }
+        this.expiresAtFieldName = fieldName;
+      }
 
       String getterMethodName = formGetterMethodName(f);
       String setterMethodName = formSetterMethodName(f);
@@ -104,10 +136,49 @@ public class CollectionMetaData {
     this.idAnnotatedFieldSetterMethod = setterMethodMap.get(idAnnotatedFieldName);
   }
 
+  /**
+   * Creates the metadata of a schemaless collection whose documents are ObjectNodes.
+   *
+   * @param collectionName name of the collection
+   * @param idFieldName name of the top level field that holds the id of a document
+   * @param schemaVersion schema version stamped into the collection file
+   * @param schemaComparator comparator for schema versions
+   */
+  public CollectionMetaData(String collectionName, String idFieldName, String schemaVersion, Comparator<String> schemaComparator) {
+    this.collectionName = collectionName;
+    this.schemaVersion = schemaVersion;
+    this.schemaComparator = schemaComparator;
+    this.clazz = ObjectNode.class;
+    this.schemaless = true;
+    this.idAnnotatedFieldName = idFieldName;
+    this.collectionLock = new ReentrantReadWriteLock();
+  }
+
   protected ReentrantReadWriteLock getCollectionLock() {
     return collectionLock;
   }
 
+  /**
+   * @return the time operations on this collection spent waiting for the collection lock
+   */
+  public LockWaitStats getLockWaitStats() {
+    return lockWaitStats;
+  }
+
+  /**
+   * A counter that is incremented every time the contents of the collection change,
+   * used to recognize results computed against an older state of the collection.
+   *
+   * @return the current modification count
+   */
+  public long getModificationCount() {
+    return modificationCount.get();
+  }
+
+  protected long incrementModificationCount() {
+    return modificationCount.incrementAndGet();
+  }
+
   public String getCollectionName() {
     return collectionName;
   }
@@ -152,6 +223,30 @@ public class CollectionMetaData {
     return secretAnnotatedFieldNames.contains(fieldName);
   }
 
+  public List<String> getTextIndexedFieldNames() {
+    return textIndexedFieldNames;
+  }
+
+  public boolean hasTextIndex() {
+    return textIndexedFieldNames.size() > 0;
+  }
+
+  public List<String> getIndexedFieldNames() {
+    return new ArrayList<String>(indexedFields.keySet());
+  }
+
+  public boolean isUniqueIndexedField(String fieldName) {
+    return Boolean.TRUE.equals(indexedFields.get(fieldName));
+  }
+
+  public String getExpiresAtFieldName() {
+    return expiresAtFieldName;
+  }
+
+  public boolean hasExpiry() {
+    return null != expiresAtFieldName;
+  }
+
   public Method getGetterMethodForFieldName(String fieldName) {
     return getterMethodMap.get(fieldName);
   }
@@ -164,6 +259,13 @@ public class CollectionMetaData {
     return hasSecret;
   }
 
+  /**
+   * @return true if the documents of the collection are ObjectNodes rather than POJOs
+   */
+  public boolean isSchemaless() {
+    return schemaless;
+  }
+
   public boolean isReadOnly() {
     return readonly;
   }
@@ -213,6 +315,14 @@ public class CollectionMetaData {
       CollectionMetaData cmd = new CollectionMetaData(collectionName, c, version, dbConfig.getSchemaComparator());
       collectionMetaData.put(collectionName, cmd);
     }
+    for (Map.Entry<String, String> schemaless : dbConfig.getSchemalessCollections().entrySet()) {
+      if (collectionMetaData.containsKey(schemaless.getKey())) {
+        throw new InvalidJsonDbApiUsageException("Schemaless collection '" + schemaless.getKey()
+            + "' has the same name as the collection of a @Document annotated class");
+      }
+      collectionMetaData.put(schemaless.getKey(), new CollectionMetaData(schemaless.getKey(), schemaless.getValue(),
+          JsonDBConfig.SCHEMALESS_VERSION, dbConfig.getSchemaComparator()));
+    }
     return collectionMetaData;
   }
 }
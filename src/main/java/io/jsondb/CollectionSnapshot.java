@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import io.jsondb.metrics.HeapEstimator;
+
+/**
+ * An immutable version of the contents of a collection, as it was right after a particular change.
+ *
+ * Snapshots are published by writers while they still hold the collection write lock, readers pick up
+ * the latest one without taking any lock. A new snapshot shares the unchanged documents of the previous
+ * one: it is the same base map plus a small overlay of the documents changed since the base was taken,
+ * so a write costs in proportion to the overlay instead of the collection. Once the overlay grows past
+ * roughly the square root of the collection size it is folded into a new base.
+ *
+ * The documents themselves are shared with the live collection, which is safe because writers replace
+ * documents rather than modifying them in place.
+ *
+ * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+ *            and member of the baseScanPackage
+ * @version 1.0 19-Oct-2026
+ */
+public class CollectionSnapshot<T> {
+
+  private static final int MIN_OVERLAY = 64;
+
+  /**
+   * A changed document, null for a removed one. An in place document keeps the position of the base
+   * document with the same id, any other is ordered after the base documents.
+   */
+  private static final class Slot<T> {
+    private final T document;
+    private final boolean inPlace;
+
+    private Slot(T document, boolean inPlace) {
+      this.document = document;
+      this.inPlace = inPlace;
+    }
+  }
+
+  private final Map<Object, T> base;
+  private final Map<Object, Slot<T>> overlay;
+  private final Map<Object, ?> source;
+  private final int size;
+  private final long modificationCount;
+  private volatile List<T> documents;
+
+  public CollectionSnapshot(Map<Object, ? extends T> collection, long modificationCount) {
+    this(new LinkedHashMap<Object, T>(collection), Collections.<Object, Slot<T>>emptyMap(), collection,
+        collection.size(), modificationCount);
+  }
+
+  private CollectionSnapshot(Map<Object, T> base, Map<Object, Slot<T>> overlay, Map<Object, ?> source,
+      int size, long modificationCount) {
+    this.base = base;
+    this.overlay = overlay;
+    this.source = source;
+    this.size = size;
+    this.modificationCount = modificationCount;
+  }
+
+  /**
+   * @param collection a live collection
+   * @return true if this snapshot was taken of that collection, rather than of one it has been replaced by
+   */
+  public boolean isOf(Map<Object, ?> collection) {
+    return source == collection;
+  }
+
+  /**
+   * Creates the snapshot that follows this one after some changes to the live collection.
+   *
+   * @param changes the changes in the order they were made, keyed by id, a null document is a removal
+   * @param modificationCount the modification count of the collection after the changes
+   * @return the new snapshot, this one is left untouched
+   */
+  public CollectionSnapshot<T> withChanges(List<Entry<Object, T>> changes, long modificationCount) {
+    Map<Object, Slot<T>> next = new LinkedHashMap<Object, Slot<T>>(overlay);
+    int nextSize = size;
+    for (Entry<Object, T> change : changes) {
+      Object id = change.getKey();
+      Slot<T> slot = next.get(id);
+      boolean present = (null != slot) ? (null != slot.document) : base.containsKey(id);
+      if (null == change.getValue()) {
+        if (!present) {
+          continue;
+        }
+        nextSize--;
+        if (base.containsKey(id)) {
+          next.put(id, new Slot<T>(null, false));
+        } else {
+          next.remove(id);
+        }
+      } else if (present) {
+        next.put(id, new Slot<T>(change.getValue(), (null == slot) || slot.inPlace));
+      } else {
+        //Like a LinkedHashMap, a document that was not there before goes to the end
+        nextSize++;
+        next.remove(id);
+        next.put(id, new Slot<T>(change.getValue(), false));
+      }
+    }
+    CollectionSnapshot<T> snapshot = new CollectionSnapshot<T>(base, next, source, nextSize, modificationCount);
+    if (next.size() > Math.max(MIN_OVERLAY, (int) Math.sqrt(base.size()))) {
+      return new CollectionSnapshot<T>(snapshot.merge(), Collections.<Object, Slot<T>>emptyMap(), source,
+          nextSize, modificationCount);
+    }
+    return snapshot;
+  }
+
+  private LinkedHashMap<Object, T> merge() {
+    LinkedHashMap<Object, T> merged = new LinkedHashMap<Object, T>();
+    for (Entry<Object, T> entry : base.entrySet()) {
+      Slot<T> slot = overlay.get(entry.getKey());
+      if (null == slot) {
+        merged.put(entry.getKey(), entry.getValue());
+      } else if (slot.inPlace) {
+        merged.put(entry.getKey(), slot.document);
+      }
+    }
+    for (Entry<Object, Slot<T>> entry : overlay.entrySet()) {
+      if (!entry.getValue().inPlace && (null != entry.getValue().document)) {
+        merged.put(entry.getKey(), entry.getValue().document);
+      }
+    }
+    return merged;
+  }
+
+  public T get(Object id) {
+    Slot<T> slot = overlay.get(id);
+    return (null == slot) ? base.get(id) : slot.document;
+  }
+
+  /**
+   * @return all documents of the snapshot in collection order
+   */
+  public List<T> getDocuments() {
+    List<T> list = documents;
+    if (null == list) {
+      //Built on first use by a reader, racing readers build equal lists
+      list = Collections.unmodifiableList(new ArrayList<T>(overlay.isEmpty() ? base.values() : merge().values()));
+      documents = list;
+    }
+    return list;
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * @return estimated heap held by the snapshot's maps and list, the documents are shared with the collection
+   *         and the base map with the other snapshots taken since it
+   */
+  public long estimateHeapBytes() {
+    long bytes = 40 + HeapEstimator.linkedHashMap(base.size()) + HeapEstimator.linkedHashMap(overlay.size()) + 24L * overlay.size();
+    if (null != documents) {
+      bytes += HeapEstimator.arrayList(size);
+    }
+    return bytes;
+  }
+
+  /**
+   * @return the modification count of the collection this snapshot was taken at
+   */
+  public long getModificationCount() {
+    return modificationCount;
+  }
+}
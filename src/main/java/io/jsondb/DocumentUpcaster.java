@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Upgrades a single document from one schema version of its collection to the next, see
+ * {@link JsonDBConfig#registerUpcaster(String, String, String, DocumentUpcaster)}.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public interface DocumentUpcaster {
+
+  /**
+   * Modifies a document, as read from a collection file of the older schema version, so that it
+   * matches the newer schema version. It runs before the document is bound to its POJO, so
+   * {@link io.jsondb.annotation.Secret} fields are still encrypted.
+   *
+   * @param document the document to upgrade in place
+   */
+  void upcast(ObjectNode document);
+}
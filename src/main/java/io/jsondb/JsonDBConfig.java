@@ -23,12 +23,22 @@ package io.jsondb;
 import java.io.File;
 import java.nio.charset.Charset;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.Comparator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 import io.jsondb.crypto.ICipher;
+import io.jsondb.id.IdGenerator;
+import io.jsondb.id.UUIDIdGenerator;
+import io.jsondb.metrics.MetricsRegistry;
+import io.jsondb.metrics.NoopMetricsRegistry;
+import io.jsondb.metrics.SlowOperationLog;
 
 /**
  * A POJO that has settings for the functioning of DB.
@@ -45,6 +55,40 @@ public class JsonDBConfig {
   private ICipher cipher;
   private boolean compatibilityMode;
 
+  //Query execution
+  private int parallelQueryThreshold;
+  private ForkJoinPool parallelQueryPool;
+  private int queryCacheSize;
+  private int memoryStatsSampleSize = 100;
+  private boolean snapshotReads;
+
+  //Document expiry
+  private long expiryCheckInterval = 1000;
+
+  //Schema evolution
+  private final SchemaUpcasters schemaUpcasters = new SchemaUpcasters();
+  private long upcastPersistDelay = 1000;
+
+  //Schemaless collections
+  public static final String SCHEMALESS_VERSION = "1.0";
+  private Map<String, String> schemalessCollections = new LinkedHashMap<String, String>();
+
+  //Write concurrency
+  private int lockStripes;
+  private long lockTimeout;
+
+  //Change notification
+  private int changeBufferSize = 1024;
+
+  //Instrumentation
+  private MetricsRegistry metricsRegistry = NoopMetricsRegistry.INSTANCE;
+  private boolean jmxEnabled;
+  private SlowOperationLog slowOperationLog = new SlowOperationLog();
+
+  //Id generation
+  private IdGenerator defaultIdGenerator = new UUIDIdGenerator();
+  private Map<String, IdGenerator> idGenerators = new ConcurrentHashMap<String, IdGenerator>();
+
   //References
   private ObjectMapper objectMapper;
   private Comparator<String> schemaComparator;
@@ -126,4 +170,292 @@ public class JsonDBConfig {
   public Comparator<String> getSchemaComparator() {
     return schemaComparator;
   }
+  public SchemaUpcasters getSchemaUpcasters() {
+    return schemaUpcasters;
+  }
+  /**
+   * Registers a function that upgrades the documents of a collection from one schema version to another.
+   *
+   * A collection whose file has an older schema version than its POJO is normally loaded readonly until
+   * updateCollectionSchema migrates it. If the registered upcasters lead from the version of the file to
+   * the version of the POJO, they are instead applied to each document as it is loaded and the collection
+   * is writable right away. The upgraded documents are written back in the background, see
+   * {@link #setUpcastPersistDelay(long)}, or by the next write to the collection, whichever comes first.
+   * Upcasters must be registered before the JsonDBTemplate is created or the collection is reloaded.
+   *
+   * @param collectionName name of the collection
+   * @param fromVersion schema version the upcaster reads
+   * @param toVersion schema version the upcaster produces
+   * @param upcaster the upcaster
+   */
+  public void registerUpcaster(String collectionName, String fromVersion, String toVersion, DocumentUpcaster upcaster) {
+    schemaUpcasters.register(collectionName, fromVersion, toVersion, upcaster);
+  }
+  /**
+   * Registers an upcaster for the collection of an entity class, see {@link #registerUpcaster(String, String, String, DocumentUpcaster)}.
+   *
+   * @param entityClass class annotated with {@link io.jsondb.annotation.Document}
+   * @param fromVersion schema version the upcaster reads
+   * @param toVersion schema version the upcaster produces
+   * @param upcaster the upcaster
+   */
+  public void registerUpcaster(Class<?> entityClass, String fromVersion, String toVersion, DocumentUpcaster upcaster) {
+    schemaUpcasters.register(Util.determineCollectionName(entityClass), fromVersion, toVersion, upcaster);
+  }
+  public long getUpcastPersistDelay() {
+    return upcastPersistDelay;
+  }
+  /**
+   * Delay in milliseconds after a collection was loaded with upcasters before a background thread writes
+   * the upgraded documents back to its file. Defaults to 1000, a value less than 0 leaves it to the next
+   * write to the collection.
+   *
+   * @param upcastPersistDelay delay in milliseconds
+   */
+  public void setUpcastPersistDelay(long upcastPersistDelay) {
+    this.upcastPersistDelay = upcastPersistDelay;
+  }
+  /**
+   * @return the names of the registered schemaless collections mapped to the names of their id fields
+   */
+  public Map<String, String> getSchemalessCollections() {
+    return schemalessCollections;
+  }
+  /**
+   * Registers a collection that has no {@link io.jsondb.annotation.Document} POJO. Its documents are
+   * kept as Jackson ObjectNodes, so they are never bound to a class, and are copied with
+   * {@link com.fasterxml.jackson.databind.JsonNode#deepCopy()}. They are passed to and returned by the
+   * same JsonDBTemplate methods as POJOs, using the collection name, and can be queried with JXPath or
+   * with findByPointer. Secret fields, indexes and expiry need annotations and are not available.
+   * The collection file is stamped with schema version {@value #SCHEMALESS_VERSION}.
+   * Schemaless collections must be registered before the JsonDBTemplate is created.
+   *
+   * @param collectionName name of the collection
+   * @param idFieldName name of the top level field that holds the id of a document
+   */
+  public void registerSchemalessCollection(String collectionName, String idFieldName) {
+    if ((null == collectionName) || (null == idFieldName)) {
+      throw new InvalidJsonDbApiUsageException("Collection name and id field name are required for a schemaless collection");
+    }
+    schemalessCollections.put(collectionName, idFieldName);
+  }
+
+  public int getParallelQueryThreshold() {
+    return parallelQueryThreshold;
+  }
+  /**
+   * Enables parallel evaluation of queries for collections that have at least this many documents.
+   * The documents are partitioned across the {@link #getParallelQueryPool()} and the results are
+   * joined back in collection order. A value less than 1 (the default) disables parallel queries.
+   *
+   * Note: each partition is evaluated as a separate JxPath context, so queries that depend on the
+   * position of a document within the collection, like /.[1] or /.[last()], should not be used on
+   * collections that qualify for parallel execution.
+   *
+   * @param parallelQueryThreshold minimum number of documents in a collection for parallel query execution
+   */
+  public void setParallelQueryThreshold(int parallelQueryThreshold) {
+    this.parallelQueryThreshold = parallelQueryThreshold;
+  }
+  public ForkJoinPool getParallelQueryPool() {
+    if (null == parallelQueryPool) {
+      return ForkJoinPool.commonPool();
+    }
+    return parallelQueryPool;
+  }
+  public void setParallelQueryPool(ForkJoinPool parallelQueryPool) {
+    this.parallelQueryPool = parallelQueryPool;
+  }
+  public int getQueryCacheSize() {
+    return queryCacheSize;
+  }
+  /**
+   * Enables a per collection cache of find results holding up to this many queries.
+   * Entries are invalidated by any write to the collection. A value less than 1 (the default)
+   * disables the cache. Changing the size only affects caches created afterwards.
+   *
+   * @param queryCacheSize maximum number of cached queries per collection
+   */
+  public void setQueryCacheSize(int queryCacheSize) {
+    this.queryCacheSize = queryCacheSize;
+  }
+  public int getMemoryStatsSampleSize() {
+    return memoryStatsSampleSize;
+  }
+  /**
+   * Number of documents per collection that {@link JsonDBOperations#memoryStats()} measures, spread evenly
+   * over the collection, to estimate the heap held by all documents. Defaults to 100.
+   *
+   * @param memoryStatsSampleSize documents to measure, a value less than 1 measures every document
+   */
+  public void setMemoryStatsSampleSize(int memoryStatsSampleSize) {
+    this.memoryStatsSampleSize = memoryStatsSampleSize;
+  }
+  public long getExpiryCheckInterval() {
+    return expiryCheckInterval;
+  }
+  /**
+   * Interval in milliseconds at which a background thread removes the documents whose
+   * {@link io.jsondb.annotation.ExpiresAt} deadline has passed. Defaults to 1000, a value less
+   * than 1 disables the background thread, expired documents are then only removed by removeExpired.
+   * Changing the interval only has an effect before the first collection with expiring documents is loaded.
+   *
+   * @param expiryCheckInterval interval in milliseconds between two expiry checks
+   */
+  public void setExpiryCheckInterval(long expiryCheckInterval) {
+    this.expiryCheckInterval = expiryCheckInterval;
+  }
+  public IdGenerator getDefaultIdGenerator() {
+    return defaultIdGenerator;
+  }
+  /**
+   * Sets the generator used for the collections that do not have their own. Defaults to {@link UUIDIdGenerator}.
+   *
+   * @param defaultIdGenerator generator for the ids of new documents that do not have one
+   */
+  public void setDefaultIdGenerator(IdGenerator defaultIdGenerator) {
+    this.defaultIdGenerator = defaultIdGenerator;
+  }
+  /**
+   * @param collectionName name of the collection
+   * @return the generator for the ids of new documents of the collection
+   */
+  public IdGenerator getIdGenerator(String collectionName) {
+    IdGenerator idGenerator = idGenerators.get(collectionName);
+    return (null == idGenerator) ? defaultIdGenerator : idGenerator;
+  }
+  /**
+   * Sets the generator for the ids of new documents of a single collection.
+   *
+   * @param collectionName name of the collection
+   * @param idGenerator generator to use, null to go back to the default generator
+   */
+  public void setIdGenerator(String collectionName, IdGenerator idGenerator) {
+    if (null == idGenerator) {
+      idGenerators.remove(collectionName);
+    } else {
+      idGenerators.put(collectionName, idGenerator);
+    }
+  }
+  public int getLockStripes() {
+    return lockStripes;
+  }
+  /**
+   * Enables striped concurrency mode with this many lock stripes per collection, a value less
+   * than 1 (the default) disables it.
+   *
+   * In striped mode single document insert, save, upsert and remove lock only the stripe their id
+   * hashes to, hold the collection write lock just long enough to change the in-memory collection and
+   * have their changes persisted by group commit, a single rewrite of the collection file on behalf of
+   * all writers waiting at that moment. Readers see a change as soon as it is in memory, before group commit
+   * has made it durable. If the flush fails the collection is reloaded from its file, rolling back the changes
+   * it covered even though readers may already have seen them. Batch and query based writes are not affected.
+   * Must be set before the JsonDBTemplate is created.
+   *
+   * @param lockStripes number of lock stripes per collection
+   */
+  public void setLockStripes(int lockStripes) {
+    this.lockStripes = lockStripes;
+  }
+  public long getLockTimeout() {
+    return lockTimeout;
+  }
+  /**
+   * Default time in milliseconds an operation waits for a collection lock, and for the file lock of a
+   * collection file, before giving up with a {@link LockTimeoutException}. A value less than 1 (the default)
+   * waits indefinitely. Can be overridden for the calls made within {@link JsonDBOperations#withLockTimeout}.
+   *
+   * @param lockTimeout maximum lock wait in milliseconds
+   */
+  public void setLockTimeout(long lockTimeout) {
+    this.lockTimeout = lockTimeout;
+  }
+  public int getChangeBufferSize() {
+    return changeBufferSize;
+  }
+  /**
+   * Maximum number of document changes buffered for a subscriber of {@link JsonDBOperations#changes(String)}
+   * that it has not requested yet, a subscriber that falls further behind is failed. Defaults to 1024.
+   * Only affects change feeds created afterwards.
+   *
+   * @param changeBufferSize maximum number of buffered changes per subscriber
+   */
+  public void setChangeBufferSize(int changeBufferSize) {
+    this.changeBufferSize = changeBufferSize;
+  }
+  public MetricsRegistry getMetricsRegistry() {
+    return metricsRegistry;
+  }
+  /**
+   * Registry that receives the lock wait, copy, file write and load latencies and the byte and document
+   * counters measured inside the DB. Nothing is recorded by default. Use
+   * {@link io.jsondb.metrics.MeteredOperations} to also measure every {@link JsonDBOperations} call.
+   *
+   * @param metricsRegistry registry to record in, null to record nothing
+   */
+  public void setMetricsRegistry(MetricsRegistry metricsRegistry) {
+    this.metricsRegistry = (null == metricsRegistry) ? NoopMetricsRegistry.INSTANCE : metricsRegistry;
+  }
+  public boolean isJmxEnabled() {
+    return jmxEnabled;
+  }
+  /**
+   * Registers a {@link JsonDBMXBean} for the db and a {@link CollectionMXBean} per collection with the
+   * platform MBean server. They are unregistered by {@link JsonDBOperations#shutdown()}. Disabled by default.
+   * Must be set before the JsonDBTemplate is created.
+   *
+   * @param jmxEnabled true to register MBeans
+   */
+  public void setJmxEnabled(boolean jmxEnabled) {
+    this.jmxEnabled = jmxEnabled;
+  }
+  public SlowOperationLog getSlowOperationLog() {
+    return slowOperationLog;
+  }
+  /**
+   * Replaces the slow operation log, for instance to write it to a different logger. The thresholds
+   * and interval set so far are not carried over.
+   *
+   * @param slowOperationLog the log to use
+   */
+  public void setSlowOperationLog(SlowOperationLog slowOperationLog) {
+    this.slowOperationLog = slowOperationLog;
+  }
+  /**
+   * Logs the operations of a type that take at least the given time through SLF4J, with the
+   * collection, the query and the document counts involved and the time split across lock wait,
+   * evaluation and copying, or file lock wait, writing and renaming for rewrites. Nothing is logged
+   * by default.
+   *
+   * @param operation type of operation
+   * @param threshold duration from which an operation is logged, less than 1 disables logging of the type
+   * @param unit unit of the threshold
+   */
+  public void setSlowOperationThreshold(SlowOperationLog.Operation operation, long threshold, TimeUnit unit) {
+    slowOperationLog.setThreshold(operation, threshold, unit);
+  }
+  /**
+   * Minimum time in milliseconds between two slow operation log lines for the same type of operation,
+   * slow operations in between are only counted. Defaults to 1000.
+   *
+   * @param logIntervalMillis minimum time between two lines, 0 to log every slow operation
+   */
+  public void setSlowOperationLogInterval(long logIntervalMillis) {
+    slowOperationLog.setLogInterval(logIntervalMillis);
+  }
+  public boolean isSnapshotReads() {
+    return snapshotReads;
+  }
+  /**
+   * Enables multi-version snapshot reads. Every write then publishes an immutable version of the
+   * collection, and find, findAll, findOne, findById, findByIds, count and getCollection read the
+   * latest version without taking the collection lock, so they never wait for a writer. Versions
+   * share the unchanged documents, so the price of a write grows with about the square root of the
+   * collection size rather than with the size itself. Disabled by default.
+   *
+   * @param snapshotReads true to read from published snapshots
+   */
+  public void setSnapshotReads(boolean snapshotReads) {
+    this.snapshotReads = snapshotReads;
+  }
 }
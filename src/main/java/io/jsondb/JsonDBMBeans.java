@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registers the {@link JsonDBMXBean} of a database and a {@link CollectionMXBean} per collection
+ * with the platform MBean server, and unregisters them again.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+final class JsonDBMBeans {
+  private static final Logger logger = LoggerFactory.getLogger(JsonDBMBeans.class);
+  private static final String DOMAIN = "io.jsondb";
+  private static final long RATE_SAMPLE_MILLIS = 1000;
+
+  private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+  private final List<ObjectName> registered = new ArrayList<ObjectName>();
+
+  synchronized void register(JsonDBTemplate template, Map<String, CollectionMetaData> cmdMap) {
+    String database = ObjectName.quote(template.getDbConfig().getDbFilesLocation().getAbsolutePath());
+    try {
+      register(new ObjectName(DOMAIN + ":type=Database,name=" + database), new Database(template));
+      for (CollectionMetaData cmd : cmdMap.values()) {
+        register(new ObjectName(DOMAIN + ":type=Collection,database=" + database + ",name=" + ObjectName.quote(cmd.getCollectionName())),
+            new Collection(template, cmd));
+      }
+    } catch (JMException e) {
+      logger.error("Failed to register MBeans for db {}", database, e);
+    }
+  }
+
+  private void register(ObjectName name, Object mbean) throws JMException {
+    try {
+      server.registerMBean(mbean, name);
+      registered.add(name);
+    } catch (InstanceAlreadyExistsException e) {
+      logger.warn("MBean {} is already registered by another JsonDBTemplate for the same db", name);
+    }
+  }
+
+  synchronized void unregister() {
+    for (ObjectName name : registered) {
+      try {
+        server.unregisterMBean(name);
+      } catch (JMException e) {
+        logger.warn("Failed to unregister MBean {}", name, e);
+      }
+    }
+    registered.clear();
+  }
+
+  static class Database implements JsonDBMXBean {
+    private final JsonDBTemplate template;
+
+    Database(JsonDBTemplate template) {
+      this.template = template;
+    }
+
+    @Override
+    public String getDbFilesLocation() {
+      return template.getDbConfig().getDbFilesLocation().getAbsolutePath();
+    }
+
+    @Override
+    public boolean isEncrypted() {
+      return null != template.getDbConfig().getCipher();
+    }
+
+    @Override
+    public String[] getCollectionNames() {
+      return template.getCollectionNames().toArray(new String[0]);
+    }
+
+    @Override
+    public long getDocumentCount() {
+      long count = 0;
+      for (String collectionName : template.getCollectionNames()) {
+        count += template.documentCount(collectionName);
+      }
+      return count;
+    }
+
+    @Override
+    public long getFileSize() {
+      long size = 0;
+      for (String collectionName : template.getCollectionNames()) {
+        File collectionFile = template.collectionFile(collectionName);
+        size += (null == collectionFile) ? 0 : collectionFile.length();
+      }
+      return size;
+    }
+
+    @Override
+    public long getEstimatedHeapBytes() {
+      long bytes = 0;
+      for (MemoryStats stats : template.memoryStats().values()) {
+        bytes += stats.getTotalBytes();
+      }
+      return bytes;
+    }
+
+    @Override
+    public void reloadDB() {
+      template.reLoadDB();
+    }
+
+    @Override
+    public void flush() {
+      for (String collectionName : template.getCollectionNames()) {
+        template.flushCollection(collectionName);
+      }
+    }
+  }
+
+  static class Collection implements CollectionMXBean {
+    private final JsonDBTemplate template;
+    private final CollectionMetaData cmd;
+
+    private long sampleTime = System.currentTimeMillis();
+    private long sampleCount;
+    private double writesPerSecond;
+
+    Collection(JsonDBTemplate template, CollectionMetaData cmd) {
+      this.template = template;
+      this.cmd = cmd;
+      this.sampleCount = cmd.getModificationCount();
+    }
+
+    @Override
+    public String getCollectionName() {
+      return cmd.getCollectionName();
+    }
+
+    @Override
+    public boolean isExists() {
+      return template.getCollectionNames().contains(cmd.getCollectionName());
+    }
+
+    @Override
+    public boolean isReadOnly() {
+      return cmd.isReadOnly();
+    }
+
+    @Override
+    public int getDocumentCount() {
+      return template.documentCount(cmd.getCollectionName());
+    }
+
+    @Override
+    public long getFileSize() {
+      File collectionFile = template.collectionFile(cmd.getCollectionName());
+      return (null == collectionFile) ? 0 : collectionFile.length();
+    }
+
+    @Override
+    public MemoryStats getMemoryStats() {
+      if (!template.collectionExists(cmd.getCollectionName())) {
+        return null;
+      }
+      return template.memoryStats(cmd.getCollectionName());
+    }
+
+    @Override
+    public long getLastWriteTime() {
+      File collectionFile = template.collectionFile(cmd.getCollectionName());
+      return (null == collectionFile) ? 0 : collectionFile.lastModified();
+    }
+
+    @Override
+    public int getLockQueueLength() {
+      return cmd.getCollectionLock().getQueueLength();
+    }
+
+    @Override
+    public long getLockTimeouts() {
+      return cmd.getLockWaitStats().getTimeouts();
+    }
+
+    @Override
+    public long getMeanLockWaitNanos() {
+      return cmd.getLockWaitStats().getMeanWaitNanos();
+    }
+
+    @Override
+    public long getWriteCount() {
+      return cmd.getModificationCount();
+    }
+
+    @Override
+    public synchronized double getWritesPerSecond() {
+      long now = System.currentTimeMillis();
+      if ((now - sampleTime) >= RATE_SAMPLE_MILLIS) {
+        long count = cmd.getModificationCount();
+        writesPerSecond = (count - sampleCount) * 1000.0 / (now - sampleTime);
+        sampleTime = now;
+        sampleCount = count;
+      }
+      return writesPerSecond;
+    }
+
+    @Override
+    public void reload() {
+      template.reloadCollection(cmd.getCollectionName());
+    }
+
+    @Override
+    public void compact() {
+      template.removeExpired(cmd.getCollectionName());
+      template.flushCollection(cmd.getCollectionName());
+    }
+
+    @Override
+    public void flush() {
+      template.flushCollection(cmd.getCollectionName());
+    }
+  }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb;
+
+/**
+ * Management interface of a database, registered as io.jsondb:type=Database,name=&lt;dbFilesLocation&gt;
+ * when {@link JsonDBConfig#setJmxEnabled} is set.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public interface JsonDBMXBean {
+
+  String getDbFilesLocation();
+
+  boolean isEncrypted();
+
+  /**
+   * @return names of the collections that currently exist
+   */
+  String[] getCollectionNames();
+
+  /**
+   * @return number of documents held in memory across all collections
+   */
+  long getDocumentCount();
+
+  /**
+   * @return size in bytes of all collection files
+   */
+  long getFileSize();
+
+  /**
+   * @return estimated heap in bytes retained by all collections, see {@link JsonDBOperations#memoryStats()}
+   */
+  long getEstimatedHeapBytes();
+
+  /**
+   * Reloads all collections from their files.
+   */
+  void reloadDB();
+
+  /**
+   * Rewrites the files of all collections from their in-memory state.
+   */
+  void flush();
+}
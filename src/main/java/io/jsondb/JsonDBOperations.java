@@ -22,12 +22,18 @@ package io.jsondb;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 import io.jsondb.crypto.ICipher;
 import io.jsondb.events.CollectionFileChangeListener;
+import io.jsondb.query.QueryExplanation;
 import io.jsondb.query.Update;
 import io.jsondb.query.ddl.CollectionSchemaUpdate;
+import io.jsondb.reactive.DocumentChange;
+import io.jsondb.reactive.Flow;
 
 /**
  * Interface that defines the methods available in JsonDBTemplate
@@ -47,9 +53,17 @@ public interface JsonDBOperations {
   /**
    * Reloads a particular collection from dblocation directory
    * @param collectionName name of the collection to reload
+   * @throws LockTimeoutException if the file lock of the collection could not be acquired in time,
+   *         the collection is left as it was in memory
    */
   void reloadCollection(String collectionName);
 
+  /**
+   * Stops the background threads of the db and unregisters its MBeans. Called automatically when the
+   * JVM exits, call it explicitly when a db is closed earlier.
+   */
+  void shutdown();
+
   /**
    * adds a CollectionFileChangeListener to db.
    *
@@ -110,6 +124,10 @@ public interface JsonDBOperations {
    * Update a collection as per the specified CollectionUpdate param.
    * This method is only available by collectionName and not by Class.
    *
+   * All the operations are applied to the JSON of each document in a single pass over the collection
+   * file, fields no operation mentions are kept as they are. The in-memory collection is rebuilt from
+   * the updated documents and is no longer readonly afterwards.
+   *
    * @param update how to update the Collection
    * @param collectionName  name of the collection to update schema for
    * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
@@ -217,6 +235,138 @@ public interface JsonDBOperations {
    */
   <T> List<T> findAll(String collectionName);
 
+  /**
+   * Publishes the documents matching the query in response to demand. Every subscription runs the
+   * query and holds only references to the matching documents, each one is copied and decrypted just
+   * before it is sent, so memory use depends on the demand and not on the size of the result.
+   *
+   * @param jxQuery JxPath query string
+   * @param entityClass class that determines the collection to use
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return a publisher of copies of the matching documents
+   */
+  <T> Flow.Publisher<T> findAsPublisher(String jxQuery, Class<T> entityClass);
+
+  /**
+   * Publishes the documents matching the query in response to demand, see {@link #findAsPublisher(String, Class)}.
+   *
+   * @param jxQuery JxPath query string
+   * @param collectionName name of the collection to use
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return a publisher of copies of the matching documents
+   */
+  <T> Flow.Publisher<T> findAsPublisher(String jxQuery, String collectionName);
+
+  /**
+   * Publishes all documents of the collection in response to demand, see {@link #findAsPublisher(String, Class)}.
+   *
+   * @param entityClass class that determines the collection to use
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return a publisher of copies of the documents
+   */
+  <T> Flow.Publisher<T> findAllAsPublisher(Class<T> entityClass);
+
+  /**
+   * Publishes all documents of the collection in response to demand, see {@link #findAsPublisher(String, Class)}.
+   *
+   * @param collectionName name of the collection to use
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return a publisher of copies of the documents
+   */
+  <T> Flow.Publisher<T> findAllAsPublisher(String collectionName);
+
+  /**
+   * Publishes every insert, update and removal of a document of the collection made after subscribing.
+   * Each subscriber buffers at most {@link JsonDBConfig#getChangeBufferSize()} changes it has not requested
+   * yet, one that falls further behind is failed rather than holding up writers.
+   *
+   * @param entityClass class that determines the collection to watch
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return a publisher of the document changes
+   */
+  <T> Flow.Publisher<DocumentChange<T>> changes(Class<T> entityClass);
+
+  /**
+   * Publishes every change to a document of the collection, see {@link #changes(Class)}.
+   *
+   * @param collectionName name of the collection to watch
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return a publisher of the document changes
+   */
+  <T> Flow.Publisher<DocumentChange<T>> changes(String collectionName);
+
+  /**
+   * Counts the documents in the collection for the entity class that match the query.
+   * Unlike find no document is copied or decrypted.
+   *
+   * @param jxQuery a XPATH query expression
+   * @param entityClass class that determines the collection to use
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return the number of matching documents
+   */
+  <T> int count(String jxQuery, Class<T> entityClass);
+
+  /**
+   * Counts the documents in the specified collection that match the query.
+   * Unlike find no document is copied or decrypted.
+   *
+   * @param jxQuery a XPATH query expression
+   * @param collectionName name of the collection to count the documents of
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return the number of matching documents
+   */
+  <T> int count(String jxQuery, String collectionName);
+
+  /**
+   * Finds the documents whose {@link io.jsondb.annotation.TextIndexed} fields match a text query,
+   * using the in-memory inverted index instead of scanning the collection.
+   *
+   * A text query is a list of terms and double quoted phrases, for example <code>ssd "us east"</code>.
+   * A document matches if one of its text indexed fields contains all the terms and phrases.
+   * Matching is case insensitive and punctuation is ignored.
+   *
+   * @param textQuery the terms and phrases to look for
+   * @param entityClass class that determines the collection to use
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return the list of found objects
+   */
+  <T> List<T> findByText(String textQuery, Class<T> entityClass);
+
+  /**
+   * Finds the documents of the specified collection whose {@link io.jsondb.annotation.TextIndexed}
+   * fields match a text query.
+   *
+   * @param textQuery the terms and phrases to look for
+   * @param collectionName name of the collection to retrieve the objects from
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return the list of found objects
+   */
+  <T> List<T> findByText(String textQuery, String collectionName);
+
+  /**
+   * Finds the documents of a schemaless collection, see {@link JsonDBConfig#registerSchemalessCollection(String, String)},
+   * whose node at a JSON Pointer, for example <code>/server/region</code>, equals the given value.
+   * The value is converted to a JSON tree and compared with the node, so numbers must be given with
+   * the type they are stored as, for example an Integer for small whole numbers.
+   *
+   * @param jsonPointer JSON Pointer expression locating the node to compare in each document
+   * @param value the value the node must equal, null matches explicit null nodes
+   * @param collectionName name of the schemaless collection
+   * @param <T> ObjectNode or one of its supertypes
+   * @return copies of the matching documents
+   */
+  <T> List<T> findByPointer(String jsonPointer, Object value, String collectionName);
+
   /**
    * Returns a document with the given id mapped onto the given class. The collection the query is ran against will be
    * derived from the given target class as well.
@@ -240,6 +390,53 @@ public interface JsonDBOperations {
    */
   <T> T findById(Object id, String collectionName);
 
+  /**
+   * Returns the documents with the given ids mapped onto the given class. The collection the query is ran
+   * against will be derived from the given target class as well.
+   *
+   * @param ids the ids of the documents to return
+   * @param entityClass the type the documents shall be converted into.
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return the found documents in the iteration order of ids, ids that do not exist are skipped
+   */
+  <T> List<T> findByIds(Collection<?> ids, Class<T> entityClass);
+
+  /**
+   * Returns the documents with the given ids from the given collection.
+   *
+   * @param ids the ids of the documents to return
+   * @param collectionName the collection to query for the documents
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return the found documents in the iteration order of ids, ids that do not exist are skipped
+   */
+  <T> List<T> findByIds(Collection<?> ids, String collectionName);
+
+  /**
+   * Returns the documents with the given ids mapped onto the given class, keyed by their id.
+   * Ids that do not exist in the collection have no entry in the returned map.
+   *
+   * @param ids the ids of the documents to return
+   * @param entityClass the type the documents shall be converted into.
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return map of id to document in the iteration order of ids
+   */
+  <T> Map<Object, T> findByIdsAsMap(Collection<?> ids, Class<T> entityClass);
+
+  /**
+   * Returns the documents with the given ids from the given collection, keyed by their id.
+   * Ids that do not exist in the collection have no entry in the returned map.
+   *
+   * @param ids the ids of the documents to return
+   * @param collectionName the collection to query for the documents
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return map of id to document in the iteration order of ids
+   */
+  <T> Map<Object, T> findByIdsAsMap(Collection<?> ids, String collectionName);
+
   <T> T findOne(String jxQuery, Class<T> entityClass);
   <T> T findOne(String jxQuery, String collectionName);
 
@@ -354,6 +551,26 @@ public interface JsonDBOperations {
    */
   <T> List<T> remove(Collection<? extends T> batchToRemove, String collectionName);
 
+  /**
+   * Removes all documents of the collection whose {@link io.jsondb.annotation.ExpiresAt} deadline
+   * has passed, using a single write to the collection file.
+   *
+   * @param entityClass class that determines the collection to purge
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return the number of documents removed
+   */
+  <T> int removeExpired(Class<T> entityClass);
+
+  /**
+   * Removes all documents of the collection whose {@link io.jsondb.annotation.ExpiresAt} deadline
+   * has passed, using a single write to the collection file.
+   *
+   * @param collectionName name of the collection to purge
+   * @return the number of documents removed
+   */
+  int removeExpired(String collectionName);
+
   /**
    * Performs an upsert. If no document is found that matches the query, a new document is
    * created and inserted, else the found document is updated with contents of object
@@ -484,6 +701,83 @@ public interface JsonDBOperations {
   <T> List<T> findAllAndModify(String jxQuery, Update update, Class<T> entityClass);
   <T> List<T> findAllAndModify(String jxQuery, Update update, String collectionName);
 
+  /**
+   * Runs the callback and then commits all the changes it buffered in the passed {@link Transaction}
+   * as one unit, across any number of collections.
+   *
+   * The changes are checked against the collections, written to the write-ahead log with a single
+   * forced write and then applied in memory while the write locks of all the collections involved are
+   * held, so readers see either none or all of them. Finally the collection files are rewritten. If the
+   * process dies before that, the logged transaction is replayed the next time the db is opened, a
+   * transaction whose log record is incomplete is discarded.
+   *
+   * If the callback throws or a change fails its checks nothing is committed.
+   *
+   * @param callback the unit of work that buffers the changes
+   * @param <T> type of the value returned by the callback
+   * @return the value returned by the callback
+   */
+  <T> T inTransaction(TransactionCallback<T> callback);
+
+  /**
+   * Explains how a query is run against a collection, for any of the methods that take a jxQuery.
+   *
+   * The query is planned and then evaluated, and its matches copied, the way find does it, skipping the
+   * query result cache and snapshots. Nothing is modified even if the query is meant for a findAndRemove
+   * or findAndModify. The result tells which index, if any, was chosen, what remains of the predicate,
+   * the documents expected and actually scanned and the time spent waiting for the lock, evaluating
+   * and copying.
+   *
+   * @param jxQuery a XPATH query expression
+   * @param entityClass Entity class of the collection
+   * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+   *            and member of the baseScanPackage
+   * @return the explanation
+   */
+  <T> QueryExplanation explain(String jxQuery, Class<T> entityClass);
+
+  /**
+   * Explains how a query is run against a collection, see {@link #explain(String, Class)}.
+   *
+   * @param jxQuery a XPATH query expression
+   * @param collectionName name of the collection
+   * @return the explanation
+   */
+  QueryExplanation explain(String jxQuery, String collectionName);
+
+  /**
+   * Estimates the heap retained by every collection, see {@link #memoryStats(String)}.
+   *
+   * @return the estimates keyed by collection name
+   */
+  Map<String, MemoryStats> memoryStats();
+
+  /**
+   * Estimates the heap retained by a collection: its documents, indexes, query result cache and
+   * snapshot, and JXPathContext. Only a sample of the documents is measured, see
+   * {@link JsonDBConfig#setMemoryStatsSampleSize(int)}, so the cost does not grow with the size of
+   * the documents. The estimates are also published as gauges to the configured
+   * {@link io.jsondb.metrics.MetricsRegistry}.
+   *
+   * @param collectionName name of the collection
+   * @return the estimate
+   */
+  MemoryStats memoryStats(String collectionName);
+
+  /**
+   * Runs the operations with a lock timeout that overrides {@link JsonDBConfig#getLockTimeout()}
+   * for every call made by the current thread within them. A call that cannot get the lock of its
+   * collection within the timeout throws a {@link LockTimeoutException} instead of waiting on.
+   * The file lock of collection files is always bounded by the configured default.
+   *
+   * @param timeout maximum time to wait for a lock, a value less than 1 waits indefinitely
+   * @param unit unit of the timeout
+   * @param operations the calls to make
+   * @param <T> type of the value returned by the operations
+   * @return the value returned by the operations
+   */
+  <T> T withLockTimeout(long timeout, TimeUnit unit, Supplier<T> operations);
+
   /**
    * A method that allows changing the encryption algorithm and or encryption key used.
    *
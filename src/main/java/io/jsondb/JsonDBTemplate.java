@@ -24,11 +24,12 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
 import java.nio.charset.CharacterCodingException;
 import java.nio.file.Files;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -38,34 +39,72 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.apache.commons.beanutils.BeanUtils;
 import org.apache.commons.jxpath.JXPathContext;
+import org.apache.commons.jxpath.JXPathIntrospector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonPointer;
 import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import io.jsondb.crypto.CryptoUtil;
 import io.jsondb.crypto.ICipher;
 import io.jsondb.events.CollectionFileChangeListener;
 import io.jsondb.events.EventListenerList;
+import io.jsondb.index.CollectionIndexes;
+import io.jsondb.index.ExpiryIndex;
+import io.jsondb.index.TextIndex;
 import io.jsondb.io.JsonFileLockException;
 import io.jsondb.io.JsonReader;
 import io.jsondb.io.JsonWriter;
+import io.jsondb.io.WriteAheadLog;
+import io.jsondb.jfr.FlightRecorderEvent;
+import io.jsondb.metrics.HeapEstimator;
+import io.jsondb.metrics.MetricNames;
+import io.jsondb.metrics.MetricsRegistry;
+import io.jsondb.metrics.SlowOperationLog;
+import io.jsondb.query.JsonNodePropertyHandler;
+import io.jsondb.query.ParallelQueryTask;
+import io.jsondb.query.QueryExplanation;
+import io.jsondb.query.QueryPlan;
+import io.jsondb.query.QueryResultCache;
 import io.jsondb.query.Update;
-import io.jsondb.query.ddl.AddOperation;
 import io.jsondb.query.ddl.CollectionSchemaUpdate;
-import io.jsondb.query.ddl.DeleteOperation;
-import io.jsondb.query.ddl.RenameOperation;
+import io.jsondb.query.ddl.SchemaUpdateTransformer;
+import io.jsondb.reactive.ChangeFeed;
+import io.jsondb.reactive.DocumentChange;
+import io.jsondb.reactive.Flow;
+import io.jsondb.reactive.QueryPublisher;
 
 /**
  * @version 1.0 25-Sep-2016
  */
 public class JsonDBTemplate implements JsonDBOperations {
+  static {
+    //JXPath queries navigate the ObjectNode documents of schemaless collections like Maps
+    JXPathIntrospector.registerDynamicClass(ObjectNode.class, JsonNodePropertyHandler.class);
+  }
+
   private Logger logger = LoggerFactory.getLogger(JsonDBTemplate.class);
 
   private JsonDBConfig dbConfig = null;
@@ -77,6 +116,21 @@ public class JsonDBTemplate implements JsonDBOperations {
   private AtomicReference<Map<String, File>> fileObjectsRef = new AtomicReference<Map<String, File>>(new ConcurrentHashMap<String, File>());
   private AtomicReference<Map<String, Map<Object, ?>>> collectionsRef = new AtomicReference<Map<String, Map<Object, ?>>>(new ConcurrentHashMap<String, Map<Object, ?>>());
   private AtomicReference<Map<String, JXPathContext>> contextsRef = new AtomicReference<Map<String, JXPathContext>>(new ConcurrentHashMap<String, JXPathContext>());
+  private Map<String, QueryResultCache> queryCaches = new ConcurrentHashMap<String, QueryResultCache>();
+  private Map<String, CollectionIndexes> collectionIndexes = new ConcurrentHashMap<String, CollectionIndexes>();
+  private Map<String, Map<Object, Object>> documentsById = new ConcurrentHashMap<String, Map<Object, Object>>();
+  private volatile ScheduledExecutorService expirer;
+  private volatile ScheduledExecutorService upcastPersister;
+  private Set<String> pendingUpcasts = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  private Map<String, WriteStripes> writeStripes = new ConcurrentHashMap<String, WriteStripes>();
+  private Map<String, CollectionSnapshot<?>> snapshots = new ConcurrentHashMap<String, CollectionSnapshot<?>>();
+  private Map<String, List<Entry<Object, Object>>> snapshotChanges = new ConcurrentHashMap<String, List<Entry<Object, Object>>>();
+  private WriteAheadLog transactionLog;
+  private AtomicLong transactionIds = new AtomicLong(System.currentTimeMillis());
+  private final ThreadLocal<Long> callLockTimeout = new ThreadLocal<Long>();
+  private JsonDBMBeans mbeans;
+  private final ThreadLocal<QueryTrace> queryTrace = new ThreadLocal<QueryTrace>();
+  private ConcurrentHashMap<String, ChangeFeed<?>> changeFeeds = new ConcurrentHashMap<String, ChangeFeed<?>>();
 
   public JsonDBTemplate(String dbFilesLocationString, String baseScanPackage) {
     this(dbFilesLocationString, baseScanPackage, null, false, null);
@@ -91,8 +145,18 @@ public class JsonDBTemplate implements JsonDBOperations {
   }
 
   public JsonDBTemplate(String dbFilesLocationString, String baseScanPackage, ICipher cipher, boolean compatibilityMode, Comparator<String> schemaComparator) {
-    dbConfig = new JsonDBConfig(dbFilesLocationString, baseScanPackage, cipher, compatibilityMode, schemaComparator);
-    if (null == cipher) {
+    this(new JsonDBConfig(dbFilesLocationString, baseScanPackage, cipher, compatibilityMode, schemaComparator));
+  }
+
+  /**
+   * Creates a template for a fully prepared JsonDBConfig, this is useful when some of
+   * the optional settings of JsonDBConfig need to be in effect from the very start.
+   *
+   * @param dbConfig the settings for this db
+   */
+  public JsonDBTemplate(JsonDBConfig dbConfig) {
+    this.dbConfig = dbConfig;
+    if (null == dbConfig.getCipher()) {
       logger.info("Encryption is not enabled for JSON DB");
       this.encrypted = false;
     } else {
@@ -101,6 +165,10 @@ public class JsonDBTemplate implements JsonDBOperations {
     }
     initialize();
     eventListenerList = new EventListenerList(dbConfig, cmdMap);
+    if (dbConfig.isJmxEnabled()) {
+      mbeans = new JsonDBMBeans();
+      mbeans.register(this, cmdMap);
+    }
   }
 
   private void initialize(){
@@ -123,15 +191,41 @@ public class JsonDBTemplate implements JsonDBOperations {
 
     loadDB();
 
+    transactionLog = new WriteAheadLog(dbConfig);
+    recoverTransactions();
+
     // Auto-cleanup at shutdown
     Runtime.getRuntime().addShutdownHook(new Thread() {
       @Override
       public void run() {
-        eventListenerList.shutdown();
+        shutdown();
       }
     });
   }
 
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#shutdown()
+   */
+  @Override
+  public void shutdown() {
+    if (null != eventListenerList) {
+      eventListenerList.shutdown();
+    }
+    if (null != expirer) {
+      expirer.shutdownNow();
+    }
+    if (null != upcastPersister) {
+      upcastPersister.shutdownNow();
+    }
+    if (null != mbeans) {
+      mbeans.unregister();
+    }
+  }
+
+  public JsonDBConfig getDbConfig() {
+    return dbConfig;
+  }
+
   /* (non-Javadoc)
    * @see io.jsondb.JsonDBOperations#reLoadDB()
    */
@@ -150,6 +244,9 @@ public class JsonDBTemplate implements JsonDBOperations {
         //that is the reason even though the file does not exist a entry into collectionsRef still exists.
         contextsRef.get().remove(collectionName);
         collectionsRef.get().remove(collectionName);
+        collectionIndexes.remove(collectionName);
+        documentsById.remove(collectionName);
+        collectionModified(cmdMap.get(collectionName));
       }
     }
   }
@@ -159,7 +256,7 @@ public class JsonDBTemplate implements JsonDBOperations {
    */
   public void reloadCollection(String collectionName) {
     CollectionMetaData cmd = cmdMap.get(collectionName);
-    cmd.getCollectionLock().writeLock().lock();
+    lockForWrite(cmd);
     try {
       File collectionFile = fileObjectsRef.get().get(collectionName);
       if(null == collectionFile) {
@@ -179,41 +276,77 @@ public class JsonDBTemplate implements JsonDBOperations {
           JXPathContext newContext = JXPathContext.newContext(collection.values());
           contextsRef.get().put(collectionName, newContext);
           collectionsRef.get().put(collectionName, collection);
+          rebuildIndexes(cmd, collection);
+          collectionModified(cmd);
+          if (pendingUpcasts.contains(collectionName)) {
+            schedulePersistUpcast(collectionName);
+          }
         } else {
           //Since this is a reload attempt its possible the .json files have disappeared in the interim a very rare thing
           contextsRef.get().remove(collectionName);
           collectionsRef.get().remove(collectionName);
+          collectionIndexes.remove(collectionName);
+          documentsById.remove(collectionName);
+          collectionModified(cmd);
         }
       }
     } finally {
-      cmd.getCollectionLock().writeLock().unlock();
+      unlockForWrite(cmd);
     }
   }
 
   private <T> Map<Object, T> loadCollection(File collectionFile, String collectionName, CollectionMetaData cmd) {
     @SuppressWarnings("unchecked")
     Class<T> entity = cmd.getClazz();
-    Method getterMethodForId = cmd.getIdAnnotatedFieldGetterMethod();
 
     JsonReader jr = null;
     Map<Object, T> collection = new LinkedHashMap<Object, T>();
+    List<DocumentUpcaster> upcasters = null;
 
     String line = null;
     int lineNo = 1;
+    long start = System.nanoTime();
+    Object event = FlightRecorderEvent.COLLECTION_LOAD.begin();
     try {
-      jr = new JsonReader(dbConfig, collectionFile);
+      jr = new JsonReader(dbConfig, collectionFile, lockTimeout());
 
       while ((line = jr.readLine()) != null) {
         if (lineNo == 1) {
           SchemaVersion v = dbConfig.getObjectMapper().readValue(line, SchemaVersion.class);
           cmd.setActualSchemaVersion(v.getSchemaVersion());
+          if (cmd.isReadOnly()) {
+            //An older file is writable if the registered upcasters can bring its documents up to date
+            upcasters = dbConfig.getSchemaUpcasters().getChain(collectionName, v.getSchemaVersion(),
+                cmd.getSchemaVersion(), dbConfig.getSchemaComparator());
+          }
         } else {
-          T row = dbConfig.getObjectMapper().readValue(line, entity);
-          Object id = Util.getIdForEntity(row, getterMethodForId);
+          T row;
+          if (null == upcasters) {
+            row = dbConfig.getObjectMapper().readValue(line, entity);
+          } else {
+            ObjectNode document = (ObjectNode) dbConfig.getObjectMapper().readTree(line);
+            for (DocumentUpcaster upcaster : upcasters) {
+              upcaster.upcast(document);
+            }
+            row = dbConfig.getObjectMapper().treeToValue(document, entity);
+          }
+          Object id = Util.getIdForEntity(row, cmd);
           collection.put(id, row);
         }
         lineNo++;
       }
+      if (null != upcasters) {
+        //The file keeps the old version until the upgraded documents are written back
+        cmd.setActualSchemaVersion(cmd.getSchemaVersion());
+        pendingUpcasts.add(collectionName);
+        dbConfig.getMetricsRegistry().increment(collectionName, MetricNames.DOCUMENTS_UPCAST, collection.size());
+      }
+      MetricsRegistry metrics = dbConfig.getMetricsRegistry();
+      metrics.recordLatency(collectionName, MetricNames.LOAD, System.nanoTime() - start);
+      metrics.increment(collectionName, MetricNames.BYTES_READ, collectionFile.length());
+      if (null != event) {
+        FlightRecorderEvent.COLLECTION_LOAD.commit(event, collectionName, collection.size(), collectionFile.length());
+      }
     } catch (JsonParseException je) {
       logger.error("Failed Json Parsing for file {} line {}", collectionFile.getName(), lineNo, je);
       return null;
@@ -234,6 +367,9 @@ public class JsonDBTemplate implements JsonDBOperations {
     } catch (IOException e) {
       logger.error("Some IO Exception reading the Json File {}", collectionFile.getName(), e);
       return null;
+    } catch (LockTimeoutException lte) {
+      //The file is busy, not gone, the caller must keep what it has in memory
+      throw lte;
     } catch(Throwable t) {
       logger.error("Throwable Caught ", collectionFile.getName(), t);
       return null;
@@ -293,7 +429,7 @@ public class JsonDBTemplate implements JsonDBOperations {
       throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' already exists.");
     }
 
-    cmd.getCollectionLock().writeLock().lock();
+    lockForWrite(cmd);
 
     // Some other thread might have created same collection when this thread reached this point
     if(collectionsRef.get().get(collectionName) != null) {
@@ -314,6 +450,8 @@ public class JsonDBTemplate implements JsonDBOperations {
         collection = new LinkedHashMap<Object, T>();
         collectionsRef.get().put(collectionName, collection);
         contextsRef.get().put(collectionName, JXPathContext.newContext(collection.values())) ;
+        rebuildIndexes(cmd, collection);
+        collectionModified(cmd);
         fileObjectsRef.get().put(collectionName, fileObject);
         cmd.setActualSchemaVersion(cmd.getSchemaVersion());
       } else {
@@ -321,7 +459,7 @@ public class JsonDBTemplate implements JsonDBOperations {
         throw new JsonDBException("Failed to stamp version for collection: " + collectionName);
       }
     } finally {
-      cmd.getCollectionLock().writeLock().unlock();
+      unlockForWrite(cmd);
     }
   }
 
@@ -342,7 +480,7 @@ public class JsonDBTemplate implements JsonDBOperations {
     if((null == cmd) || (!collectionsRef.get().containsKey(collectionName))) {
       throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
     }
-    cmd.getCollectionLock().writeLock().lock();
+    lockForWrite(cmd);
     try {
       File toDelete = fileObjectsRef.get().get(collectionName);
       try {
@@ -356,8 +494,12 @@ public class JsonDBTemplate implements JsonDBOperations {
       fileObjectsRef.get().remove(collectionName);
       collectionsRef.get().remove(collectionName);
       contextsRef.get().remove(collectionName);
+      queryCaches.remove(collectionName);
+      collectionIndexes.remove(collectionName);
+      documentsById.remove(collectionName);
+      collectionModified(cmd);
     } finally {
-      cmd.getCollectionLock().writeLock().unlock();
+      unlockForWrite(cmd);
     }
   }
 
@@ -380,86 +522,50 @@ public class JsonDBTemplate implements JsonDBOperations {
     if((null == cmd) || (null == collection)) {
       throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
     }
-    boolean reloadCollectionAsSomethingChanged = false;
-    //We only take care of ADD and RENAME, the deletes will be taken care of automatically.
-    if (null != update) {
-      Map<String, RenameOperation> renOps = update.getRenameOperations();
-      if (renOps.size() > 0) {
-        reloadCollectionAsSomethingChanged = true;
-        cmd.getCollectionLock().writeLock().lock();
-        
-        for(Entry<String, RenameOperation> updateEntry: renOps.entrySet()) {
-          String oldKey = updateEntry.getKey();
-          
-          RenameOperation op = updateEntry.getValue();
-          String newKey = op.getNewName();
-
-          JsonWriter jw;
-          try {
-            jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
-          } catch (IOException ioe) {
-            logger.error("Failed to obtain writer for " + collectionName, ioe);
-            throw new JsonDBException("Failed to save " + collectionName, ioe);
-          }
-          jw.renameKeyInJsonFile(collection.values(), true, oldKey, newKey);
-        }
-        cmd.getCollectionLock().writeLock().unlock();
+    if ((null == update) || update.getUpdateData().isEmpty()) {
+      return;
+    }
+    final SchemaUpdateTransformer transformer = new SchemaUpdateTransformer(update,
+        dbConfig.getObjectMapper().getFactory(), dbConfig.getCipher());
+    @SuppressWarnings("unchecked")
+    final Class<T> entity = cmd.getClazz();
+
+    lockForWrite(cmd);
+    try {
+      //One pass over the file applies every operation, the in-memory state is rebuilt from the rewritten documents
+      final Map<Object, T> updatedCollection = new LinkedHashMap<Object, T>();
+      JsonWriter jw;
+      try {
+        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
+      } catch (IOException ioe) {
+        logger.error("Failed to obtain writer for " + collectionName, ioe);
+        throw new JsonDBException("Failed to save " + collectionName, ioe);
       }
-      
-      Map<String, AddOperation> addOps = update.getAddOperations();
-      if (addOps.size() > 0) {
-        reloadCollectionAsSomethingChanged = true;
-        cmd.getCollectionLock().writeLock().lock();
-        
-        for(Entry<String, AddOperation> updateEntry: addOps.entrySet()) {
-          AddOperation op = updateEntry.getValue();
-          
-          Object value = null;
-          if (op.isSecret()) {
-            value = dbConfig.getCipher().encrypt((String)op.getDefaultValue());
-          } else {
-            value = op.getDefaultValue();
-          }
-          
-          String fieldName = updateEntry.getKey();
-          Method setterMethod = cmd.getSetterMethodForFieldName(fieldName);
-          for(T object : collection.values()) {
-            Util.setFieldValueForEntity(object, value, setterMethod);
+      boolean substituted = jw.transformJsonFile(new Function<String, String>() {
+        @Override
+        public String apply(String document) {
+          String updatedDocument = transformer.transform(document);
+          T row;
+          try {
+            row = dbConfig.getObjectMapper().readValue(updatedDocument, entity);
+          } catch (IOException e) {
+            throw new JsonDBException("Failed to map updated document to " + entity.getSimpleName() + ": " + updatedDocument, e);
           }
+          updatedCollection.put(Util.getIdForEntity(row, cmd), row);
+          return updatedDocument;
         }
-        
-        JsonWriter jw;
-        try {
-          jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
-        } catch (IOException ioe) {
-          logger.error("Failed to obtain writer for " + collectionName, ioe);
-          throw new JsonDBException("Failed to save " + collectionName, ioe);
-        }
-        jw.reWriteJsonFile(collection.values(), true);
-        cmd.getCollectionLock().writeLock().unlock();
-      }
-      
-      Map<String, DeleteOperation> delOps = update.getDeleteOperations();
-      if ((renOps.size() < 1 && addOps.size() < 1) && (delOps.size() > 0)) {
-        //There were no ADD operations but there are some DELETE operations so we have to just flush the collection once
-        //This would not have been necessary if there was even 1 ADD operation
-        
-        reloadCollectionAsSomethingChanged = true;
-        cmd.getCollectionLock().writeLock().lock();
-        
-        JsonWriter jw;
-        try {
-          jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
-        } catch (IOException ioe) {
-          logger.error("Failed to obtain writer for " + collectionName, ioe);
-          throw new JsonDBException("Failed to save " + collectionName, ioe);
-        }
-        jw.reWriteJsonFile(collection.values(), true);
-        cmd.getCollectionLock().writeLock().unlock();
-      }
-      if (reloadCollectionAsSomethingChanged) {
-        reloadCollection(collectionName);
+      });
+      if (!substituted) {
+        throw new JsonDBException("Failed to update schema of collection " + collectionName);
       }
+
+      cmd.setActualSchemaVersion(cmd.getSchemaVersion());
+      contextsRef.get().put(collectionName, JXPathContext.newContext(updatedCollection.values()));
+      collectionsRef.get().put(collectionName, updatedCollection);
+      rebuildIndexes(cmd, updatedCollection);
+      collectionModified(cmd);
+    } finally {
+      unlockForWrite(cmd);
     }
   }
 
@@ -493,20 +599,11 @@ public class JsonDBTemplate implements JsonDBOperations {
     }
 
     CollectionMetaData cmd = cmdMap.get(collectionName);
-    List<T> newCollection = new ArrayList<T>();
-    try {
-      for (T document : collection.values()) {
-        Object obj = Util.deepCopy(document);
-        if(encrypted && cmd.hasSecret() && null != obj) {
-          CryptoUtil.decryptFields(obj, cmd, dbConfig.getCipher());
-        }
-        newCollection.add((T) obj);
-      }
-    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-      logger.error("Error when decrypting value for a @Secret annotated field for entity: " + collectionName, e);
-      throw new JsonDBException("Error when decrypting value for a @Secret annotated field for entity: " + collectionName, e);
+    CollectionSnapshot<T> snapshot = getSnapshot(cmd);
+    if (null != snapshot) {
+      return copyDocuments(snapshot.getDocuments(), cmd);
     }
-    return newCollection;
+    return copyDocuments(new ArrayList<T>(collection.values()), cmd);
   }
 
   /* (non-Javadoc)
@@ -526,7 +623,7 @@ public class JsonDBTemplate implements JsonDBOperations {
     if(null == collectionMeta) {
       return false;
     }
-    collectionMeta.getCollectionLock().readLock().lock();
+    lockForRead(collectionMeta);
     try {
       return collectionsRef.get().containsKey(collectionName);
     } finally {
@@ -534,136 +631,1440 @@ public class JsonDBTemplate implements JsonDBOperations {
     }
   }
 
-  /* (non-Javadoc)
-   * @see io.jsondb.JsonDBOperations#isCollectionReadonly(java.lang.Class)
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#isCollectionReadonly(java.lang.Class)
+   */
+  @Override
+  public <T> boolean isCollectionReadonly(Class<T> entityClass) {
+    return isCollectionReadonly(Util.determineCollectionName(entityClass));
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#isCollectionReadonly(java.lang.String)
+   */
+  @Override
+  public <T> boolean isCollectionReadonly(String collectionName) {
+    CollectionMetaData cmd = cmdMap.get(collectionName);
+    return cmd.isReadOnly();
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#find(java.lang.String, java.lang.Class)
+   */
+  @Override
+  public <T> List<T> find(String jxQuery, Class<T> entityClass) {
+    return find(jxQuery, Util.determineCollectionName(entityClass));
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#find(java.lang.String, java.lang.String)
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> List<T> find(String jxQuery, String collectionName) {
+    Object event = FlightRecorderEvent.QUERY.begin();
+    QueryTrace trace = startQueryTrace("find", collectionName, jxQuery);
+    List<T> results;
+    try {
+      results = findMatches(jxQuery, collectionName);
+    } finally {
+      queryTrace.remove();
+    }
+    if (null != event) {
+      FlightRecorderEvent.QUERY.commit(event, collectionName, jxQuery, results.size());
+    }
+    if (null != trace) {
+      trace.finish(dbConfig, results.size());
+    }
+    return results;
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> List<T> findMatches(String jxQuery, String collectionName) {
+    CollectionMetaData cmd = cmdMap.get(collectionName);
+    Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
+    if((null == cmd) || (null == collection)) {
+      throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
+    }
+    CollectionSnapshot<T> snapshot = getSnapshot(cmd);
+    if (null != snapshot) {
+      return copyDocuments(querySnapshot(jxQuery, snapshot, collectionName), cmd);
+    }
+    lockForRead(cmd);
+    try {
+      QueryResultCache queryCache = getQueryResultCache(collectionName);
+      if (null != queryCache) {
+        long modificationCount = cmd.getModificationCount();
+        List<T> matches = (List<T>) queryCache.get(jxQuery, modificationCount);
+        if (null == matches) {
+          matches = evaluateQuery(jxQuery, collection, collectionName);
+          queryCache.put(jxQuery, modificationCount, matches);
+        }
+        return copyDocuments(matches, cmd);
+      }
+      QueryPlan plan = planQuery(jxQuery, collectionName);
+      if (!plan.isIndexed() && isParallelQuery(collection)) {
+        return findInParallel(jxQuery, collection, cmd);
+      }
+      return copyDocuments(evaluateQuery(plan, collection, collectionName), cmd);
+    } finally {
+      cmd.getCollectionLock().readLock().unlock();
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#findAll(java.lang.Class)
+   */
+  @Override
+  public <T> List<T> findAll(Class<T> entityClass) {
+    return findAll(Util.determineCollectionName(entityClass));
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#findAll(java.lang.String)
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> List<T> findAll(String collectionName) {
+    CollectionMetaData cmd = cmdMap.get(collectionName);
+    Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
+    if((null == cmd) || (null == collection)) {
+      throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
+    }
+    CollectionSnapshot<T> snapshot = getSnapshot(cmd);
+    if (null != snapshot) {
+      return copyDocuments(snapshot.getDocuments(), cmd);
+    }
+    lockForRead(cmd);
+    try {
+      if (isParallelQuery(collection)) {
+        return findInParallel(null, collection, cmd);
+      }
+      return copyDocuments(new ArrayList<T>(collection.values()), cmd);
+    } finally {
+      cmd.getCollectionLock().readLock().unlock();
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#findAsPublisher(java.lang.String, java.lang.Class)
+   */
+  @Override
+  public <T> Flow.Publisher<T> findAsPublisher(String jxQuery, Class<T> entityClass) {
+    return findAsPublisher(jxQuery, Util.determineCollectionName(entityClass));
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#findAsPublisher(java.lang.String, java.lang.String)
+   */
+  @Override
+  public <T> Flow.Publisher<T> findAsPublisher(final String jxQuery, final String collectionName) {
+    final CollectionMetaData cmd = getCollectionMetaData(collectionName);
+    return new QueryPublisher<T>() {
+      @SuppressWarnings("unchecked")
+      @Override
+      protected List<T> query() {
+        Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
+        if (null == collection) {
+          throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
+        }
+        CollectionSnapshot<T> snapshot = getSnapshot(cmd);
+        if (null != snapshot) {
+          return querySnapshot(jxQuery, snapshot, collectionName);
+        }
+        lockForRead(cmd);
+        try {
+          return evaluateQuery(jxQuery, collection, collectionName);
+        } finally {
+          cmd.getCollectionLock().readLock().unlock();
+        }
+      }
+
+      @Override
+      protected T copy(T document) {
+        return JsonDBTemplate.this.<T>documentCopier(cmd).apply(document);
+      }
+    };
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#findAllAsPublisher(java.lang.Class)
+   */
+  @Override
+  public <T> Flow.Publisher<T> findAllAsPublisher(Class<T> entityClass) {
+    return findAllAsPublisher(Util.determineCollectionName(entityClass));
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#findAllAsPublisher(java.lang.String)
+   */
+  @Override
+  public <T> Flow.Publisher<T> findAllAsPublisher(final String collectionName) {
+    final CollectionMetaData cmd = getCollectionMetaData(collectionName);
+    return new QueryPublisher<T>() {
+      @SuppressWarnings("unchecked")
+      @Override
+      protected List<T> query() {
+        Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
+        if (null == collection) {
+          throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
+        }
+        CollectionSnapshot<T> snapshot = getSnapshot(cmd);
+        if (null != snapshot) {
+          return snapshot.getDocuments();
+        }
+        lockForRead(cmd);
+        try {
+          return new ArrayList<T>(collection.values());
+        } finally {
+          cmd.getCollectionLock().readLock().unlock();
+        }
+      }
+
+      @Override
+      protected T copy(T document) {
+        return JsonDBTemplate.this.<T>documentCopier(cmd).apply(document);
+      }
+    };
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#changes(java.lang.Class)
+   */
+  @Override
+  public <T> Flow.Publisher<DocumentChange<T>> changes(Class<T> entityClass) {
+    return changes(Util.determineCollectionName(entityClass));
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#changes(java.lang.String)
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> Flow.Publisher<DocumentChange<T>> changes(String collectionName) {
+    final CollectionMetaData cmd = getCollectionMetaData(collectionName);
+    ChangeFeed<?> feed = changeFeeds.get(collectionName);
+    if (null == feed) {
+      feed = new ChangeFeed<T>(collectionName, dbConfig.getChangeBufferSize(), dbConfig.getParallelQueryPool()) {
+        @Override
+        protected T copy(T document) {
+          return JsonDBTemplate.this.<T>documentCopier(cmd).apply(document);
+        }
+      };
+      ChangeFeed<?> existing = changeFeeds.putIfAbsent(collectionName, feed);
+      if (null != existing) {
+        feed = existing;
+      }
+    }
+    return (ChangeFeed<T>) feed;
+  }
+
+  private CollectionMetaData getCollectionMetaData(String collectionName) {
+    CollectionMetaData cmd = cmdMap.get(collectionName);
+    if (null == cmd) {
+      throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
+    }
+    return cmd;
+  }
+
+  /**
+   * Hands a document change to the subscribers of the collection's change feed, if there are any.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> void publishChange(CollectionMetaData cmd, DocumentChange.Type type, Object id, T document) {
+    ChangeFeed<T> feed = (ChangeFeed<T>) changeFeeds.get(cmd.getCollectionName());
+    if ((null != feed) && feed.hasSubscribers()) {
+      feed.publish(type, id, document);
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#count(java.lang.String, java.lang.Class)
+   */
+  @Override
+  public <T> int count(String jxQuery, Class<T> entityClass) {
+    return count(jxQuery, Util.determineCollectionName(entityClass));
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#count(java.lang.String, java.lang.String)
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> int count(String jxQuery, String collectionName) {
+    Object event = FlightRecorderEvent.QUERY.begin();
+    QueryTrace trace = startQueryTrace("count", collectionName, jxQuery);
+    int count;
+    try {
+      count = countMatches(jxQuery, collectionName);
+    } finally {
+      queryTrace.remove();
+    }
+    if (null != event) {
+      FlightRecorderEvent.QUERY.commit(event, collectionName, jxQuery, count);
+    }
+    if (null != trace) {
+      trace.finish(dbConfig, count);
+    }
+    return count;
+  }
+
+  /**
+   * Starts collecting the time split of a query on this thread if slow queries are being logged.
+   *
+   * @return the trace or null if slow queries are not logged
+   */
+  private QueryTrace startQueryTrace(String method, String collectionName, String jxQuery) {
+    if (!dbConfig.getSlowOperationLog().isEnabled(SlowOperationLog.Operation.QUERY)) {
+      return null;
+    }
+    QueryTrace trace = new QueryTrace(method, collectionName, jxQuery);
+    queryTrace.set(trace);
+    return trace;
+  }
+
+  private void traceScanned(int documents) {
+    QueryTrace trace = queryTrace.get();
+    if (null != trace) {
+      trace.addScanned(documents);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> int countMatches(String jxQuery, String collectionName) {
+    CollectionMetaData cmd = cmdMap.get(collectionName);
+    Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
+    if((null == cmd) || (null == collection)) {
+      throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
+    }
+    CollectionSnapshot<T> snapshot = getSnapshot(cmd);
+    if (null != snapshot) {
+      return countLive(querySnapshot(jxQuery, snapshot, collectionName), cmd);
+    }
+    lockForRead(cmd);
+    try {
+      QueryResultCache queryCache = getQueryResultCache(collectionName);
+      if (null != queryCache) {
+        long modificationCount = cmd.getModificationCount();
+        List<?> matches = queryCache.get(jxQuery, modificationCount);
+        if (null == matches) {
+          matches = evaluateQuery(jxQuery, collection, collectionName);
+          queryCache.put(jxQuery, modificationCount, matches);
+        }
+        return countLive(matches, cmd);
+      }
+      QueryPlan plan = planQuery(jxQuery, collectionName);
+      if (plan.isIndexed() || isParallelQuery(collection)) {
+        return countLive(evaluateQuery(plan, collection, collectionName), cmd);
+      }
+      traceScanned(collection.size());
+      JXPathContext context = contextsRef.get().get(collectionName);
+      Iterator<T> resultItr = context.iterate(jxQuery);
+      int count = 0;
+      long now = System.currentTimeMillis();
+      while (resultItr.hasNext()) {
+        if (!isExpired(cmd, resultItr.next(), now)) {
+          count++;
+        }
+      }
+      return count;
+    } finally {
+      cmd.getCollectionLock().readLock().unlock();
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#findByText(java.lang.String, java.lang.Class)
+   */
+  @Override
+  public <T> List<T> findByText(String textQuery, Class<T> entityClass) {
+    return findByText(textQuery, Util.determineCollectionName(entityClass));
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#findByText(java.lang.String, java.lang.String)
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> List<T> findByText(String textQuery, String collectionName) {
+    CollectionMetaData cmd = cmdMap.get(collectionName);
+    Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
+    if((null == cmd) || (null == collection)) {
+      throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
+    }
+    if (!cmd.hasTextIndex()) {
+      throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' does not have any @TextIndexed fields");
+    }
+    lockForRead(cmd);
+    try {
+      TextIndex textIndex = collectionIndexes.get(collectionName).getTextIndex();
+      List<T> matches = new ArrayList<T>();
+      for (Object id : textIndex.search(textQuery)) {
+        T document = collection.get(id);
+        if (null != document) {
+          matches.add(document);
+        }
+      }
+      return copyDocuments(matches, cmd);
+    } finally {
+      cmd.getCollectionLock().readLock().unlock();
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#findByPointer(java.lang.String, java.lang.Object, java.lang.String)
+   */
+  @SuppressWarnings("unchecked")
+  @Override
+  public <T> List<T> findByPointer(String jsonPointer, Object value, String collectionName) {
+    CollectionMetaData cmd = cmdMap.get(collectionName);
+    Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
+    if((null == cmd) || (null == collection)) {
+      throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
+    }
+    if (!cmd.isSchemaless()) {
+      throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' is not a schemaless collection");
+    }
+    JsonPointer pointer;
+    try {
+      pointer = JsonPointer.compile(jsonPointer);
+    } catch (IllegalArgumentException e) {
+      throw new InvalidJsonDbApiUsageException("Invalid JSON Pointer " + jsonPointer, e);
+    }
+    JsonNode expected = dbConfig.getObjectMapper().valueToTree(value);
+    lockForRead(cmd);
+    try {
+      List<T> matches = new ArrayList<T>();
+      for (T document : collection.values()) {
+        if (expected.equals(((JsonNode) document).at(pointer))) {
+          matches.add(document);
+        }
+      }
+      return copyDocuments(matches, cmd);
+    } finally {
+      cmd.getCollectionLock().readLock().unlock();
+    }
+  }
+
+  private boolean isParallelQuery(Map<Object, ?> collection) {
+    int threshold = dbConfig.getParallelQueryThreshold();
+    return (threshold > 0) && (collection.size() >= threshold);
+  }
+
+  /**
+   * Evaluates the query over partitions of the collection on the parallelQueryPool, the matching
+   * documents are also copied and decrypted on the pool. The caller must hold the collection read lock.
+   */
+  private <T> List<T> findInParallel(String jxQuery, Map<Object, T> collection, CollectionMetaData cmd) {
+    ForkJoinPool pool = dbConfig.getParallelQueryPool();
+    int leafSize = ParallelQueryTask.leafSizeFor(collection.size(), pool.getParallelism());
+    traceScanned(collection.size());
+    return pool.invoke(new ParallelQueryTask<T>(jxQuery, new ArrayList<T>(collection.values()), leafSize, this.<T>documentCopier(cmd)));
+  }
+
+  /**
+   * Evaluates the query and returns the matching in-memory documents without copying them.
+   * The caller must hold the collection read lock.
+   */
+  private <T> List<T> evaluateQuery(String jxQuery, Map<Object, T> collection, String collectionName) {
+    return evaluateQuery(planQuery(jxQuery, collectionName), collection, collectionName);
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T> List<T> evaluateQuery(QueryPlan plan, Map<Object, T> collection, String collectionName) {
+    if (plan.isIndexed()) {
+      List<T> candidates = plan.candidates(collection);
+      traceScanned(candidates.size());
+      return plan.evaluate(candidates);
+    }
+    String jxQuery = plan.getQuery();
+    traceScanned(collection.size());
+    if (isParallelQuery(collection)) {
+      ForkJoinPool pool = dbConfig.getParallelQueryPool();
+      int leafSize = ParallelQueryTask.leafSizeFor(collection.size(), pool.getParallelism());
+      return pool.invoke(new ParallelQueryTask<T>(jxQuery, new ArrayList<T>(collection.values()), leafSize, null));
+    }
+    JXPathContext context = contextsRef.get().get(collectionName);
+    Iterator<T> resultItr = context.iterate(jxQuery);
+    List<T> matches = new ArrayList<T>();
+    while (resultItr.hasNext()) {
+      matches.add(resultItr.next());
+    }
+    return matches;
+  }
+
+  private QueryPlan planQuery(String jxQuery, String collectionName) {
+    return QueryPlan.plan(jxQuery, collectionIndexes.get(collectionName));
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#explain(java.lang.String, java.lang.Class)
+   */
+  @Override
+  public <T> QueryExplanation explain(String jxQuery, Class<T> entityClass) {
+    return explain(jxQuery, Util.determineCollectionName(entityClass));
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#explain(java.lang.String, java.lang.String)
+   */
+  @Override
+  public QueryExplanation explain(String jxQuery, String collectionName) {
+    CollectionMetaData cmd = cmdMap.get(collectionName);
+    @SuppressWarnings("unchecked")
+    Map<Object, Object> collection = (Map<Object, Object>) collectionsRef.get().get(collectionName);
+    if((null == cmd) || (null == collection)) {
+      throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
+    }
+    QueryTrace trace = new QueryTrace("explain", collectionName, jxQuery);
+    queryTrace.set(trace);
+    try {
+      lockForRead(cmd);
+      try {
+        QueryPlan plan = planQuery(jxQuery, collectionName);
+        int estimated = plan.estimateDocuments(collection.size());
+        List<Object> matches = copyDocuments(evaluateQuery(plan, collection, collectionName), cmd);
+        return new QueryExplanation(collectionName, plan, estimated, trace.getScanned(), matches.size(),
+            trace.getLockWaitNanos(), trace.getElapsedNanos() - trace.getLockWaitNanos() - trace.getCopyNanos(),
+            trace.getCopyNanos());
+      } finally {
+        cmd.getCollectionLock().readLock().unlock();
+      }
+    } finally {
+      queryTrace.remove();
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#memoryStats()
+   */
+  @Override
+  public Map<String, MemoryStats> memoryStats() {
+    Map<String, MemoryStats> stats = new TreeMap<String, MemoryStats>();
+    for (String collectionName : getCollectionNames()) {
+      if (collectionsRef.get().containsKey(collectionName)) {
+        stats.put(collectionName, memoryStats(collectionName));
+      }
+    }
+    return stats;
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#memoryStats(java.lang.String)
+   */
+  @Override
+  public MemoryStats memoryStats(String collectionName) {
+    CollectionMetaData cmd = cmdMap.get(collectionName);
+    Map<Object, ?> collection = collectionsRef.get().get(collectionName);
+    if((null == cmd) || (null == collection)) {
+      throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
+    }
+    MemoryStats stats;
+    lockForRead(cmd);
+    try {
+      int documentCount = collection.size();
+      int sampleSize = dbConfig.getMemoryStatsSampleSize();
+      int stride = ((sampleSize < 1) || (documentCount <= sampleSize)) ? 1 : documentCount / sampleSize;
+      long sampledBytes = 0;
+      int sampled = 0;
+      int position = 0;
+      for (Entry<Object, ?> entry : collection.entrySet()) {
+        if ((position++ % stride) == 0) {
+          sampledBytes += HeapEstimator.deepSize(entry.getKey()) + HeapEstimator.deepSize(entry.getValue());
+          sampled++;
+        }
+      }
+      long documentBytes = HeapEstimator.linkedHashMap(documentCount);
+      if (sampled > 0) {
+        documentBytes += (sampledBytes * documentCount) / sampled;
+      }
+
+      CollectionIndexes indexes = collectionIndexes.get(collectionName);
+      long indexBytes = (null == indexes) ? 0 : indexes.estimateHeapBytes();
+
+      long cacheBytes = 0;
+      QueryResultCache queryCache = queryCaches.get(collectionName);
+      if (null != queryCache) {
+        cacheBytes += queryCache.estimateHeapBytes();
+      }
+      CollectionSnapshot<?> snapshot = snapshots.get(collectionName);
+      if (null != snapshot) {
+        cacheBytes += snapshot.estimateHeapBytes();
+      }
+
+      JXPathContext context = contextsRef.get().get(collectionName);
+      long contextBytes = (null == context) ? 0 : HeapEstimator.deepSize(context, context.getContextBean(), collection);
+
+      stats = new MemoryStats(collectionName, documentCount, sampled, documentBytes, indexBytes, cacheBytes, contextBytes);
+    } finally {
+      cmd.getCollectionLock().readLock().unlock();
+    }
+
+    MetricsRegistry metrics = dbConfig.getMetricsRegistry();
+    metrics.gauge(collectionName, MetricNames.HEAP_DOCUMENTS, stats.getDocumentBytes());
+    metrics.gauge(collectionName, MetricNames.HEAP_INDEXES, stats.getIndexBytes());
+    metrics.gauge(collectionName, MetricNames.HEAP_CACHES, stats.getCacheBytes());
+    metrics.gauge(collectionName, MetricNames.HEAP_CONTEXT, stats.getContextBytes());
+    metrics.gauge(collectionName, MetricNames.HEAP_TOTAL, stats.getTotalBytes());
+    return stats;
+  }
+
+  /**
+   * Copies and decrypts the given in-memory documents, on the parallelQueryPool if there are enough of them.
+   */
+  private <T> List<T> copyDocuments(List<T> documents, CollectionMetaData cmd) {
+    long start = System.nanoTime();
+    Object event = FlightRecorderEvent.DOCUMENT_COPY.begin();
+    Function<T, T> copier = documentCopier(cmd);
+    List<T> copies;
+    int threshold = dbConfig.getParallelQueryThreshold();
+    if ((threshold > 0) && (documents.size() >= threshold)) {
+      ForkJoinPool pool = dbConfig.getParallelQueryPool();
+      int leafSize = ParallelQueryTask.leafSizeFor(documents.size(), pool.getParallelism());
+      copies = pool.invoke(new ParallelQueryTask<T>(null, documents, leafSize, copier));
+    } else {
+      copies = new ArrayList<T>(documents.size());
+      for (T document : documents) {
+        T copy = copier.apply(document);
+        if (null != copy) {
+          copies.add(copy);
+        }
+      }
+    }
+    recordCopy(cmd, copies.size(), System.nanoTime() - start, event);
+    return copies;
+  }
+
+  /**
+   * Copies and decrypts a single in-memory document.
+   *
+   * @return the copy or null if the document is null or expired
+   */
+  private <T> T copyDocument(T document, CollectionMetaData cmd) {
+    long start = System.nanoTime();
+    Object event = FlightRecorderEvent.DOCUMENT_COPY.begin();
+    T copy = this.<T>documentCopier(cmd).apply(document);
+    recordCopy(cmd, (null == copy) ? 0 : 1, System.nanoTime() - start, event);
+    return copy;
+  }
+
+  private void recordCopy(CollectionMetaData cmd, int documents, long nanos, Object event) {
+    MetricsRegistry metrics = dbConfig.getMetricsRegistry();
+    metrics.recordLatency(cmd.getCollectionName(), MetricNames.COPY, nanos);
+    metrics.increment(cmd.getCollectionName(), MetricNames.DOCUMENTS_COPIED, documents);
+    if (null != event) {
+      FlightRecorderEvent.DOCUMENT_COPY.commit(event, cmd.getCollectionName(), documents, encrypted && cmd.hasSecret());
+    }
+    QueryTrace trace = queryTrace.get();
+    if (null != trace) {
+      trace.addCopy(nanos);
+    }
+  }
+
+  private int countLive(List<?> documents, CollectionMetaData cmd) {
+    if (!cmd.hasExpiry()) {
+      return documents.size();
+    }
+    int count = 0;
+    long now = System.currentTimeMillis();
+    for (Object document : documents) {
+      if (!isExpired(cmd, document, now)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * @return true if the document has an {@link io.jsondb.annotation.ExpiresAt} deadline at or before now
+   */
+  private boolean isExpired(CollectionMetaData cmd, Object document, long now) {
+    return cmd.hasExpiry() && (null != document)
+        && ExpiryIndex.isExpired(cmd.getGetterMethodForFieldName(cmd.getExpiresAtFieldName()), document, now);
+  }
+
+  /**
+   * Returns a function that copies and decrypts a document, expired documents are mapped to null.
+   */
+  private <T> Function<T, T> documentCopier(final CollectionMetaData cmd) {
+    final long now = System.currentTimeMillis();
+    return new Function<T, T>() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public T apply(T document) {
+        if (isExpired(cmd, document, now)) {
+          return null;
+        }
+        Object obj = Util.deepCopy(document);
+        if(encrypted && cmd.hasSecret() && null != obj) {
+          try {
+            CryptoUtil.decryptFields(obj, cmd, dbConfig.getCipher());
+          } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+            logger.error("Error when decrypting value for a @Secret annotated field for entity: " + cmd.getCollectionName(), e);
+            throw new JsonDBException("Error when decrypting value for a @Secret annotated field for entity: " + cmd.getCollectionName(), e);
+          }
+        }
+        return (T) obj;
+      }
+    };
+  }
+
+  /**
+   * Returns the query result cache of a collection, creating it on first use.
+   *
+   * @param collectionName name of the collection
+   * @return the cache or null if query result caching is disabled
+   */
+  public QueryResultCache getQueryResultCache(String collectionName) {
+    int queryCacheSize = dbConfig.getQueryCacheSize();
+    if (queryCacheSize < 1) {
+      return null;
+    }
+    QueryResultCache queryCache = queryCaches.get(collectionName);
+    if (null == queryCache) {
+      queryCache = new QueryResultCache(queryCacheSize);
+      QueryResultCache existing = queryCaches.putIfAbsent(collectionName, queryCache);
+      if (null != existing) {
+        queryCache = existing;
+      }
+    }
+    return queryCache;
+  }
+
+  /**
+   * Stores a document in the in-memory collection and updates the indexes of the collection.
+   * The caller must hold the collection write lock.
+   */
+  private <T> void putDocument(CollectionMetaData cmd, Map<Object, T> collection, Object id, T document) {
+    T previous = collection.put(id, document);
+    Map<Object, Object> byId = documentsById.get(cmd.getCollectionName());
+    if (null != byId) {
+      byId.put(id, document);
+    }
+    recordSnapshotChange(cmd, id, document);
+    publishChange(cmd, (null == previous) ? DocumentChange.Type.INSERTED : DocumentChange.Type.UPDATED, id, document);
+    CollectionIndexes indexes = collectionIndexes.get(cmd.getCollectionName());
+    if (null != indexes) {
+      indexes.update(id, previous, document);
+    }
+  }
+
+  private <T> void putDocuments(CollectionMetaData cmd, Map<Object, T> collection, Map<Object, T> documents) {
+    for (Entry<Object, T> entry : documents.entrySet()) {
+      putDocument(cmd, collection, entry.getKey(), entry.getValue());
+    }
+  }
+
+  /**
+   * Removes a document from the in-memory collection and from the indexes of the collection.
+   * The caller must hold the collection write lock.
+   */
+  private <T> T removeDocument(CollectionMetaData cmd, Map<Object, T> collection, Object id) {
+    T removed = collection.remove(id);
+    Map<Object, Object> byId = documentsById.get(cmd.getCollectionName());
+    if (null != byId) {
+      byId.remove(id);
+    }
+    if (null != removed) {
+      recordSnapshotChange(cmd, id, null);
+      publishChange(cmd, DocumentChange.Type.REMOVED, id, removed);
+    }
+    CollectionIndexes indexes = collectionIndexes.get(cmd.getCollectionName());
+    if (null != indexes && null != removed) {
+      indexes.update(id, removed, null);
+    }
+    return removed;
+  }
+
+  /**
+   * Sets a field of a document to an updated value, the fields of ObjectNode documents are replaced
+   * with the value converted to a tree.
+   */
+  private void copyProperty(Object document, String fieldName, Object value) throws IllegalAccessException, InvocationTargetException {
+    if (document instanceof ObjectNode) {
+      ((ObjectNode) document).set(fieldName, dbConfig.getObjectMapper().valueToTree(value));
+    } else {
+      BeanUtils.copyProperty(document, fieldName, value);
+    }
+  }
+
+  /**
+   * Sets a new id, from the IdGenerator configured for the collection, on a document that does not have one.
+   * The caller must hold the collection write lock.
+   */
+  private Object assignId(CollectionMetaData cmd, Map<Object, ?> collection, Object document) {
+    String collectionName = cmd.getCollectionName();
+    Object generatedId = dbConfig.getIdGenerator(collectionName).nextId(collectionName, Collections.unmodifiableSet(collection.keySet()));
+    if (null == generatedId) {
+      throw new JsonDBException("IdGenerator returned a null id for collection " + collectionName);
+    }
+    Object id = Util.setIdForEntity(document, cmd, generatedId);
+    if (collection.containsKey(id)) {
+      throw new InvalidJsonDbApiUsageException("Generated id " + id + " is already present in Collection by name '" + collectionName + "'");
+    }
+    return id;
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#withLockTimeout(long, java.util.concurrent.TimeUnit, java.util.function.Supplier)
+   */
+  @Override
+  public <T> T withLockTimeout(long timeout, TimeUnit unit, Supplier<T> operations) {
+    Long previous = callLockTimeout.get();
+    callLockTimeout.set(unit.toMillis(timeout));
+    try {
+      return operations.get();
+    } finally {
+      if (null == previous) {
+        callLockTimeout.remove();
+      } else {
+        callLockTimeout.set(previous);
+      }
+    }
+  }
+
+  /**
+   * Returns the lock timeout in effect for the calling thread, in milliseconds.
+   */
+  private long lockTimeout() {
+    Long timeout = callLockTimeout.get();
+    return (null == timeout) ? dbConfig.getLockTimeout() : timeout;
+  }
+
+  private void lockForRead(CollectionMetaData cmd) {
+    acquire(cmd, cmd.getCollectionLock().readLock());
+  }
+
+  /**
+   * Locks a collection for a change that writes its file. In striped concurrency mode the flush lock is
+   * taken first, so that group commit cannot overwrite the file with an older copy of the collection.
+   */
+  private void lockForWrite(CollectionMetaData cmd) {
+    lockFileWrites(cmd);
+    try {
+      acquire(cmd, cmd.getCollectionLock().writeLock());
+    } catch (RuntimeException e) {
+      unlockFileWrites(cmd);
+      throw e;
+    }
+  }
+
+  private void unlockForWrite(CollectionMetaData cmd) {
+    cmd.getCollectionLock().writeLock().unlock();
+    unlockFileWrites(cmd);
+  }
+
+  private void lockFileWrites(CollectionMetaData cmd) {
+    WriteStripes stripes = getWriteStripes(cmd.getCollectionName());
+    if (null != stripes) {
+      acquire(cmd, stripes.getFlushLock());
+    }
+  }
+
+  private void unlockFileWrites(CollectionMetaData cmd) {
+    WriteStripes stripes = getWriteStripes(cmd.getCollectionName());
+    if (null != stripes) {
+      stripes.getFlushLock().unlock();
+    }
+  }
+
+  /**
+   * Acquires a lock guarding a collection, giving up with a LockTimeoutException once the lock
+   * timeout in effect has passed. The wait is recorded in the lock wait stats of the collection.
+   */
+  private void acquire(CollectionMetaData cmd, Lock lock) {
+    long timeout = lockTimeout();
+    long start = System.nanoTime();
+    Object event = FlightRecorderEvent.LOCK_WAIT.begin();
+    boolean acquired = true;
+    if (timeout < 1) {
+      lock.lock();
+    } else {
+      try {
+        acquired = lock.tryLock(timeout, TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new JsonDBException("Interrupted while waiting for the lock of collection " + cmd.getCollectionName(), e);
+      }
+    }
+    long waitNanos = System.nanoTime() - start;
+    dbConfig.getMetricsRegistry().recordLatency(cmd.getCollectionName(), MetricNames.LOCK_WAIT, waitNanos);
+    if (null != event) {
+      FlightRecorderEvent.LOCK_WAIT.commit(event, cmd.getCollectionName(), !acquired);
+    }
+    QueryTrace trace = queryTrace.get();
+    if (null != trace) {
+      trace.addLockWait(waitNanos);
+    }
+    if (!acquired) {
+      cmd.getLockWaitStats().recordTimeout(waitNanos);
+      throw new LockTimeoutException("Timed out after " + timeout + "ms waiting for the lock of collection " + cmd.getCollectionName());
+    }
+    cmd.getLockWaitStats().recordAcquired(waitNanos);
+  }
+
+  /**
+   * Returns the time operations on a collection spent waiting for its lock.
+   *
+   * @param collectionName name of the collection
+   * @return the lock wait stats or null if there is no such collection
+   */
+  public LockWaitStats getLockWaitStats(String collectionName) {
+    CollectionMetaData cmd = cmdMap.get(collectionName);
+    return (null == cmd) ? null : cmd.getLockWaitStats();
+  }
+
+  /**
+   * Returns the write coordinator of a collection in striped concurrency mode, creating it on first use.
+   *
+   * @param collectionName name of the collection
+   * @return the coordinator or null if striped mode is disabled
+   */
+  public WriteStripes getWriteStripes(String collectionName) {
+    int lockStripes = dbConfig.getLockStripes();
+    if ((lockStripes < 1) || !cmdMap.containsKey(collectionName)) {
+      return null;
+    }
+    WriteStripes stripes = writeStripes.get(collectionName);
+    if (null == stripes) {
+      WriteStripes newStripes = new WriteStripes(lockStripes);
+      stripes = writeStripes.putIfAbsent(collectionName, newStripes);
+      if (null == stripes) {
+        stripes = newStripes;
+      }
+    }
+    return stripes;
+  }
+
+  /**
+   * Runs a single document change in striped concurrency mode. The change is applied under the stripe lock
+   * of the document id and a short hold of the collection write lock, then this method blocks until the
+   * change has been persisted by group commit.
+   *
+   * The change is visible to readers as soon as the collection write lock is released, before it is durable.
+   * If the flush fails the collection is reloaded from its file, which rolls back every change the flush
+   * covered, including changes other readers may already have seen.
+   *
+   * @param id id of the document being changed, null for new documents that still need an id
+   * @param mutation validates and applies the change to the in-memory collection
+   */
+  private <R> R stripedWrite(CollectionMetaData cmd, WriteStripes stripes, Object id, Supplier<R> mutation) {
+    ReentrantLock stripeLock = (null == id) ? null : stripes.lockFor(id);
+    if (null != stripeLock) {
+      acquire(cmd, stripeLock);
+    }
+    try {
+      R result;
+      long modificationCount;
+      acquire(cmd, cmd.getCollectionLock().writeLock());
+      try {
+        result = mutation.get();
+        collectionModified(cmd);
+        modificationCount = cmd.getModificationCount();
+      } finally {
+        cmd.getCollectionLock().writeLock().unlock();
+      }
+      stripes.awaitPersisted(modificationCount, flusherFor(cmd, stripes));
+      return result;
+    } finally {
+      if (null != stripeLock) {
+        stripeLock.unlock();
+      }
+    }
+  }
+
+  private WriteStripes.Flusher flusherFor(final CollectionMetaData cmd, final WriteStripes stripes) {
+    final String collectionName = cmd.getCollectionName();
+    return new WriteStripes.Flusher() {
+      @Override
+      public long flush() throws Exception {
+        //The flush lock keeps other file writers out, the collection lock is only held to copy the documents
+        stripes.getFlushLock().lock();
+        try {
+          List<Object> documents;
+          long modificationCount;
+          cmd.getCollectionLock().readLock().lock();
+          try {
+            @SuppressWarnings("unchecked")
+            Map<Object, Object> collection = (Map<Object, Object>) collectionsRef.get().get(collectionName);
+            if (null == collection) {
+              throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
+            }
+            documents = new ArrayList<Object>(collection.values());
+            modificationCount = cmd.getModificationCount();
+          } finally {
+            cmd.getCollectionLock().readLock().unlock();
+          }
+          JsonWriter jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
+          if (!jw.appendToJsonFile(documents, Collections.emptyList())) {
+            throw new JsonDBException("Failed to save " + collectionName);
+          }
+          collectionFileWritten(cmd, false);
+          return modificationCount;
+        } finally {
+          stripes.getFlushLock().unlock();
+        }
+      }
+
+      @Override
+      public long rollback() {
+        lockForWrite(cmd);
+        try {
+          long modificationCount = cmd.getModificationCount();
+          logger.error("Failed to persist changes to collection {}, reloading it from its file", collectionName);
+          try {
+            reloadCollection(collectionName);
+          } catch (RuntimeException e) {
+            logger.error("Failed to reload collection " + collectionName + ", its changes are kept for the next flush", e);
+            return 0;
+          }
+          return modificationCount;
+        } finally {
+          unlockForWrite(cmd);
+        }
+      }
+    };
+  }
+
+  /**
+   * Returns the in-memory collection for a striped write. The caller must hold the collection write lock.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> Map<Object, T> getCollectionForStripedWrite(CollectionMetaData cmd) {
+    Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(cmd.getCollectionName());
+    if (null == collection) {
+      throw new InvalidJsonDbApiUsageException("Collection by name '" + cmd.getCollectionName() + "' not found. Create collection first.");
+    }
+    if (cmd.isReadOnly()) {
+      throw new InvalidJsonDbApiUsageException("Failed to modify collection, Collection is loaded as readonly");
+    }
+    return collection;
+  }
+
+  private void encryptFields(Object document, CollectionMetaData cmd) {
+    if(encrypted && cmd.hasSecret()){
+      try {
+        CryptoUtil.encryptFields(document, cmd, dbConfig.getCipher());
+      } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+        logger.error("Error when encrypting value for a @Secret annotated field for entity: " + cmd.getCollectionName(), e);
+        throw new JsonDBException("Error when encrypting value for a @Secret annotated field for entity: " + cmd.getCollectionName(), e);
+      }
+    }
+  }
+
+  private <T> void insertStriped(final Object objToSave, final CollectionMetaData cmd, WriteStripes stripes) {
+    final Object id = Util.getIdForEntity(objToSave, cmd);
+    encryptFields(objToSave, cmd);
+    stripedWrite(cmd, stripes, id, new Supplier<Object>() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public Object get() {
+        Map<Object, T> collection = getCollectionForStripedWrite(cmd);
+        Object newId = id;
+        if (null == newId) {
+          newId = assignId(cmd, collection, objToSave);
+        } else if (collection.containsKey(newId)) {
+          throw new InvalidJsonDbApiUsageException("Object already present in Collection. Use Update or Upsert operation instead of Insert");
+        }
+        checkUniqueConstraints(cmd, Collections.singletonMap(newId, objToSave));
+        putDocument(cmd, collection, Util.deepCopy(newId), (T) objToSave);
+        return null;
+      }
+    });
+  }
+
+  private <T> void saveStriped(final Object objToSave, final CollectionMetaData cmd, WriteStripes stripes) {
+    final Object id = Util.getIdForEntity(objToSave, cmd);
+    encryptFields(objToSave, cmd);
+    stripedWrite(cmd, stripes, id, new Supplier<Object>() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public Object get() {
+        Map<Object, T> collection = getCollectionForStripedWrite(cmd);
+        if (!collection.containsKey(id)) {
+          throw new InvalidJsonDbApiUsageException(
+              String.format("Document with Id: '%s' not found in Collection by name '%s' not found. Insert or Upsert the object first.",
+                  id, cmd.getCollectionName()));
+        }
+        checkUniqueConstraints(cmd, Collections.singletonMap(id, objToSave));
+        putDocument(cmd, collection, id, (T) objToSave);
+        return null;
+      }
+    });
+  }
+
+  private <T> void upsertStriped(final Object objToSave, final CollectionMetaData cmd, WriteStripes stripes) {
+    final Object id = Util.getIdForEntity(objToSave, cmd);
+    encryptFields(objToSave, cmd);
+    stripedWrite(cmd, stripes, id, new Supplier<Object>() {
+      @SuppressWarnings("unchecked")
+      @Override
+      public Object get() {
+        Map<Object, T> collection = getCollectionForStripedWrite(cmd);
+        Object newId = id;
+        if (null == newId) {
+          newId = assignId(cmd, collection, objToSave);
+        }
+        checkUniqueConstraints(cmd, Collections.singletonMap(newId, objToSave));
+        if (collection.containsKey(newId)) {
+          putDocument(cmd, collection, newId, (T) objToSave);
+        } else {
+          putDocument(cmd, collection, Util.deepCopy(newId), (T) objToSave);
+        }
+        return null;
+      }
+    });
+  }
+
+  private <T> T removeStriped(Object objectToRemove, final CollectionMetaData cmd, WriteStripes stripes) {
+    final Object id = Util.getIdForEntity(objectToRemove, cmd);
+    return stripedWrite(cmd, stripes, id, new Supplier<T>() {
+      @Override
+      public T get() {
+        Map<Object, T> collection = getCollectionForStripedWrite(cmd);
+        if (!collection.containsKey(id)) {
+          throw new InvalidJsonDbApiUsageException(String.format("Objects with Id %s not found in collection %s", id, cmd.getCollectionName()));
+        }
+        // Don't need to clone it, this object no more exists in the collection
+        return removeDocument(cmd, collection, id);
+      }
+    });
+  }
+
+  /**
+   * Rejects documents that would break a unique index of the collection, before anything is written.
+   * The caller must hold the collection write lock.
+   */
+  private void checkUniqueConstraints(CollectionMetaData cmd, Map<Object, ?> documents) {
+    checkUniqueConstraints(cmd, documents, Collections.emptySet());
+  }
+
+  private void checkUniqueConstraints(CollectionMetaData cmd, Map<Object, ?> documents, Set<?> removedIds) {
+    CollectionIndexes indexes = collectionIndexes.get(cmd.getCollectionName());
+    if (null != indexes) {
+      indexes.checkUnique(documents, removedIds);
+    }
+  }
+
+  private void rebuildIndexes(CollectionMetaData cmd, Map<Object, ?> collection) {
+    documentsById.put(cmd.getCollectionName(), new ConcurrentHashMap<Object, Object>(collection));
+    CollectionIndexes indexes = new CollectionIndexes(cmd);
+    if (indexes.isEmpty()) {
+      collectionIndexes.remove(cmd.getCollectionName());
+    } else {
+      indexes.rebuild(collection);
+      collectionIndexes.put(cmd.getCollectionName(), indexes);
+      if (null != indexes.getExpiryIndex()) {
+        startExpirer();
+      }
+    }
+  }
+
+  /**
+   * Writes the documents of a collection that were upgraded by upcasters back to its file after the
+   * configured delay, on a background thread started on first use.
+   */
+  private synchronized void schedulePersistUpcast(final String collectionName) {
+    long delay = dbConfig.getUpcastPersistDelay();
+    if (delay < 0) {
+      return;
+    }
+    if (null == upcastPersister) {
+      upcastPersister = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+          Thread thread = new Thread(r, "jsondb-upcast-persister");
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    upcastPersister.schedule(new Runnable() {
+      @Override
+      public void run() {
+        persistUpcast(collectionName);
+      }
+    }, delay, TimeUnit.MILLISECONDS);
+  }
+
+  private void persistUpcast(String collectionName) {
+    CollectionMetaData cmd = cmdMap.get(collectionName);
+    try {
+      lockFileWrites(cmd);
+      try {
+        lockForRead(cmd);
+        try {
+          if (pendingUpcasts.contains(collectionName) && collectionsRef.get().containsKey(collectionName)) {
+            if (!writeCollectionFile(cmd, false)) {
+              logger.error("Failed to write upcast documents of collection {}, they will be written by the next change", collectionName);
+            }
+          }
+        } finally {
+          cmd.getCollectionLock().readLock().unlock();
+        }
+      } finally {
+        unlockFileWrites(cmd);
+      }
+    } catch (RuntimeException e) {
+      logger.error("Failed to write upcast documents of collection " + collectionName, e);
+    }
+  }
+
+  /**
+   * @param collectionName name of the collection
+   * @return true if the collection was loaded with upcasters and the upgraded documents have not been
+   *         written back to its file yet, by the background thread or by any other write to the collection
+   */
+  public boolean isUpcastPending(String collectionName) {
+    return pendingUpcasts.contains(collectionName);
+  }
+
+  /**
+   * Starts the background thread that periodically removes expired documents, if it is not running yet.
+   */
+  private synchronized void startExpirer() {
+    long interval = dbConfig.getExpiryCheckInterval();
+    if ((null != expirer) || (interval < 1)) {
+      return;
+    }
+    expirer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "jsondb-expirer");
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    expirer.scheduleWithFixedDelay(new Runnable() {
+      @Override
+      public void run() {
+        long now = System.currentTimeMillis();
+        for (Entry<String, CollectionIndexes> entry : collectionIndexes.entrySet()) {
+          ExpiryIndex expiryIndex = entry.getValue().getExpiryIndex();
+          if (null == expiryIndex) {
+            continue;
+          }
+          Long nextDeadline = expiryIndex.nextDeadline();
+          if ((null != nextDeadline) && (nextDeadline <= now)) {
+            try {
+              removeExpired(entry.getKey());
+            } catch (RuntimeException e) {
+              logger.error("Failed to remove expired documents from collection " + entry.getKey(), e);
+            }
+          }
+        }
+      }
+    }, interval, interval, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Must be invoked, while still holding the collection write lock, after every change to the
+   * contents of a collection.
+   */
+  private void collectionModified(CollectionMetaData cmd) {
+    long modificationCount = cmd.incrementModificationCount();
+    List<Entry<Object, Object>> changes = snapshotChanges.remove(cmd.getCollectionName());
+    if (dbConfig.isSnapshotReads()) {
+      publishSnapshot(cmd, modificationCount, changes);
+    } else {
+      snapshots.remove(cmd.getCollectionName());
+    }
+  }
+
+  /**
+   * Publishes the snapshot that follows a write. It is derived from the previous snapshot and the
+   * documents put and removed by the write, unless the collection was replaced as a whole.
+   */
+  @SuppressWarnings("unchecked")
+  private void publishSnapshot(CollectionMetaData cmd, long modificationCount, List<Entry<Object, Object>> changes) {
+    Map<Object, ?> collection = collectionsRef.get().get(cmd.getCollectionName());
+    if (null == collection) {
+      snapshots.remove(cmd.getCollectionName());
+      return;
+    }
+    CollectionSnapshot<Object> current = (CollectionSnapshot<Object>) snapshots.get(cmd.getCollectionName());
+    if ((null != current) && current.isOf(collection)) {
+      List<Entry<Object, Object>> none = Collections.emptyList();
+      snapshots.put(cmd.getCollectionName(), current.withChanges((null == changes) ? none : changes, modificationCount));
+    } else {
+      snapshots.put(cmd.getCollectionName(), new CollectionSnapshot<Object>(collection, modificationCount));
+    }
+  }
+
+  /**
+   * Records a document put into or removed from the live collection, for the next snapshot.
+   * The caller must hold the collection write lock.
    */
-  @Override
-  public <T> boolean isCollectionReadonly(Class<T> entityClass) {
-    return isCollectionReadonly(Util.determineCollectionName(entityClass));
+  private void recordSnapshotChange(CollectionMetaData cmd, Object id, Object document) {
+    if (dbConfig.isSnapshotReads()) {
+      List<Entry<Object, Object>> changes = snapshotChanges.get(cmd.getCollectionName());
+      if (null == changes) {
+        changes = new ArrayList<Entry<Object, Object>>();
+        snapshotChanges.put(cmd.getCollectionName(), changes);
+      }
+      changes.add(new AbstractMap.SimpleImmutableEntry<Object, Object>(id, document));
+    }
   }
 
-  /* (non-Javadoc)
-   * @see io.jsondb.JsonDBOperations#isCollectionReadonly(java.lang.String)
+  /**
+   * Returns the latest published snapshot of a collection, publishing one first if the collection
+   * has not been written since snapshot reads were enabled.
+   *
+   * @return the snapshot or null if snapshot reads are disabled
    */
-  @Override
-  public <T> boolean isCollectionReadonly(String collectionName) {
-    CollectionMetaData cmd = cmdMap.get(collectionName);
-    return cmd.isReadOnly();
+  @SuppressWarnings("unchecked")
+  private <T> CollectionSnapshot<T> getSnapshot(CollectionMetaData cmd) {
+    if (!dbConfig.isSnapshotReads()) {
+      return null;
+    }
+    CollectionSnapshot<T> snapshot = (CollectionSnapshot<T>) snapshots.get(cmd.getCollectionName());
+    if (null == snapshot) {
+      lockForRead(cmd);
+      try {
+        Map<Object, ?> collection = collectionsRef.get().get(cmd.getCollectionName());
+        if (null == collection) {
+          return null;
+        }
+        snapshots.putIfAbsent(cmd.getCollectionName(), new CollectionSnapshot<Object>(collection, cmd.getModificationCount()));
+        snapshot = (CollectionSnapshot<T>) snapshots.get(cmd.getCollectionName());
+      } finally {
+        cmd.getCollectionLock().readLock().unlock();
+      }
+    }
+    return snapshot;
+  }
+
+  /**
+   * Evaluates the query against a snapshot and returns the matching documents without copying them,
+   * the query result cache is used if enabled.
+   */
+  @SuppressWarnings("unchecked")
+  private <T> List<T> querySnapshot(String jxQuery, CollectionSnapshot<T> snapshot, String collectionName) {
+    QueryResultCache queryCache = getQueryResultCache(collectionName);
+    if (null != queryCache) {
+      List<T> matches = (List<T>) queryCache.get(jxQuery, snapshot.getModificationCount());
+      if (null != matches) {
+        return matches;
+      }
+    }
+    List<T> documents = snapshot.getDocuments();
+    traceScanned(documents.size());
+    List<T> matches;
+    int threshold = dbConfig.getParallelQueryThreshold();
+    if ((threshold > 0) && (documents.size() >= threshold)) {
+      ForkJoinPool pool = dbConfig.getParallelQueryPool();
+      int leafSize = ParallelQueryTask.leafSizeFor(documents.size(), pool.getParallelism());
+      matches = pool.invoke(new ParallelQueryTask<T>(jxQuery, documents, leafSize, null));
+    } else {
+      matches = new ArrayList<T>();
+      Iterator<T> resultItr = JXPathContext.newContext(documents).iterate(jxQuery);
+      while (resultItr.hasNext()) {
+        matches.add(resultItr.next());
+      }
+    }
+    if (null != queryCache) {
+      queryCache.put(jxQuery, snapshot.getModificationCount(), matches);
+    }
+    return matches;
   }
 
   /* (non-Javadoc)
-   * @see io.jsondb.JsonDBOperations#find(java.lang.String, java.lang.Class)
+   * @see io.jsondb.JsonDBOperations#findById(java.lang.Object, java.lang.Class)
    */
   @Override
-  public <T> List<T> find(String jxQuery, Class<T> entityClass) {
-    return find(jxQuery, Util.determineCollectionName(entityClass));
+  public <T> T findById(Object id, Class<T> entityClass) {
+    return findById(id, Util.determineCollectionName(entityClass));
   }
 
   /* (non-Javadoc)
-   * @see io.jsondb.JsonDBOperations#find(java.lang.String, java.lang.String)
+   * @see io.jsondb.JsonDBOperations#findById(java.lang.Object, java.lang.String)
    */
   @SuppressWarnings("unchecked")
   @Override
-  public <T> List<T> find(String jxQuery, String collectionName) {
+  public <T> T findById(Object id, String collectionName) {
     CollectionMetaData cmd = cmdMap.get(collectionName);
     Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
-    if((null == cmd) || (null == collection)) {
+    if((null == cmd) || null == collection) {
       throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
     }
-    cmd.getCollectionLock().readLock().lock();
+    id = Util.normalizeId(cmd, id);
+    CollectionSnapshot<T> snapshot = getSnapshot(cmd);
+    if (null != snapshot) {
+      return copyDocument(snapshot.get(id), cmd);
+    }
+    //Point lookups go to the concurrent id map, so they never wait for a writer holding the collection lock
+    Map<Object, Object> byId = documentsById.get(collectionName);
+    if ((null != byId) && (null != id)) {
+      //Stored documents are replaced and never changed in place, so the copy needs no lock
+      return copyDocument((T) byId.get(id), cmd);
+    }
+    lockForRead(cmd);
     try {
-      JXPathContext context = contextsRef.get().get(collectionName);
-      Iterator<T> resultItr = context.iterate(jxQuery);
-      List<T> newCollection = new ArrayList<T>();
-      while (resultItr.hasNext()) {
-        T document = resultItr.next();
-        Object obj = Util.deepCopy(document);
-        if(encrypted && cmd.hasSecret() && null != obj) {
-          CryptoUtil.decryptFields(obj, cmd, dbConfig.getCipher());
-        }
-        newCollection.add((T) obj);
-      }
-      return newCollection;
-    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-      logger.error("Error when decrypting value for a @Secret annotated field for entity: " + collectionName, e);
-      throw new JsonDBException("Error when decrypting value for a @Secret annotated field for entity: " + collectionName, e);
+      return copyDocument(collection.get(id), cmd);
     } finally {
       cmd.getCollectionLock().readLock().unlock();
     }
   }
 
   /* (non-Javadoc)
-   * @see io.jsondb.JsonDBOperations#findAll(java.lang.Class)
+   * @see io.jsondb.JsonDBOperations#findByIds(java.util.Collection, java.lang.Class)
    */
   @Override
-  public <T> List<T> findAll(Class<T> entityClass) {
-    return findAll(Util.determineCollectionName(entityClass));
+  public <T> List<T> findByIds(Collection<?> ids, Class<T> entityClass) {
+    return findByIds(ids, Util.determineCollectionName(entityClass));
   }
 
   /* (non-Javadoc)
-   * @see io.jsondb.JsonDBOperations#findAll(java.lang.String)
+   * @see io.jsondb.JsonDBOperations#findByIds(java.util.Collection, java.lang.String)
    */
-  @SuppressWarnings("unchecked")
   @Override
-  public <T> List<T> findAll(String collectionName) {
-    CollectionMetaData cmd = cmdMap.get(collectionName);
-    Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
-    if((null == cmd) || (null == collection)) {
-      throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
-    }
-    cmd.getCollectionLock().readLock().lock();
-    try {
-      List<T> newCollection = new ArrayList<T>();
-      for (T document : collection.values()) {
-        T obj = (T)Util.deepCopy(document);
-        if(encrypted && cmd.hasSecret() && null!=obj){
-          CryptoUtil.decryptFields(obj, cmd, dbConfig.getCipher());
-          newCollection.add(obj);
-        } else{
-          newCollection.add((T) obj);
-        }
-      }
-      return newCollection;
-    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-      logger.error("Error when decrypting value for a @Secret annotated field for entity: " + collectionName, e);
-      throw new JsonDBException("Error when decrypting value for a @Secret annotated field for entity: " + collectionName, e);
-    } finally {
-      cmd.getCollectionLock().readLock().unlock();
-    }
+  public <T> List<T> findByIds(Collection<?> ids, String collectionName) {
+    Map<Object, T> documents = findByIdsAsMap(ids, collectionName);
+    return new ArrayList<T>(documents.values());
   }
 
   /* (non-Javadoc)
-   * @see io.jsondb.JsonDBOperations#findById(java.lang.Object, java.lang.Class)
+   * @see io.jsondb.JsonDBOperations#findByIdsAsMap(java.util.Collection, java.lang.Class)
    */
   @Override
-  public <T> T findById(Object id, Class<T> entityClass) {
-    return findById(id, Util.determineCollectionName(entityClass));
+  public <T> Map<Object, T> findByIdsAsMap(Collection<?> ids, Class<T> entityClass) {
+    return findByIdsAsMap(ids, Util.determineCollectionName(entityClass));
   }
 
   /* (non-Javadoc)
-   * @see io.jsondb.JsonDBOperations#findById(java.lang.Object, java.lang.String)
+   * @see io.jsondb.JsonDBOperations#findByIdsAsMap(java.util.Collection, java.lang.String)
    */
   @SuppressWarnings("unchecked")
   @Override
-  public <T> T findById(Object id, String collectionName) {
+  public <T> Map<Object, T> findByIdsAsMap(Collection<?> ids, String collectionName) {
+    if (null == ids) {
+      throw new InvalidJsonDbApiUsageException("Null Collection of ids cannot be looked up");
+    }
     CollectionMetaData cmd = cmdMap.get(collectionName);
     Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
     if((null == cmd) || null == collection) {
       throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
     }
-    cmd.getCollectionLock().readLock().lock();
+    Map<Object, T> documents = new LinkedHashMap<Object, T>();
+    CollectionSnapshot<T> snapshot = getSnapshot(cmd);
+    if (null == snapshot) {
+      lockForRead(cmd);
+    }
     try {
-      Object obj = Util.deepCopy(collection.get(id));
-      if(encrypted && cmd.hasSecret() && null != obj){
-        CryptoUtil.decryptFields(obj, cmd, dbConfig.getCipher());
+      for (Object givenId : ids) {
+        Object id = Util.normalizeId(cmd, givenId);
+        //Each copy is paired with its own id, copying skips documents that expire meanwhile
+        T copy = copyDocument((null == snapshot) ? collection.get(id) : snapshot.get(id), cmd);
+        if (null != copy) {
+          documents.put(id, copy);
+        }
       }
-      return (T) obj;
-    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-      logger.error("Error when decrypting value for a @Secret annotated field for entity: " + collectionName, e);
-      throw new JsonDBException("Error when decrypting value for a @Secret annotated field for entity: " + collectionName, e);
     } finally {
-      cmd.getCollectionLock().readLock().unlock();
+      if (null == snapshot) {
+        cmd.getCollectionLock().readLock().unlock();
+      }
     }
+    return documents;
   }
 
   /* (non-Javadoc)
@@ -684,12 +2085,28 @@ public class JsonDBTemplate implements JsonDBOperations {
     if((null == collectionMeta) || (!collectionsRef.get().containsKey(collectionName))) {
       throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first");
     }
-    collectionMeta.getCollectionLock().readLock().lock();
+    CollectionSnapshot<T> snapshot = getSnapshot(collectionMeta);
+    if (null != snapshot) {
+      Function<T, T> copier = documentCopier(collectionMeta);
+      Iterator<T> resultItr = JXPathContext.newContext(snapshot.getDocuments()).iterate(jxQuery);
+      while (resultItr.hasNext()) {
+        T copy = copier.apply(resultItr.next());
+        if (null != copy) {
+          return copy; // Return the first element we find.
+        }
+      }
+      return null;
+    }
+    lockForRead(collectionMeta);
     try {
       JXPathContext context = contextsRef.get().get(collectionName);
       Iterator<T> resultItr = context.iterate(jxQuery);
+      long now = System.currentTimeMillis();
       while (resultItr.hasNext()) {
         T document = resultItr.next();
+        if (isExpired(collectionMeta, document, now)) {
+          continue;
+        }
         Object obj = Util.deepCopy(document);
         if(encrypted && collectionMeta.hasSecret() && null!= obj){
           CryptoUtil.decryptFields(obj, collectionMeta, dbConfig.getCipher());
@@ -729,25 +2146,31 @@ public class JsonDBTemplate implements JsonDBOperations {
     Util.ensureNotRestricted(objectToSave);
     Object objToSave = Util.deepCopy(objectToSave);
     CollectionMetaData cmd = cmdMap.get(collectionName);
-    cmd.getCollectionLock().writeLock().lock();
+    WriteStripes stripes = getWriteStripes(collectionName);
+    if (null != stripes) {
+      insertStriped(objToSave, cmd, stripes);
+      return;
+    }
+    lockForWrite(cmd);
     try {
       Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
       if (null == collection) {
         throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first");
       }
-      Object id = Util.getIdForEntity(objectToSave, cmd.getIdAnnotatedFieldGetterMethod());
+      Object id = Util.getIdForEntity(objectToSave, cmd);
       if(encrypted && cmd.hasSecret()){
         CryptoUtil.encryptFields(objToSave, cmd, dbConfig.getCipher());
       }
       if (null == id) {
-        id = Util.setIdForEntity(objToSave, cmd.getIdAnnotatedFieldSetterMethod());
+        id = assignId(cmd, collection, objToSave);
       } else if (collection.containsKey(id)) {
         throw new InvalidJsonDbApiUsageException("Object already present in Collection. Use Update or Upsert operation instead of Insert");
       }
+      checkUniqueConstraints(cmd, Collections.singletonMap(id, objToSave));
 
       JsonWriter jw;
       try {
-        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
+        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
       } catch (IOException ioe) {
         logger.error("Failed to obtain writer for " + collectionName, ioe);
         throw new JsonDBException("Failed to save " + collectionName, ioe);
@@ -756,13 +2179,15 @@ public class JsonDBTemplate implements JsonDBOperations {
       boolean appendResult = jw.appendToJsonFile(collection.values(), objToSave);
 
       if(appendResult) {
-        collection.put(Util.deepCopy(id), (T) objToSave);
+        collectionFileWritten(cmd, false);
+        putDocument(cmd, collection, Util.deepCopy(id), (T) objToSave);
+        collectionModified(cmd);
       }
     } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
       logger.error("Error when encrypting value for a @Secret annotated field for entity: " + collectionName, e);
       throw new JsonDBException("Error when encrypting value for a @Secret annotated field for entity: " + collectionName, e);
     } finally {
-      cmd.getCollectionLock().writeLock().unlock();
+      unlockForWrite(cmd);
     }
   }
 
@@ -784,7 +2209,7 @@ public class JsonDBTemplate implements JsonDBOperations {
       throw new InvalidJsonDbApiUsageException("Null Object batch cannot be inserted into DB");
     }
     CollectionMetaData collectionMeta = cmdMap.get(collectionName);
-    collectionMeta.getCollectionLock().writeLock().lock();
+    lockForWrite(collectionMeta);
     try {
       Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
       if (null == collection) {
@@ -795,12 +2220,12 @@ public class JsonDBTemplate implements JsonDBOperations {
       Map<Object, T> newCollection = new LinkedHashMap<Object, T>();
       for (T o : batchToSave) {
         Object obj = Util.deepCopy(o);
-        Object id = Util.getIdForEntity(obj, cmd.getIdAnnotatedFieldGetterMethod());
+        Object id = Util.getIdForEntity(obj, cmd);
         if(encrypted && cmd.hasSecret()){
           CryptoUtil.encryptFields(obj, cmd, dbConfig.getCipher());
         }
         if (null == id) {
-          id = Util.setIdForEntity(obj, cmd.getIdAnnotatedFieldSetterMethod());
+          id = assignId(cmd, collection, obj);
         } else if (collection.containsKey(id)) {
           throw new InvalidJsonDbApiUsageException("Object already present in Collection. Use Update or Upsert operation instead of Insert");
         }
@@ -809,10 +2234,11 @@ public class JsonDBTemplate implements JsonDBOperations {
         }
         newCollection.put(Util.deepCopy(id), (T) obj);
       }
+      checkUniqueConstraints(cmd, newCollection);
 
       JsonWriter jw;
       try {
-        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
+        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
       } catch (IOException ioe) {
         logger.error("Failed to obtain writer for " + collectionName, ioe);
         throw new JsonDBException("Failed to save " + collectionName, ioe);
@@ -820,13 +2246,15 @@ public class JsonDBTemplate implements JsonDBOperations {
       boolean appendResult = jw.appendToJsonFile(collection.values(), newCollection.values());
 
       if(appendResult) {
-        collection.putAll(newCollection);
+        collectionFileWritten(cmd, false);
+        putDocuments(cmd, collection, newCollection);
+        collectionModified(cmd);
       }
     } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
       logger.error("Error when encrypting value for a @Secret annotated field for entity: " + collectionName, e);
       throw new JsonDBException("Error when encrypting value for a @Secret annotated field for entity: " + collectionName, e);
     } finally {
-      collectionMeta.getCollectionLock().writeLock().unlock();
+      unlockForWrite(collectionMeta);
     }
   }
 
@@ -849,7 +2277,12 @@ public class JsonDBTemplate implements JsonDBOperations {
     Util.ensureNotRestricted(objectToSave);
     Object objToSave = Util.deepCopy(objectToSave);
     CollectionMetaData collectionMeta = cmdMap.get(collectionName);
-    collectionMeta.getCollectionLock().writeLock().lock();
+    WriteStripes stripes = getWriteStripes(collectionName);
+    if (null != stripes) {
+      saveStriped(objToSave, collectionMeta, stripes);
+      return;
+    }
+    lockForWrite(collectionMeta);
     try {
       @SuppressWarnings("unchecked")
       Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
@@ -858,7 +2291,7 @@ public class JsonDBTemplate implements JsonDBOperations {
       }
 
       CollectionMetaData cmd = cmdMap.get(collectionName);
-      Object id = Util.getIdForEntity(objToSave, cmd.getIdAnnotatedFieldGetterMethod());
+      Object id = Util.getIdForEntity(objToSave, cmd);
 
       T existingObject = collection.get(id);
       if (null == existingObject) {
@@ -869,9 +2302,10 @@ public class JsonDBTemplate implements JsonDBOperations {
       if(encrypted && cmd.hasSecret()){
         CryptoUtil.encryptFields(objToSave, cmd, dbConfig.getCipher());
       }
+      checkUniqueConstraints(cmd, Collections.singletonMap(id, objToSave));
       JsonWriter jw = null;
       try {
-        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
+        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
       } catch (IOException ioe) {
         logger.error("Failed to obtain writer for " + collectionName, ioe);
         throw new JsonDBException("Failed to save " + collectionName, ioe);
@@ -879,15 +2313,17 @@ public class JsonDBTemplate implements JsonDBOperations {
       @SuppressWarnings("unchecked")
       boolean updateResult = jw.updateInJsonFile(collection, id, (T)objToSave);
       if (updateResult) {
+        collectionFileWritten(cmd, false);
         @SuppressWarnings("unchecked")
         T newObject = (T) objToSave;
-        collection.put(id, newObject);
+        putDocument(cmd, collection, id, newObject);
+        collectionModified(cmd);
       }
     } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
       logger.error("Error when encrypting value for a @Secret annotated field for entity: " + collectionName, e);
       throw new JsonDBException("Error when encrypting value for a @Secret annotated field for entity: " + collectionName, e);
     } finally {
-      collectionMeta.getCollectionLock().writeLock().unlock();
+      unlockForWrite(collectionMeta);
     }
   }
 
@@ -910,7 +2346,11 @@ public class JsonDBTemplate implements JsonDBOperations {
     Util.ensureNotRestricted(objectToRemove);
 
     CollectionMetaData collectionMeta = cmdMap.get(collectionName);
-    collectionMeta.getCollectionLock().writeLock().lock();
+    WriteStripes stripes = getWriteStripes(collectionName);
+    if (null != stripes) {
+      return removeStriped(objectToRemove, collectionMeta, stripes);
+    }
+    lockForWrite(collectionMeta);
     try {
       @SuppressWarnings("unchecked")
       Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
@@ -919,28 +2359,30 @@ public class JsonDBTemplate implements JsonDBOperations {
       }
 
       CollectionMetaData cmd = cmdMap.get(collectionName);
-      Object id = Util.getIdForEntity(objectToRemove, cmd.getIdAnnotatedFieldGetterMethod());
+      Object id = Util.getIdForEntity(objectToRemove, cmd);
       if (!collection.containsKey(id)) {
         throw new InvalidJsonDbApiUsageException(String.format("Objects with Id %s not found in collection %s", id, collectionName));
       }
 
       JsonWriter jw;
       try {
-        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
+        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
       } catch (IOException ioe) {
         logger.error("Failed to obtain writer for " + collectionName, ioe);
         throw new JsonDBException("Failed to save " + collectionName, ioe);
       }
       boolean substractResult = jw.removeFromJsonFile(collection, id);
       if(substractResult) {
-        T objectRemoved = collection.remove(id);
+        collectionFileWritten(cmd, false);
+        T objectRemoved = removeDocument(cmd, collection, id);
+        collectionModified(cmd);
         // Don't need to clone it, this object no more exists in the collection
         return objectRemoved;
       } else {
         return null;
       }
     } finally {
-      collectionMeta.getCollectionLock().writeLock().unlock();
+      unlockForWrite(collectionMeta);
     }
   }
 
@@ -961,7 +2403,7 @@ public class JsonDBTemplate implements JsonDBOperations {
       throw new InvalidJsonDbApiUsageException("Null Object batch cannot be removed from DB");
     }
     CollectionMetaData cmd = cmdMap.get(collectionName);
-    cmd.getCollectionLock().writeLock().lock();
+    lockForWrite(cmd);
     try {
       @SuppressWarnings("unchecked")
       Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
@@ -972,7 +2414,7 @@ public class JsonDBTemplate implements JsonDBOperations {
       Set<Object> removeIds = new HashSet<Object>();
 
       for (T o : batchToRemove) {
-        Object id = Util.getIdForEntity(o, cmd.getIdAnnotatedFieldGetterMethod());
+        Object id = Util.getIdForEntity(o, cmd);
         if (collection.containsKey(id)) {
           removeIds.add(id);
         }
@@ -984,7 +2426,7 @@ public class JsonDBTemplate implements JsonDBOperations {
 
       JsonWriter jw;
       try {
-        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
+        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
       } catch (IOException ioe) {
         logger.error("Failed to obtain writer for " + collectionName, ioe);
         throw new JsonDBException("Failed to save " + collectionName, ioe);
@@ -993,15 +2435,72 @@ public class JsonDBTemplate implements JsonDBOperations {
 
       List<T> removedObjects = null;
       if(substractResult) {
+        collectionFileWritten(cmd, false);
         removedObjects = new ArrayList<T>();
         for (Object id : removeIds) {
           // Don't need to clone it, this object no more exists in the collection
-          removedObjects.add(collection.remove(id));
+          removedObjects.add(removeDocument(cmd, collection, id));
         }
+        collectionModified(cmd);
       }
       return removedObjects;
     } finally {
-      cmd.getCollectionLock().writeLock().unlock();
+      unlockForWrite(cmd);
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#removeExpired(java.lang.Class)
+   */
+  @Override
+  public <T> int removeExpired(Class<T> entityClass) {
+    return removeExpired(Util.determineCollectionName(entityClass));
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#removeExpired(java.lang.String)
+   */
+  @Override
+  public int removeExpired(String collectionName) {
+    CollectionMetaData cmd = cmdMap.get(collectionName);
+    if (null == cmd) {
+      throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
+    }
+    lockForWrite(cmd);
+    try {
+      @SuppressWarnings("unchecked")
+      Map<Object, Object> collection = (Map<Object, Object>) collectionsRef.get().get(collectionName);
+      if (null == collection) {
+        throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
+      }
+      CollectionIndexes indexes = collectionIndexes.get(collectionName);
+      if ((null == indexes) || (null == indexes.getExpiryIndex())) {
+        return 0;
+      }
+      Set<Object> expiredIds = new HashSet<Object>(indexes.getExpiryIndex().expiredIds(System.currentTimeMillis()));
+      if (expiredIds.isEmpty()) {
+        return 0;
+      }
+
+      JsonWriter jw;
+      try {
+        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
+      } catch (IOException ioe) {
+        logger.error("Failed to obtain writer for " + collectionName, ioe);
+        throw new JsonDBException("Failed to save " + collectionName, ioe);
+      }
+      boolean substractResult = jw.removeFromJsonFile(collection, expiredIds);
+      if (!substractResult) {
+        return 0;
+      }
+      collectionFileWritten(cmd, false);
+      for (Object id : expiredIds) {
+        removeDocument(cmd, collection, id);
+      }
+      collectionModified(cmd);
+      return expiredIds.size();
+    } finally {
+      unlockForWrite(cmd);
     }
   }
 
@@ -1029,28 +2528,34 @@ public class JsonDBTemplate implements JsonDBOperations {
     Util.ensureNotRestricted(objectToSave);
     Object objToSave = Util.deepCopy(objectToSave);
     CollectionMetaData collectionMeta = cmdMap.get(collectionName);
-    collectionMeta.getCollectionLock().writeLock().lock();
+    WriteStripes stripes = getWriteStripes(collectionName);
+    if (null != stripes) {
+      upsertStriped(objToSave, collectionMeta, stripes);
+      return;
+    }
+    lockForWrite(collectionMeta);
     try {
       Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
       if (null == collection) {
         throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first");
       }
       CollectionMetaData cmd = cmdMap.get(collectionName);
-      Object id = Util.getIdForEntity(objectToSave, cmd.getIdAnnotatedFieldGetterMethod());
+      Object id = Util.getIdForEntity(objectToSave, cmd);
       if(encrypted && cmd.hasSecret()){
         CryptoUtil.encryptFields(objToSave, cmd, dbConfig.getCipher());
       }
 
       boolean insert = true;
       if (null == id) {
-        id = Util.setIdForEntity(objToSave, cmd.getIdAnnotatedFieldSetterMethod());
+        id = assignId(cmd, collection, objToSave);
       } else if (collection.containsKey(id)) {
         insert = false;
       }
+      checkUniqueConstraints(cmd, Collections.singletonMap(id, objToSave));
 
       JsonWriter jw;
       try {
-        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
+        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
       } catch (IOException ioe) {
         logger.error("Failed to obtain writer for " + collectionName, ioe);
         throw new JsonDBException("Failed to save " + collectionName, ioe);
@@ -1059,20 +2564,24 @@ public class JsonDBTemplate implements JsonDBOperations {
       if (insert) {
         boolean insertResult = jw.appendToJsonFile(collection.values(), objToSave);
         if(insertResult) {
-          collection.put(Util.deepCopy(id), (T) objToSave);
+          collectionFileWritten(cmd, false);
+          putDocument(cmd, collection, Util.deepCopy(id), (T) objToSave);
+          collectionModified(cmd);
         }
       } else {
         boolean updateResult = jw.updateInJsonFile(collection, id, (T)objToSave);
         if (updateResult) {
+          collectionFileWritten(cmd, false);
           T newObject = (T) objToSave;
-          collection.put(id, newObject);
+          putDocument(cmd, collection, id, newObject);
+          collectionModified(cmd);
         }
       }
     } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
       logger.error("Error when encrypting value for a @Secret annotated field for entity: " + collectionName, e);
       throw new JsonDBException("Error when encrypting value for a @Secret annotated field for entity: " + collectionName, e);
     } finally {
-      collectionMeta.getCollectionLock().writeLock().unlock();
+      unlockForWrite(collectionMeta);
     }
   }
 
@@ -1094,7 +2603,7 @@ public class JsonDBTemplate implements JsonDBOperations {
       throw new InvalidJsonDbApiUsageException("Null Object batch cannot be upserted into DB");
     }
     CollectionMetaData collectionMeta = cmdMap.get(collectionName);
-    collectionMeta.getCollectionLock().writeLock().lock();
+    lockForWrite(collectionMeta);
     try {
       Map<Object, T> collection = (Map<Object, T>) collectionsRef.get().get(collectionName);
       if (null == collection) {
@@ -1108,13 +2617,13 @@ public class JsonDBTemplate implements JsonDBOperations {
 
       for (T o : batchToSave) {
         Object obj = Util.deepCopy(o);
-        Object id = Util.getIdForEntity(obj, cmd.getIdAnnotatedFieldGetterMethod());
+        Object id = Util.getIdForEntity(obj, cmd);
         if(encrypted && cmd.hasSecret()){
           CryptoUtil.encryptFields(obj, cmd, dbConfig.getCipher());
         }
         boolean insert = true;
         if (null == id) {
-          id = Util.setIdForEntity(obj, cmd.getIdAnnotatedFieldSetterMethod());
+          id = assignId(cmd, collection, obj);
         } else if (collection.containsKey(id)) {
           insert = false;
         }
@@ -1127,10 +2636,13 @@ public class JsonDBTemplate implements JsonDBOperations {
           collectionToUpdate.put(Util.deepCopy(id), (T) obj);
         }
       }
+      Map<Object, T> collectionToStore = new LinkedHashMap<Object, T>(collectionToInsert);
+      collectionToStore.putAll(collectionToUpdate);
+      checkUniqueConstraints(cmd, collectionToStore);
 
       JsonWriter jw;
       try {
-        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
+        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
       } catch (IOException ioe) {
         logger.error("Failed to obtain writer for " + collectionName, ioe);
         throw new JsonDBException("Failed to save " + collectionName, ioe);
@@ -1139,21 +2651,25 @@ public class JsonDBTemplate implements JsonDBOperations {
       if (collectionToInsert.size() > 0) {
         boolean insertResult = jw.appendToJsonFile(collection.values(), collectionToInsert.values());
         if(insertResult) {
-          collection.putAll(collectionToInsert);
+          collectionFileWritten(cmd, false);
+          putDocuments(cmd, collection, collectionToInsert);
+          collectionModified(cmd);
         }
       }
 
       if (collectionToUpdate.size() > 0) {
         boolean updateResult = jw.updateInJsonFile(collection, collectionToUpdate);
         if (updateResult) {
-         collection.putAll(collectionToUpdate);
+          collectionFileWritten(cmd, false);
+         putDocuments(cmd, collection, collectionToUpdate);
+         collectionModified(cmd);
         }
       }
     } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
       logger.error("Error when encrypting value for a @Secret annotated field for entity: " + collectionName, e);
       throw new JsonDBException("Error when encrypting value for a @Secret annotated field for entity: " + collectionName, e);
     } finally {
-      collectionMeta.getCollectionLock().writeLock().unlock();
+      unlockForWrite(collectionMeta);
     }
   }
 
@@ -1179,32 +2695,38 @@ public class JsonDBTemplate implements JsonDBOperations {
     if((null == cmd) || (null == collection)) {
       throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
     }
-    cmd.getCollectionLock().writeLock().lock();
+    lockForWrite(cmd);
     try {
       JXPathContext context = contextsRef.get().get(collectionName);
       @SuppressWarnings("unchecked")
       Iterator<T> resultItr = context.iterate(jxQuery);
       T objectToRemove = null;
+      long now = System.currentTimeMillis();
       while (resultItr.hasNext()) {
-        objectToRemove = resultItr.next();
-        break; // Use only the first element we find.
+        T candidate = resultItr.next();
+        if (!isExpired(cmd, candidate, now)) {
+          objectToRemove = candidate;
+          break; // Use only the first element we find.
+        }
       }
       if (null != objectToRemove) {
-        Object idToRemove = Util.getIdForEntity(objectToRemove, cmd.getIdAnnotatedFieldGetterMethod());
+        Object idToRemove = Util.getIdForEntity(objectToRemove, cmd);
         if (!collection.containsKey(idToRemove)) { //This will never happen since the object was located based of jxQuery
           throw new InvalidJsonDbApiUsageException(String.format("Objects with Id %s not found in collection %s", idToRemove, collectionName));
         }
 
         JsonWriter jw;
         try {
-          jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
+          jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
         } catch (IOException ioe) {
           logger.error("Failed to obtain writer for " + collectionName, ioe);
           throw new JsonDBException("Failed to save " + collectionName, ioe);
         }
         boolean substractResult = jw.removeFromJsonFile(collection, idToRemove);
         if (substractResult) {
-          T objectRemoved = collection.remove(idToRemove);
+          collectionFileWritten(cmd, false);
+          T objectRemoved = removeDocument(cmd, collection, idToRemove);
+          collectionModified(cmd);
           // Don't need to clone it, this object no more exists in the collection
           return objectRemoved;
         } else {
@@ -1213,7 +2735,7 @@ public class JsonDBTemplate implements JsonDBOperations {
       }
       return null; //Either the jxQuery found nothing or actual FileIO failed to substract it.
     } finally {
-      cmd.getCollectionLock().writeLock().unlock();
+      unlockForWrite(cmd);
     }
   }
 
@@ -1236,15 +2758,19 @@ public class JsonDBTemplate implements JsonDBOperations {
     if((null == cmd) || (null == collection)) {
       throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
     }
-    cmd.getCollectionLock().writeLock().lock();
+    lockForWrite(cmd);
     try {
       JXPathContext context = contextsRef.get().get(collectionName);
       @SuppressWarnings("unchecked")
       Iterator<T> resultItr = context.iterate(jxQuery);
       Set<Object> removeIds = new HashSet<Object>();
+      long now = System.currentTimeMillis();
       while (resultItr.hasNext()) {
         T objectToRemove = resultItr.next();
-        Object idToRemove = Util.getIdForEntity(objectToRemove, cmd.getIdAnnotatedFieldGetterMethod());
+        if (isExpired(cmd, objectToRemove, now)) {
+          continue;
+        }
+        Object idToRemove = Util.getIdForEntity(objectToRemove, cmd);
         removeIds.add(idToRemove);
       }
 
@@ -1254,7 +2780,7 @@ public class JsonDBTemplate implements JsonDBOperations {
 
       JsonWriter jw;
       try {
-        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
+        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
       } catch (IOException ioe) {
         logger.error("Failed to obtain writer for " + collectionName, ioe);
         throw new JsonDBException("Failed to save " + collectionName, ioe);
@@ -1263,16 +2789,18 @@ public class JsonDBTemplate implements JsonDBOperations {
 
       List<T> removedObjects = null;
       if(substractResult) {
+        collectionFileWritten(cmd, false);
         removedObjects = new ArrayList<T>();
         for (Object id : removeIds) {
           // Don't need to clone it, this object no more exists in the collection
-          removedObjects.add(collection.remove(id));
+          removedObjects.add(removeDocument(cmd, collection, id));
         }
+        collectionModified(cmd);
       }
       return removedObjects;
 
     } finally {
-      cmd.getCollectionLock().writeLock().unlock();
+      unlockForWrite(cmd);
     }
   }
 
@@ -1295,16 +2823,20 @@ public class JsonDBTemplate implements JsonDBOperations {
     if((null == cmd) || (null == collection)) {
       throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
     }
-    cmd.getCollectionLock().writeLock().lock();
+    lockForWrite(cmd);
     try {
       JXPathContext context = contextsRef.get().get(collectionName);
       Iterator<T> resultItr = context.iterate(jxQuery);
       T objectToModify = null;
       T clonedModifiedObject = null;
+      long now = System.currentTimeMillis();
 
       while (resultItr.hasNext()) {
-        objectToModify = resultItr.next();
-        break; // Use only the first element we find.
+        T candidate = resultItr.next();
+        if (!isExpired(cmd, candidate, now)) {
+          objectToModify = candidate;
+          break; // Use only the first element we find.
+        }
       }
       if (null != objectToModify) {
         //Clone it because we dont want to touch the in-memory object until we have really saved it
@@ -1315,24 +2847,27 @@ public class JsonDBTemplate implements JsonDBOperations {
             newValue = dbConfig.getCipher().encrypt(newValue.toString());
           }
           try {
-            BeanUtils.copyProperty(clonedModifiedObject, entry.getKey(), newValue);
+            copyProperty(clonedModifiedObject, entry.getKey(), newValue);
           } catch (IllegalAccessException | InvocationTargetException e) {
             logger.error("Failed to copy updated data into existing collection document using BeanUtils", e);
             return null;
           }
         }
 
-        Object idToModify = Util.getIdForEntity(clonedModifiedObject, cmd.getIdAnnotatedFieldGetterMethod());
+        Object idToModify = Util.getIdForEntity(clonedModifiedObject, cmd);
+        checkUniqueConstraints(cmd, Collections.singletonMap(idToModify, clonedModifiedObject));
         JsonWriter jw = null;
         try {
-          jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
+          jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
         } catch (IOException ioe) {
           logger.error("Failed to obtain writer for " + collectionName, ioe);
           throw new JsonDBException("Failed to save " + collectionName, ioe);
         }
         boolean updateResult = jw.updateInJsonFile(collection, idToModify, clonedModifiedObject);
         if (updateResult) {
-         collection.put(idToModify, clonedModifiedObject);
+          collectionFileWritten(cmd, false);
+         putDocument(cmd, collection, idToModify, clonedModifiedObject);
+         collectionModified(cmd);
          //Clone it once more because we want to disconnect it from the in-memory objects before returning.
          T returnObj = (T) Util.deepCopy(clonedModifiedObject);
          if(encrypted && cmd.hasSecret() && null!= returnObj){
@@ -1346,7 +2881,7 @@ public class JsonDBTemplate implements JsonDBOperations {
       logger.error("Error when decrypting value for a @Secret annotated field for entity: " + collectionName, e);
       throw new JsonDBException("Error when decrypting value for a @Secret annotated field for entity: " + collectionName, e);
     } finally {
-      cmd.getCollectionLock().writeLock().unlock();
+      unlockForWrite(cmd);
     }
   }
 
@@ -1370,14 +2905,18 @@ public class JsonDBTemplate implements JsonDBOperations {
     if((null == cmd) || (null == collection)) {
       throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
     }
-    cmd.getCollectionLock().writeLock().lock();
+    lockForWrite(cmd);
     try {
       JXPathContext context = contextsRef.get().get(collectionName);
       Iterator<T> resultItr = context.iterate(jxQuery);
       Map<Object, T> clonedModifiedObjects = new HashMap<Object, T>();
+      long now = System.currentTimeMillis();
 
       while (resultItr.hasNext()) {
         T objectToModify = resultItr.next();
+        if (isExpired(cmd, objectToModify, now)) {
+          continue;
+        }
         T clonedModifiedObject = (T) Util.deepCopy(objectToModify);
 
         for (Entry<String, Object> entry : update.getUpdateData().entrySet()) {
@@ -1386,26 +2925,29 @@ public class JsonDBTemplate implements JsonDBOperations {
             newValue = dbConfig.getCipher().encrypt(newValue.toString());
           }
           try {
-            BeanUtils.copyProperty(clonedModifiedObject, entry.getKey(), newValue);
+            copyProperty(clonedModifiedObject, entry.getKey(), newValue);
           } catch (IllegalAccessException | InvocationTargetException e) {
             logger.error("Failed to copy updated data into existing collection document using BeanUtils", e);
             return null;
           }
         }
-        Object id = Util.getIdForEntity(clonedModifiedObject, cmd.getIdAnnotatedFieldGetterMethod());
+        Object id = Util.getIdForEntity(clonedModifiedObject, cmd);
         clonedModifiedObjects.put(id, clonedModifiedObject);
       }
+      checkUniqueConstraints(cmd, clonedModifiedObjects);
 
       JsonWriter jw = null;
       try {
-        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
+        jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
       } catch (IOException ioe) {
         logger.error("Failed to obtain writer for " + collectionName, ioe);
         throw new JsonDBException("Failed to save " + collectionName, ioe);
       }
       boolean updateResult = jw.updateInJsonFile(collection, clonedModifiedObjects);
       if (updateResult) {
-       collection.putAll(clonedModifiedObjects);
+        collectionFileWritten(cmd, false);
+       putDocuments(cmd, collection, clonedModifiedObjects);
+       collectionModified(cmd);
        //Clone it once more because we want to disconnect it from the in-memory objects before returning.
        List<T> returnObjects = new ArrayList<T>();
        for (T obj : clonedModifiedObjects.values()) {
@@ -1423,11 +2965,342 @@ public class JsonDBTemplate implements JsonDBOperations {
       logger.error("Error when decrypting value for a @Secret annotated field for entity: " + collectionName, e);
       throw new JsonDBException("Error when decrypting value for a @Secret annotated field for entity: " + collectionName, e);
     } finally {
-      cmd.getCollectionLock().writeLock().unlock();
+      unlockForWrite(cmd);
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.JsonDBOperations#inTransaction(io.jsondb.TransactionCallback)
+   */
+  @Override
+  public <T> T inTransaction(TransactionCallback<T> callback) {
+    Transaction transaction = new Transaction();
+    T result = callback.doInTransaction(transaction);
+    if (!transaction.isEmpty()) {
+      commit(transaction);
+    }
+    return result;
+  }
+
+  private void commit(Transaction transaction) {
+    //Collections are locked in name order so that concurrent transactions cannot deadlock
+    Map<String, List<Transaction.Mutation>> mutationsByCollection = new TreeMap<String, List<Transaction.Mutation>>();
+    for (Transaction.Mutation mutation : transaction.getMutations()) {
+      if (!cmdMap.containsKey(mutation.getCollectionName())) {
+        throw new InvalidJsonDbApiUsageException("Collection by name '" + mutation.getCollectionName() + "' not found. Create collection first.");
+      }
+      List<Transaction.Mutation> mutations = mutationsByCollection.get(mutation.getCollectionName());
+      if (null == mutations) {
+        mutations = new ArrayList<Transaction.Mutation>();
+        mutationsByCollection.put(mutation.getCollectionName(), mutations);
+      }
+      mutations.add(mutation);
+    }
+    List<CollectionMetaData> locked = new ArrayList<CollectionMetaData>();
+    try {
+      for (String collectionName : mutationsByCollection.keySet()) {
+        CollectionMetaData cmd = cmdMap.get(collectionName);
+        lockForWrite(cmd);
+        locked.add(cmd);
+      }
+      Map<String, Map<Object, Object>> stagedByCollection = new LinkedHashMap<String, Map<Object, Object>>();
+      for (Entry<String, List<Transaction.Mutation>> entry : mutationsByCollection.entrySet()) {
+        stagedByCollection.put(entry.getKey(), stageMutations(cmdMap.get(entry.getKey()), entry.getValue()));
+      }
+
+      JsonNode record = transactionRecord(stagedByCollection);
+      try {
+        transactionLog.append(record);
+      } catch (IOException e) {
+        logger.error("Failed to write transaction to write-ahead log", e);
+        throw new JsonDBException("Failed to write transaction to write-ahead log", e);
+      }
+
+      //The record stays in the log until every collection file it touches has been written, by this commit or a later write
+      boolean applied = false;
+      try {
+        for (Entry<String, Map<Object, Object>> entry : stagedByCollection.entrySet()) {
+          CollectionMetaData cmd = cmdMap.get(entry.getKey());
+          applyStaged(cmd, getCollectionForStripedWrite(cmd), entry.getValue());
+          collectionModified(cmd);
+        }
+
+        boolean written = true;
+        for (String collectionName : stagedByCollection.keySet()) {
+          written &= writeCollectionFile(cmdMap.get(collectionName), true);
+        }
+        applied = written;
+      } catch (RuntimeException e) {
+        //Memory may be half applied, go back to the collection files, the log replays the transaction on the next open
+        for (String collectionName : stagedByCollection.keySet()) {
+          reloadCollection(collectionName);
+        }
+        throw e;
+      } finally {
+        transactionLog.complete(record);
+      }
+      if (!applied) {
+        throw new JsonDBException("Transaction was committed to the write-ahead log but not all collection files could be written, "
+            + "they are recovered from the log the next time the db is opened");
+      }
+    } finally {
+      for (int i = locked.size() - 1; i >= 0; i--) {
+        unlockForWrite(locked.get(i));
+      }
+    }
+  }
+
+  /**
+   * Checks the buffered changes to one collection and works out the resulting documents,
+   * null for a removed document. The caller must hold the collection write lock.
+   */
+  private Map<Object, Object> stageMutations(CollectionMetaData cmd, List<Transaction.Mutation> mutations) {
+    String collectionName = cmd.getCollectionName();
+    Map<Object, Object> collection = getCollectionForStripedWrite(cmd);
+    Map<Object, Object> staged = new LinkedHashMap<Object, Object>();
+    for (Transaction.Mutation mutation : mutations) {
+      Object document = mutation.getDocument();
+      Object id = Util.getIdForEntity(document, cmd);
+      boolean present = (null != id) && (staged.containsKey(id) ? (null != staged.get(id)) : collection.containsKey(id));
+      switch (mutation.getOperation()) {
+        case INSERT:
+          encryptFields(document, cmd);
+          if (null == id) {
+            id = assignId(cmd, collection, document);
+          } else if (present) {
+            throw new InvalidJsonDbApiUsageException("Object already present in Collection. Use Update or Upsert operation instead of Insert");
+          }
+          staged.put(id, document);
+          break;
+        case SAVE:
+          if (!present) {
+            throw new InvalidJsonDbApiUsageException(
+                String.format("Document with Id: '%s' not found in Collection by name '%s' not found. Insert or Upsert the object first.",
+                    id, collectionName));
+          }
+          encryptFields(document, cmd);
+          staged.put(id, document);
+          break;
+        case UPSERT:
+          encryptFields(document, cmd);
+          if (null == id) {
+            id = assignId(cmd, collection, document);
+          }
+          staged.put(id, document);
+          break;
+        case REMOVE:
+          if (!present) {
+            throw new InvalidJsonDbApiUsageException(String.format("Objects with Id %s not found in collection %s", id, collectionName));
+          }
+          staged.put(id, null);
+          break;
+      }
+    }
+    Map<Object, Object> documents = new LinkedHashMap<Object, Object>();
+    Set<Object> removedIds = new HashSet<Object>();
+    for (Entry<Object, Object> entry : staged.entrySet()) {
+      if (null != entry.getValue()) {
+        documents.put(entry.getKey(), entry.getValue());
+      } else {
+        removedIds.add(entry.getKey());
+      }
+    }
+    checkUniqueConstraints(cmd, documents, removedIds);
+    return staged;
+  }
+
+  /**
+   * Applies staged documents to the in-memory collection, a null document removes the id.
+   * The caller must hold the collection write lock.
+   */
+  private void applyStaged(CollectionMetaData cmd, Map<Object, Object> collection, Map<Object, Object> staged) {
+    for (Entry<Object, Object> entry : staged.entrySet()) {
+      if (null == entry.getValue()) {
+        removeDocument(cmd, collection, entry.getKey());
+      } else {
+        putDocument(cmd, collection, entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Builds the write-ahead log record of a transaction. Every change carries the document as stored,
+   * for a removal that is the document being removed, so replaying it needs only the entity class.
+   * The stamps of the collection files tell recovery whether a file was rewritten after the record.
+   */
+  private JsonNode transactionRecord(Map<String, Map<Object, Object>> stagedByCollection) {
+    ObjectMapper objectMapper = dbConfig.getObjectMapper();
+    ObjectNode record = objectMapper.createObjectNode();
+    record.put("txId", transactionIds.incrementAndGet());
+    ObjectNode stamps = record.putObject("fileStamps");
+    ObjectNode collections = record.putObject("collections");
+    for (Entry<String, Map<Object, Object>> entry : stagedByCollection.entrySet()) {
+      stamps.put(entry.getKey(), WriteAheadLog.stampOf(fileObjectsRef.get().get(entry.getKey())));
+      Map<Object, ?> collection = collectionsRef.get().get(entry.getKey());
+      ArrayNode changes = collections.putArray(entry.getKey());
+      for (Entry<Object, Object> change : entry.getValue().entrySet()) {
+        Object document = change.getValue();
+        String op = "put";
+        if (null == document) {
+          //An id inserted and removed within the transaction was never stored, there is nothing to log
+          document = collection.get(change.getKey());
+          if (null == document) {
+            continue;
+          }
+          op = "remove";
+        }
+        ObjectNode node = changes.addObject();
+        node.put("op", op);
+        node.set("document", objectMapper.valueToTree(document));
+      }
+    }
+    return record;
+  }
+
+  /**
+   * @return number of documents held in memory for a collection, 0 if it does not exist
+   */
+  int documentCount(String collectionName) {
+    Map<Object, ?> collection = collectionsRef.get().get(collectionName);
+    return (null == collection) ? 0 : collection.size();
+  }
+
+  /**
+   * @return the file of a collection or null if it does not exist
+   */
+  File collectionFile(String collectionName) {
+    return fileObjectsRef.get().get(collectionName);
+  }
+
+  /**
+   * Rewrites the file of a collection from its in-memory state, dropping anything in the file that
+   * is not in memory.
+   */
+  void flushCollection(String collectionName) {
+    CollectionMetaData cmd = getCollectionMetaData(collectionName);
+    lockFileWrites(cmd);
+    try {
+      lockForRead(cmd);
+      try {
+        if (!collectionsRef.get().containsKey(collectionName)) {
+          throw new InvalidJsonDbApiUsageException("Collection by name '" + collectionName + "' not found. Create collection first.");
+        }
+        if (!writeCollectionFile(cmd, false)) {
+          throw new JsonDBException("Failed to save " + collectionName);
+        }
+      } finally {
+        cmd.getCollectionLock().readLock().unlock();
+      }
+    } finally {
+      unlockFileWrites(cmd);
+    }
+  }
+
+  /**
+   * Rewrites the file of a collection from its in-memory state. The caller must hold the collection lock.
+   *
+   * @param durable true to force the file to disk before returning, as transactions need
+   */
+  private boolean writeCollectionFile(CollectionMetaData cmd, boolean durable) {
+    String collectionName = cmd.getCollectionName();
+    Map<Object, ?> collection = collectionsRef.get().get(collectionName);
+    try {
+      JsonWriter jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
+      jw.setDurable(durable);
+      if (!jw.appendToJsonFile(collection.values(), Collections.emptyList())) {
+        return false;
+      }
+    } catch (IOException | LockTimeoutException e) {
+      logger.error("Failed to write collection file for " + collectionName, e);
+      return false;
     }
+    collectionFileWritten(cmd, durable);
+    return true;
   }
 
+  /**
+   * Records that the file of a collection was rewritten from its in-memory state, so documents upgraded
+   * by upcasters no longer need to be written back and logged transactions no longer need to be replayed
+   * on it. The caller must hold the collection lock.
+   *
+   * @param durable true if the file was already forced to disk
+   */
+  private void collectionFileWritten(CollectionMetaData cmd, boolean durable) {
+    pendingUpcasts.remove(cmd.getCollectionName());
+    transactionLog.written(cmd.getCollectionName(), fileObjectsRef.get().get(cmd.getCollectionName()), durable);
+  }
 
+  /**
+   * Replays the transactions found in the write-ahead log on the collections just loaded, rewrites
+   * their files and deletes the log. Changes to a collection whose file was rewritten after the
+   * transaction was logged are already in the file, or superseded by newer data, and are skipped.
+   */
+  private void recoverTransactions() {
+    List<JsonNode> records;
+    try {
+      records = transactionLog.readRecords();
+    } catch (IOException e) {
+      logger.error("Failed to read write-ahead log {}", transactionLog.getLogFile(), e);
+      throw new JsonDBException("Failed to read write-ahead log " + transactionLog.getLogFile(), e);
+    }
+    if (records.isEmpty()) {
+      transactionLog.clear();
+      return;
+    }
+    logger.info("Recovering {} transactions from write-ahead log {}", records.size(), transactionLog.getLogFile());
+    Set<String> recovered = new HashSet<String>();
+    for (JsonNode record : records) {
+      Iterator<Entry<String, JsonNode>> collections = record.path("collections").fields();
+      while (collections.hasNext()) {
+        Entry<String, JsonNode> entry = collections.next();
+        CollectionMetaData cmd = cmdMap.get(entry.getKey());
+        @SuppressWarnings("unchecked")
+        Map<Object, Object> collection = (Map<Object, Object>) collectionsRef.get().get(entry.getKey());
+        if ((null == cmd) || (null == collection)) {
+          logger.warn("Skipping logged changes to collection {} which is not loaded", entry.getKey());
+          continue;
+        }
+        JsonNode stamp = record.path("fileStamps").get(entry.getKey());
+        if ((null != stamp) && !stamp.asText().equals(WriteAheadLog.stampOf(fileObjectsRef.get().get(entry.getKey())))) {
+          logger.info("Skipping logged changes to collection {} whose file was written after them", entry.getKey());
+          continue;
+        }
+        @SuppressWarnings("unchecked")
+        Class<Object> entity = cmd.getClazz();
+        for (JsonNode change : entry.getValue()) {
+          Object document;
+          try {
+            document = dbConfig.getObjectMapper().treeToValue(change.get("document"), entity);
+          } catch (IOException e) {
+            throw new JsonDBException("Failed to read logged document for collection " + entry.getKey(), e);
+          }
+          Object id = Util.getIdForEntity(document, cmd);
+          if ("remove".equals(change.path("op").asText())) {
+            collection.remove(id);
+          } else {
+            collection.put(id, document);
+          }
+        }
+        recovered.add(entry.getKey());
+      }
+    }
+    for (String collectionName : recovered) {
+      CollectionMetaData cmd = cmdMap.get(collectionName);
+      cmd.getCollectionLock().writeLock().lock();
+      try {
+        //The replayed changes bypassed putDocument, the snapshot is taken afresh
+        snapshots.remove(collectionName);
+        rebuildIndexes(cmd, collectionsRef.get().get(collectionName));
+        collectionModified(cmd);
+        if (!writeCollectionFile(cmd, true)) {
+          throw new JsonDBException("Failed to write recovered collection " + collectionName);
+        }
+      } finally {
+        cmd.getCollectionLock().writeLock().unlock();
+      }
+    }
+    transactionLog.clear();
+  }
 
   /* (non-Javadoc)
    * @see io.jsondb.JsonDBOperations#changeEncryption(io.jsondb.crypto.ICipher)
@@ -1439,14 +3312,16 @@ public class JsonDBTemplate implements JsonDBOperations {
       throw new InvalidJsonDbApiUsageException("DB is not encrypted, nothing to change for EncryptionKey");
     }
 
-    for (Entry<String, Map<Object, ?>> entry : collectionsRef.get().entrySet()) {
-      CollectionMetaData cmd = cmdMap.get(entry.getKey());
-      if (cmd.hasSecret()) {
-        cmd.getCollectionLock().writeLock().lock();
-      }
-    }
+    List<CollectionMetaData> locked = new ArrayList<CollectionMetaData>();
     String collectionName = null;
     try {
+      for (Entry<String, Map<Object, ?>> entry : collectionsRef.get().entrySet()) {
+        CollectionMetaData cmd = cmdMap.get(entry.getKey());
+        if (cmd.hasSecret()) {
+          lockForWrite(cmd);
+          locked.add(cmd);
+        }
+      }
       for (Entry<String, Map<Object, ?>> entry : collectionsRef.get().entrySet()) {
         collectionName = entry.getKey();
         Map<Object, T> collection = (Map<Object, T>) entry.getValue();
@@ -1463,7 +3338,7 @@ public class JsonDBTemplate implements JsonDBOperations {
           }
           JsonWriter jw = null;
           try {
-            jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName));
+            jw = new JsonWriter(dbConfig, cmd, collectionName, fileObjectsRef.get().get(collectionName), lockTimeout());
           } catch (IOException ioe) {
             logger.error("Failed to obtain writer for " + collectionName, ioe);
             throw new JsonDBException("Failed to save " + collectionName, ioe);
@@ -1472,7 +3347,9 @@ public class JsonDBTemplate implements JsonDBOperations {
           if (!updateResult) {
             throw new JsonDBException("Failed to write re-crypted collection data to .json files, database might have become insconsistent");
           }
-          collection.putAll(reCryptedObjects);
+          collectionFileWritten(cmd, false);
+          putDocuments(cmd, collection, reCryptedObjects);
+          collectionModified(cmd);
         }
       }
       dbConfig.setCipher(newCipher);
@@ -1480,11 +3357,8 @@ public class JsonDBTemplate implements JsonDBOperations {
       logger.error("Error when encrypting value for a @Secret annotated field for entity: " + collectionName, e);
       throw new JsonDBException("Error when encrypting value for a @Secret annotated field for entity: " + collectionName, e);
     } finally {
-      for (Entry<String, Map<Object, ?>> entry : collectionsRef.get().entrySet()) {
-        CollectionMetaData cmd = cmdMap.get(entry.getKey());
-        if (cmd.hasSecret()) {
-          cmd.getCollectionLock().writeLock().unlock();
-        }
+      for (CollectionMetaData cmd : locked) {
+        unlockForWrite(cmd);
       }
     }
   }
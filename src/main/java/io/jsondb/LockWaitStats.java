@@ -0,0 +1,91 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Time spent waiting for the lock of a collection, so callers can shed load when waits grow
+ * instead of piling up threads.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class LockWaitStats {
+  private final LongAdder acquisitions = new LongAdder();
+  private final LongAdder timeouts = new LongAdder();
+  private final LongAdder totalWaitNanos = new LongAdder();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+
+  void recordAcquired(long waitNanos) {
+    acquisitions.increment();
+    recordWait(waitNanos);
+  }
+
+  void recordTimeout(long waitNanos) {
+    timeouts.increment();
+    recordWait(waitNanos);
+  }
+
+  private void recordWait(long waitNanos) {
+    totalWaitNanos.add(waitNanos);
+    long max = maxWaitNanos.get();
+    while ((waitNanos > max) && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+      max = maxWaitNanos.get();
+    }
+  }
+
+  /**
+   * @return number of times the lock was acquired
+   */
+  public long getAcquisitions() {
+    return acquisitions.sum();
+  }
+
+  /**
+   * @return number of times an operation gave up waiting for the lock
+   */
+  public long getTimeouts() {
+    return timeouts.sum();
+  }
+
+  /**
+   * @return total time in nanoseconds spent waiting for the lock, including waits that timed out
+   */
+  public long getTotalWaitNanos() {
+    return totalWaitNanos.sum();
+  }
+
+  /**
+   * @return the longest single wait in nanoseconds
+   */
+  public long getMaxWaitNanos() {
+    return maxWaitNanos.get();
+  }
+
+  /**
+   * @return mean wait in nanoseconds over all acquisitions and timeouts
+   */
+  public long getMeanWaitNanos() {
+    long count = getAcquisitions() + getTimeouts();
+    return (count == 0) ? 0 : getTotalWaitNanos() / count;
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb;
+
+/**
+ * Estimated heap retained by a single collection, as returned by {@link JsonDBOperations#memoryStats(String)}.
+ * Document sizes are extrapolated from a sample of the documents, so these are estimates and not
+ * measurements.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class MemoryStats {
+  private final String collectionName;
+  private final int documentCount;
+  private final int sampledDocuments;
+  private final long documentBytes;
+  private final long indexBytes;
+  private final long cacheBytes;
+  private final long contextBytes;
+
+  public MemoryStats(String collectionName, int documentCount, int sampledDocuments, long documentBytes,
+      long indexBytes, long cacheBytes, long contextBytes) {
+    this.collectionName = collectionName;
+    this.documentCount = documentCount;
+    this.sampledDocuments = sampledDocuments;
+    this.documentBytes = documentBytes;
+    this.indexBytes = indexBytes;
+    this.cacheBytes = cacheBytes;
+    this.contextBytes = contextBytes;
+  }
+
+  public String getCollectionName() {
+    return collectionName;
+  }
+
+  public int getDocumentCount() {
+    return documentCount;
+  }
+
+  /**
+   * @return number of documents that were measured to estimate {@link #getDocumentBytes()}
+   */
+  public int getSampledDocuments() {
+    return sampledDocuments;
+  }
+
+  /**
+   * @return the documents, their ids and the map holding them
+   */
+  public long getDocumentBytes() {
+    return documentBytes;
+  }
+
+  /**
+   * @return the field, text and expiry indexes
+   */
+  public long getIndexBytes() {
+    return indexBytes;
+  }
+
+  /**
+   * @return the query result cache and the published snapshot, whose documents are shared with the collection
+   */
+  public long getCacheBytes() {
+    return cacheBytes;
+  }
+
+  /**
+   * @return the JXPathContext queries are evaluated against
+   */
+  public long getContextBytes() {
+    return contextBytes;
+  }
+
+  public long getTotalBytes() {
+    return documentBytes + indexBytes + cacheBytes + contextBytes;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("MemoryStats[%s: %d documents (%d sampled), documents=%d, indexes=%d, caches=%d, context=%d, total=%d bytes]",
+        collectionName, documentCount, sampledDocuments, documentBytes, indexBytes, cacheBytes, contextBytes,
+        getTotalBytes());
+  }
+}
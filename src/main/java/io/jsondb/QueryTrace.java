@@ -0,0 +1,75 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb;
+
+/**
+ * Collects where the time of a query goes while it runs on the calling thread, for the slow operation log.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+final class QueryTrace {
+  private final String method;
+  private final String collectionName;
+  private final String query;
+  private final long start = System.nanoTime();
+  private long lockWaitNanos;
+  private long copyNanos;
+  private int scanned;
+
+  QueryTrace(String method, String collectionName, String query) {
+    this.method = method;
+    this.collectionName = collectionName;
+    this.query = query;
+  }
+
+  void addLockWait(long nanos) {
+    lockWaitNanos += nanos;
+  }
+
+  void addCopy(long nanos) {
+    copyNanos += nanos;
+  }
+
+  void addScanned(int documents) {
+    scanned += documents;
+  }
+
+  long getLockWaitNanos() {
+    return lockWaitNanos;
+  }
+
+  long getCopyNanos() {
+    return copyNanos;
+  }
+
+  int getScanned() {
+    return scanned;
+  }
+
+  long getElapsedNanos() {
+    return System.nanoTime() - start;
+  }
+
+  void finish(JsonDBConfig dbConfig, int returned) {
+    dbConfig.getSlowOperationLog().logQuery(method, collectionName, query, scanned, returned,
+        System.nanoTime() - start, lockWaitNanos, copyNanos);
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The registered {@link DocumentUpcaster}s of all collections. Each upcaster moves documents of a
+ * collection one step, from one schema version to another, and steps are chained to get from the
+ * version of a collection file to the version of its POJO.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class SchemaUpcasters {
+  private final Map<String, Map<String, Step>> steps = new ConcurrentHashMap<String, Map<String, Step>>();
+
+  private static class Step {
+    private final String toVersion;
+    private final DocumentUpcaster upcaster;
+
+    private Step(String toVersion, DocumentUpcaster upcaster) {
+      this.toVersion = toVersion;
+      this.upcaster = upcaster;
+    }
+  }
+
+  /**
+   * @param collectionName name of the collection
+   * @param fromVersion schema version the upcaster reads
+   * @param toVersion schema version the upcaster produces
+   * @param upcaster the upcaster
+   * @throws InvalidJsonDbApiUsageException if an upcaster is already registered from the version
+   */
+  public void register(String collectionName, String fromVersion, String toVersion, DocumentUpcaster upcaster) {
+    if ((null == collectionName) || (null == fromVersion) || (null == toVersion) || (null == upcaster)) {
+      throw new InvalidJsonDbApiUsageException("Collection name, versions and upcaster must not be null");
+    }
+    if (fromVersion.equals(toVersion)) {
+      throw new InvalidJsonDbApiUsageException("Upcaster for collection '" + collectionName + "' must change the schema version, found " + fromVersion);
+    }
+    Map<String, Step> collectionSteps = steps.get(collectionName);
+    if (null == collectionSteps) {
+      collectionSteps = new ConcurrentHashMap<String, Step>();
+      Map<String, Step> existing = steps.putIfAbsent(collectionName, collectionSteps);
+      if (null != existing) {
+        collectionSteps = existing;
+      }
+    }
+    if (null != collectionSteps.putIfAbsent(fromVersion, new Step(toVersion, upcaster))) {
+      throw new InvalidJsonDbApiUsageException("An upcaster from schema version " + fromVersion + " is already registered for collection '" + collectionName + "'");
+    }
+  }
+
+  /**
+   * Finds the upcasters that take documents from one schema version to another.
+   *
+   * @param collectionName name of the collection
+   * @param fromVersion version of the collection file
+   * @param toVersion version of the POJO
+   * @param schemaComparator comparator deciding whether two versions are the same
+   * @return the upcasters to apply in order, null if the registered steps do not lead to toVersion
+   */
+  public List<DocumentUpcaster> getChain(String collectionName, String fromVersion, String toVersion, Comparator<String> schemaComparator) {
+    Map<String, Step> collectionSteps = steps.get(collectionName);
+    if (null == collectionSteps) {
+      return null;
+    }
+    List<DocumentUpcaster> chain = new ArrayList<DocumentUpcaster>();
+    String version = fromVersion;
+    //More steps than registered upcasters means the steps go round in a circle
+    while ((schemaComparator.compare(version, toVersion) != 0) && (chain.size() <= collectionSteps.size())) {
+      Step step = collectionSteps.get(version);
+      if (null == step) {
+        return null;
+      }
+      chain.add(step.upcaster);
+      version = step.toVersion;
+    }
+    return (schemaComparator.compare(version, toVersion) == 0) ? chain : null;
+  }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Buffers the changes made by a {@link TransactionCallback} so they can be committed together
+ * by {@link JsonDBOperations#inTransaction(TransactionCallback)}.
+ *
+ * Nothing is written when these methods are called, the documents are copied and checked
+ * against the collections only when the transaction commits. The checks are the same as those
+ * of the corresponding methods of {@link JsonDBOperations}, applied in the order the changes were
+ * buffered, so a document inserted earlier in the transaction can be saved or removed later in it.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class Transaction {
+
+  /**
+   * The kinds of change a transaction can buffer.
+   */
+  public enum Operation {
+    INSERT, SAVE, UPSERT, REMOVE
+  }
+
+  /**
+   * A single buffered change.
+   */
+  public static class Mutation {
+    private final Operation operation;
+    private final String collectionName;
+    private final Object document;
+
+    Mutation(Operation operation, String collectionName, Object document) {
+      this.operation = operation;
+      this.collectionName = collectionName;
+      this.document = document;
+    }
+
+    public Operation getOperation() {
+      return operation;
+    }
+
+    public String getCollectionName() {
+      return collectionName;
+    }
+
+    public Object getDocument() {
+      return document;
+    }
+  }
+
+  private final List<Mutation> mutations = new ArrayList<Mutation>();
+
+  Transaction() {
+  }
+
+  public void insert(Object objectToSave) {
+    insert(objectToSave, determineCollectionName(objectToSave));
+  }
+
+  public void insert(Object objectToSave, String collectionName) {
+    add(Operation.INSERT, objectToSave, collectionName);
+  }
+
+  public void save(Object objectToSave) {
+    save(objectToSave, determineCollectionName(objectToSave));
+  }
+
+  public void save(Object objectToSave, String collectionName) {
+    add(Operation.SAVE, objectToSave, collectionName);
+  }
+
+  public void upsert(Object objectToSave) {
+    upsert(objectToSave, determineCollectionName(objectToSave));
+  }
+
+  public void upsert(Object objectToSave, String collectionName) {
+    add(Operation.UPSERT, objectToSave, collectionName);
+  }
+
+  public void remove(Object objectToRemove) {
+    remove(objectToRemove, determineCollectionName(objectToRemove));
+  }
+
+  public void remove(Object objectToRemove, String collectionName) {
+    add(Operation.REMOVE, objectToRemove, collectionName);
+  }
+
+  /**
+   * @return the buffered changes in the order they were made
+   */
+  public List<Mutation> getMutations() {
+    return Collections.unmodifiableList(mutations);
+  }
+
+  public boolean isEmpty() {
+    return mutations.isEmpty();
+  }
+
+  private String determineCollectionName(Object document) {
+    if (null == document) {
+      throw new InvalidJsonDbApiUsageException("Null Object cannot be part of a transaction");
+    }
+    return Util.determineEntityCollectionName(document);
+  }
+
+  private void add(Operation operation, Object document, String collectionName) {
+    if (null == document) {
+      throw new InvalidJsonDbApiUsageException("Null Object cannot be part of a transaction");
+    }
+    Util.ensureNotRestricted(document);
+    mutations.add(new Mutation(operation, collectionName, Util.deepCopy(document)));
+  }
+}
@@ -37,14 +37,16 @@ import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
-import java.util.UUID;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 
 import io.jsondb.annotation.Document;
+import io.jsondb.query.JsonNodePropertyHandler;
 
 /**
  * @author Farooq Khan
@@ -123,20 +125,83 @@ public class Util {
     return id;
   }
 
+  /**
+   * A utility method to extract the id of a document of a collection, using the getter of the @Id
+   * annotated field for POJOs and the id field for the ObjectNodes of a schemaless collection.
+   *
+   * @param document the document we want the Id of.
+   * @param cmd the metadata of the collection of the document
+   * @return the actual Id or null if none exists
+   */
+  protected static Object getIdForEntity(Object document, CollectionMetaData cmd) {
+    if (cmd.isSchemaless()) {
+      return normalizeId(cmd, JsonNodePropertyHandler.toValue(asObjectNode(document, cmd).get(cmd.getIdAnnotatedFieldName())));
+    }
+    return getIdForEntity(document, cmd.getIdAnnotatedFieldGetterMethod());
+  }
+
+  /**
+   * A utility method to set the id of a document of a collection, see {@link #setIdForEntity(Object, Method, Object)}.
+   * The id of an ObjectNode is stored as a number if it is one and as text otherwise.
+   *
+   * @param document the document we want the Id to be set for.
+   * @param cmd the metadata of the collection of the document
+   * @param generatedId the new id for the document
+   * @return the Id that was set
+   */
+  protected static Object setIdForEntity(Object document, CollectionMetaData cmd, Object generatedId) {
+    if (cmd.isSchemaless()) {
+      ObjectNode node = asObjectNode(document, cmd);
+      Object id = normalizeId(cmd, generatedId);
+      if (id instanceof Long) {
+        node.put(cmd.getIdAnnotatedFieldName(), (Long) id);
+      } else {
+        node.put(cmd.getIdAnnotatedFieldName(), String.valueOf(generatedId));
+      }
+      return getIdForEntity(node, cmd);
+    }
+    return setIdForEntity(document, cmd.getIdAnnotatedFieldSetterMethod(), generatedId);
+  }
+
+  /**
+   * Integral ids of ObjectNode documents are kept as Longs whatever their magnitude, Jackson reads
+   * small numbers back as Integers and the same id would otherwise be two different keys.
+   *
+   * @param cmd the metadata of the collection of the id
+   * @param id the id as given or as read from a document
+   * @return the id to use as the key of the document
+   */
+  protected static Object normalizeId(CollectionMetaData cmd, Object id) {
+    if (cmd.isSchemaless() && ((id instanceof Integer) || (id instanceof Short) || (id instanceof Byte))) {
+      return ((Number) id).longValue();
+    }
+    return id;
+  }
+
+  private static ObjectNode asObjectNode(Object document, CollectionMetaData cmd) {
+    if (!(document instanceof ObjectNode)) {
+      throw new InvalidJsonDbApiUsageException("Documents of the schemaless collection '" + cmd.getCollectionName()
+          + "' must be ObjectNodes, found " + document.getClass().getName());
+    }
+    return (ObjectNode) document;
+  }
+
   /**
    * A utility method to set the value of field marked by the @Id annotation using its
-   * setter/mutator method.
-   * TODO: Some day we want to support policies for generation of ID like AutoIncrement etc.
+   * setter/mutator method. The id is converted to the type of the field where possible,
+   * to a String for String ids or to the matching wrapper type for numeric ids.
    *
    * @param document the actual Object representing the POJO we want the Id to be set for.
    * @param setterMethodForId the Method that is the mutator for the attributed with @Id annotation
-   * @return the Id that was generated and set
+   * @param generatedId the new id for the document
+   * @return the Id that was set
    */
-  protected static Object setIdForEntity(Object document, Method setterMethodForId) {
-    Object id = UUID.randomUUID().toString();
+  protected static Object setIdForEntity(Object document, Method setterMethodForId, Object generatedId) {
+    Object id = generatedId;
     if (null != setterMethodForId) {
+      id = convertId(generatedId, setterMethodForId.getParameterTypes()[0]);
       try {
-        id = setterMethodForId.invoke(document, id);
+        setterMethodForId.invoke(document, id);
       } catch (IllegalAccessException e) {
         logger.error("Failed to invoke setter method for a idAnnotated field due to permissions", e);
         throw new InvalidJsonDbApiUsageException("Failed to invoke setter method for a idAnnotated field due to permissions", e);
@@ -151,6 +216,21 @@ public class Util {
     return id;
   }
 
+  private static Object convertId(Object id, Class<?> idType) {
+    if ((String.class == idType) && !(id instanceof String)) {
+      return String.valueOf(id);
+    }
+    if (id instanceof Number) {
+      Number number = (Number) id;
+      if ((Long.class == idType) || (long.class == idType)) {
+        return number.longValue();
+      } else if ((Integer.class == idType) || (int.class == idType)) {
+        return number.intValue();
+      }
+    }
+    return id;
+  }
+
   protected static Object setFieldValueForEntity(Object document, Object newValue, Method setterMethod) {
     Object retval = null;
     if (null != setterMethod) {
@@ -169,12 +249,16 @@ public class Util {
 
   /**
    * A utility method that creates a deep clone of the specified object.
-   * There is no other way of doing this reliably.
+   * There is no other way of doing this reliably for java beans, the documents of schemaless
+   * collections are JsonNodes which copy themselves.
    *
    * @param fromBean java bean to be cloned.
    * @return a new java bean cloned from fromBean.
    */
   protected static Object deepCopy(Object fromBean) {
+    if (fromBean instanceof JsonNode) {
+      return ((JsonNode) fromBean).deepCopy();
+    }
     ByteArrayOutputStream bos = new ByteArrayOutputStream();
     XMLEncoder out = new XMLEncoder(bos);
     out.writeObject(fromBean);
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Coordinates single document writes to a collection in striped concurrency mode.
+ *
+ * Writers lock the stripe their document id hashes to, apply their change to the in-memory
+ * collection under a short hold of the collection write lock and then wait until the change has been
+ * persisted. Persisting is done by group commit, whichever waiting writer finds no flush in progress
+ * writes the whole collection once on behalf of every change made so far, the others just wait for it.
+ *
+ * Changes are identified by the modification count of the collection right after they were made.
+ *
+ * A change is visible to readers of the collection as soon as it has been applied in memory, before
+ * group commit has made it durable. If the flush fails the collection is reloaded from its file, rolling
+ * back every change the flush covered, so a reader may have seen a change that is never persisted.
+ * If the reload fails too the changes are kept in memory and written by the next flush.
+ *
+ * The flush copies the documents under a short hold of the collection read lock and writes the file
+ * holding only the flush lock, which every other writer of the collection file takes before the
+ * collection lock. Writers of single documents are therefore not held up by a flush in progress.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class WriteStripes {
+
+  /**
+   * Persists the in-memory collection for a group of writers.
+   */
+  public interface Flusher {
+    /**
+     * Writes the current state of the collection to its file.
+     *
+     * @return the modification count of the collection state that was written
+     * @throws Exception if the collection could not be written
+     */
+    long flush() throws Exception;
+
+    /**
+     * Called after a failed flush to discard the changes that were not persisted.
+     *
+     * @return the modification count up to which changes were discarded, 0 if they could not be discarded
+     */
+    long rollback();
+  }
+
+  private final ReentrantLock[] stripes;
+  private final ReentrantLock flushLock = new ReentrantLock();
+
+  private long persistedUpTo;
+  private long failedUpTo;
+  private boolean flushing;
+  private long flushCount;
+
+  public WriteStripes(int stripeCount) {
+    this.stripes = new ReentrantLock[Math.max(1, stripeCount)];
+    for (int i = 0; i < stripes.length; i++) {
+      stripes[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * @param id id of a document
+   * @return the lock guarding writes to documents whose id hashes to the same stripe
+   */
+  public ReentrantLock lockFor(Object id) {
+    int h = (null == id) ? 0 : id.hashCode();
+    h ^= (h >>> 16);
+    return stripes[(h & 0x7fffffff) % stripes.length];
+  }
+
+  /**
+   * @return the lock held while the collection file is written, by group commit and by every other writer of the file
+   */
+  public ReentrantLock getFlushLock() {
+    return flushLock;
+  }
+
+  public int getStripeCount() {
+    return stripes.length;
+  }
+
+  /**
+   * @return the number of times the collection has been written by group commit
+   */
+  public synchronized long getFlushCount() {
+    return flushCount;
+  }
+
+  /**
+   * Blocks until the change with the given modification count has been persisted, either by a
+   * flush some other writer runs or by a flush run by the calling thread.
+   *
+   * @param modificationCount the modification count identifying the change
+   * @param flusher used if the calling thread has to run the flush itself
+   * @throws JsonDBException if the flush that covered the change failed, the change has been discarded then
+   * unless the collection could not be reloaded
+   */
+  public void awaitPersisted(long modificationCount, Flusher flusher) {
+    synchronized (this) {
+      while (true) {
+        if (persistedUpTo >= modificationCount) {
+          return;
+        }
+        if (failedUpTo >= modificationCount) {
+          throw new JsonDBException("Failed to persist change, it has been discarded");
+        }
+        if (!flushing) {
+          flushing = true;
+          break;
+        }
+        try {
+          wait();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new JsonDBException("Interrupted while waiting for change to be persisted", e);
+        }
+      }
+    }
+
+    Exception failure = null;
+    long writtenUpTo = 0;
+    long discardedUpTo = 0;
+    try {
+      writtenUpTo = flusher.flush();
+    } catch (Exception e) {
+      failure = e;
+      discardedUpTo = flusher.rollback();
+    } finally {
+      synchronized (this) {
+        flushing = false;
+        if (null == failure) {
+          flushCount++;
+          persistedUpTo = Math.max(persistedUpTo, writtenUpTo);
+        } else {
+          failedUpTo = Math.max(failedUpTo, discardedUpTo);
+        }
+        notifyAll();
+      }
+    }
+    if (null != failure) {
+      if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      }
+      throw new JsonDBException("Failed to persist change, it has been discarded", failure);
+    }
+  }
+}
@@ -36,6 +36,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.jsondb.CollectionMetaData;
+import io.jsondb.jfr.FlightRecorderEvent;
 
 /**
  * @author Farooq Khan
@@ -57,6 +58,7 @@ public class CryptoUtil {
    */
   public static void encryptFields(Object object, CollectionMetaData cmd, ICipher cipher) 
       throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
+    Object event = FlightRecorderEvent.ENCRYPT.begin();
     for (String secretAnnotatedFieldName: cmd.getSecretAnnotatedFieldNames()) {
       Method getterMethod = cmd.getGetterMethodForFieldName(secretAnnotatedFieldName);
       Method setterMethod = cmd.getSetterMethodForFieldName(secretAnnotatedFieldName);
@@ -74,6 +76,9 @@ public class CryptoUtil {
         throw e;
       }
     }
+    if (null != event) {
+      FlightRecorderEvent.ENCRYPT.commit(event, cmd.getCollectionName(), cmd.getSecretAnnotatedFieldNames().size());
+    }
   }
 
   /**
@@ -89,7 +94,7 @@ public class CryptoUtil {
    */
   public static void decryptFields(Object object, CollectionMetaData cmd, ICipher cipher) 
       throws IllegalAccessException, IllegalArgumentException, InvocationTargetException {
-
+    Object event = FlightRecorderEvent.DECRYPT.begin();
     for (String secretAnnotatedFieldName: cmd.getSecretAnnotatedFieldNames()) {
       Method getterMethod = cmd.getGetterMethodForFieldName(secretAnnotatedFieldName);
       Method setterMethod = cmd.getSetterMethodForFieldName(secretAnnotatedFieldName);
@@ -107,6 +112,9 @@ public class CryptoUtil {
         throw e;
       }
     }
+    if (null != event) {
+      FlightRecorderEvent.DECRYPT.commit(event, cmd.getCollectionName(), cmd.getSecretAnnotatedFieldNames().size());
+    }
   }
   
   /**
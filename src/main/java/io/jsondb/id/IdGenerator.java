@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.id;
+
+import java.util.Set;
+
+/**
+ * Generates the ids of documents that are inserted or upserted without a value in their
+ * {@link io.jsondb.annotation.Id} field. Generators can be configured per collection
+ * through {@link io.jsondb.JsonDBConfig#setIdGenerator(String, IdGenerator)}.
+ *
+ * The generated value is converted to the type of the @Id field, to a String for String ids
+ * or to the matching primitive wrapper for numeric ids. Implementations must be thread safe.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public interface IdGenerator {
+
+  /**
+   * Generates a new id.
+   *
+   * @param collectionName name of the collection the document is being added to
+   * @param existingIds live view of the ids already present in the collection, the generator may
+   *                    inspect it during the call but must not retain it
+   * @return a new id, never null
+   */
+  Object nextId(String collectionName, Set<Object> existingIds);
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.id;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates ascending numbers 1, 2, 3... separately for every collection.
+ *
+ * Nothing is persisted besides the documents themselves, the first time an id is needed for a
+ * collection the sequence is seeded from the largest numeric id already present in it. Numbers
+ * taken since then by documents inserted with an explicit id are skipped.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class SequenceIdGenerator implements IdGenerator {
+
+  private final Map<String, AtomicLong> sequences = new ConcurrentHashMap<String, AtomicLong>();
+
+  @Override
+  public Object nextId(String collectionName, Set<Object> existingIds) {
+    AtomicLong sequence = sequences.get(collectionName);
+    if (null == sequence) {
+      AtomicLong seeded = new AtomicLong(maxNumericId(existingIds));
+      sequence = sequences.putIfAbsent(collectionName, seeded);
+      if (null == sequence) {
+        sequence = seeded;
+      }
+    }
+    long next = sequence.incrementAndGet();
+    while (isTaken(next, existingIds)) {
+      next = sequence.incrementAndGet();
+    }
+    return next;
+  }
+
+  /**
+   * Forgets the sequence of a collection, it will be seeded again from the collection on next use.
+   *
+   * @param collectionName name of the collection
+   */
+  public void reset(String collectionName) {
+    sequences.remove(collectionName);
+  }
+
+  /**
+   * Checks the forms the number can take once converted to the type of the @Id field.
+   */
+  private static boolean isTaken(long candidate, Set<Object> existingIds) {
+    if (existingIds.contains(candidate) || existingIds.contains(String.valueOf(candidate))) {
+      return true;
+    }
+    if ((candidate <= Integer.MAX_VALUE) && existingIds.contains((int) candidate)) {
+      return true;
+    }
+    if ((candidate <= Short.MAX_VALUE) && existingIds.contains((short) candidate)) {
+      return true;
+    }
+    return (candidate <= Byte.MAX_VALUE) && existingIds.contains((byte) candidate);
+  }
+
+  private static long maxNumericId(Set<Object> existingIds) {
+    long max = 0;
+    for (Object id : existingIds) {
+      long value = 0;
+      if (id instanceof Number) {
+        value = ((Number) id).longValue();
+      } else if (null != id) {
+        try {
+          value = Long.parseLong(id.toString());
+        } catch (NumberFormatException e) {
+          continue;
+        }
+      }
+      max = Math.max(max, value);
+    }
+    return max;
+  }
+}
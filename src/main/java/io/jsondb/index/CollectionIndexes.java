@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.index;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import io.jsondb.CollectionMetaData;
+import io.jsondb.InvalidJsonDbApiUsageException;
+
+/**
+ * Holds all the in-memory indexes of a single collection and keeps them in step with
+ * the changes made to the collection.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class CollectionIndexes {
+
+  private final List<DocumentIndex> indexes = new ArrayList<DocumentIndex>();
+  private final Map<String, FieldIndex> fieldIndexes = new LinkedHashMap<String, FieldIndex>();
+  private final String collectionName;
+  private TextIndex textIndex;
+  private ExpiryIndex expiryIndex;
+
+  public CollectionIndexes(CollectionMetaData cmd) {
+    this.collectionName = cmd.getCollectionName();
+    for (String fieldName : cmd.getIndexedFieldNames()) {
+      FieldIndex fieldIndex = new FieldIndex(fieldName, cmd.getGetterMethodForFieldName(fieldName),
+          cmd.isUniqueIndexedField(fieldName));
+      fieldIndexes.put(fieldName, fieldIndex);
+      indexes.add(fieldIndex);
+    }
+    List<String> textIndexedFieldNames = cmd.getTextIndexedFieldNames();
+    if (textIndexedFieldNames.size() > 0) {
+      Map<String, Method> getterMethods = new LinkedHashMap<String, Method>();
+      for (String fieldName : textIndexedFieldNames) {
+        getterMethods.put(fieldName, cmd.getGetterMethodForFieldName(fieldName));
+      }
+      textIndex = new TextIndex(getterMethods);
+      indexes.add(textIndex);
+    }
+    if (cmd.hasExpiry()) {
+      expiryIndex = new ExpiryIndex(cmd.getGetterMethodForFieldName(cmd.getExpiresAtFieldName()));
+      indexes.add(expiryIndex);
+    }
+  }
+
+  /**
+   * Keeps all indexes in step with a single change to the collection
+   *
+   * @param id id of the document that changed
+   * @param oldDocument document previously stored against the id, null if it is a new document
+   * @param newDocument document now stored against the id, null if the document was removed
+   */
+  public void update(Object id, Object oldDocument, Object newDocument) {
+    for (DocumentIndex index : indexes) {
+      if (null != oldDocument) {
+        index.remove(id, oldDocument);
+      }
+      if (null != newDocument) {
+        index.add(id, newDocument);
+      }
+    }
+  }
+
+  /**
+   * Verifies that storing the given documents would not break any unique index. Documents of the
+   * collection whose ids are among the given ids are considered replaced, so a batch may freely
+   * move a unique value from one of its documents to another.
+   *
+   * @param documents the documents about to be stored keyed by their id
+   * @throws InvalidJsonDbApiUsageException if a unique value is already held by another document
+   *         or is repeated within the documents
+   */
+  public void checkUnique(Map<Object, ?> documents) {
+    checkUnique(documents, Collections.emptySet());
+  }
+
+  /**
+   * Verifies that storing the given documents and removing the documents with the given ids would
+   * not break any unique index, see {@link #checkUnique(Map)}.
+   *
+   * @param documents the documents about to be stored keyed by their id
+   * @param removedIds ids of the documents about to be removed, their unique values are free to reuse
+   * @throws InvalidJsonDbApiUsageException if a unique value is already held by another document
+   *         or is repeated within the documents
+   */
+  public void checkUnique(Map<Object, ?> documents, Set<?> removedIds) {
+    for (FieldIndex fieldIndex : fieldIndexes.values()) {
+      if (!fieldIndex.isUnique()) {
+        continue;
+      }
+      Map<Object, Object> batchValues = new HashMap<Object, Object>();
+      for (Entry<Object, ?> entry : documents.entrySet()) {
+        Object value = fieldIndex.valueOf(entry.getValue());
+        if (null == value) {
+          continue;
+        }
+        if (batchValues.containsKey(value)) {
+          throw new InvalidJsonDbApiUsageException(String.format("Duplicate value '%s' for unique field '%s' within the passed in parameter",
+              value, fieldIndex.getFieldName()));
+        }
+        batchValues.put(value, entry.getKey());
+        for (Object holder : fieldIndex.getIds(value)) {
+          if (!documents.containsKey(holder) && !removedIds.contains(holder)) {
+            throw new InvalidJsonDbApiUsageException(String.format("Value '%s' for unique field '%s' is already used by document with Id: '%s' in Collection by name '%s'",
+                value, fieldIndex.getFieldName(), holder, collectionName));
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Discards the contents of all indexes and indexes the given documents afresh.
+   *
+   * @param collection the complete collection keyed by id
+   */
+  public void rebuild(Map<Object, ?> collection) {
+    for (DocumentIndex index : indexes) {
+      index.clear();
+      for (Entry<Object, ?> entry : collection.entrySet()) {
+        index.add(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  public boolean isEmpty() {
+    return indexes.isEmpty();
+  }
+
+  /**
+   * @return estimated heap held by all indexes of the collection, see {@link DocumentIndex#estimateHeapBytes()}
+   */
+  public long estimateHeapBytes() {
+    long bytes = 0;
+    for (DocumentIndex index : indexes) {
+      bytes += index.estimateHeapBytes();
+    }
+    return bytes;
+  }
+
+  public List<DocumentIndex> getIndexes() {
+    return Collections.unmodifiableList(indexes);
+  }
+
+  /**
+   * @param fieldName name of a {@link io.jsondb.annotation.Indexed} field
+   * @return the index over the field or null if the field is not indexed
+   */
+  public FieldIndex getFieldIndex(String fieldName) {
+    return fieldIndexes.get(fieldName);
+  }
+
+  public TextIndex getTextIndex() {
+    return textIndex;
+  }
+
+  public ExpiryIndex getExpiryIndex() {
+    return expiryIndex;
+  }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.index;
+
+/**
+ * An in-memory index over the documents of a single collection.
+ *
+ * Indexes are maintained incrementally by JsonDBTemplate while it holds the write lock
+ * of the collection, and are rebuilt from scratch whenever the collection is (re)loaded.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public interface DocumentIndex {
+
+  /**
+   * Adds a document that has just become part of the collection.
+   *
+   * @param id the id of the document
+   * @param document the in-memory document
+   */
+  void add(Object id, Object document);
+
+  /**
+   * Removes a document that has just been removed from, or replaced within, the collection.
+   *
+   * @param id the id of the document
+   * @param document the in-memory document that was previously added for this id
+   */
+  void remove(Object id, Object document);
+
+  /**
+   * Discards all the entries of this index.
+   */
+  void clear();
+
+  /**
+   * Estimates the heap held by the index structures. The ids and field values, which are shared
+   * with the collection and its documents, are not included.
+   *
+   * @return estimated size in bytes
+   */
+  long estimateHeapBytes();
+}
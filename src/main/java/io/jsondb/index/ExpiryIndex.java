@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.index;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+
+import io.jsondb.JsonDBException;
+import io.jsondb.metrics.HeapEstimator;
+
+/**
+ * Keeps the ids of the documents of a collection sorted by their {@link io.jsondb.annotation.ExpiresAt}
+ * deadline, so that the expired documents can be found without scanning the collection.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class ExpiryIndex implements DocumentIndex {
+
+  private final Method getterMethod;
+  private final TreeMap<Long, Set<Object>> deadlines = new TreeMap<Long, Set<Object>>();
+
+  public ExpiryIndex(Method getterMethod) {
+    this.getterMethod = getterMethod;
+  }
+
+  @Override
+  public synchronized void add(Object id, Object document) {
+    Long deadline = deadlineOf(getterMethod, document);
+    if (null == deadline) {
+      return;
+    }
+    Set<Object> ids = deadlines.get(deadline);
+    if (null == ids) {
+      ids = new LinkedHashSet<Object>();
+      deadlines.put(deadline, ids);
+    }
+    ids.add(id);
+  }
+
+  @Override
+  public synchronized void remove(Object id, Object document) {
+    Long deadline = deadlineOf(getterMethod, document);
+    if (null == deadline) {
+      return;
+    }
+    Set<Object> ids = deadlines.get(deadline);
+    if (null != ids) {
+      ids.remove(id);
+      if (ids.isEmpty()) {
+        deadlines.remove(deadline);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void clear() {
+    deadlines.clear();
+  }
+
+  @Override
+  public synchronized long estimateHeapBytes() {
+    // The Long deadlines are boxed by the index, so they are counted
+    long bytes = HeapEstimator.treeMap(deadlines.size()) + (24L * deadlines.size());
+    for (Set<Object> ids : deadlines.values()) {
+      bytes += HeapEstimator.linkedHashSet(ids.size());
+    }
+    return bytes;
+  }
+
+  /**
+   * @param now the current time in milliseconds since the epoch
+   * @return ids of all documents whose deadline is at or before now, earliest first
+   */
+  public synchronized List<Object> expiredIds(long now) {
+    List<Object> expired = new ArrayList<Object>();
+    for (Set<Object> ids : deadlines.headMap(now, true).values()) {
+      expired.addAll(ids);
+    }
+    return expired;
+  }
+
+  /**
+   * @return the earliest deadline in the index or null if no document has a deadline
+   */
+  public synchronized Long nextDeadline() {
+    return deadlines.isEmpty() ? null : deadlines.firstKey();
+  }
+
+  /**
+   * Reads the expiry deadline of a document.
+   *
+   * @param getterMethod getter of the {@link io.jsondb.annotation.ExpiresAt} field
+   * @param document the document to read from
+   * @return the deadline in milliseconds since the epoch or null if the document does not expire
+   */
+  public static Long deadlineOf(Method getterMethod, Object document) {
+    Object value;
+    try {
+      value = getterMethod.invoke(document);
+    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+      throw new JsonDBException("Failed to read value of @ExpiresAt annotated field", e);
+    }
+    if (value instanceof Date) {
+      return ((Date) value).getTime();
+    } else if (value instanceof Number) {
+      return ((Number) value).longValue();
+    }
+    return null;
+  }
+
+  public static boolean isExpired(Method getterMethod, Object document, long now) {
+    Long deadline = deadlineOf(getterMethod, document);
+    return (null != deadline) && (deadline <= now);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.index;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import io.jsondb.JsonDBException;
+import io.jsondb.metrics.HeapEstimator;
+
+/**
+ * A hash index over the exact values of a single {@link io.jsondb.annotation.Indexed} field.
+ * Documents whose field value is null are not indexed.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class FieldIndex implements DocumentIndex {
+
+  private final String fieldName;
+  private final Method getterMethod;
+  private final boolean unique;
+  private final Map<Object, Set<Object>> entries = new HashMap<Object, Set<Object>>();
+
+  public FieldIndex(String fieldName, Method getterMethod, boolean unique) {
+    this.fieldName = fieldName;
+    this.getterMethod = getterMethod;
+    this.unique = unique;
+  }
+
+  @Override
+  public synchronized void add(Object id, Object document) {
+    Object value = valueOf(document);
+    if (null == value) {
+      return;
+    }
+    Set<Object> ids = entries.get(value);
+    if (null == ids) {
+      ids = new LinkedHashSet<Object>();
+      entries.put(value, ids);
+    }
+    ids.add(id);
+  }
+
+  @Override
+  public synchronized void remove(Object id, Object document) {
+    Object value = valueOf(document);
+    if (null == value) {
+      return;
+    }
+    Set<Object> ids = entries.get(value);
+    if (null != ids) {
+      ids.remove(id);
+      if (ids.isEmpty()) {
+        entries.remove(value);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  /**
+   * Returns the ids of the documents whose field holds the given value.
+   *
+   * @param value the value to look up
+   * @return ids of the matching documents, empty if there are none
+   */
+  public synchronized Set<Object> getIds(Object value) {
+    Set<Object> ids = entries.get(value);
+    if (null == ids) {
+      return Collections.emptySet();
+    }
+    return new LinkedHashSet<Object>(ids);
+  }
+
+  /**
+   * Reads the value of the indexed field from a document.
+   *
+   * @param document the document to read from
+   * @return the field value, may be null
+   */
+  public Object valueOf(Object document) {
+    try {
+      return getterMethod.invoke(document);
+    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+      throw new JsonDBException("Failed to read value of indexed field " + fieldName, e);
+    }
+  }
+
+  public String getFieldName() {
+    return fieldName;
+  }
+
+  /**
+   * @return the declared type of the indexed field
+   */
+  public Class<?> getValueType() {
+    return getterMethod.getReturnType();
+  }
+
+  public boolean isUnique() {
+    return unique;
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  @Override
+  public synchronized long estimateHeapBytes() {
+    long bytes = HeapEstimator.hashMap(entries.size());
+    for (Set<Object> ids : entries.values()) {
+      bytes += HeapEstimator.linkedHashSet(ids.size());
+    }
+    return bytes;
+  }
+}
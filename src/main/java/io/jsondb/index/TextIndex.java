@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.index;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import io.jsondb.InvalidJsonDbApiUsageException;
+import io.jsondb.metrics.HeapEstimator;
+
+/**
+ * A positional inverted index over the {@link io.jsondb.annotation.TextIndexed} fields of a collection.
+ *
+ * Field values are split into lower case tokens of letters and digits. For every field the index keeps
+ * the positions at which each term occurs in each document, which is enough to answer both term queries
+ * and phrase queries without looking at the documents themselves.
+ *
+ * A text query is a list of terms and double quoted phrases, a document matches if any one of its
+ * indexed fields contains all the terms and all the phrases, for example: <code>ssd "us east"</code>
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class TextIndex implements DocumentIndex {
+
+  private static final int POSITIONS_SAMPLE = 16;
+
+  private final Map<String, Method> getterMethods;
+  private final Map<String, Map<String, Map<Object, int[]>>> fieldPostings;
+
+  /**
+   * @param getterMethods accessor methods of the indexed fields keyed by field name
+   */
+  public TextIndex(Map<String, Method> getterMethods) {
+    this.getterMethods = getterMethods;
+    this.fieldPostings = new HashMap<String, Map<String, Map<Object, int[]>>>();
+    for (String fieldName : getterMethods.keySet()) {
+      fieldPostings.put(fieldName, new HashMap<String, Map<Object, int[]>>());
+    }
+  }
+
+  @Override
+  public synchronized void add(Object id, Object document) {
+    for (Entry<String, Method> entry : getterMethods.entrySet()) {
+      List<String> tokens = tokenize(fieldValue(document, entry.getValue()));
+      Map<String, List<Integer>> positions = new HashMap<String, List<Integer>>();
+      for (int i = 0; i < tokens.size(); i++) {
+        List<Integer> termPositions = positions.get(tokens.get(i));
+        if (null == termPositions) {
+          termPositions = new ArrayList<Integer>();
+          positions.put(tokens.get(i), termPositions);
+        }
+        termPositions.add(i);
+      }
+      Map<String, Map<Object, int[]>> postings = fieldPostings.get(entry.getKey());
+      for (Entry<String, List<Integer>> termEntry : positions.entrySet()) {
+        Map<Object, int[]> posting = postings.get(termEntry.getKey());
+        if (null == posting) {
+          posting = new LinkedHashMap<Object, int[]>();
+          postings.put(termEntry.getKey(), posting);
+        }
+        List<Integer> termPositions = termEntry.getValue();
+        int[] p = new int[termPositions.size()];
+        for (int i = 0; i < p.length; i++) {
+          p[i] = termPositions.get(i);
+        }
+        posting.put(id, p);
+      }
+    }
+  }
+
+  @Override
+  public synchronized void remove(Object id, Object document) {
+    for (Entry<String, Method> entry : getterMethods.entrySet()) {
+      Map<String, Map<Object, int[]>> postings = fieldPostings.get(entry.getKey());
+      for (String term : tokenize(fieldValue(document, entry.getValue()))) {
+        Map<Object, int[]> posting = postings.get(term);
+        if (null != posting) {
+          posting.remove(id);
+          if (posting.isEmpty()) {
+            postings.remove(term);
+          }
+        }
+      }
+    }
+  }
+
+  @Override
+  public synchronized void clear() {
+    for (Map<String, Map<Object, int[]>> postings : fieldPostings.values()) {
+      postings.clear();
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see io.jsondb.index.DocumentIndex#estimateHeapBytes()
+   * Terms and position arrays belong to the index. Only the first POSITIONS_SAMPLE position arrays
+   * of a posting are measured, the rest are assumed to be of the same size.
+   */
+  @Override
+  public synchronized long estimateHeapBytes() {
+    long bytes = HeapEstimator.hashMap(fieldPostings.size());
+    for (Map<String, Map<Object, int[]>> postings : fieldPostings.values()) {
+      bytes += HeapEstimator.hashMap(postings.size());
+      for (Entry<String, Map<Object, int[]>> termEntry : postings.entrySet()) {
+        Map<Object, int[]> posting = termEntry.getValue();
+        bytes += HeapEstimator.string(termEntry.getKey()) + HeapEstimator.linkedHashMap(posting.size());
+        long sampledBytes = 0;
+        int sampled = 0;
+        for (Iterator<int[]> itr = posting.values().iterator(); itr.hasNext() && (sampled < POSITIONS_SAMPLE); sampled++) {
+          sampledBytes += HeapEstimator.array(itr.next().length, 4);
+        }
+        if (sampled > 0) {
+          bytes += (sampledBytes * posting.size()) / sampled;
+        }
+      }
+    }
+    return bytes;
+  }
+
+  /**
+   * Finds the ids of the documents matching a text query.
+   *
+   * @param textQuery terms and double quoted phrases that must all be present in a field
+   * @return ids of matching documents
+   */
+  public synchronized Set<Object> search(String textQuery) {
+    List<List<String>> clauses = parse(textQuery);
+    Set<Object> result = new LinkedHashSet<Object>();
+    if (clauses.isEmpty()) {
+      return result;
+    }
+    for (Map<String, Map<Object, int[]>> postings : fieldPostings.values()) {
+      result.addAll(search(postings, clauses));
+    }
+    return result;
+  }
+
+  private Set<Object> search(Map<String, Map<Object, int[]>> postings, List<List<String>> clauses) {
+    Set<Object> candidates = null;
+    for (List<String> clause : clauses) {
+      for (String term : clause) {
+        Map<Object, int[]> posting = postings.get(term);
+        if (null == posting) {
+          return Collections.emptySet();
+        }
+        if (null == candidates) {
+          candidates = new LinkedHashSet<Object>(posting.keySet());
+        } else {
+          candidates.retainAll(posting.keySet());
+        }
+      }
+    }
+    for (List<String> clause : clauses) {
+      if (clause.size() > 1) {
+        Iterator<Object> itr = candidates.iterator();
+        while (itr.hasNext()) {
+          if (!containsPhrase(postings, clause, itr.next())) {
+            itr.remove();
+          }
+        }
+      }
+    }
+    return candidates;
+  }
+
+  private boolean containsPhrase(Map<String, Map<Object, int[]>> postings, List<String> phrase, Object id) {
+    int[] starts = postings.get(phrase.get(0)).get(id);
+    for (int start : starts) {
+      boolean matched = true;
+      for (int i = 1; i < phrase.size() && matched; i++) {
+        matched = contains(postings.get(phrase.get(i)).get(id), start + i);
+      }
+      if (matched) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean contains(int[] positions, int position) {
+    for (int p : positions) {
+      if (p == position) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Splits a text query into clauses, a single term is a clause of one token
+   * and a double quoted phrase is a clause of all its tokens in order.
+   */
+  private static List<List<String>> parse(String textQuery) {
+    if (null == textQuery) {
+      throw new InvalidJsonDbApiUsageException("Text query cannot be null");
+    }
+    List<List<String>> clauses = new ArrayList<List<String>>();
+    String[] parts = textQuery.split("\"", -1);
+    for (int i = 0; i < parts.length; i++) {
+      List<String> tokens = tokenize(parts[i]);
+      if (i % 2 == 1) {
+        if (!tokens.isEmpty()) {
+          clauses.add(tokens);
+        }
+      } else {
+        for (String token : tokens) {
+          clauses.add(Collections.singletonList(token));
+        }
+      }
+    }
+    return clauses;
+  }
+
+  /**
+   * Splits text into lower case tokens made of letters and digits.
+   *
+   * @param text the text to tokenize, can be null
+   * @return the tokens in the order they appear in text
+   */
+  public static List<String> tokenize(String text) {
+    List<String> tokens = new ArrayList<String>();
+    if (null == text) {
+      return tokens;
+    }
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean tokenChar = (i < text.length()) && Character.isLetterOrDigit(text.charAt(i));
+      if (tokenChar && start < 0) {
+        start = i;
+      } else if (!tokenChar && start >= 0) {
+        tokens.add(text.substring(start, i).toLowerCase());
+        start = -1;
+      }
+    }
+    return tokens;
+  }
+
+  private static String fieldValue(Object document, Method getterMethod) {
+    try {
+      Object value = getterMethod.invoke(document);
+      return (null == value) ? null : value.toString();
+    } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+      throw new InvalidJsonDbApiUsageException("Failed to invoke getter method " + getterMethod.getName() + " of a @TextIndexed field", e);
+    }
+  }
+}
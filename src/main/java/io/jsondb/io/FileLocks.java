@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.io;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acquires the file locks of collection files with an optional timeout.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+final class FileLocks {
+  private static final long POLL_INTERVAL_MILLIS = 10;
+
+  private FileLocks() {
+  }
+
+  /**
+   * Locks the whole file of the channel. FileChannel has no timed lock, so with a timeout
+   * the lock is polled for, a lock held through another channel of this JVM counts as busy.
+   *
+   * @param channel channel of the lock file
+   * @param timeoutMillis maximum wait in milliseconds, a value less than 1 waits indefinitely
+   * @return the lock or null if it could not be acquired within the timeout
+   * @throws IOException if locking fails or the thread is interrupted while waiting
+   */
+  static FileLock lock(FileChannel channel, long timeoutMillis) throws IOException {
+    if (timeoutMillis < 1) {
+      return channel.lock();
+    }
+    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+    while (true) {
+      FileLock lock;
+      try {
+        lock = channel.tryLock();
+      } catch (OverlappingFileLockException e) {
+        lock = null;
+      }
+      if (null != lock) {
+        return lock;
+      }
+      if (System.nanoTime() - deadline >= 0) {
+        return null;
+      }
+      try {
+        Thread.sleep(POLL_INTERVAL_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new InterruptedIOException("Interrupted while waiting for file lock");
+      }
+    }
+  }
+}
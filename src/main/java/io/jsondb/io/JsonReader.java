@@ -36,6 +36,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import io.jsondb.JsonDBConfig;
+import io.jsondb.LockTimeoutException;
 
 /**
  * A special File Reader to read the .json DB files that ensures
@@ -60,6 +61,13 @@ public class JsonReader {
   private File fileLockLocation;
 
   public JsonReader(JsonDBConfig dbConfig, File collectionFile) throws IOException {
+    this(dbConfig, collectionFile, dbConfig.getLockTimeout());
+  }
+
+  /**
+   * @param lockTimeout maximum wait for the file lock in milliseconds, a value less than 1 waits indefinitely
+   */
+  public JsonReader(JsonDBConfig dbConfig, File collectionFile, long lockTimeout) throws IOException {
     this.collectionFile = collectionFile;
     this.lockFilesLocation = new File(collectionFile.getParentFile(), "lock");
     this.fileLockLocation = new File(lockFilesLocation, collectionFile.getName() + ".lock");
@@ -78,7 +86,7 @@ public class JsonReader {
     raf = new RandomAccessFile(fileLockLocation, "rw");
     channel = raf.getChannel();
     try {
-      lock = channel.lock();
+      lock = FileLocks.lock(channel, lockTimeout);
     } catch (IOException | OverlappingFileLockException e) {
       try {
         channel.close();
@@ -88,6 +96,11 @@ public class JsonReader {
       }
       throw new JsonFileLockException("JsonReader failed to obtain a file lock for file " + fileLockLocation, e);
     }
+    if (null == lock) {
+      channel.close();
+      raf.close();
+      throw new LockTimeoutException("JsonReader timed out after " + lockTimeout + "ms waiting for the file lock of file " + fileLockLocation);
+    }
 
     fis = new FileInputStream(collectionFile);
     isr = new InputStreamReader(fis, decoder);
@@ -20,21 +20,30 @@
  */
 package io.jsondb.io;
 
+import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.OutputStreamWriter;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.function.Function;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -45,7 +54,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import io.jsondb.CollectionMetaData;
 import io.jsondb.InvalidJsonDbApiUsageException;
 import io.jsondb.JsonDBConfig;
+import io.jsondb.LockTimeoutException;
 import io.jsondb.SchemaVersion;
+import io.jsondb.jfr.FlightRecorderEvent;
+import io.jsondb.metrics.MetricNames;
+import io.jsondb.metrics.MetricsRegistry;
+import io.jsondb.metrics.SlowOperationLog;
 
 /**
  * A special File Writer to write to the .json DB files that ensures
@@ -56,7 +70,7 @@ import io.jsondb.SchemaVersion;
  */
 public class JsonWriter {
 
-  private Logger logger = LoggerFactory.getLogger(JsonWriter.class);
+  private static Logger logger = LoggerFactory.getLogger(JsonWriter.class);
 
   private File dbFilesLocation;
   private String collectionName;
@@ -71,8 +85,23 @@ public class JsonWriter {
   
   private RandomAccessFile raf;
   private FileChannel channel;
+  private long lockTimeout;
+  private MetricsRegistry metrics;
+  private SlowOperationLog slowOperationLog;
+  private long fileLockWaitNanos;
+  private long writeStart;
+  private Object rewriteEvent;
+  private int linesWritten;
+  private boolean durable = false;
 
   public JsonWriter(JsonDBConfig dbConfig, CollectionMetaData cmd, String collectionName, File collectionFile) throws IOException {
+    this(dbConfig, cmd, collectionName, collectionFile, dbConfig.getLockTimeout());
+  }
+
+  /**
+   * @param lockTimeout maximum wait for the file lock in milliseconds, a value less than 1 waits indefinitely
+   */
+  public JsonWriter(JsonDBConfig dbConfig, CollectionMetaData cmd, String collectionName, File collectionFile, long lockTimeout) throws IOException {
 
     this.dbFilesLocation = dbConfig.getDbFilesLocation();
     this.collectionName = collectionName;
@@ -81,6 +110,9 @@ public class JsonWriter {
     this.objectMapper = dbConfig.getObjectMapper();
     this.schemaVersion = new SchemaVersion(cmd.getSchemaVersion());
     this.cmd = cmd;
+    this.lockTimeout = lockTimeout;
+    this.metrics = dbConfig.getMetricsRegistry();
+    this.slowOperationLog = dbConfig.getSlowOperationLog();
     
     this.lockFilesLocation = new File(collectionFile.getParentFile(), "lock");
     this.fileLockLocation = new File(lockFilesLocation, collectionFile.getName() + ".lock");
@@ -96,9 +128,109 @@ public class JsonWriter {
     channel = raf.getChannel();
   }
   
+  /**
+   * @param durable true to force the rewritten file, and its rename, to disk before a write returns.
+   *                Transactions need this, other writes leave it to the file system.
+   */
+  public void setDurable(boolean durable) {
+    this.durable = durable;
+  }
+
+  private File createTempFile() throws IOException {
+    writeStart = System.nanoTime();
+    rewriteEvent = FlightRecorderEvent.FILE_REWRITE.begin();
+    linesWritten = 0;
+    return File.createTempFile(collectionName, null, dbFilesLocation);
+  }
+
+  private void newLine(BufferedWriter writer) throws IOException {
+    writer.newLine();
+    linesWritten++;
+  }
+
+  /**
+   * Replaces the collection file with the fully written temp file, recording the time taken to
+   * write the temp file and to move it and the number of bytes written.
+   */
+  private void moveIntoPlace(File tFile) throws IOException {
+    long bytes = tFile.length();
+    if (durable) {
+      try {
+        //The contents must be on disk before the rename can expose them
+        force(tFile.toPath(), StandardOpenOption.WRITE);
+      } catch (IOException e) {
+        tFile.delete();
+        throw e;
+      }
+    }
+    long renameStart = System.nanoTime();
+    metrics.recordLatency(collectionName, MetricNames.FILE_WRITE, renameStart - writeStart);
+    try {
+      Files.move(tFile.toPath(), collectionFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      tFile.delete();
+      throw e;
+    }
+    if (durable) {
+      forceDirectory(dbFilesLocation, collectionFile);
+    }
+    long renameNanos = System.nanoTime() - renameStart;
+    metrics.recordLatency(collectionName, MetricNames.FILE_RENAME, renameNanos);
+    metrics.increment(collectionName, MetricNames.BYTES_WRITTEN, bytes);
+    //The first line holds the schema version, every other line a document
+    if (null != rewriteEvent) {
+      FlightRecorderEvent.FILE_REWRITE.commit(rewriteEvent, collectionName, linesWritten - 1, bytes);
+    }
+    slowOperationLog.logRewrite(collectionName, linesWritten - 1, bytes, fileLockWaitNanos, renameStart - writeStart, renameNanos);
+  }
+
+  /**
+   * Forces a collection file that was already moved into place, and its rename, to disk.
+   *
+   * @param collectionFile the collection file
+   * @throws IOException if the file could not be forced
+   */
+  public static void forceToDisk(File collectionFile) throws IOException {
+    force(collectionFile.toPath(), StandardOpenOption.READ);
+    forceDirectory(collectionFile.getParentFile(), collectionFile);
+  }
+
+  private static void force(Path path, OpenOption option) throws IOException {
+    FileChannel fc = FileChannel.open(path, option);
+    try {
+      fc.force(true);
+    } finally {
+      fc.close();
+    }
+  }
+
+  /**
+   * Makes the rename of the collection file durable. Some platforms, Windows among them, cannot open
+   * a directory, the rename is then left to the file system.
+   */
+  private static void forceDirectory(File directory, File collectionFile) throws IOException {
+    FileChannel fc;
+    try {
+      fc = FileChannel.open(directory.toPath(), StandardOpenOption.READ);
+    } catch (IOException e) {
+      logger.debug("Cannot open directory {} to force the rename of collection file {}", directory, collectionFile.getName(), e);
+      return;
+    }
+    try {
+      fc.force(true);
+    } finally {
+      fc.close();
+    }
+  }
+
   private FileLock acquireLock() throws IOException {
+    long start = System.nanoTime();
     try {
-      FileLock fileLock= channel.lock();
+      FileLock fileLock = FileLocks.lock(channel, lockTimeout);
+      fileLockWaitNanos = System.nanoTime() - start;
+      if (null == fileLock) {
+        throw new LockTimeoutException("Timed out after " + lockTimeout + "ms waiting for the file lock of collection file " + collectionFile.getName());
+      }
       return fileLock;
     } catch (IOException e) {
       try {
@@ -156,7 +288,7 @@ public class JsonWriter {
       
       File tFile;
       try {
-        tFile = File.createTempFile(collectionName, null, dbFilesLocation);
+        tFile = createTempFile();
       } catch (IOException e) {
         logger.error("Failed to create temporary file for append", e);
         return false;
@@ -174,16 +306,16 @@ public class JsonWriter {
         //Stamp version first
         String version = objectMapper.writeValueAsString(schemaVersion);
         writer.write(version);
-        writer.newLine();
+        newLine(writer);
         
         for (T o : collection) {
           String documentData = objectMapper.writeValueAsString(o);
           writer.write(documentData);
-          writer.newLine();
+          newLine(writer);
         }
         String newDocument = objectMapper.writeValueAsString(objectToSave);
         writer.write(newDocument);
-        writer.newLine();
+        newLine(writer);
       } catch (JsonProcessingException e) {
         logger.error("Failed in coverting Object to Json collection {}", collectionName, e);
         throw new InvalidJsonDbApiUsageException("Failed Json Processing for collection " + collectionName, e);
@@ -209,9 +341,10 @@ public class JsonWriter {
       }
 
       try {
-        Files.move(tFile.toPath(), collectionFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        moveIntoPlace(tFile);
       } catch (IOException e) {
         logger.error("Failed to move temporary collection file {} to collection file {}", tFileName, collectionFile.getName(), e);
+        return false;
       }
       return true;
       
@@ -245,7 +378,7 @@ public class JsonWriter {
       
       File tFile;
       try {
-        tFile = File.createTempFile(collectionName, null, dbFilesLocation);
+        tFile = createTempFile();
       } catch (IOException e) {
         logger.error("Failed to create temporary file for append", e);
         return false;
@@ -263,17 +396,17 @@ public class JsonWriter {
         //Stamp version first
         String version = objectMapper.writeValueAsString(schemaVersion);
         writer.write(version);
-        writer.newLine();
+        newLine(writer);
         
         for (T o : collection) {
           String documentData = objectMapper.writeValueAsString(o);
           writer.write(documentData);
-          writer.newLine();
+          newLine(writer);
         }
         for (T o : batchToSave) {
           String documentData = objectMapper.writeValueAsString(o);
           writer.write(documentData);
-          writer.newLine();
+          newLine(writer);
         }
       } catch (JsonProcessingException e) {
         logger.error("Failed in coverting Object to Json collection {}", collectionName, e);
@@ -300,9 +433,10 @@ public class JsonWriter {
       }
 
       try {
-        Files.move(tFile.toPath(), collectionFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        moveIntoPlace(tFile);
       } catch (IOException e) {
         logger.error("Failed to move temporary collection file {} to collection file {}", tFileName, collectionFile.getName(), e);
+        return false;
       }
       return true;
       
@@ -336,7 +470,7 @@ public class JsonWriter {
       
       File tFile;
       try {
-        tFile = File.createTempFile(collectionName, null, dbFilesLocation);
+        tFile = createTempFile();
       } catch (IOException e) {
         logger.error("Failed to create temporary file for append", e);
         return false;
@@ -354,13 +488,13 @@ public class JsonWriter {
         //Stamp version first
         String version = objectMapper.writeValueAsString(schemaVersion);
         writer.write(version);
-        writer.newLine();
+        newLine(writer);
         
         for (Entry<Object, T> entry : collection.entrySet()) {
           if (!entry.getKey().equals(id)) {
           String documentData = objectMapper.writeValueAsString(entry.getValue());
           writer.write(documentData);
-          writer.newLine();
+          newLine(writer);
           }
         }
       } catch (JsonProcessingException e) {
@@ -388,9 +522,10 @@ public class JsonWriter {
       }
 
       try {
-        Files.move(tFile.toPath(), collectionFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        moveIntoPlace(tFile);
       } catch (IOException e) {
         logger.error("Failed to move temporary collection file {} to collection file {}", tFileName, collectionFile.getName(), e);
+        return false;
       }
       return true;
       
@@ -424,7 +559,7 @@ public class JsonWriter {
       
       File tFile;
       try {
-        tFile = File.createTempFile(collectionName, null, dbFilesLocation);
+        tFile = createTempFile();
       } catch (IOException e) {
         logger.error("Failed to create temporary file for append", e);
         return false;
@@ -442,13 +577,13 @@ public class JsonWriter {
         //Stamp version first
         String version = objectMapper.writeValueAsString(schemaVersion);
         writer.write(version);
-        writer.newLine();
+        newLine(writer);
         
         for (Entry<Object, T> entry : collection.entrySet()) {
           if (!removeIds.contains(entry.getKey())) {
           String documentData = objectMapper.writeValueAsString(entry.getValue());
           writer.write(documentData);
-          writer.newLine();
+          newLine(writer);
           }
         }
       } catch (JsonProcessingException e) {
@@ -476,9 +611,10 @@ public class JsonWriter {
       }
 
       try {
-        Files.move(tFile.toPath(), collectionFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        moveIntoPlace(tFile);
       } catch (IOException e) {
         logger.error("Failed to move temporary collection file {} to collection file {}", tFileName, collectionFile.getName(), e);
+        return false;
       }
       return true;
       
@@ -513,7 +649,7 @@ public class JsonWriter {
       
       File tFile;
       try {
-        tFile = File.createTempFile(collectionName, null, dbFilesLocation);
+        tFile = createTempFile();
       } catch (IOException e) {
         logger.error("Failed to create temporary file for append", e);
         return false;
@@ -531,7 +667,7 @@ public class JsonWriter {
         //Stamp version first
         String version = objectMapper.writeValueAsString(schemaVersion);
         writer.write(version);
-        writer.newLine();
+        newLine(writer);
         
         for (Entry<Object, T> entry : collection.entrySet()) {
           T o = null;
@@ -543,7 +679,7 @@ public class JsonWriter {
 
           String documentData = objectMapper.writeValueAsString(o);
           writer.write(documentData);
-          writer.newLine();
+          newLine(writer);
         }
       } catch (JsonProcessingException e) {
         logger.error("Failed in coverting Object to Json collection {}", collectionName, e);
@@ -570,9 +706,10 @@ public class JsonWriter {
       }
 
       try {
-        Files.move(tFile.toPath(), collectionFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        moveIntoPlace(tFile);
       } catch (IOException e) {
         logger.error("Failed to move temporary collection file {} to collection file {}", tFileName, collectionFile.getName(), e);
+        return false;
       }
       return true;
       
@@ -606,7 +743,7 @@ public class JsonWriter {
       
       File tFile;
       try {
-        tFile = File.createTempFile(collectionName, null, dbFilesLocation);
+        tFile = createTempFile();
       } catch (IOException e) {
         logger.error("Failed to create temporary file for append", e);
         return false;
@@ -624,7 +761,7 @@ public class JsonWriter {
         //Stamp version first
         String version = objectMapper.writeValueAsString(schemaVersion);
         writer.write(version);
-        writer.newLine();
+        newLine(writer);
 
         for (Entry<Object, T> entry : collection.entrySet()) {
           T o = null;
@@ -636,7 +773,7 @@ public class JsonWriter {
 
           String documentData = objectMapper.writeValueAsString(o);
           writer.write(documentData);
-          writer.newLine();
+          newLine(writer);
         }
       } catch (JsonProcessingException e) {
         logger.error("Failed in coverting Object to Json collection {}", collectionName, e);
@@ -663,9 +800,10 @@ public class JsonWriter {
       }
 
       try {
-        Files.move(tFile.toPath(), collectionFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        moveIntoPlace(tFile);
       } catch (IOException e) {
         logger.error("Failed to move temporary collection file {} to collection file {}", tFileName, collectionFile.getName(), e);
+        return false;
       }
       return true;
       
@@ -699,7 +837,7 @@ public class JsonWriter {
       
       File tFile;
       try {
-        tFile = File.createTempFile(collectionName, null, dbFilesLocation);
+        tFile = createTempFile();
       } catch (IOException e) {
         logger.error("Failed to create temporary file for append", e);
         return false;
@@ -717,12 +855,12 @@ public class JsonWriter {
         //Stamp version first
         String version = objectMapper.writeValueAsString(schemaVersion);
         writer.write(version);
-        writer.newLine();
+        newLine(writer);
 
         for (T o : collection) {
           String documentData = objectMapper.writeValueAsString(o);
           writer.write(documentData);
-          writer.newLine();
+          newLine(writer);
         }
       } catch (JsonProcessingException e) {
         logger.error("Failed in coverting Object to Json collection {}", collectionName, e);
@@ -749,9 +887,10 @@ public class JsonWriter {
       }
 
       try {
-        Files.move(tFile.toPath(), collectionFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        moveIntoPlace(tFile);
       } catch (IOException e) {
         logger.error("Failed to move temporary collection file {} to collection file {}", tFileName, collectionFile.getName(), e);
+        return false;
       }
       return true;
       
@@ -760,6 +899,94 @@ public class JsonWriter {
     }
   }
   
+  /**
+   * Rewrites every document of the collection file through the given function in a single streaming
+   * pass from the collection file to a temporary file, which then atomically replaces the collection file.
+   * Documents are never bound to their POJO. The schema version line is replaced by the current
+   * schema version of the collection, so this is what schema updates use.
+   *
+   * @param transform called with each document line in file order, returns the line to write instead
+   * @return true if success, false if the file could not be read or written, in which case the collection
+   *         file is left untouched
+   */
+  public boolean transformJsonFile(Function<String, String> transform) {
+    FileLock lock = null;
+    try {
+      try {
+        lock = acquireLock();
+      } catch (IOException e) {
+        logger.error("Failed to acquire lock for collection file {}", collectionFile.getName(), e);
+        return false;
+      }
+
+      File tFile;
+      try {
+        tFile = createTempFile();
+      } catch (IOException e) {
+        logger.error("Failed to create temporary file for transform", e);
+        return false;
+      }
+      String tFileName = tFile.getName();
+
+      CharsetDecoder decoder = charset.newDecoder();
+      decoder.onMalformedInput(CodingErrorAction.REPORT);
+      decoder.onUnmappableCharacter(CodingErrorAction.REPORT);
+      BufferedReader reader = null;
+      BufferedWriter writer = null;
+      boolean written = false;
+      try {
+        reader = new BufferedReader(new InputStreamReader(new FileInputStream(collectionFile), decoder));
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tFile), charset));
+
+        //Stamp version first, the version line of the collection file is skipped
+        writer.write(objectMapper.writeValueAsString(schemaVersion));
+        newLine(writer);
+        reader.readLine();
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.trim().isEmpty()) {
+            continue;
+          }
+          writer.write(transform.apply(line));
+          newLine(writer);
+        }
+        written = true;
+      } catch (IOException e) {
+        logger.error("Failed to transform collection file {} into temporary collection file {}", collectionFile.getName(), tFileName, e);
+        return false;
+      } finally {
+        if (null != reader) {
+          try {
+            reader.close();
+          } catch (IOException e) {
+            logger.error("Failed to close BufferedReader for collection file {}", collectionFile.getName(), e);
+          }
+        }
+        if (null != writer) {
+          try {
+            writer.close();
+          } catch (IOException e) {
+            logger.error("Failed to close BufferedWriter for temporary collection file {}", tFileName, e);
+          }
+        }
+        if (!written) {
+          tFile.delete();
+        }
+      }
+
+      try {
+        moveIntoPlace(tFile);
+      } catch (IOException e) {
+        logger.error("Failed to move temporary collection file {} to collection file {}", tFileName, collectionFile.getName(), e);
+        return false;
+      }
+      return true;
+    } finally {
+      releaseLock(lock);
+    }
+  }
+
   /**
    * A utility method renames a particular key for the entire contents of .json in a atomic way
    *
@@ -786,7 +1013,7 @@ public class JsonWriter {
       
       File tFile;
       try {
-        tFile = File.createTempFile(collectionName, null, dbFilesLocation);
+        tFile = createTempFile();
       } catch (IOException e) {
         logger.error("Failed to create temporary file for append", e);
         return false;
@@ -804,7 +1031,7 @@ public class JsonWriter {
         //Stamp version first
         String version = objectMapper.writeValueAsString(schemaVersion);
         writer.write(version);
-        writer.newLine();
+        newLine(writer);
 
         //We do the below so that we do not coincidentally replace contents of some value
         //This does cause a problem it will break if single quotes(invalid) is used along with the
@@ -816,7 +1043,7 @@ public class JsonWriter {
           String documentData = objectMapper.writeValueAsString(o);
           documentData = documentData.replace(oldKeyWithQuotes, newKeyWithQuotes);
           writer.write(documentData);
-          writer.newLine();
+          newLine(writer);
         }
       } catch (JsonProcessingException e) {
         logger.error("Failed in coverting Object to Json collection {}", collectionName, e);
@@ -843,9 +1070,10 @@ public class JsonWriter {
       }
 
       try {
-        Files.move(tFile.toPath(), collectionFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        moveIntoPlace(tFile);
       } catch (IOException e) {
         logger.error("Failed to move temporary collection file {} to collection file {}", tFileName, collectionFile.getName(), e);
+        return false;
       }
       return true;
       
@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.jsondb.JsonDBConfig;
+
+/**
+ * The write-ahead log of transactions, kept in the file jsondb.wal in the dbFiles directory.
+ *
+ * Every committed transaction is a single line in the log, written and forced to disk before any
+ * collection is changed. A record is dropped from the log once every collection file it touches has
+ * been rewritten, by the commit itself or by any later write to the collection, and the log is deleted
+ * when no records are left. A line that is incomplete, because the process died while writing it,
+ * is a transaction that never committed and is ignored when the log is read back.
+ *
+ * Records also carry a stamp of every collection file as it was when the transaction was logged,
+ * a file whose stamp has changed since then already holds newer data and is not replayed over.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class WriteAheadLog {
+  public static final String FILE_NAME = "jsondb.wal";
+
+  private Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+  private final File logFile;
+  private final Charset charset;
+  private final ObjectMapper objectMapper;
+
+  private final List<LoggedRecord> records = new ArrayList<LoggedRecord>();
+  private int inFlight = 0;
+  private boolean dropped = false;
+
+  /**
+   * A record in the log and the collections whose files have not been rewritten since it was appended.
+   */
+  private static class LoggedRecord {
+    private final JsonNode record;
+    private final Set<String> unwritten = new HashSet<String>();
+    private boolean inFlight = true;
+
+    LoggedRecord(JsonNode record) {
+      this.record = record;
+      Iterator<String> collectionNames = record.path("collections").fieldNames();
+      while (collectionNames.hasNext()) {
+        unwritten.add(collectionNames.next());
+      }
+    }
+  }
+
+  public WriteAheadLog(JsonDBConfig dbConfig) {
+    this.logFile = new File(dbConfig.getDbFilesLocation(), FILE_NAME);
+    this.charset = dbConfig.getCharset();
+    this.objectMapper = dbConfig.getObjectMapper();
+  }
+
+  /**
+   * Appends a record to the log and forces it to disk. The record stays in the log until
+   * {@link #complete(JsonNode)} is called for it and all the collection files it touches are written.
+   *
+   * @param record the record of a transaction
+   * @throws IOException if the record could not be made durable
+   */
+  public synchronized void append(JsonNode record) throws IOException {
+    byte[] data = (objectMapper.writeValueAsString(record) + "\n").getBytes(charset);
+    FileOutputStream fos = new FileOutputStream(logFile, true);
+    try {
+      fos.write(data);
+      fos.getChannel().force(true);
+    } finally {
+      fos.close();
+    }
+    records.add(new LoggedRecord(record));
+    inFlight++;
+  }
+
+  /**
+   * Records that the file of a collection was rewritten from memory, which holds every logged change
+   * to it. The caller must hold the collection lock.
+   *
+   * @param collectionName name of the collection
+   * @param collectionFile its file, forced to disk before any record is dropped because of it
+   * @param forced true if the writer already forced the file to disk
+   */
+  public synchronized void written(String collectionName, File collectionFile, boolean forced) {
+    if (!isLogged(collectionName)) {
+      return;
+    }
+    if (!forced) {
+      try {
+        JsonWriter.forceToDisk(collectionFile);
+      } catch (IOException e) {
+        logger.warn("Failed to force collection file {} to disk, its logged transactions are kept", collectionFile, e);
+        return;
+      }
+    }
+    Iterator<LoggedRecord> itr = records.iterator();
+    while (itr.hasNext()) {
+      LoggedRecord logged = itr.next();
+      if (logged.unwritten.remove(collectionName) && logged.unwritten.isEmpty() && !logged.inFlight) {
+        itr.remove();
+        dropped = true;
+      }
+    }
+    if (inFlight == 0) {
+      rewrite();
+    }
+  }
+
+  private boolean isLogged(String collectionName) {
+    for (LoggedRecord logged : records) {
+      if (logged.unwritten.contains(collectionName)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Marks the commit of an appended record as finished. If the commit could not write all of the
+   * collection files the record is kept until they are written by later changes or recovered.
+   *
+   * @param record a record passed to {@link #append(JsonNode)}
+   */
+  public synchronized void complete(JsonNode record) {
+    Iterator<LoggedRecord> itr = records.iterator();
+    while (itr.hasNext()) {
+      LoggedRecord logged = itr.next();
+      if (logged.record == record) {
+        logged.inFlight = false;
+        inFlight--;
+        if (logged.unwritten.isEmpty()) {
+          itr.remove();
+          dropped = true;
+        }
+        break;
+      }
+    }
+    rewrite();
+  }
+
+  /**
+   * Deletes the log once it has no records left, or replaces it with the records that are left once
+   * some have been dropped.
+   */
+  private void rewrite() {
+    if (!dropped) {
+      return;
+    }
+    if (records.isEmpty()) {
+      clear();
+      return;
+    }
+    File tFile = new File(logFile.getParentFile(), FILE_NAME + ".tmp");
+    try {
+      FileOutputStream fos = new FileOutputStream(tFile);
+      try {
+        for (LoggedRecord logged : records) {
+          fos.write((objectMapper.writeValueAsString(logged.record) + "\n").getBytes(charset));
+        }
+        fos.getChannel().force(true);
+      } finally {
+        fos.close();
+      }
+      Files.move(tFile.toPath(), logFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+      dropped = false;
+    } catch (IOException e) {
+      //The old log still replays correctly, the stamps of rewritten files keep it from going back
+      logger.warn("Failed to compact write-ahead log {}", logFile, e);
+    }
+  }
+
+  /**
+   * Reads the complete records in the log.
+   *
+   * @return the records in the order they were appended
+   * @throws IOException if the log could not be read
+   */
+  public synchronized List<JsonNode> readRecords() throws IOException {
+    if (!logFile.exists()) {
+      return Collections.emptyList();
+    }
+    String content = new String(Files.readAllBytes(logFile.toPath()), charset);
+    List<JsonNode> records = new ArrayList<JsonNode>();
+    int start = 0;
+    int end;
+    while ((end = content.indexOf('\n', start)) >= 0) {
+      String line = content.substring(start, end);
+      start = end + 1;
+      if (line.trim().isEmpty()) {
+        continue;
+      }
+      try {
+        records.add(objectMapper.readTree(line));
+      } catch (IOException e) {
+        logger.warn("Ignoring unreadable record in write-ahead log {} and everything after it", logFile, e);
+        return records;
+      }
+    }
+    if (start < content.length()) {
+      logger.warn("Ignoring incomplete last record in write-ahead log {}", logFile);
+    }
+    return records;
+  }
+
+  /**
+   * Deletes the log, called once its records have been applied to the collection files.
+   */
+  public synchronized void clear() {
+    try {
+      Files.deleteIfExists(logFile.toPath());
+      records.clear();
+      dropped = false;
+    } catch (IOException e) {
+      logger.error("Failed to delete write-ahead log {}", logFile, e);
+    }
+  }
+
+  public File getLogFile() {
+    return logFile;
+  }
+
+  /**
+   * Identifies the current content of a collection file. Every rewrite moves a new file into place,
+   * which changes its modification time, and usually its file key and size as well.
+   *
+   * @param file a collection file
+   * @return the stamp of the file, "missing" if it does not exist
+   */
+  public static String stampOf(File file) {
+    try {
+      BasicFileAttributes attributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+      return attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) + "/" + attributes.size() + "/" + attributes.fileKey();
+    } catch (IOException e) {
+      return "missing";
+    }
+  }
+}
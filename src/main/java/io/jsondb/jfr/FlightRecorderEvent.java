@@ -0,0 +1,312 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.jfr;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A Java Flight Recorder event emitted by the engine. The library targets Java 8, so the events are
+ * defined at runtime through jdk.jfr.EventFactory and driven by reflection; on a JVM without JFR they
+ * are never emitted.
+ *
+ * Usage is a {@link #begin()} before the work and a {@link #commit(Object, Object...)} with the field
+ * values after it. While no recording is running begin returns null after a single volatile read. Callers
+ * check the event for null before calling commit, so the field values are neither computed, boxed nor
+ * put in an array, and the events cost next to nothing when nobody is listening.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public final class FlightRecorderEvent {
+  private static final Logger logger = LoggerFactory.getLogger(FlightRecorderEvent.class);
+  private static final String CATEGORY = "JsonDB";
+
+  /** Reading a collection file into memory: collection, documents, bytes */
+  public static final FlightRecorderEvent COLLECTION_LOAD = new FlightRecorderEvent("io.jsondb.CollectionLoad",
+      "Collection Load", "Reading a collection file into memory", null,
+      field(String.class, "collection", "Collection"), field(int.class, "documents", "Documents"), field(long.class, "bytes", "Bytes"));
+
+  /** Writing a collection file and moving it in place: collection, documents, bytes */
+  public static final FlightRecorderEvent FILE_REWRITE = new FlightRecorderEvent("io.jsondb.FileRewrite",
+      "Collection File Rewrite", "Writing a collection file to a temporary file and moving it in place", null,
+      field(String.class, "collection", "Collection"), field(int.class, "documents", "Documents"), field(long.class, "bytes", "Bytes"));
+
+  /** Waiting for a collection lock, only waits of a millisecond or more are recorded: collection, timedOut */
+  public static final FlightRecorderEvent LOCK_WAIT = new FlightRecorderEvent("io.jsondb.LockWait",
+      "Collection Lock Wait", "Waiting for a collection lock", "1 ms",
+      field(String.class, "collection", "Collection"), field(boolean.class, "timedOut", "Timed Out"));
+
+  /** Running a query and copying its results: collection, query, matches */
+  public static final FlightRecorderEvent QUERY = new FlightRecorderEvent("io.jsondb.Query",
+      "Query", "Evaluating a JXPath query and copying the matches", null,
+      field(String.class, "collection", "Collection"), field(String.class, "query", "Query"), field(int.class, "matches", "Matches"));
+
+  /** Deep copying, and decrypting, the documents handed out by a read: collection, documents, decrypted */
+  public static final FlightRecorderEvent DOCUMENT_COPY = new FlightRecorderEvent("io.jsondb.DocumentCopy",
+      "Document Copy", "Deep copying and decrypting the documents handed out by a read", null,
+      field(String.class, "collection", "Collection"), field(int.class, "documents", "Documents"), field(boolean.class, "decrypted", "Decrypted"));
+
+  /** Encrypting the @Secret fields of a document: collection, fields */
+  public static final FlightRecorderEvent ENCRYPT = new FlightRecorderEvent("io.jsondb.Encrypt",
+      "Encrypt", "Encrypting the @Secret fields of a document", null,
+      field(String.class, "collection", "Collection"), field(int.class, "fields", "Fields"));
+
+  /** Decrypting the @Secret fields of a document: collection, fields */
+  public static final FlightRecorderEvent DECRYPT = new FlightRecorderEvent("io.jsondb.Decrypt",
+      "Decrypt", "Decrypting the @Secret fields of a document", null,
+      field(String.class, "collection", "Collection"), field(int.class, "fields", "Fields"));
+
+  private static final Jfr jfr = Jfr.load();
+  private static final Set<Object> runningRecordings = Collections.newSetFromMap(new ConcurrentHashMap<Object, Boolean>());
+  private static volatile boolean recording;
+
+  static {
+    if (null != jfr) {
+      jfr.listen();
+    }
+  }
+
+  private final String name;
+  private final String label;
+  private final String description;
+  private final String threshold;
+  private final Field[] fields;
+  private volatile Object factory;
+
+  private FlightRecorderEvent(String name, String label, String description, String threshold, Field... fields) {
+    this.name = name;
+    this.label = label;
+    this.description = description;
+    this.threshold = threshold;
+    this.fields = fields;
+  }
+
+  private static Field field(Class<?> type, String name, String label) {
+    return new Field(type, name, label);
+  }
+
+  /**
+   * @return true if JFR is available and a recording is running
+   */
+  public static boolean isRecording() {
+    return recording;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Starts timing an event.
+   *
+   * @return the event to commit or null if no recording is running
+   */
+  public Object begin() {
+    if (!recording) {
+      return null;
+    }
+    try {
+      Object event = jfr.newEvent.invoke(factory());
+      jfr.begin.invoke(event);
+      return event;
+    } catch (Exception e) {
+      logger.debug("Failed to begin JFR event {}", name, e);
+      return null;
+    }
+  }
+
+  /**
+   * Ends an event and hands it to the recorder, which drops it if the event type is disabled or the
+   * event is shorter than its threshold.
+   *
+   * @param event the value returned by {@link #begin()}, nothing happens if it is null, callers should
+   * check for null themselves to skip building the values
+   * @param values the field values in the order the fields are documented for the event
+   */
+  public void commit(Object event, Object... values) {
+    if (null == event) {
+      return;
+    }
+    try {
+      for (int i = 0; i < values.length; i++) {
+        jfr.set.invoke(event, i, values[i]);
+      }
+      jfr.commit.invoke(event);
+    } catch (Exception e) {
+      logger.debug("Failed to commit JFR event {}", name, e);
+    }
+  }
+
+  /**
+   * The event type is only defined the first time a recording needs it, so a JVM that never records
+   * does not pay for initializing JFR.
+   */
+  private Object factory() throws Exception {
+    Object f = factory;
+    if (null == f) {
+      synchronized (this) {
+        f = factory;
+        if (null == f) {
+          f = jfr.defineEvent(this);
+          factory = f;
+        }
+      }
+    }
+    return f;
+  }
+
+  private static void recordingStateChanged(Object recording, String state) {
+    if ("RUNNING".equals(state)) {
+      runningRecordings.add(recording);
+    } else {
+      runningRecordings.remove(recording);
+    }
+    FlightRecorderEvent.recording = !runningRecordings.isEmpty();
+  }
+
+  private static final class Field {
+    private final Class<?> type;
+    private final String name;
+    private final String label;
+
+    Field(Class<?> type, String name, String label) {
+      this.type = type;
+      this.name = name;
+      this.label = label;
+    }
+  }
+
+  /**
+   * The reflective handles on the jdk.jfr API.
+   */
+  private static final class Jfr {
+    private Class<?> flightRecorder;
+    private Class<?> listenerType;
+    private Method getState;
+    private Constructor<?> annotationElement;
+    private Constructor<?> valueDescriptor;
+    private Method create;
+    private Method newEvent;
+    private Method begin;
+    private Method set;
+    private Method commit;
+    private Class<? extends Annotation> nameType;
+    private Class<? extends Annotation> labelType;
+    private Class<? extends Annotation> descriptionType;
+    private Class<? extends Annotation> categoryType;
+    private Class<? extends Annotation> thresholdType;
+
+    static Jfr load() {
+      try {
+        Jfr jfr = new Jfr();
+        jfr.flightRecorder = Class.forName("jdk.jfr.FlightRecorder");
+        jfr.listenerType = Class.forName("jdk.jfr.FlightRecorderListener");
+        jfr.getState = Class.forName("jdk.jfr.Recording").getMethod("getState");
+        Class<?> annotationElementType = Class.forName("jdk.jfr.AnnotationElement");
+        jfr.annotationElement = annotationElementType.getConstructor(Class.class, Object.class);
+        jfr.valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor").getConstructor(Class.class, String.class, List.class);
+        Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+        jfr.create = eventFactory.getMethod("create", List.class, List.class);
+        jfr.newEvent = eventFactory.getMethod("newEvent");
+        Class<?> event = Class.forName("jdk.jfr.Event");
+        jfr.begin = event.getMethod("begin");
+        jfr.set = event.getMethod("set", int.class, Object.class);
+        jfr.commit = event.getMethod("commit");
+        jfr.nameType = annotation("jdk.jfr.Name");
+        jfr.labelType = annotation("jdk.jfr.Label");
+        jfr.descriptionType = annotation("jdk.jfr.Description");
+        jfr.categoryType = annotation("jdk.jfr.Category");
+        jfr.thresholdType = annotation("jdk.jfr.Threshold");
+        return jfr;
+      } catch (Exception | LinkageError e) {
+        logger.debug("Java Flight Recorder is not available, JsonDB events are disabled");
+        return null;
+      }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Annotation> annotation(String className) throws ClassNotFoundException {
+      return (Class<? extends Annotation>) Class.forName(className);
+    }
+
+    /**
+     * Tracks the running recordings through a FlightRecorderListener.
+     */
+    void listen() {
+      try {
+        Object listener = Proxy.newProxyInstance(FlightRecorderEvent.class.getClassLoader(), new Class<?>[] {listenerType},
+            new InvocationHandler() {
+              @Override
+              public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if (method.getName().equals("recordingStateChanged")) {
+                  recordingStateChanged(args[0], String.valueOf(getState.invoke(args[0])));
+                } else if (method.getName().equals("hashCode")) {
+                  return System.identityHashCode(proxy);
+                } else if (method.getName().equals("equals")) {
+                  return proxy == args[0];
+                } else if (method.getName().equals("toString")) {
+                  return "JsonDB FlightRecorderListener";
+                }
+                return null;
+              }
+            });
+        flightRecorder.getMethod("addListener", listenerType).invoke(null, listener);
+        if ((Boolean) flightRecorder.getMethod("isInitialized").invoke(null)) {
+          Object recorder = flightRecorder.getMethod("getFlightRecorder").invoke(null);
+          for (Object recording : (List<?>) flightRecorder.getMethod("getRecordings").invoke(recorder)) {
+            recordingStateChanged(recording, String.valueOf(getState.invoke(recording)));
+          }
+        }
+      } catch (Exception e) {
+        logger.debug("Failed to listen for JFR recordings, JsonDB events are disabled", e);
+      }
+    }
+
+    Object defineEvent(FlightRecorderEvent event) throws Exception {
+      List<Object> annotations = new ArrayList<Object>();
+      annotations.add(annotationElement.newInstance(nameType, event.name));
+      annotations.add(annotationElement.newInstance(labelType, event.label));
+      annotations.add(annotationElement.newInstance(descriptionType, event.description));
+      annotations.add(annotationElement.newInstance(categoryType, new String[] {CATEGORY}));
+      if (null != event.threshold) {
+        annotations.add(annotationElement.newInstance(thresholdType, event.threshold));
+      }
+      List<Object> descriptors = new ArrayList<Object>();
+      for (Field field : event.fields) {
+        descriptors.add(valueDescriptor.newInstance(field.type, field.name,
+            Arrays.asList(annotationElement.newInstance(labelType, field.label))));
+      }
+      return create.invoke(null, annotations, descriptors);
+    }
+  }
+}
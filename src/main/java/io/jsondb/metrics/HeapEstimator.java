@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.metrics;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rough estimates of the heap retained by objects, assuming a 64 bit JVM with compressed
+ * references: 12 byte object headers, 4 byte references and 8 byte alignment. Application classes
+ * are measured by walking their fields reflectively. JDK classes cannot be reflected into on newer
+ * JVMs so strings, boxes, collections and maps are sized from their known layouts and other JDK
+ * objects are counted as a bare object.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public final class HeapEstimator {
+  public static final int OBJECT_HEADER = 12;
+  public static final int REFERENCE = 4;
+  public static final int ARRAY_HEADER = 16;
+  public static final int ALIGNMENT = 8;
+
+  /** Objects visited by a single {@link #deepSize} call at most, beyond that the graph is cut off */
+  private static final int MAX_OBJECTS = 100000;
+
+  private static final boolean COMPACT_STRINGS = !System.getProperty("java.specification.version").startsWith("1.");
+  private static final ConcurrentHashMap<Class<?>, ClassLayout> layouts = new ConcurrentHashMap<Class<?>, ClassLayout>();
+
+  private HeapEstimator() {
+  }
+
+  public static long align(long bytes) {
+    return ((bytes + ALIGNMENT - 1) / ALIGNMENT) * ALIGNMENT;
+  }
+
+  public static long array(int length, int elementBytes) {
+    return align(ARRAY_HEADER + ((long) length * elementBytes));
+  }
+
+  public static long string(String value) {
+    return align(OBJECT_HEADER + 12) + array(value.length(), COMPACT_STRINGS ? 1 : 2);
+  }
+
+  private static int tableLength(int entries) {
+    int length = 16;
+    while (length * 0.75 < entries) {
+      length <<= 1;
+    }
+    return length;
+  }
+
+  /**
+   * @return HashMap or ConcurrentHashMap with the given number of entries, keys and values not included
+   */
+  public static long hashMap(int entries) {
+    return 48 + array(tableLength(entries), REFERENCE) + (32L * entries);
+  }
+
+  /**
+   * @return LinkedHashMap with the given number of entries, keys and values not included
+   */
+  public static long linkedHashMap(int entries) {
+    return 56 + array(tableLength(entries), REFERENCE) + (40L * entries);
+  }
+
+  /**
+   * @return HashSet with the given number of elements, the elements not included
+   */
+  public static long hashSet(int elements) {
+    return 16 + hashMap(elements);
+  }
+
+  /**
+   * @return LinkedHashSet with the given number of elements, the elements not included
+   */
+  public static long linkedHashSet(int elements) {
+    return 16 + linkedHashMap(elements);
+  }
+
+  /**
+   * @return TreeMap with the given number of entries, keys and values not included
+   */
+  public static long treeMap(int entries) {
+    return 48 + (40L * entries);
+  }
+
+  /**
+   * @return ArrayList with the given number of elements, the elements not included
+   */
+  public static long arrayList(int elements) {
+    return 24 + array(elements, REFERENCE);
+  }
+
+  /**
+   * Estimates the heap retained by an object and everything reachable from it.
+   *
+   * @param root the object to measure, may be null
+   * @param shared objects that are accounted for elsewhere, neither they nor what is only reachable
+   *               through them is counted
+   * @return estimated size in bytes
+   */
+  public static long deepSize(Object root, Object... shared) {
+    if (null == root) {
+      return 0;
+    }
+    IdentityHashMap<Object, Boolean> visited = new IdentityHashMap<Object, Boolean>();
+    for (Object object : shared) {
+      if (null != object) {
+        visited.put(object, Boolean.TRUE);
+      }
+    }
+    Deque<Object> pending = new ArrayDeque<Object>();
+    pending.push(root);
+    long size = 0;
+    while (!pending.isEmpty() && (visited.size() < MAX_OBJECTS)) {
+      Object object = pending.pop();
+      if (null != visited.put(object, Boolean.TRUE)) {
+        continue;
+      }
+      size += shallowSize(object, pending);
+    }
+    return size;
+  }
+
+  /**
+   * @return the size of the object itself, the objects it references are pushed on pending
+   */
+  private static long shallowSize(Object object, Deque<Object> pending) {
+    Class<?> type = object.getClass();
+    if (object instanceof String) {
+      return string((String) object);
+    }
+    if ((object instanceof Long) || (object instanceof Double)) {
+      return 24;
+    }
+    if ((object instanceof Number) || (object instanceof Boolean) || (object instanceof Character)) {
+      return 16;
+    }
+    if ((object instanceof Enum) || (object instanceof Class)) {
+      return 0;
+    }
+    if (type.isArray()) {
+      Class<?> componentType = type.getComponentType();
+      int length = Array.getLength(object);
+      if (componentType.isPrimitive()) {
+        return array(length, primitiveBytes(componentType));
+      }
+      for (Object element : (Object[]) object) {
+        if (null != element) {
+          pending.push(element);
+        }
+      }
+      return array(length, REFERENCE);
+    }
+    if (isJdkClass(type)) {
+      if (object instanceof Map) {
+        Map<?, ?> map = (Map<?, ?>) object;
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          push(pending, entry.getKey());
+          push(pending, entry.getValue());
+        }
+        return hashMap(map.size());
+      }
+      if (object instanceof Collection) {
+        Collection<?> collection = (Collection<?>) object;
+        for (Object element : collection) {
+          push(pending, element);
+        }
+        return (collection instanceof java.util.Set) ? hashSet(collection.size()) : arrayList(collection.size());
+      }
+      return 16;
+    }
+
+    ClassLayout layout = layoutOf(type);
+    for (Field field : layout.references) {
+      try {
+        push(pending, field.get(object));
+      } catch (IllegalAccessException e) {
+        // Counted as a reference only
+      }
+    }
+    return layout.shallowSize;
+  }
+
+  private static void push(Deque<Object> pending, Object object) {
+    if (null != object) {
+      pending.push(object);
+    }
+  }
+
+  private static boolean isJdkClass(Class<?> type) {
+    String name = type.getName();
+    return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.") || name.startsWith("jdk.");
+  }
+
+  private static int primitiveBytes(Class<?> type) {
+    if ((type == long.class) || (type == double.class)) {
+      return 8;
+    }
+    if ((type == int.class) || (type == float.class)) {
+      return 4;
+    }
+    if ((type == short.class) || (type == char.class)) {
+      return 2;
+    }
+    return 1;
+  }
+
+  private static ClassLayout layoutOf(Class<?> type) {
+    ClassLayout layout = layouts.get(type);
+    if (null == layout) {
+      layout = new ClassLayout(type);
+      layouts.putIfAbsent(type, layout);
+    }
+    return layout;
+  }
+
+  private static class ClassLayout {
+    private final long shallowSize;
+    private final List<Field> references = new ArrayList<Field>();
+
+    private ClassLayout(Class<?> type) {
+      long fieldBytes = 0;
+      for (Class<?> c = type; (null != c) && (c != Object.class); c = c.getSuperclass()) {
+        boolean accessible = !isJdkClass(c);
+        for (Field field : c.getDeclaredFields()) {
+          if (Modifier.isStatic(field.getModifiers())) {
+            continue;
+          }
+          if (field.getType().isPrimitive()) {
+            fieldBytes += primitiveBytes(field.getType());
+            continue;
+          }
+          fieldBytes += REFERENCE;
+          if (accessible) {
+            try {
+              field.setAccessible(true);
+              references.add(field);
+            } catch (RuntimeException e) {
+              // Not open to reflection, counted as a reference only
+            }
+          }
+        }
+      }
+      this.shallowSize = align(OBJECT_HEADER + fieldBytes);
+    }
+  }
+}
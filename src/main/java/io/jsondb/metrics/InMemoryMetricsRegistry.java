@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.metrics;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A registry that keeps the measurements in memory, a {@link LatencyHistogram} per latency, a
+ * counter per count and the latest value of each gauge, each kept per collection. Cheap enough to leave on in production.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class InMemoryMetricsRegistry implements MetricsRegistry {
+  private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<String, LatencyHistogram>();
+  private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<String, LongAdder>();
+  private final ConcurrentHashMap<String, Long> gauges = new ConcurrentHashMap<String, Long>();
+
+  private static String key(String collectionName, String name) {
+    return collectionName + "/" + name;
+  }
+
+  @Override
+  public void recordLatency(String collectionName, String name, long nanos) {
+    String key = key(collectionName, name);
+    LatencyHistogram histogram = histograms.get(key);
+    if (null == histogram) {
+      histogram = new LatencyHistogram();
+      LatencyHistogram existing = histograms.putIfAbsent(key, histogram);
+      if (null != existing) {
+        histogram = existing;
+      }
+    }
+    histogram.record(nanos);
+  }
+
+  @Override
+  public void increment(String collectionName, String name, long amount) {
+    String key = key(collectionName, name);
+    LongAdder counter = counters.get(key);
+    if (null == counter) {
+      counter = new LongAdder();
+      LongAdder existing = counters.putIfAbsent(key, counter);
+      if (null != existing) {
+        counter = existing;
+      }
+    }
+    counter.add(amount);
+  }
+
+  @Override
+  public void gauge(String collectionName, String name, long value) {
+    gauges.put(key(collectionName, name), value);
+  }
+
+  /**
+   * @param collectionName name of the collection
+   * @param name name of the latency
+   * @return the histogram or null if nothing has been recorded for it
+   */
+  public LatencyHistogram getHistogram(String collectionName, String name) {
+    return histograms.get(key(collectionName, name));
+  }
+
+  /**
+   * @param collectionName name of the collection
+   * @param name name of the counter
+   * @return the value of the counter, 0 if it was never incremented
+   */
+  public long getCounter(String collectionName, String name) {
+    LongAdder counter = counters.get(key(collectionName, name));
+    return (null == counter) ? 0 : counter.sum();
+  }
+
+  /**
+   * @param collectionName name of the collection
+   * @param name name of the gauge
+   * @return the latest value of the gauge or null if it was never set
+   */
+  public Long getGauge(String collectionName, String name) {
+    return gauges.get(key(collectionName, name));
+  }
+
+  /**
+   * @return all histograms keyed by collection name and latency name separated by a slash
+   */
+  public Map<String, LatencyHistogram> getHistograms() {
+    return Collections.unmodifiableMap(new TreeMap<String, LatencyHistogram>(histograms));
+  }
+
+  /**
+   * @return all counter values keyed by collection name and counter name separated by a slash
+   */
+  public Map<String, Long> getCounters() {
+    Map<String, Long> values = new TreeMap<String, Long>();
+    for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+      values.put(entry.getKey(), entry.getValue().sum());
+    }
+    return Collections.unmodifiableMap(values);
+  }
+
+  /**
+   * @return all gauge values keyed by collection name and gauge name separated by a slash
+   */
+  public Map<String, Long> getGauges() {
+    return Collections.unmodifiableMap(new TreeMap<String, Long>(gauges));
+  }
+}
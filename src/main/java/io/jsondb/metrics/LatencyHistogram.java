@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free log-linear latency histogram in the style of HdrHistogram: every power of two
+ * nanoseconds is split into 8 equal buckets. Recording costs a couple of uncontended adds,
+ * percentiles are accurate to within 12.5%.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+  private final LongAdder count = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public void record(long nanos) {
+    long value = Math.max(0, nanos);
+    buckets[bucketOf(value)].increment();
+    count.increment();
+    totalNanos.add(value);
+    long max = maxNanos.get();
+    while ((value > max) && !maxNanos.compareAndSet(max, value)) {
+      max = maxNanos.get();
+    }
+  }
+
+  public long getCount() {
+    return count.sum();
+  }
+
+  public long getTotalNanos() {
+    return totalNanos.sum();
+  }
+
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  public long getMeanNanos() {
+    long n = getCount();
+    return (n == 0) ? 0 : getTotalNanos() / n;
+  }
+
+  /**
+   * Estimates a percentile as the upper bound of the bucket it falls in, capped at the maximum seen.
+   *
+   * @param percentile between 0 and 100
+   * @return the estimated latency in nanoseconds, 0 if nothing has been recorded
+   */
+  public long getPercentileNanos(double percentile) {
+    long n = getCount();
+    if (n == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(n * Math.min(100.0, Math.max(0.0, percentile)) / 100.0);
+    long seen = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += buckets[i].sum();
+      if ((seen >= rank) && (seen > 0)) {
+        return Math.min(upperBoundOf(i), getMaxNanos());
+      }
+    }
+    return getMaxNanos();
+  }
+
+  private static int bucketOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int exponent = 63 - Long.numberOfLeadingZeros(value);
+    int shift = exponent - SUB_BUCKET_BITS;
+    return ((shift + 1) * SUB_BUCKETS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+  }
+
+  private static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+    int shift = (bucket / SUB_BUCKETS) - 1;
+    long lowerBound = ((long) (SUB_BUCKETS + (bucket % SUB_BUCKETS))) << shift;
+    long upperBound = lowerBound + (1L << shift) - 1;
+    return (upperBound < 0) ? Long.MAX_VALUE : upperBound;
+  }
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import io.jsondb.JsonDBOperations;
+import io.jsondb.annotation.Document;
+
+/**
+ * Records the latency of every {@link JsonDBOperations} method call, under the method name and the
+ * collection the call is about, and counts the calls that throw under the method name followed by
+ * {@link MetricNames#ERRORS_SUFFIX}.
+ *
+ * The collection of a call is taken from its entity class, else from its collection name argument,
+ * which is always the last String argument, else from the @Document annotation of its document argument.
+ * Calls that are not about one collection are recorded under {@link MetricNames#ALL_COLLECTIONS}.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public final class MeteredOperations implements InvocationHandler {
+  private final JsonDBOperations target;
+  private final MetricsRegistry registry;
+
+  private MeteredOperations(JsonDBOperations target, MetricsRegistry registry) {
+    this.target = target;
+    this.registry = registry;
+  }
+
+  /**
+   * @param target the operations to measure
+   * @param registry the registry to record in
+   * @return operations that delegate to target and record every call in the registry
+   */
+  public static JsonDBOperations wrap(JsonDBOperations target, MetricsRegistry registry) {
+    return (JsonDBOperations) Proxy.newProxyInstance(JsonDBOperations.class.getClassLoader(),
+        new Class<?>[] {JsonDBOperations.class}, new MeteredOperations(target, registry));
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    if (method.getDeclaringClass() == Object.class) {
+      return method.invoke(target, args);
+    }
+    String collectionName = collectionOf(method, args);
+    long start = System.nanoTime();
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      registry.increment(collectionName, method.getName() + MetricNames.ERRORS_SUFFIX, 1);
+      throw e.getCause();
+    } finally {
+      registry.recordLatency(collectionName, method.getName(), System.nanoTime() - start);
+    }
+  }
+
+  static String collectionOf(Method method, Object[] args) {
+    if (null == args) {
+      return MetricNames.ALL_COLLECTIONS;
+    }
+    for (Object arg : args) {
+      if (arg instanceof Class) {
+        Document document = ((Class<?>) arg).getAnnotation(Document.class);
+        if (null != document) {
+          return document.collection();
+        }
+      }
+    }
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    String name = method.getName();
+    boolean hasCollectionName = !name.equals("backup") && !name.equals("restore");
+    if (hasCollectionName && (parameterTypes[parameterTypes.length - 1] == String.class)
+        && (null != args[args.length - 1])) {
+      return (String) args[args.length - 1];
+    }
+    if ((null != args[0]) && (null != args[0].getClass().getAnnotation(Document.class))) {
+      return args[0].getClass().getAnnotation(Document.class).collection();
+    }
+    return MetricNames.ALL_COLLECTIONS;
+  }
+}
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.metrics;
+
+/**
+ * Names of the measurements JsonDB takes besides the latencies of the {@link io.jsondb.JsonDBOperations}
+ * methods, which are recorded by {@link MeteredOperations} under the method name.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public final class MetricNames {
+  /** Collection name used for measurements that are not about a single collection */
+  public static final String ALL_COLLECTIONS = "*";
+
+  /** Latency: waiting for a collection lock */
+  public static final String LOCK_WAIT = "lockWait";
+  /** Latency: copying, and decrypting, the documents handed out by a read */
+  public static final String COPY = "copy";
+  /** Latency: serializing a collection and writing it to a temporary file */
+  public static final String FILE_WRITE = "fileWrite";
+  /** Latency: moving the temporary file over the collection file */
+  public static final String FILE_RENAME = "fileRename";
+  /** Latency: reading a collection file into memory */
+  public static final String LOAD = "load";
+
+  /** Counter: documents copied by reads */
+  public static final String DOCUMENTS_COPIED = "documentsCopied";
+  /** Counter: bytes written to collection files */
+  public static final String BYTES_WRITTEN = "bytesWritten";
+  /** Counter: bytes of collection files read */
+  public static final String BYTES_READ = "bytesRead";
+  /** Counter: documents upgraded by upcasters while loading a collection */
+  public static final String DOCUMENTS_UPCAST = "documentsUpcast";
+
+  /** Gauge: estimated heap held by the documents of a collection, set by memoryStats */
+  public static final String HEAP_DOCUMENTS = "heapDocuments";
+  /** Gauge: estimated heap held by the indexes of a collection, set by memoryStats */
+  public static final String HEAP_INDEXES = "heapIndexes";
+  /** Gauge: estimated heap held by the query result cache and snapshot of a collection, set by memoryStats */
+  public static final String HEAP_CACHES = "heapCaches";
+  /** Gauge: estimated heap held by the JXPathContext of a collection, set by memoryStats */
+  public static final String HEAP_CONTEXT = "heapContext";
+  /** Gauge: estimated heap held by a collection in total, set by memoryStats */
+  public static final String HEAP_TOTAL = "heapTotal";
+
+  /** Counter suffix: calls of an operation that threw */
+  public static final String ERRORS_SUFFIX = ".errors";
+
+  private MetricNames() {
+  }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.metrics;
+
+/**
+ * Receives the measurements taken by JsonDB, set one on {@link io.jsondb.JsonDBConfig#setMetricsRegistry}
+ * to bridge them to the metrics library of the application. Implementations are called on hot paths
+ * from many threads and must be thread safe and cheap.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public interface MetricsRegistry {
+
+  /**
+   * Records how long something took.
+   *
+   * @param collectionName collection the measurement is about, {@link MetricNames#ALL_COLLECTIONS} if none
+   * @param name what was measured, one of {@link MetricNames} or an operation name
+   * @param nanos duration in nanoseconds
+   */
+  void recordLatency(String collectionName, String name, long nanos);
+
+  /**
+   * Adds to a counter.
+   *
+   * @param collectionName collection the measurement is about, {@link MetricNames#ALL_COLLECTIONS} if none
+   * @param name what was counted, one of {@link MetricNames}
+   * @param amount amount to add
+   */
+  void increment(String collectionName, String name, long amount);
+
+  /**
+   * Sets a value that is replaced rather than accumulated, like the estimated heap held by a collection.
+   *
+   * @param collectionName collection the measurement is about, {@link MetricNames#ALL_COLLECTIONS} if none
+   * @param name what was measured, one of {@link MetricNames}
+   * @param value the latest value
+   */
+  void gauge(String collectionName, String name, long value);
+}
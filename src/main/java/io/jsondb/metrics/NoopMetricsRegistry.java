@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.metrics;
+
+/**
+ * The registry in use when none is configured, it discards every measurement.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public final class NoopMetricsRegistry implements MetricsRegistry {
+  public static final NoopMetricsRegistry INSTANCE = new NoopMetricsRegistry();
+
+  private NoopMetricsRegistry() {
+  }
+
+  @Override
+  public void recordLatency(String collectionName, String name, long nanos) {
+  }
+
+  @Override
+  public void increment(String collectionName, String name, long amount) {
+  }
+
+  @Override
+  public void gauge(String collectionName, String name, long value) {
+  }
+}
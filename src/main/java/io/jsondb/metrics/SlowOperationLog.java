@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Logs operations that take longer than the threshold set for their type, with a breakdown of where
+ * the time went. At most one line per operation type is written per log interval, the number of slow
+ * operations left out in between is reported with the next line. Lines are logged at WARN level, by
+ * default to the io.jsondb.metrics.SlowOperationLog logger.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class SlowOperationLog {
+  public enum Operation {
+    /** find and count, timed from the call to the return of the copied results */
+    QUERY,
+    /** writing a collection file to a temporary file and moving it in place, including the file lock wait */
+    REWRITE
+  }
+
+  private final long[] thresholdNanos = new long[Operation.values().length];
+  private final AtomicLong[] nextLogTime = new AtomicLong[Operation.values().length];
+  private final AtomicLong[] suppressed = new AtomicLong[Operation.values().length];
+  private volatile long logIntervalMillis = 1000;
+  private final Logger logger;
+
+  public SlowOperationLog() {
+    this(LoggerFactory.getLogger(SlowOperationLog.class));
+  }
+
+  /**
+   * @param logger logger to write the slow operations to
+   */
+  public SlowOperationLog(Logger logger) {
+    this.logger = logger;
+    for (int i = 0; i < nextLogTime.length; i++) {
+      nextLogTime[i] = new AtomicLong();
+      suppressed[i] = new AtomicLong();
+    }
+  }
+
+  /**
+   * @param operation type of operation
+   * @param threshold duration from which an operation is logged, less than 1 disables logging of the type
+   * @param unit unit of the threshold
+   */
+  public void setThreshold(Operation operation, long threshold, TimeUnit unit) {
+    thresholdNanos[operation.ordinal()] = (threshold < 1) ? 0 : unit.toNanos(threshold);
+  }
+
+  /**
+   * @param operation type of operation
+   * @return true if a threshold is set for the type
+   */
+  public boolean isEnabled(Operation operation) {
+    return thresholdNanos[operation.ordinal()] > 0;
+  }
+
+  /**
+   * @param logIntervalMillis minimum time between two lines for the same type of operation, 0 to log every slow operation
+   */
+  public void setLogInterval(long logIntervalMillis) {
+    this.logIntervalMillis = logIntervalMillis;
+  }
+
+  private boolean isSlow(Operation operation, long nanos) {
+    long threshold = thresholdNanos[operation.ordinal()];
+    return (threshold > 0) && (nanos >= threshold);
+  }
+
+  /**
+   * @return the number of lines suppressed since the last one, or -1 if this one must be suppressed too
+   */
+  private long admit(Operation operation) {
+    long now = System.currentTimeMillis();
+    AtomicLong next = nextLogTime[operation.ordinal()];
+    long nextTime = next.get();
+    if ((now < nextTime) || !next.compareAndSet(nextTime, now + logIntervalMillis)) {
+      suppressed[operation.ordinal()].incrementAndGet();
+      return -1;
+    }
+    return suppressed[operation.ordinal()].getAndSet(0);
+  }
+
+  private static long millis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  /**
+   * Logs a query if it took longer than the QUERY threshold.
+   *
+   * @param method name of the JsonDBOperations method
+   * @param collectionName collection queried
+   * @param query the JXPath query
+   * @param scanned number of documents the query was evaluated against, 0 if the result came from the query cache
+   * @param returned number of documents returned
+   * @param totalNanos time taken by the whole call
+   * @param lockWaitNanos part of it spent waiting for the collection lock
+   * @param copyNanos part of it spent copying and decrypting the results
+   */
+  public void logQuery(String method, String collectionName, String query, int scanned, int returned,
+      long totalNanos, long lockWaitNanos, long copyNanos) {
+    if (!isSlow(Operation.QUERY, totalNanos)) {
+      return;
+    }
+    long skipped = admit(Operation.QUERY);
+    if (skipped < 0) {
+      return;
+    }
+    logger.warn("Slow {} on collection {} took {} ms (lock wait {} ms, evaluation {} ms, copy {} ms), scanned {} returned {} documents, {} slow queries not logged since the last one: {}",
+        method, collectionName, millis(totalNanos), millis(lockWaitNanos), millis(totalNanos - lockWaitNanos - copyNanos),
+        millis(copyNanos), scanned, returned, skipped, query);
+  }
+
+  /**
+   * Logs a collection file rewrite if it took longer than the REWRITE threshold.
+   *
+   * @param collectionName collection written
+   * @param documents number of documents written
+   * @param bytes size of the file written
+   * @param lockWaitNanos time spent waiting for the file lock
+   * @param writeNanos time spent serializing and writing the temporary file
+   * @param renameNanos time spent moving the temporary file in place
+   */
+  public void logRewrite(String collectionName, int documents, long bytes, long lockWaitNanos, long writeNanos, long renameNanos) {
+    long totalNanos = lockWaitNanos + writeNanos + renameNanos;
+    if (!isSlow(Operation.REWRITE, totalNanos)) {
+      return;
+    }
+    long skipped = admit(Operation.REWRITE);
+    if (skipped < 0) {
+      return;
+    }
+    logger.warn("Slow rewrite of collection {} took {} ms (file lock wait {} ms, write {} ms, rename {} ms), {} documents {} bytes, {} slow rewrites not logged since the last one",
+        collectionName, millis(totalNanos), millis(lockWaitNanos), millis(writeNanos), millis(renameNanos),
+        documents, bytes, skipped);
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.query;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.commons.jxpath.DynamicPropertyHandler;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Lets JXPath navigate the ObjectNode documents of schemaless collections the way it navigates
+ * Maps. Object fields are returned as ObjectNodes, so nested paths keep working, arrays as Lists
+ * and scalars as their plain java values.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class JsonNodePropertyHandler implements DynamicPropertyHandler {
+
+  @Override
+  public String[] getPropertyNames(Object object) {
+    List<String> names = new ArrayList<String>();
+    Iterator<String> itr = ((ObjectNode) object).fieldNames();
+    while (itr.hasNext()) {
+      names.add(itr.next());
+    }
+    return names.toArray(new String[names.size()]);
+  }
+
+  @Override
+  public Object getProperty(Object object, String propertyName) {
+    return toValue(((ObjectNode) object).get(propertyName));
+  }
+
+  @Override
+  public void setProperty(Object object, String propertyName, Object value) {
+    ((ObjectNode) object).set(propertyName, toNode(value));
+  }
+
+  /**
+   * @param node a node of a document, may be null
+   * @return the value JXPath should see for the node
+   */
+  public static Object toValue(JsonNode node) {
+    if ((null == node) || node.isNull() || node.isMissingNode()) {
+      return null;
+    } else if (node.isObject()) {
+      return node;
+    } else if (node.isArray()) {
+      List<Object> values = new ArrayList<Object>(node.size());
+      for (JsonNode element : node) {
+        values.add(toValue(element));
+      }
+      return values;
+    } else if (node.isNumber()) {
+      return node.numberValue();
+    } else if (node.isBoolean()) {
+      return node.booleanValue();
+    } else if (node.isBinary()) {
+      return node.asText();
+    }
+    return node.textValue();
+  }
+
+  private static JsonNode toNode(Object value) {
+    JsonNodeFactory factory = JsonNodeFactory.instance;
+    if (null == value) {
+      return factory.nullNode();
+    } else if (value instanceof JsonNode) {
+      return (JsonNode) value;
+    } else if (value instanceof Boolean) {
+      return factory.booleanNode((Boolean) value);
+    } else if (value instanceof Integer) {
+      return factory.numberNode((Integer) value);
+    } else if (value instanceof Long) {
+      return factory.numberNode((Long) value);
+    } else if (value instanceof Double) {
+      return factory.numberNode((Double) value);
+    } else if (value instanceof Number) {
+      return factory.numberNode(((Number) value).doubleValue());
+    }
+    return factory.textNode(value.toString());
+  }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.query;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+import org.apache.commons.jxpath.JXPathContext;
+
+/**
+ * A fork/join task that evaluates a JxPath query over a slice of the documents of a collection.
+ *
+ * The slice is split in half until it is no bigger than the leaf size, each leaf is evaluated
+ * against its own JXPathContext and the matching documents are passed through the optional mapper
+ * (typically the deepCopy/decrypt step), documents the mapper maps to null are dropped. Partial
+ * results are joined in partition order so the final list has the same order a sequential
+ * evaluation would have produced.
+ *
+ * @param <T> Type annotated with {@link io.jsondb.annotation.Document} annotation
+ *            and member of the baseScanPackage
+ * @version 1.0 19-Oct-2026
+ */
+public class ParallelQueryTask<T> extends RecursiveTask<List<T>> {
+  private static final long serialVersionUID = 2473021837467213574L;
+
+  private final String jxQuery;
+  private final List<T> documents;
+  private final int from;
+  private final int to;
+  private final int leafSize;
+  private final Function<T, T> mapper;
+
+  /**
+   * @param jxQuery a XPATH query expression, if null every document is considered a match
+   * @param documents the documents to evaluate the query against
+   * @param leafSize the maximum number of documents a single task evaluates without forking
+   * @param mapper function applied to every matching document, can be null. Documents it maps to null
+   *               are left out of the result
+   */
+  public ParallelQueryTask(String jxQuery, List<T> documents, int leafSize, Function<T, T> mapper) {
+    this(jxQuery, documents, 0, documents.size(), Math.max(1, leafSize), mapper);
+  }
+
+  private ParallelQueryTask(String jxQuery, List<T> documents, int from, int to, int leafSize, Function<T, T> mapper) {
+    this.jxQuery = jxQuery;
+    this.documents = documents;
+    this.from = from;
+    this.to = to;
+    this.leafSize = leafSize;
+    this.mapper = mapper;
+  }
+
+  @Override
+  protected List<T> compute() {
+    if ((to - from) <= leafSize) {
+      return evaluate();
+    }
+    int mid = (from + to) >>> 1;
+    ParallelQueryTask<T> left = new ParallelQueryTask<T>(jxQuery, documents, from, mid, leafSize, mapper);
+    ParallelQueryTask<T> right = new ParallelQueryTask<T>(jxQuery, documents, mid, to, leafSize, mapper);
+    left.fork();
+    List<T> rightResult = right.compute();
+    List<T> result = left.join();
+    result.addAll(rightResult);
+    return result;
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<T> evaluate() {
+    List<T> slice = documents.subList(from, to);
+    List<T> result = new ArrayList<T>();
+    Iterator<T> resultItr;
+    if (null == jxQuery) {
+      resultItr = slice.iterator();
+    } else {
+      resultItr = JXPathContext.newContext(slice).iterate(jxQuery);
+    }
+    while (resultItr.hasNext()) {
+      T document = resultItr.next();
+      if (null != mapper) {
+        document = mapper.apply(document);
+        if (null == document) {
+          continue;
+        }
+      }
+      result.add(document);
+    }
+    return result;
+  }
+
+  /**
+   * Works out a leaf size that gives every worker of the pool a few tasks to steal from each other.
+   *
+   * @param collectionSize number of documents to be evaluated
+   * @param parallelism the parallelism of the pool the task will be submitted to
+   * @return the leaf size to use
+   */
+  public static int leafSizeFor(int collectionSize, int parallelism) {
+    return Math.max(1, collectionSize / (Math.max(1, parallelism) * 4));
+  }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.query;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link io.jsondb.JsonDBOperations#explain(String, String)} found out about running a query:
+ * the plan chosen and the documents and time it took.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class QueryExplanation {
+  private final String collectionName;
+  private final QueryPlan plan;
+  private final int estimatedDocumentsScanned;
+  private final int documentsScanned;
+  private final int matches;
+  private final long lockWaitNanos;
+  private final long evaluationNanos;
+  private final long copyNanos;
+
+  public QueryExplanation(String collectionName, QueryPlan plan, int estimatedDocumentsScanned, int documentsScanned,
+      int matches, long lockWaitNanos, long evaluationNanos, long copyNanos) {
+    this.collectionName = collectionName;
+    this.plan = plan;
+    this.estimatedDocumentsScanned = estimatedDocumentsScanned;
+    this.documentsScanned = documentsScanned;
+    this.matches = matches;
+    this.lockWaitNanos = lockWaitNanos;
+    this.evaluationNanos = evaluationNanos;
+    this.copyNanos = copyNanos;
+  }
+
+  public String getCollectionName() {
+    return collectionName;
+  }
+
+  public String getQuery() {
+    return plan.getQuery();
+  }
+
+  /**
+   * @return the field whose index is used, null if the whole collection is scanned
+   */
+  public String getIndexedField() {
+    return plan.getIndexedField();
+  }
+
+  /**
+   * @return the part of the query predicate not answered by the index, null if there is none
+   */
+  public String getResidualPredicate() {
+    return plan.getResidualPredicate();
+  }
+
+  /**
+   * @return the number of documents the planner expected to evaluate the query against
+   */
+  public int getEstimatedDocumentsScanned() {
+    return estimatedDocumentsScanned;
+  }
+
+  /**
+   * @return the number of documents the query was evaluated against
+   */
+  public int getDocumentsScanned() {
+    return documentsScanned;
+  }
+
+  /**
+   * @return the number of documents that matched, expired ones excluded
+   */
+  public int getMatches() {
+    return matches;
+  }
+
+  public long getLockWaitNanos() {
+    return lockWaitNanos;
+  }
+
+  public long getEvaluationNanos() {
+    return evaluationNanos;
+  }
+
+  public long getCopyNanos() {
+    return copyNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "Query " + plan.getQuery() + " on collection " + collectionName + ": " + plan
+        + ", estimated " + estimatedDocumentsScanned + " scanned " + documentsScanned + " matched " + matches
+        + " documents, lock wait " + TimeUnit.NANOSECONDS.toMicros(lockWaitNanos) + "us"
+        + " evaluation " + TimeUnit.NANOSECONDS.toMicros(evaluationNanos) + "us"
+        + " copy " + TimeUnit.NANOSECONDS.toMicros(copyNanos) + "us";
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.query;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.jxpath.JXPathContext;
+
+import io.jsondb.index.CollectionIndexes;
+import io.jsondb.index.FieldIndex;
+
+/**
+ * How a JxPath query is run against a collection.
+ *
+ * A query of the form /.[field='value'], or one where such an equality is one of the terms joined by a
+ * top level 'and', is run against the documents a {@link FieldIndex} holds for the value when the field
+ * is {@link io.jsondb.annotation.Indexed} and of type String. The whole query is still evaluated
+ * against those candidates, so the remaining terms, the residual predicate, are applied as usual.
+ * Every other query scans the whole collection.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class QueryPlan {
+  private static final Pattern PREDICATE = Pattern.compile("^\\s*/\\.\\[(.*)\\]\\s*$", Pattern.DOTALL);
+  private static final Pattern EQUALITY = Pattern.compile(
+      "^\\s*(?:([A-Za-z_][\\w.-]*)\\s*=\\s*(?:'([^']*)'|\"([^\"]*)\")|(?:'([^']*)'|\"([^\"]*)\")\\s*=\\s*([A-Za-z_][\\w.-]*))\\s*$",
+      Pattern.DOTALL);
+
+  private final String query;
+  private final FieldIndex index;
+  private final String indexValue;
+  private final String residualPredicate;
+
+  private QueryPlan(String query, FieldIndex index, String indexValue, String residualPredicate) {
+    this.query = query;
+    this.index = index;
+    this.indexValue = indexValue;
+    this.residualPredicate = residualPredicate;
+  }
+
+  /**
+   * Chooses how to run a query, preferring a unique index and otherwise the index with the fewest
+   * documents for its value.
+   *
+   * @param jxQuery the query
+   * @param indexes the indexes of the collection, may be null
+   * @return the plan
+   */
+  public static QueryPlan plan(String jxQuery, CollectionIndexes indexes) {
+    Matcher predicate = PREDICATE.matcher(jxQuery);
+    if ((null == indexes) || !predicate.matches()) {
+      return new QueryPlan(jxQuery, null, null, predicateOf(jxQuery));
+    }
+    List<String> terms = splitConjunction(predicate.group(1));
+    if (null == terms) {
+      return new QueryPlan(jxQuery, null, null, predicate.group(1).trim());
+    }
+    FieldIndex chosen = null;
+    String chosenValue = null;
+    int chosenTerm = -1;
+    int chosenSize = Integer.MAX_VALUE;
+    for (int i = 0; i < terms.size(); i++) {
+      Matcher equality = EQUALITY.matcher(terms.get(i));
+      if (!equality.matches()) {
+        continue;
+      }
+      String fieldName = (null != equality.group(1)) ? equality.group(1) : equality.group(6);
+      String value = firstNonNull(equality.group(2), equality.group(3), equality.group(4), equality.group(5));
+      FieldIndex index = indexes.getFieldIndex(fieldName);
+      if ((null == index) || (index.getValueType() != String.class)) {
+        continue;
+      }
+      int size = index.isUnique() ? 0 : index.getIds(value).size();
+      if (size < chosenSize) {
+        chosen = index;
+        chosenValue = value;
+        chosenTerm = i;
+        chosenSize = size;
+      }
+    }
+    if (null == chosen) {
+      return new QueryPlan(jxQuery, null, null, predicate.group(1).trim());
+    }
+    StringBuilder residual = new StringBuilder();
+    for (int i = 0; i < terms.size(); i++) {
+      if (i != chosenTerm) {
+        residual.append((residual.length() == 0) ? "" : " and ").append(terms.get(i).trim());
+      }
+    }
+    return new QueryPlan(jxQuery, chosen, chosenValue, (residual.length() == 0) ? null : residual.toString());
+  }
+
+  private static String predicateOf(String jxQuery) {
+    Matcher predicate = PREDICATE.matcher(jxQuery);
+    return predicate.matches() ? predicate.group(1).trim() : jxQuery;
+  }
+
+  private static String firstNonNull(String... values) {
+    for (String value : values) {
+      if (null != value) {
+        return value;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Splits a predicate on the 'and' operators that are not inside quotes, brackets or parentheses.
+   *
+   * @return the terms or null if the predicate has a top level 'or', whose terms are not all required
+   */
+  private static List<String> splitConjunction(String predicate) {
+    List<String> terms = new ArrayList<String>();
+    int depth = 0;
+    char quote = 0;
+    int start = 0;
+    for (int i = 0; i < predicate.length(); i++) {
+      char c = predicate.charAt(i);
+      if (0 != quote) {
+        if (c == quote) {
+          quote = 0;
+        }
+      } else if ((c == '\'') || (c == '"')) {
+        quote = c;
+      } else if ((c == '(') || (c == '[')) {
+        depth++;
+      } else if ((c == ')') || (c == ']')) {
+        depth--;
+        if (depth < 0) {
+          //More than one predicate, as in /.[a='x'][b='y']
+          return null;
+        }
+      } else if ((depth == 0) && isOperator(predicate, i, "or")) {
+        return null;
+      } else if ((depth == 0) && isOperator(predicate, i, "and")) {
+        terms.add(predicate.substring(start, i));
+        start = i + 4;
+        i += 3;
+      }
+    }
+    terms.add(predicate.substring(start));
+    return terms;
+  }
+
+  /**
+   * @return true if the operator, surrounded by whitespace, follows the whitespace at the given index
+   */
+  private static boolean isOperator(String predicate, int index, String operator) {
+    int end = index + operator.length() + 1;
+    return Character.isWhitespace(predicate.charAt(index)) && predicate.startsWith(operator, index + 1)
+        && (end < predicate.length()) && Character.isWhitespace(predicate.charAt(end));
+  }
+
+  public String getQuery() {
+    return query;
+  }
+
+  /**
+   * @return true if the query runs against the documents of an index instead of the whole collection
+   */
+  public boolean isIndexed() {
+    return null != index;
+  }
+
+  /**
+   * @return the field whose index is used, null for a full scan
+   */
+  public String getIndexedField() {
+    return isIndexed() ? index.getFieldName() : null;
+  }
+
+  /**
+   * @return the value looked up in the index, null for a full scan
+   */
+  public String getIndexValue() {
+    return indexValue;
+  }
+
+  /**
+   * @return the part of the predicate not answered by the index, null if there is none
+   */
+  public String getResidualPredicate() {
+    return residualPredicate;
+  }
+
+  /**
+   * @param collectionSize number of documents in the collection
+   * @return the number of documents the query is expected to be evaluated against
+   */
+  public int estimateDocuments(int collectionSize) {
+    return isIndexed() ? index.getIds(indexValue).size() : collectionSize;
+  }
+
+  /**
+   * Returns the documents of the collection the query has to be evaluated against, in collection order.
+   *
+   * @param collection the collection, the caller must hold its read lock
+   * @return the documents the index holds for the value, or all documents for a full scan
+   */
+  public <T> List<T> candidates(Map<Object, T> collection) {
+    if (!isIndexed()) {
+      return new ArrayList<T>(collection.values());
+    }
+    Set<Object> ids = index.getIds(indexValue);
+    if (ids.isEmpty()) {
+      return Collections.emptyList();
+    }
+    List<T> candidates = new ArrayList<T>(ids.size());
+    if (ids.size() == 1) {
+      T document = collection.get(ids.iterator().next());
+      if (null != document) {
+        candidates.add(document);
+      }
+      return candidates;
+    }
+    //Walking the keys keeps the collection order, which is much cheaper than evaluating the query on every document
+    for (Map.Entry<Object, T> entry : collection.entrySet()) {
+      if (ids.contains(entry.getKey())) {
+        candidates.add(entry.getValue());
+      }
+    }
+    return candidates;
+  }
+
+  /**
+   * @param candidates the documents returned by {@link #candidates(Map)}
+   * @return the candidates that match the whole query
+   */
+  @SuppressWarnings("unchecked")
+  public <T> List<T> evaluate(List<T> candidates) {
+    List<T> matches = new ArrayList<T>();
+    if (candidates.isEmpty()) {
+      return matches;
+    }
+    Iterator<T> resultItr = JXPathContext.newContext(candidates).iterate(query);
+    while (resultItr.hasNext()) {
+      matches.add(resultItr.next());
+    }
+    return matches;
+  }
+
+  @Override
+  public String toString() {
+    return isIndexed() ? ("index lookup " + getIndexedField() + "='" + indexValue + "'"
+        + ((null == residualPredicate) ? "" : " filtered by " + residualPredicate)) : ("full scan filtered by " + residualPredicate);
+  }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.query;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.jsondb.metrics.HeapEstimator;
+
+/**
+ * A size bounded, least recently used cache of query results for a single collection.
+ *
+ * The cache holds references to the matching in-memory documents, not copies, so callers
+ * still copy (and decrypt) every document they hand out. Each entry is tagged with the
+ * modification count the collection had when the query was evaluated, an entry is only
+ * served while the collection still has that same modification count.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class QueryResultCache {
+
+  private final int maxEntries;
+  private final Map<String, CachedResult> entries;
+
+  private long hitCount;
+  private long missCount;
+  private long evictionCount;
+
+  public QueryResultCache(final int maxEntries) {
+    this.maxEntries = maxEntries;
+    this.entries = new LinkedHashMap<String, CachedResult>(16, 0.75f, true) {
+      private static final long serialVersionUID = -5391786052376231147L;
+
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+        if (size() > QueryResultCache.this.maxEntries) {
+          evictionCount++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * Looks up the documents that matched the query when the collection was at the given modification count.
+   *
+   * @param jxQuery the query string
+   * @param modificationCount the current modification count of the collection
+   * @return the matching documents or null if there is no valid entry for the query
+   */
+  public synchronized List<?> get(String jxQuery, long modificationCount) {
+    CachedResult result = entries.get(jxQuery);
+    if (null == result) {
+      missCount++;
+      return null;
+    }
+    if (result.modificationCount != modificationCount) {
+      entries.remove(jxQuery);
+      missCount++;
+      return null;
+    }
+    hitCount++;
+    return result.documents;
+  }
+
+  /**
+   * Caches the documents that matched a query.
+   *
+   * @param jxQuery the query string
+   * @param modificationCount the modification count of the collection read before evaluating the query
+   * @param documents the in-memory documents that matched the query
+   */
+  public synchronized void put(String jxQuery, long modificationCount, List<?> documents) {
+    entries.put(jxQuery, new CachedResult(modificationCount, Collections.unmodifiableList(documents)));
+  }
+
+  public synchronized void clear() {
+    entries.clear();
+  }
+
+  public synchronized int size() {
+    return entries.size();
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  /**
+   * Estimates the heap held by the cache. The cached documents are the in-memory documents of the
+   * collection, so only the query strings and the result lists are counted.
+   *
+   * @return estimated size in bytes
+   */
+  public synchronized long estimateHeapBytes() {
+    long bytes = HeapEstimator.linkedHashMap(entries.size());
+    for (Map.Entry<String, CachedResult> entry : entries.entrySet()) {
+      // CachedResult, the unmodifiable wrapper and the list
+      bytes += HeapEstimator.string(entry.getKey()) + 24 + 24 + HeapEstimator.arrayList(entry.getValue().documents.size());
+    }
+    return bytes;
+  }
+
+  public synchronized long getHitCount() {
+    return hitCount;
+  }
+
+  public synchronized long getMissCount() {
+    return missCount;
+  }
+
+  public synchronized long getEvictionCount() {
+    return evictionCount;
+  }
+
+  /**
+   * @return fraction of lookups that were served from the cache, 0 if there were no lookups yet
+   */
+  public synchronized double getHitRate() {
+    long lookups = hitCount + missCount;
+    if (lookups == 0) {
+      return 0;
+    }
+    return (double) hitCount / lookups;
+  }
+
+  private static class CachedResult {
+    private final long modificationCount;
+    private final List<?> documents;
+
+    private CachedResult(long modificationCount, List<?> documents) {
+      this.modificationCount = modificationCount;
+      this.documents = documents;
+    }
+  }
+}
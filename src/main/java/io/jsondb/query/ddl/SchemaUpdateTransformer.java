@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.query.ddl;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import io.jsondb.InvalidJsonDbApiUsageException;
+import io.jsondb.JsonDBException;
+import io.jsondb.crypto.ICipher;
+
+/**
+ * Applies all the ADD, RENAME and DELETE operations of a {@link CollectionSchemaUpdate} to a single
+ * document line at the JSON token level, without binding it to its POJO. Fields of the document
+ * that no operation mentions are copied as they are.
+ *
+ * <ul>
+ * <li>a deleted field is skipped</li>
+ * <li>a renamed field is written under its new name, an existing field by the new name is replaced,
+ * documents that do not have the renamed field keep their field by the new name</li>
+ * <li>an added field is appended with its default value, replacing any existing value</li>
+ * </ul>
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class SchemaUpdateTransformer {
+  private final JsonFactory jsonFactory;
+  private final Map<String, String> renames = new LinkedHashMap<String, String>();
+  private final Map<String, Object> additions = new LinkedHashMap<String, Object>();
+  private final Set<String> skipped = new HashSet<String>();
+  private final Map<String, String> renameSources = new LinkedHashMap<String, String>();
+
+  /**
+   * @param update the operations to apply
+   * @param jsonFactory factory of the ObjectMapper of the db, it must have a codec to write the default values
+   * @param cipher cipher used to encrypt the default values of secret ADD operations, may be null if there are none
+   */
+  public SchemaUpdateTransformer(CollectionSchemaUpdate update, JsonFactory jsonFactory, ICipher cipher) {
+    this.jsonFactory = jsonFactory;
+    for (Entry<String, RenameOperation> entry : update.getRenameOperations().entrySet()) {
+      renames.put(entry.getKey(), entry.getValue().getNewName());
+      renameSources.put(entry.getValue().getNewName(), entry.getKey());
+    }
+    for (Entry<String, AddOperation> entry : update.getAddOperations().entrySet()) {
+      AddOperation op = entry.getValue();
+      Object value = op.getDefaultValue();
+      if (op.isSecret()) {
+        if (null == cipher) {
+          throw new InvalidJsonDbApiUsageException("Secret field '" + entry.getKey() + "' cannot be added as the db has no cipher");
+        }
+        value = cipher.encrypt((String) value);
+      }
+      additions.put(entry.getKey(), value);
+      skipped.add(entry.getKey());
+    }
+    skipped.addAll(update.getDeleteOperations().keySet());
+    skipped.removeAll(renames.keySet());
+    renameSources.keySet().removeAll(skipped);
+    renameSources.keySet().removeAll(renames.keySet());
+  }
+
+  /**
+   * @return true if applying the update changes nothing
+   */
+  public boolean isEmpty() {
+    return renames.isEmpty() && additions.isEmpty() && skipped.isEmpty();
+  }
+
+  /**
+   * @param document a single document serialized as a JSON object
+   * @return the document with the operations applied
+   */
+  public String transform(String document) {
+    StringWriter out = new StringWriter(document.length() + 32);
+    try {
+      JsonParser parser = jsonFactory.createParser(document);
+      JsonGenerator generator = jsonFactory.createGenerator(out);
+      try {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+          throw new JsonDBException("Expected a JSON object but found: " + document);
+        }
+        Set<String> replaced = replacedByRename(document);
+        generator.writeStartObject();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          String fieldName = parser.getCurrentName();
+          parser.nextToken();
+          if (skipped.contains(fieldName) || replaced.contains(fieldName)) {
+            parser.skipChildren();
+            continue;
+          }
+          String newName = renames.get(fieldName);
+          generator.writeFieldName((null == newName) ? fieldName : newName);
+          generator.copyCurrentStructure(parser);
+        }
+        for (Entry<String, Object> entry : additions.entrySet()) {
+          generator.writeFieldName(entry.getKey());
+          generator.writeObject(entry.getValue());
+        }
+        generator.writeEndObject();
+      } finally {
+        generator.close();
+        parser.close();
+      }
+    } catch (IOException e) {
+      throw new JsonDBException("Failed to apply schema update to document: " + document, e);
+    }
+    return out.toString();
+  }
+
+  /**
+   * Finds the fields of the document that are overwritten by a renamed field, which needs a first
+   * pass over the top level field names as the renamed field may come after them.
+   */
+  private Set<String> replacedByRename(String document) throws IOException {
+    Set<String> replaced = new HashSet<String>();
+    if (renameSources.isEmpty()) {
+      return replaced;
+    }
+    JsonParser parser = jsonFactory.createParser(document);
+    try {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        return replaced;
+      }
+      Set<String> fieldNames = new HashSet<String>();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        fieldNames.add(parser.getCurrentName());
+        parser.nextToken();
+        parser.skipChildren();
+      }
+      for (Entry<String, String> entry : renameSources.entrySet()) {
+        if (fieldNames.contains(entry.getValue())) {
+          replaced.add(entry.getKey());
+        }
+      }
+    } finally {
+      parser.close();
+    }
+    return replaced;
+  }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.reactive;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.jsondb.JsonDBException;
+
+/**
+ * Publishes the changes made to the documents of a collection to any number of subscribers.
+ *
+ * Writers are never held up by subscribers: every subscriber has a buffer of bounded size holding
+ * the changes it has not yet requested, and a subscriber that falls further behind than that is
+ * failed with a {@link JsonDBException}. Buffered changes refer to the stored documents, the copy a
+ * subscriber receives is made when the change is sent. Changes are sent on the given executor.
+ *
+ * @param <T> type of the documents of the collection
+ * @version 1.0 19-Oct-2026
+ */
+public abstract class ChangeFeed<T> implements Flow.Publisher<DocumentChange<T>> {
+  private final String collectionName;
+  private final int bufferSize;
+  private final Executor executor;
+  private final CopyOnWriteArrayList<ChangeSubscription> subscriptions = new CopyOnWriteArrayList<ChangeSubscription>();
+
+  /**
+   * @param collectionName name of the collection whose changes are published
+   * @param bufferSize maximum number of changes buffered per subscriber
+   * @param executor executor on which the changes are sent
+   */
+  public ChangeFeed(String collectionName, int bufferSize, Executor executor) {
+    this.collectionName = collectionName;
+    this.bufferSize = Math.max(1, bufferSize);
+    this.executor = executor;
+  }
+
+  /**
+   * Copies a stored document for handing out.
+   *
+   * @param document the stored document
+   * @return the copy, or null if it has expired
+   */
+  protected abstract T copy(T document);
+
+  public boolean hasSubscribers() {
+    return !subscriptions.isEmpty();
+  }
+
+  /**
+   * Hands a change to every current subscriber.
+   *
+   * @param type kind of change
+   * @param id id of the changed document
+   * @param document the stored document after the change, or the removed document
+   */
+  public void publish(DocumentChange.Type type, Object id, T document) {
+    for (ChangeSubscription subscription : subscriptions) {
+      subscription.offer(new PendingChange<T>(type, id, document));
+    }
+  }
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super DocumentChange<T>> subscriber) {
+    if (null == subscriber) {
+      throw new NullPointerException("subscriber");
+    }
+    ChangeSubscription subscription = new ChangeSubscription(subscriber);
+    subscriptions.add(subscription);
+    subscriber.onSubscribe(subscription);
+  }
+
+  private static class PendingChange<T> {
+    final DocumentChange.Type type;
+    final Object id;
+    final T document;
+
+    PendingChange(DocumentChange.Type type, Object id, T document) {
+      this.type = type;
+      this.id = id;
+      this.document = document;
+    }
+  }
+
+  private class ChangeSubscription implements Flow.Subscription, Runnable {
+    private final Flow.Subscriber<? super DocumentChange<T>> subscriber;
+    private final ArrayBlockingQueue<PendingChange<T>> pending = new ArrayBlockingQueue<PendingChange<T>>(bufferSize);
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile boolean overflowed;
+    private volatile Throwable failure;
+    private volatile boolean done;
+
+    ChangeSubscription(Flow.Subscriber<? super DocumentChange<T>> subscriber) {
+      this.subscriber = subscriber;
+    }
+
+    void offer(PendingChange<T> change) {
+      if (!pending.offer(change)) {
+        overflowed = true;
+      }
+      schedule();
+    }
+
+    @Override
+    public void request(long n) {
+      if (n < 1) {
+        failure = new IllegalArgumentException("Requested " + n + " items, the number of items requested must be positive");
+      } else {
+        long current;
+        do {
+          current = requested.get();
+        } while (!requested.compareAndSet(current, QueryPublisher.addCap(current, n)));
+      }
+      schedule();
+    }
+
+    @Override
+    public void cancel() {
+      done = true;
+      subscriptions.remove(this);
+    }
+
+    private void schedule() {
+      if (wip.getAndIncrement() == 0) {
+        executor.execute(this);
+      }
+    }
+
+    @Override
+    public void run() {
+      int missed = 1;
+      do {
+        if (done) {
+          pending.clear();
+          return;
+        }
+        if (overflowed && (null == failure)) {
+          failure = new JsonDBException("Subscriber to changes of collection " + collectionName
+              + " fell more than " + bufferSize + " changes behind");
+        }
+        if (null != failure) {
+          cancel();
+          pending.clear();
+          subscriber.onError(failure);
+          return;
+        }
+        long wanted = requested.get();
+        long sent = 0;
+        PendingChange<T> change;
+        while ((sent != wanted) && !done && (null != (change = pending.poll()))) {
+          T copy;
+          try {
+            copy = copy(change.document);
+          } catch (RuntimeException e) {
+            failure = e;
+            break;
+          }
+          subscriber.onNext(new DocumentChange<T>(change.type, collectionName, change.id, copy));
+          sent++;
+        }
+        if ((wanted != Long.MAX_VALUE) && (sent > 0)) {
+          requested.addAndGet(-sent);
+        }
+        if (null != failure) {
+          continue;
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+  }
+}
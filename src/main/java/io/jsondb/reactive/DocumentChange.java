@@ -0,0 +1,66 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.reactive;
+
+/**
+ * A change to a single document of a collection, as published by {@link ChangeFeed}.
+ *
+ * @param <T> type of the documents of the collection
+ * @version 1.0 19-Oct-2026
+ */
+public class DocumentChange<T> {
+
+  public enum Type {
+    INSERTED, UPDATED, REMOVED
+  }
+
+  private final Type type;
+  private final String collectionName;
+  private final Object id;
+  private final T document;
+
+  public DocumentChange(Type type, String collectionName, Object id, T document) {
+    this.type = type;
+    this.collectionName = collectionName;
+    this.id = id;
+    this.document = document;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public String getCollectionName() {
+    return collectionName;
+  }
+
+  public Object getId() {
+    return id;
+  }
+
+  /**
+   * @return a copy of the document after the change, for a removal the removed document,
+   *         null if the document had already expired
+   */
+  public T getDocument() {
+    return document;
+  }
+}
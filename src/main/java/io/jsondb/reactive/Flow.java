@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.reactive;
+
+/**
+ * The publish/subscribe interfaces of java.util.concurrent.Flow, which this library cannot use while
+ * it still runs on Java 8. They have exactly the same methods and contracts, so adapting them to
+ * java.util.concurrent.Flow or to org.reactivestreams takes a one line wrapper per interface.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public final class Flow {
+
+  private Flow() {
+  }
+
+  /**
+   * A producer of items received by subscribers in response to their demand.
+   *
+   * @param <T> type of the items
+   */
+  public interface Publisher<T> {
+    void subscribe(Subscriber<? super T> subscriber);
+  }
+
+  /**
+   * A receiver of items, nothing is sent to it before it requests items through its subscription.
+   *
+   * @param <T> type of the items
+   */
+  public interface Subscriber<T> {
+    void onSubscribe(Subscription subscription);
+
+    void onNext(T item);
+
+    void onError(Throwable throwable);
+
+    void onComplete();
+  }
+
+  /**
+   * The link between a publisher and a subscriber, used by the subscriber to signal demand.
+   */
+  public interface Subscription {
+    /**
+     * Adds n items to the demand, a value less than 1 is a protocol error that fails the subscription.
+     *
+     * @param n number of additional items wanted
+     */
+    void request(long n);
+
+    void cancel();
+  }
+}
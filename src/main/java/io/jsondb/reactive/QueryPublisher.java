@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.reactive;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes the results of a query in response to demand.
+ *
+ * Every subscription runs the query afresh and keeps only references to the matching documents,
+ * each document is copied, and decrypted, just before it is sent. However large the result, at most
+ * the requested number of copies exist because of it. Items are sent on the thread that requests them.
+ *
+ * @param <T> type of the documents
+ * @version 1.0 19-Oct-2026
+ */
+public abstract class QueryPublisher<T> implements Flow.Publisher<T> {
+
+  /**
+   * Runs the query.
+   *
+   * @return the matching stored documents, not copies
+   */
+  protected abstract List<T> query();
+
+  /**
+   * Copies a stored document for handing out.
+   *
+   * @param document a document returned by {@link #query()}
+   * @return the copy or null if the document is to be skipped
+   */
+  protected abstract T copy(T document);
+
+  @Override
+  public void subscribe(Flow.Subscriber<? super T> subscriber) {
+    if (null == subscriber) {
+      throw new NullPointerException("subscriber");
+    }
+    List<T> documents;
+    try {
+      documents = query();
+    } catch (RuntimeException e) {
+      subscriber.onSubscribe(new Flow.Subscription() {
+        @Override
+        public void request(long n) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+      });
+      subscriber.onError(e);
+      return;
+    }
+    ResultSubscription subscription = new ResultSubscription(subscriber, documents.iterator());
+    subscriber.onSubscribe(subscription);
+    subscription.drain();
+  }
+
+  private class ResultSubscription implements Flow.Subscription {
+    private final Flow.Subscriber<? super T> subscriber;
+    private final Iterator<T> documents;
+    private final AtomicLong requested = new AtomicLong();
+    private final AtomicInteger wip = new AtomicInteger();
+    private volatile Throwable failure;
+    private volatile boolean done;
+
+    ResultSubscription(Flow.Subscriber<? super T> subscriber, Iterator<T> documents) {
+      this.subscriber = subscriber;
+      this.documents = documents;
+    }
+
+    @Override
+    public void request(long n) {
+      if (n < 1) {
+        failure = new IllegalArgumentException("Requested " + n + " items, the number of items requested must be positive");
+      } else {
+        long current;
+        do {
+          current = requested.get();
+        } while (!requested.compareAndSet(current, addCap(current, n)));
+      }
+      drain();
+    }
+
+    @Override
+    public void cancel() {
+      done = true;
+    }
+
+    /**
+     * Sends as many documents as requested. Only one thread sends at a time, a request made while
+     * another thread is sending, including from within onNext, is picked up by that thread. Errors
+     * are signalled from here too, so they never overlap an onNext.
+     */
+    void drain() {
+      if (wip.getAndIncrement() != 0) {
+        return;
+      }
+      int missed = 1;
+      do {
+        if (done) {
+          return;
+        }
+        if (null != failure) {
+          done = true;
+          subscriber.onError(failure);
+          return;
+        }
+        long wanted = requested.get();
+        long sent = 0;
+        while ((sent != wanted) && !done && (null == failure) && documents.hasNext()) {
+          T copy;
+          try {
+            copy = copy(documents.next());
+          } catch (RuntimeException e) {
+            failure = e;
+            break;
+          }
+          if (null != copy) {
+            subscriber.onNext(copy);
+            sent++;
+          }
+        }
+        if (null != failure) {
+          continue;
+        }
+        if (done) {
+          return;
+        }
+        if (!documents.hasNext()) {
+          done = true;
+          subscriber.onComplete();
+          return;
+        }
+        if (wanted != Long.MAX_VALUE) {
+          requested.addAndGet(-sent);
+        }
+        missed = wip.addAndGet(-missed);
+      } while (missed != 0);
+    }
+  }
+
+  static long addCap(long a, long b) {
+    long sum = a + b;
+    return (sum < 0) ? Long.MAX_VALUE : sum;
+  }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import io.jsondb.AsyncJsonDBTemplate;
+import io.jsondb.InvalidJsonDbApiUsageException;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.query.Update;
+import io.jsondb.tests.model.Instance;
+import io.jsondb.tests.util.TestUtils;
+
+/**
+ * Unit tests for the CompletableFuture based async operations
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class AsyncOperationsTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/asyncOperationsTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+
+  private JsonDBTemplate jsonDBTemplate = null;
+  private AsyncJsonDBTemplate asyncTemplate = null;
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    jsonDBTemplate = new JsonDBTemplate(dbFilesLocation, "io.jsondb.tests.model", new DefaultAESCBCCipher("1r8+24pibarAWgS85/Heeg=="));
+    asyncTemplate = new AsyncJsonDBTemplate(jsonDBTemplate);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    asyncTemplate.shutdown();
+    Util.delete(dbFilesFolder);
+  }
+
+  @Test
+  public void testInsertThenFind() throws Exception {
+    asyncTemplate.insert(TestUtils.newInstance("07")).get(5, TimeUnit.SECONDS);
+    Instance instance = asyncTemplate.findById("07", Instance.class).get(5, TimeUnit.SECONDS);
+    assertEquals("b87eb02f5dd7e5232d7b0fc30a5015e4", instance.getPrivateKey());
+    assertEquals(7, asyncTemplate.findAll(Instance.class).get(5, TimeUnit.SECONDS).size());
+  }
+
+  @Test
+  public void testOperationsTakeEffectInCallOrder() throws Exception {
+    CompletableFuture<Integer> before = asyncTemplate.count("/.", Instance.class);
+    asyncTemplate.insert(TestUtils.newInstance("07"));
+    CompletableFuture<Integer> afterInsert = asyncTemplate.count("/.", Instance.class);
+    asyncTemplate.findAndModify("/.[id='07']", Update.update("hostname", "modified"), Instance.class);
+    CompletableFuture<Instance> modified = asyncTemplate.findById("07", Instance.class);
+    asyncTemplate.remove(TestUtils.newInstance("07"), Instance.class);
+    CompletableFuture<Instance> removed = asyncTemplate.findById("07", Instance.class);
+
+    assertEquals(Integer.valueOf(6), before.get(5, TimeUnit.SECONDS));
+    assertEquals(Integer.valueOf(7), afterInsert.get(5, TimeUnit.SECONDS));
+    assertEquals("modified", modified.get(5, TimeUnit.SECONDS).getHostname());
+    assertNull(removed.get(5, TimeUnit.SECONDS));
+  }
+
+  @Test
+  public void testWritesToOneCollectionAreOrdered() throws Exception {
+    List<CompletableFuture<Void>> writes = new ArrayList<CompletableFuture<Void>>();
+    for (int i = 0; i < 20; i++) {
+      Instance instance = TestUtils.newInstance("07");
+      instance.setHostname("host-" + i);
+      writes.add(asyncTemplate.upsert(instance));
+    }
+    CompletableFuture.allOf(writes.toArray(new CompletableFuture<?>[writes.size()])).get(10, TimeUnit.SECONDS);
+    assertEquals("host-19", jsonDBTemplate.findById("07", Instance.class).getHostname());
+  }
+
+  @Test
+  public void testFailureCompletesFutureAndDoesNotBlockQueue() throws Exception {
+    CompletableFuture<Void> duplicate = asyncTemplate.insert(TestUtils.newInstance("01"));
+    CompletableFuture<Void> next = asyncTemplate.insert(TestUtils.newInstance("07"));
+    try {
+      duplicate.get(5, TimeUnit.SECONDS);
+      assertTrue("Expected the duplicate insert to fail", false);
+    } catch (ExecutionException e) {
+      assertTrue(e.getCause() instanceof InvalidJsonDbApiUsageException);
+    }
+    next.get(5, TimeUnit.SECONDS);
+    assertEquals(7, jsonDBTemplate.findAll(Instance.class).size());
+  }
+
+  @Test
+  public void testDocumentIsCopiedWhenSubmitted() throws Exception {
+    Instance instance = TestUtils.newInstance(null);
+    instance.setHostname("submitted");
+    CompletableFuture<Void> insert = asyncTemplate.insert(instance);
+    instance.setHostname("changed later");
+    insert.get(5, TimeUnit.SECONDS);
+
+    assertNull(instance.getId());
+    List<Instance> stored = jsonDBTemplate.find("/.[hostname='submitted']", Instance.class);
+    assertEquals(1, stored.size());
+    assertEquals(0, jsonDBTemplate.find("/.[hostname='changed later']", Instance.class).size());
+  }
+}
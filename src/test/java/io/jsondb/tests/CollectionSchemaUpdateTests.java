@@ -22,6 +22,7 @@ package io.jsondb.tests;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
@@ -38,6 +39,8 @@ import com.google.common.io.Files;
 import io.jsondb.InvalidJsonDbApiUsageException;
 import io.jsondb.JsonDBTemplate;
 import io.jsondb.Util;
+import io.jsondb.metrics.InMemoryMetricsRegistry;
+import io.jsondb.metrics.MetricNames;
 import io.jsondb.query.ddl.AddOperation;
 import io.jsondb.query.ddl.CollectionSchemaUpdate;
 import io.jsondb.query.ddl.DeleteOperation;
@@ -87,16 +90,16 @@ public class CollectionSchemaUpdateTests {
 
     String[] expectedLinesAtEnd = {
         "{\"schemaVersion\":\"1.0\"}",
-        "{\"id\":\"001\",\"hostname\":\"eclb-54-01\",\"admin\":\"admin\",\"osName\":null}",
-        "{\"id\":\"002\",\"hostname\":\"eclb-54-02\",\"admin\":\"admin\",\"osName\":null}",
-        "{\"id\":\"003\",\"hostname\":\"eclb-54-03\",\"admin\":\"admin\",\"osName\":null}",
-        "{\"id\":\"004\",\"hostname\":\"eclb-54-04\",\"admin\":\"admin\",\"osName\":null}",
-        "{\"id\":\"005\",\"hostname\":\"eclb-54-05\",\"admin\":\"admin\",\"osName\":null}",
-        "{\"id\":\"006\",\"hostname\":\"eclb-54-06\",\"admin\":\"admin\",\"osName\":null}",
-        "{\"id\":\"007\",\"hostname\":\"eclb-54-07\",\"admin\":\"admin\",\"osName\":null}",
-        "{\"id\":\"008\",\"hostname\":\"eclb-54-08\",\"admin\":\"admin\",\"osName\":null}",
-        "{\"id\":\"009\",\"hostname\":\"eclb-54-09\",\"admin\":\"admin\",\"osName\":null}",
-        "{\"id\":\"010\",\"hostname\":\"eclb-54-10\",\"admin\":\"admin\",\"osName\":null}"};
+        "{\"id\":\"001\",\"hostname\":\"eclb-54-01\",\"admin\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"002\",\"hostname\":\"eclb-54-02\",\"admin\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"003\",\"hostname\":\"eclb-54-03\",\"admin\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"004\",\"hostname\":\"eclb-54-04\",\"admin\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"005\",\"hostname\":\"eclb-54-05\",\"admin\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"006\",\"hostname\":\"eclb-54-06\",\"admin\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"007\",\"hostname\":\"eclb-54-07\",\"admin\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"008\",\"hostname\":\"eclb-54-08\",\"admin\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"009\",\"hostname\":\"eclb-54-09\",\"admin\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"010\",\"hostname\":\"eclb-54-10\",\"admin\":\"admin\",\"deletedField\":\"yes\"}"};
 
     TestUtils.checkLastLines(loadbalancerJson, expectedLinesAtEnd);
   }
@@ -114,16 +117,16 @@ public class CollectionSchemaUpdateTests {
 
     String[] expectedLinesAtEnd = {
         "{\"schemaVersion\":\"1.0\"}",
-        "{\"id\":\"001\",\"hostname\":\"eclb-54-01\",\"username\":\"admin\",\"osName\":\"mac\"}",
-        "{\"id\":\"002\",\"hostname\":\"eclb-54-02\",\"username\":\"admin\",\"osName\":\"mac\"}",
-        "{\"id\":\"003\",\"hostname\":\"eclb-54-03\",\"username\":\"admin\",\"osName\":\"mac\"}",
-        "{\"id\":\"004\",\"hostname\":\"eclb-54-04\",\"username\":\"admin\",\"osName\":\"mac\"}",
-        "{\"id\":\"005\",\"hostname\":\"eclb-54-05\",\"username\":\"admin\",\"osName\":\"mac\"}",
-        "{\"id\":\"006\",\"hostname\":\"eclb-54-06\",\"username\":\"admin\",\"osName\":\"mac\"}",
-        "{\"id\":\"007\",\"hostname\":\"eclb-54-07\",\"username\":\"admin\",\"osName\":\"mac\"}",
-        "{\"id\":\"008\",\"hostname\":\"eclb-54-08\",\"username\":\"admin\",\"osName\":\"mac\"}",
-        "{\"id\":\"009\",\"hostname\":\"eclb-54-09\",\"username\":\"admin\",\"osName\":\"mac\"}",
-        "{\"id\":\"010\",\"hostname\":\"eclb-54-10\",\"username\":\"admin\",\"osName\":\"mac\"}"};
+        "{\"id\":\"001\",\"hostname\":\"eclb-54-01\",\"username\":\"admin\",\"deletedField\":\"yes\",\"osName\":\"mac\"}",
+        "{\"id\":\"002\",\"hostname\":\"eclb-54-02\",\"username\":\"admin\",\"deletedField\":\"yes\",\"osName\":\"mac\"}",
+        "{\"id\":\"003\",\"hostname\":\"eclb-54-03\",\"username\":\"admin\",\"deletedField\":\"yes\",\"osName\":\"mac\"}",
+        "{\"id\":\"004\",\"hostname\":\"eclb-54-04\",\"username\":\"admin\",\"deletedField\":\"yes\",\"osName\":\"mac\"}",
+        "{\"id\":\"005\",\"hostname\":\"eclb-54-05\",\"username\":\"admin\",\"deletedField\":\"yes\",\"osName\":\"mac\"}",
+        "{\"id\":\"006\",\"hostname\":\"eclb-54-06\",\"username\":\"admin\",\"deletedField\":\"yes\",\"osName\":\"mac\"}",
+        "{\"id\":\"007\",\"hostname\":\"eclb-54-07\",\"username\":\"admin\",\"deletedField\":\"yes\",\"osName\":\"mac\"}",
+        "{\"id\":\"008\",\"hostname\":\"eclb-54-08\",\"username\":\"admin\",\"deletedField\":\"yes\",\"osName\":\"mac\"}",
+        "{\"id\":\"009\",\"hostname\":\"eclb-54-09\",\"username\":\"admin\",\"deletedField\":\"yes\",\"osName\":\"mac\"}",
+        "{\"id\":\"010\",\"hostname\":\"eclb-54-10\",\"username\":\"admin\",\"deletedField\":\"yes\",\"osName\":\"mac\"}"};
 
     TestUtils.checkLastLines(loadbalancerJson, expectedLinesAtEnd);
   }
@@ -141,20 +144,79 @@ public class CollectionSchemaUpdateTests {
 
     String[] expectedLinesAtEnd = {
         "{\"schemaVersion\":\"1.0\"}",
-        "{\"id\":\"001\",\"hostname\":\"eclb-54-01\",\"username\":\"admin\",\"osName\":null}",
-        "{\"id\":\"002\",\"hostname\":\"eclb-54-02\",\"username\":\"admin\",\"osName\":null}",
-        "{\"id\":\"003\",\"hostname\":\"eclb-54-03\",\"username\":\"admin\",\"osName\":null}",
-        "{\"id\":\"004\",\"hostname\":\"eclb-54-04\",\"username\":\"admin\",\"osName\":null}",
-        "{\"id\":\"005\",\"hostname\":\"eclb-54-05\",\"username\":\"admin\",\"osName\":null}",
-        "{\"id\":\"006\",\"hostname\":\"eclb-54-06\",\"username\":\"admin\",\"osName\":null}",
-        "{\"id\":\"007\",\"hostname\":\"eclb-54-07\",\"username\":\"admin\",\"osName\":null}",
-        "{\"id\":\"008\",\"hostname\":\"eclb-54-08\",\"username\":\"admin\",\"osName\":null}",
-        "{\"id\":\"009\",\"hostname\":\"eclb-54-09\",\"username\":\"admin\",\"osName\":null}",
-        "{\"id\":\"010\",\"hostname\":\"eclb-54-10\",\"username\":\"admin\",\"osName\":null}"};
+        "{\"id\":\"001\",\"hostname\":\"eclb-54-01\",\"username\":\"admin\"}",
+        "{\"id\":\"002\",\"hostname\":\"eclb-54-02\",\"username\":\"admin\"}",
+        "{\"id\":\"003\",\"hostname\":\"eclb-54-03\",\"username\":\"admin\"}",
+        "{\"id\":\"004\",\"hostname\":\"eclb-54-04\",\"username\":\"admin\"}",
+        "{\"id\":\"005\",\"hostname\":\"eclb-54-05\",\"username\":\"admin\"}",
+        "{\"id\":\"006\",\"hostname\":\"eclb-54-06\",\"username\":\"admin\"}",
+        "{\"id\":\"007\",\"hostname\":\"eclb-54-07\",\"username\":\"admin\"}",
+        "{\"id\":\"008\",\"hostname\":\"eclb-54-08\",\"username\":\"admin\"}",
+        "{\"id\":\"009\",\"hostname\":\"eclb-54-09\",\"username\":\"admin\"}",
+        "{\"id\":\"010\",\"hostname\":\"eclb-54-10\",\"username\":\"admin\"}"};
 
     TestUtils.checkLastLines(loadbalancerJson, expectedLinesAtEnd);
   }
   
+  @Test
+  public void test_AllOperationsInOnePass() {
+    InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+    jsonDBTemplate.getDbConfig().setMetricsRegistry(metrics);
+
+    CollectionSchemaUpdate cu = CollectionSchemaUpdate.update("username", new RenameOperation("osName"))
+        .set("deletedField", new RenameOperation("username"))
+        .set("hostname", new AddOperation("eclb", false))
+        .set("obsoleteField", new DeleteOperation());
+    jsonDBTemplate.updateCollectionSchema(cu, LoadBalancer.class);
+
+    assertFalse(jsonDBTemplate.isCollectionReadonly(LoadBalancer.class));
+    assertEquals(1, metrics.getHistogram("loadbalancer", MetricNames.FILE_WRITE).getCount());
+    assertNull(metrics.getHistogram("loadbalancer", MetricNames.LOAD));
+
+    LoadBalancer lb = jsonDBTemplate.findById("004", LoadBalancer.class);
+    assertEquals("admin", lb.getOsName());
+    assertEquals("yes", lb.getUsername());
+    assertEquals("eclb", lb.getHostname());
+
+    String[] expectedLinesAtEnd = {
+        "{\"schemaVersion\":\"1.0\"}",
+        "{\"id\":\"001\",\"osName\":\"admin\",\"username\":\"yes\",\"hostname\":\"eclb\"}",
+        "{\"id\":\"002\",\"osName\":\"admin\",\"username\":\"yes\",\"hostname\":\"eclb\"}",
+        "{\"id\":\"003\",\"osName\":\"admin\",\"username\":\"yes\",\"hostname\":\"eclb\"}",
+        "{\"id\":\"004\",\"osName\":\"admin\",\"username\":\"yes\",\"hostname\":\"eclb\"}",
+        "{\"id\":\"005\",\"osName\":\"admin\",\"username\":\"yes\",\"hostname\":\"eclb\"}",
+        "{\"id\":\"006\",\"osName\":\"admin\",\"username\":\"yes\",\"hostname\":\"eclb\"}",
+        "{\"id\":\"007\",\"osName\":\"admin\",\"username\":\"yes\",\"hostname\":\"eclb\"}",
+        "{\"id\":\"008\",\"osName\":\"admin\",\"username\":\"yes\",\"hostname\":\"eclb\"}",
+        "{\"id\":\"009\",\"osName\":\"admin\",\"username\":\"yes\",\"hostname\":\"eclb\"}",
+        "{\"id\":\"010\",\"osName\":\"admin\",\"username\":\"yes\",\"hostname\":\"eclb\"}"};
+
+    TestUtils.checkLastLines(loadbalancerJson, expectedLinesAtEnd);
+  }
+
+  @Test
+  public void test_RenameOfMissingFieldKeepsExistingField() {
+    CollectionSchemaUpdate cu = CollectionSchemaUpdate.update("obsoleteField", new RenameOperation("username"));
+    jsonDBTemplate.updateCollectionSchema(cu, LoadBalancer.class);
+
+    assertEquals("admin", jsonDBTemplate.findById("004", LoadBalancer.class).getUsername());
+
+    String[] expectedLinesAtEnd = {
+        "{\"schemaVersion\":\"1.0\"}",
+        "{\"id\":\"001\",\"hostname\":\"eclb-54-01\",\"username\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"002\",\"hostname\":\"eclb-54-02\",\"username\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"003\",\"hostname\":\"eclb-54-03\",\"username\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"004\",\"hostname\":\"eclb-54-04\",\"username\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"005\",\"hostname\":\"eclb-54-05\",\"username\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"006\",\"hostname\":\"eclb-54-06\",\"username\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"007\",\"hostname\":\"eclb-54-07\",\"username\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"008\",\"hostname\":\"eclb-54-08\",\"username\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"009\",\"hostname\":\"eclb-54-09\",\"username\":\"admin\",\"deletedField\":\"yes\"}",
+        "{\"id\":\"010\",\"hostname\":\"eclb-54-10\",\"username\":\"admin\",\"deletedField\":\"yes\"}"};
+
+    TestUtils.checkLastLines(loadbalancerJson, expectedLinesAtEnd);
+  }
+
   @Test
   public void test_RenameInNonExistingCollection() {
     expectedException.expect(InvalidJsonDbApiUsageException.class);
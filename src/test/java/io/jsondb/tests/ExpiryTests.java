@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.jsondb.CollectionMetaData;
+import io.jsondb.DefaultSchemaVersionComparator;
+import io.jsondb.InvalidJsonDbApiUsageException;
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.annotation.ExpiresAt;
+import io.jsondb.annotation.Secret;
+import io.jsondb.query.Update;
+import io.jsondb.tests.model.Lease;
+
+/**
+ * Unit tests for documents with an @ExpiresAt deadline
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class ExpiryTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/expiryTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File leasesJson = new File(dbFilesFolder, "leases.json");
+
+  private JsonDBTemplate jsonDBTemplate = null;
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Util.delete(dbFilesFolder);
+  }
+
+  private void createTemplate(long expiryCheckInterval) {
+    JsonDBConfig dbConfig = new JsonDBConfig(dbFilesLocation, "io.jsondb.tests.model", null, false, null);
+    dbConfig.setExpiryCheckInterval(expiryCheckInterval);
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+    jsonDBTemplate.createCollection(Lease.class);
+  }
+
+  private Lease newLease(String id, Long expiresAt) {
+    Lease lease = new Lease();
+    lease.setId(id);
+    lease.setHolder("holder" + id);
+    lease.setExpiresAt(expiresAt);
+    return lease;
+  }
+
+  private int documentsInFile() throws Exception {
+    //First line of a collection file holds the schema version
+    return Files.readAllLines(leasesJson.toPath(), StandardCharsets.UTF_8).size() - 1;
+  }
+
+  @Test
+  public void testExpiredDocumentsAreHiddenAndRemovedInOneWrite() throws Exception {
+    createTemplate(0);
+    long now = System.currentTimeMillis();
+    List<Lease> leases = new ArrayList<Lease>();
+    leases.add(newLease("01", now - 1000));
+    leases.add(newLease("02", now + 3600000));
+    leases.add(newLease("03", null));
+    leases.add(newLease("04", now - 5000));
+    jsonDBTemplate.insert(leases, Lease.class);
+
+    assertEquals(2, jsonDBTemplate.findAll(Lease.class).size());
+    assertEquals(2, jsonDBTemplate.getCollection(Lease.class).size());
+    assertEquals(1, jsonDBTemplate.find("/.[holder='holder02' or holder='holder01']", Lease.class).size());
+    assertEquals(2, jsonDBTemplate.count("/.", Lease.class));
+    assertNull(jsonDBTemplate.findById("01", Lease.class));
+    assertNull(jsonDBTemplate.findOne("/.[holder='holder04']", Lease.class));
+    assertEquals(Arrays.asList("02"), new ArrayList<Object>(jsonDBTemplate.findByIdsAsMap(Arrays.asList("01", "02"), Lease.class).keySet()));
+    assertEquals(4, documentsInFile());
+
+    assertEquals(2, jsonDBTemplate.removeExpired(Lease.class));
+    assertEquals(2, documentsInFile());
+    assertEquals(0, jsonDBTemplate.removeExpired(Lease.class));
+    assertNotNull(jsonDBTemplate.findById("03", Lease.class));
+  }
+
+  @Test
+  public void testRemoveExpired_AfterDeadlineIsMovedOut() throws Exception {
+    createTemplate(0);
+    long now = System.currentTimeMillis();
+    jsonDBTemplate.insert(newLease("01", now - 1000));
+    jsonDBTemplate.save(newLease("01", now + 3600000), Lease.class);
+    assertEquals(0, jsonDBTemplate.removeExpired("leases"));
+    assertNotNull(jsonDBTemplate.findById("01", Lease.class));
+  }
+
+  @Test
+  public void testExpiredDocumentsSurviveReloadUntilRemoved() throws Exception {
+    createTemplate(0);
+    jsonDBTemplate.insert(newLease("01", System.currentTimeMillis() - 1000));
+    jsonDBTemplate.reloadCollection("leases");
+    assertEquals(0, jsonDBTemplate.findAll(Lease.class).size());
+    assertEquals(1, jsonDBTemplate.removeExpired(Lease.class));
+  }
+
+  @Test
+  public void testFindAndModifyOrRemoveSkipExpired() throws Exception {
+    createTemplate(0);
+    long now = System.currentTimeMillis();
+    jsonDBTemplate.insert(newLease("01", now - 1000));
+    jsonDBTemplate.insert(newLease("02", now - 1000));
+    jsonDBTemplate.insert(newLease("03", now + 3600000));
+
+    assertNull(jsonDBTemplate.findAndModify("/.[id='01']", Update.update("holder", "changed"), Lease.class));
+    assertNull(jsonDBTemplate.findAndRemove("/.[id='02']", Lease.class));
+    assertEquals(1, jsonDBTemplate.findAllAndModify("/.", Update.update("holder", "changed"), Lease.class).size());
+    assertEquals(1, jsonDBTemplate.findAllAndRemove("/.", Lease.class).size());
+    assertEquals(2, jsonDBTemplate.removeExpired(Lease.class));
+    assertEquals(0, documentsInFile());
+  }
+
+  @Test
+  public void testInvalidExpiresAtFieldsRejected() {
+    Comparator<String> comparator = new DefaultSchemaVersionComparator();
+    for (Class<?> clazz : Arrays.<Class<?>>asList(PrimitiveDeadline.class, TextDeadline.class, SecretDeadline.class)) {
+      try {
+        new CollectionMetaData("invalid", clazz, "1.0", comparator);
+        fail("Expected @ExpiresAt field of " + clazz.getSimpleName() + " to be rejected");
+      } catch (InvalidJsonDbApiUsageException e) {
+        assertTrue(e.getMessage().contains("expiresAt"));
+      }
+    }
+  }
+
+  public static class PrimitiveDeadline {
+    @ExpiresAt
+    private long expiresAt;
+  }
+
+  public static class TextDeadline {
+    @ExpiresAt
+    private String expiresAt;
+  }
+
+  public static class SecretDeadline {
+    @ExpiresAt
+    @Secret
+    private Long expiresAt;
+  }
+
+  @Test
+  public void testBackgroundExpirer() throws Exception {
+    createTemplate(20);
+    long now = System.currentTimeMillis();
+    jsonDBTemplate.insert(newLease("01", now + 100));
+    jsonDBTemplate.insert(newLease("02", now + 3600000));
+    assertEquals(2, documentsInFile());
+
+    long waitUntil = System.currentTimeMillis() + 5000;
+    while ((documentsInFile() > 1) && (System.currentTimeMillis() < waitUntil)) {
+      Thread.sleep(20);
+    }
+    assertEquals(1, documentsInFile());
+    assertEquals(1, jsonDBTemplate.findAll(Lease.class).size());
+  }
+}
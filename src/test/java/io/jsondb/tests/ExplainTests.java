@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.query.QueryExplanation;
+import io.jsondb.query.Update;
+import io.jsondb.tests.model.Host;
+
+/**
+ * Unit tests for query plans and explain()
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class ExplainTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/explainTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+
+  private JsonDBTemplate jsonDBTemplate = null;
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    jsonDBTemplate = new JsonDBTemplate(dbFilesLocation, "io.jsondb.tests.model");
+    jsonDBTemplate.createCollection(Host.class);
+
+    List<Host> hosts = new ArrayList<Host>();
+    hosts.add(newHost("01", "alpha", "r1"));
+    hosts.add(newHost("02", "beta", "r1"));
+    hosts.add(newHost("03", "gamma", "r2"));
+    hosts.add(newHost("04", "delta", "r1"));
+    hosts.add(newHost("05", "epsilon", "r3"));
+    jsonDBTemplate.insert(hosts, Host.class);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Util.delete(dbFilesFolder);
+  }
+
+  private Host newHost(String id, String hostname, String rack) {
+    Host host = new Host();
+    host.setId(id);
+    host.setHostname(hostname);
+    host.setRack(rack);
+    return host;
+  }
+
+  @Test
+  public void testExplainIndexedEquality() {
+    QueryExplanation explanation = jsonDBTemplate.explain("/.[rack='r1']", Host.class);
+    assertEquals("rack", explanation.getIndexedField());
+    assertNull(explanation.getResidualPredicate());
+    assertEquals(3, explanation.getEstimatedDocumentsScanned());
+    assertEquals(3, explanation.getDocumentsScanned());
+    assertEquals(3, explanation.getMatches());
+    assertTrue(explanation.getEvaluationNanos() >= 0);
+  }
+
+  @Test
+  public void testExplainPrefersUniqueIndexAndKeepsResidual() {
+    QueryExplanation explanation = jsonDBTemplate.explain("/.[rack='r1' and hostname=\"beta\" and id>'01']", Host.class);
+    assertEquals("hostname", explanation.getIndexedField());
+    assertEquals("rack='r1' and id>'01'", explanation.getResidualPredicate());
+    assertEquals(1, explanation.getDocumentsScanned());
+    assertEquals(1, explanation.getMatches());
+  }
+
+  @Test
+  public void testExplainFullScan() {
+    QueryExplanation explanation = jsonDBTemplate.explain("/.[rack='r1' or hostname='gamma']", "hosts");
+    assertNull(explanation.getIndexedField());
+    assertEquals("rack='r1' or hostname='gamma'", explanation.getResidualPredicate());
+    assertEquals(5, explanation.getEstimatedDocumentsScanned());
+    assertEquals(5, explanation.getDocumentsScanned());
+    assertEquals(4, explanation.getMatches());
+
+    explanation = jsonDBTemplate.explain("/.[id='03']", "hosts");
+    assertNull(explanation.getIndexedField());
+    assertEquals(1, explanation.getMatches());
+  }
+
+  @Test
+  public void testIndexedQueriesMatchFullScans() {
+    jsonDBTemplate.save(newHost("02", "beta", "r2"), Host.class);
+    jsonDBTemplate.save(newHost("02", "beta", "r1"), Host.class);
+
+    List<Host> found = jsonDBTemplate.find("/.[rack='r1']", Host.class);
+    List<String> ids = new ArrayList<String>();
+    for (Host host : found) {
+      ids.add(host.getId());
+    }
+    List<String> expected = new ArrayList<String>();
+    expected.add("01");
+    expected.add("02");
+    expected.add("04");
+    assertEquals(expected, ids);
+    assertEquals(2, jsonDBTemplate.count("/.[rack='r1' and hostname!='alpha']", Host.class));
+    assertEquals(0, jsonDBTemplate.find("/.[rack='r9']", Host.class).size());
+  }
+
+  @Test
+  public void testExplainDoesNotModify() {
+    long modified = new File(dbFilesFolder, "hosts.json").lastModified();
+    jsonDBTemplate.explain("/.[rack='r1']", Host.class);
+    assertEquals(3, jsonDBTemplate.count("/.[rack='r1']", Host.class));
+    assertEquals(modified, new File(dbFilesFolder, "hosts.json").lastModified());
+  }
+
+  @Test
+  public void testPlanFollowsIndexedChanges() {
+    assertEquals(3, jsonDBTemplate.findAllAndModify("/.[rack='r1']", new Update().set("rack", "r4"), Host.class).size());
+    assertEquals(3, jsonDBTemplate.explain("/.[rack='r4']", Host.class).getMatches());
+    assertEquals(0, jsonDBTemplate.explain("/.[rack='r1']", Host.class).getDocumentsScanned());
+  }
+}
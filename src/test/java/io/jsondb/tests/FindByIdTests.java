@@ -25,6 +25,10 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
 import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import org.junit.After;
 import org.junit.Before;
@@ -107,4 +111,46 @@ public class FindByIdTests {
     expectedException.expectMessage("Collection by name 'SomeCollection' not found. Create collection first");
     jsonDBTemplate.findById("000000", "SomeCollection");
   }
+
+  /**
+   * test to find several documents in one call, missing ids are skipped and order is preserved.
+   */
+  @Test
+  public void testFindByIds_SkipsMissingIds() {
+    List<Instance> instances = jsonDBTemplate.findByIds(Arrays.asList("03", "00", "01"), Instance.class);
+    assertEquals(2, instances.size());
+    assertEquals("03", instances.get(0).getId());
+    assertEquals("01", instances.get(1).getId());
+  }
+
+  /**
+   * test to find several documents as a map keyed by id, with parallel copying enabled.
+   */
+  @Test
+  public void testFindByIdsAsMap() {
+    jsonDBTemplate.getDbConfig().setParallelQueryThreshold(1);
+    Map<Object, Instance> instances = jsonDBTemplate.findByIdsAsMap(Arrays.asList("05", "01", "99", "02"), Instance.class);
+    assertEquals(Arrays.asList("05", "01", "02"), Arrays.asList(instances.keySet().toArray()));
+    assertEquals("02", instances.get("02").getId());
+    assertNull(instances.get("99"));
+    assertEquals("b87eb02f5dd7e5232d7b0fc30a5015e4", instances.get("01").getPrivateKey());
+  }
+
+  /**
+   * test to find several documents with an empty collection of ids
+   */
+  @Test
+  public void testFindByIds_EmptyIds() {
+    assertEquals(0, jsonDBTemplate.findByIds(Collections.emptyList(), Instance.class).size());
+  }
+
+  /**
+   * test to find several documents for a unknown collection name
+   */
+  @Test
+  public void testFindByIds_UnknownCollectionName() {
+    expectedException.expect(InvalidJsonDbApiUsageException.class);
+    expectedException.expectMessage("Collection by name 'SomeCollection' not found. Create collection first");
+    jsonDBTemplate.findByIds(Arrays.asList("000000"), "SomeCollection");
+  }
 }
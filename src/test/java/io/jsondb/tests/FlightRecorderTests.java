@@ -0,0 +1,133 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.jfr.FlightRecorderEvent;
+import io.jsondb.tests.model.Instance;
+import io.jsondb.tests.util.TestUtils;
+
+/**
+ * Unit tests for the Java Flight Recorder events, the JFR API is driven by reflection because the
+ * tests are compiled for Java 8
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class FlightRecorderTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/flightRecorderTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+  private File recordingFile = new File(dbFilesFolder, "recording.jfr");
+
+  private JsonDBTemplate jsonDBTemplate = null;
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    jsonDBTemplate = new JsonDBTemplate(dbFilesLocation, "io.jsondb.tests.model",
+        new DefaultAESCBCCipher("1r8+24pibarAWgS85/Heeg=="));
+  }
+
+  @After
+  public void tearDown() {
+    Util.delete(dbFilesFolder);
+  }
+
+  @Test
+  public void testNoEventsWithoutRecording() {
+    assertFalse(FlightRecorderEvent.isRecording());
+    assertNull(FlightRecorderEvent.QUERY.begin());
+    FlightRecorderEvent.QUERY.commit(null, "instances", "/.", 0);
+  }
+
+  @Test
+  public void testEventsAreRecorded() throws Exception {
+    Class<?> recordingType;
+    try {
+      recordingType = Class.forName("jdk.jfr.Recording");
+    } catch (ClassNotFoundException e) {
+      recordingType = null;
+    }
+    assumeTrue(null != recordingType);
+
+    Object recording = recordingType.getConstructor().newInstance();
+    Method enable = recordingType.getMethod("enable", String.class);
+    for (FlightRecorderEvent event : new FlightRecorderEvent[] {FlightRecorderEvent.QUERY, FlightRecorderEvent.FILE_REWRITE,
+        FlightRecorderEvent.DOCUMENT_COPY, FlightRecorderEvent.ENCRYPT, FlightRecorderEvent.COLLECTION_LOAD}) {
+      enable.invoke(recording, event.getName());
+    }
+    recordingType.getMethod("start").invoke(recording);
+    try {
+      assertTrue(FlightRecorderEvent.isRecording());
+      List<Instance> found = jsonDBTemplate.find("/.[id>'03']", Instance.class);
+      jsonDBTemplate.insert(TestUtils.newInstance("07"));
+      jsonDBTemplate.reloadCollection("instances");
+
+      recordingType.getMethod("stop").invoke(recording);
+      recordingType.getMethod("dump", Path.class).invoke(recording, recordingFile.toPath());
+
+      Map<String, Object> events = new HashMap<String, Object>();
+      Class<?> recordingFileType = Class.forName("jdk.jfr.consumer.RecordingFile");
+      for (Object recorded : (List<?>) recordingFileType.getMethod("readAllEvents", Path.class).invoke(null, recordingFile.toPath())) {
+        Object eventType = recorded.getClass().getMethod("getEventType").invoke(recorded);
+        events.put((String) eventType.getClass().getMethod("getName").invoke(eventType), recorded);
+      }
+      Method getValue = Class.forName("jdk.jfr.consumer.RecordedObject").getMethod("getValue", String.class);
+
+      Object query = events.get("io.jsondb.Query");
+      assertEquals("/.[id>'03']", getValue.invoke(query, "query"));
+      assertEquals(found.size(), getValue.invoke(query, "matches"));
+      Object rewrite = events.get("io.jsondb.FileRewrite");
+      assertEquals("instances", getValue.invoke(rewrite, "collection"));
+      assertEquals(7, getValue.invoke(rewrite, "documents"));
+      Object load = events.get("io.jsondb.CollectionLoad");
+      assertEquals(7, getValue.invoke(load, "documents"));
+      assertEquals(instancesJson.length(), getValue.invoke(load, "bytes"));
+      assertEquals(Boolean.TRUE, getValue.invoke(events.get("io.jsondb.DocumentCopy"), "decrypted"));
+      assertTrue(events.containsKey("io.jsondb.Encrypt"));
+    } finally {
+      recordingType.getMethod("close").invoke(recording);
+    }
+    assertFalse(FlightRecorderEvent.isRecording());
+  }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.id.SequenceIdGenerator;
+import io.jsondb.id.SnowflakeIdGenerator;
+import io.jsondb.tests.model.Instance;
+import io.jsondb.tests.model.Site;
+
+/**
+ * Unit tests for the pluggable IdGenerators
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class IdGeneratorTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/idGeneratorTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+
+  private JsonDBTemplate jsonDBTemplate = null;
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    jsonDBTemplate = new JsonDBTemplate(dbFilesLocation, "io.jsondb.tests.model");
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Util.delete(dbFilesFolder);
+  }
+
+  private Instance newInstance() {
+    Instance instance = new Instance();
+    instance.setHostname("ec2-54-191-new");
+    instance.setPrivateKey("b87eb02f5dd7e5232d7b0fc30a5015e4");
+    return instance;
+  }
+
+  @Test
+  public void testDefaultGenerator_AssignsUUID() {
+    jsonDBTemplate.createCollection(Site.class);
+    Site site = new Site();
+    site.setLocation("Mumbai");
+    jsonDBTemplate.insert(site);
+
+    List<Site> sites = jsonDBTemplate.findAll(Site.class);
+    assertEquals(1, sites.size());
+    String id = sites.get(0).getId();
+    assertEquals(36, id.length());
+    assertNotNull(jsonDBTemplate.findById(id, Site.class));
+  }
+
+  @Test
+  public void testSequenceGenerator_SeededFromExistingIds() {
+    jsonDBTemplate.getDbConfig().setIdGenerator("instances", new SequenceIdGenerator());
+    jsonDBTemplate.insert(newInstance());
+    jsonDBTemplate.upsert(newInstance());
+
+    assertNotNull(jsonDBTemplate.findById("7", Instance.class));
+    assertNotNull(jsonDBTemplate.findById("8", Instance.class));
+  }
+
+  @Test
+  public void testSequenceGenerator_BatchInsert() {
+    jsonDBTemplate.getDbConfig().setIdGenerator("instances", new SequenceIdGenerator());
+    List<Instance> instances = new ArrayList<Instance>();
+    for (int i = 0; i < 3; i++) {
+      instances.add(newInstance());
+    }
+    jsonDBTemplate.insert(instances, Instance.class);
+    assertEquals(3, jsonDBTemplate.findByIds(Arrays.asList("7", "8", "9"), Instance.class).size());
+  }
+
+  @Test
+  public void testSequenceGenerator_SkipsExplicitlyInsertedIds() {
+    jsonDBTemplate.getDbConfig().setIdGenerator("instances", new SequenceIdGenerator());
+    jsonDBTemplate.insert(newInstance());
+
+    Instance explicit = newInstance();
+    explicit.setId("8");
+    jsonDBTemplate.insert(explicit);
+    jsonDBTemplate.insert(newInstance());
+
+    assertEquals(9, jsonDBTemplate.findAll(Instance.class).size());
+    assertNotNull(jsonDBTemplate.findById("7", Instance.class));
+    assertNotNull(jsonDBTemplate.findById("9", Instance.class));
+  }
+
+  @Test
+  public void testSnowflakeGenerator_StringIds() {
+    jsonDBTemplate.getDbConfig().setDefaultIdGenerator(new SnowflakeIdGenerator(7));
+    long before = System.currentTimeMillis();
+    jsonDBTemplate.insert(newInstance());
+    Instance inserted = jsonDBTemplate.findOne("/.[hostname='ec2-54-191-new']", Instance.class);
+    long timestamp = SnowflakeIdGenerator.timestampOf(Long.parseLong(inserted.getId()));
+    assertTrue(timestamp >= before && timestamp <= System.currentTimeMillis());
+  }
+
+  @Test
+  public void testSnowflakeGenerator_UniqueAndOrderedUnderContention() throws Exception {
+    final SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1);
+    final int threads = 8;
+    final int idsPerThread = 20000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<long[]>> futures = new ArrayList<Future<long[]>>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(executor.submit(new Callable<long[]>() {
+          @Override
+          public long[] call() throws Exception {
+            long[] ids = new long[idsPerThread];
+            for (int i = 0; i < idsPerThread; i++) {
+              ids[i] = generator.nextLong();
+            }
+            return ids;
+          }
+        }));
+      }
+      Set<Long> allIds = new HashSet<Long>();
+      for (Future<long[]> future : futures) {
+        long[] ids = future.get();
+        for (int i = 0; i < ids.length; i++) {
+          if (i > 0) {
+            assertTrue(ids[i] > ids[i - 1]);
+          }
+          allIds.add(ids[i]);
+        }
+      }
+      assertEquals(threads * idsPerThread, allIds.size());
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Charsets;
+import com.google.common.io.Files;
+
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.tests.model.Instance;
+import io.jsondb.tests.util.TestUtils;
+
+/**
+ * Unit tests for the MBeans of a database and its collections
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class JmxTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/jmxTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+
+  private MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+  private JsonDBTemplate jsonDBTemplate = null;
+  private ObjectName databaseName = null;
+  private ObjectName instancesName = null;
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    JsonDBConfig dbConfig = new JsonDBConfig(dbFilesLocation, "io.jsondb.tests.model",
+        new DefaultAESCBCCipher("1r8+24pibarAWgS85/Heeg=="), false, null);
+    dbConfig.setJmxEnabled(true);
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+
+    String database = ObjectName.quote(dbFilesFolder.getAbsolutePath());
+    databaseName = new ObjectName("io.jsondb:type=Database,name=" + database);
+    instancesName = new ObjectName("io.jsondb:type=Collection,database=" + database + ",name=" + ObjectName.quote("instances"));
+  }
+
+  @After
+  public void tearDown() {
+    jsonDBTemplate.shutdown();
+    Util.delete(dbFilesFolder);
+  }
+
+  @Test
+  public void testCollectionAttributes() throws Exception {
+    assertTrue(server.isRegistered(instancesName));
+    assertEquals(6, server.getAttribute(instancesName, "DocumentCount"));
+    assertEquals(instancesJson.length(), server.getAttribute(instancesName, "FileSize"));
+    assertEquals(Boolean.TRUE, server.getAttribute(instancesName, "Exists"));
+    assertEquals(Boolean.FALSE, server.getAttribute(instancesName, "ReadOnly"));
+    assertEquals(0, server.getAttribute(instancesName, "LockQueueLength"));
+
+    long writes = (Long) server.getAttribute(instancesName, "WriteCount");
+    jsonDBTemplate.insert(TestUtils.newInstance("07"));
+    assertEquals(7, server.getAttribute(instancesName, "DocumentCount"));
+    assertEquals(writes + 1, server.getAttribute(instancesName, "WriteCount"));
+    assertEquals(instancesJson.lastModified(), server.getAttribute(instancesName, "LastWriteTime"));
+  }
+
+  @Test
+  public void testMemoryStatsAttributes() throws Exception {
+    CompositeData stats = (CompositeData) server.getAttribute(instancesName, "MemoryStats");
+    assertEquals("instances", stats.get("collectionName"));
+    assertEquals(6, stats.get("documentCount"));
+    long totalBytes = (Long) stats.get("totalBytes");
+    assertTrue(totalBytes > 0);
+    assertEquals(totalBytes, server.getAttribute(databaseName, "EstimatedHeapBytes"));
+  }
+
+  @Test
+  public void testDatabaseAttributes() throws Exception {
+    assertTrue(server.isRegistered(databaseName));
+    String[] collectionNames = (String[]) server.getAttribute(databaseName, "CollectionNames");
+    assertTrue(Arrays.asList(collectionNames).contains("instances"));
+    assertEquals(6L, server.getAttribute(databaseName, "DocumentCount"));
+    assertEquals(Boolean.TRUE, server.getAttribute(databaseName, "Encrypted"));
+  }
+
+  @Test
+  public void testReloadAndFlushOperations() throws Exception {
+    String extra = "{\"id\":\"07\",\"hostname\":\"ec2-54-191-07\",\"privateKey\":\"Zf9vl5K6WV6BA3eL7JbnrfPMjfJxc9Rkoo0zlROQlgTslmcp9iFzos+MP93GZqop\",\"publicKey\":\"d3aa045f71bf4d1dffd2c5f485a4bc1d\"}\n";
+    Files.append(extra, instancesJson, Charsets.UTF_8);
+
+    server.invoke(instancesName, "reload", null, null);
+    assertEquals(7, server.getAttribute(instancesName, "DocumentCount"));
+
+    Files.append("\n", instancesJson, Charsets.UTF_8);
+    assertEquals(9, Files.readLines(instancesJson, Charsets.UTF_8).size());
+    server.invoke(instancesName, "flush", null, null);
+    assertEquals(8, Files.readLines(instancesJson, Charsets.UTF_8).size());
+    assertEquals(7, jsonDBTemplate.findAll(Instance.class).size());
+  }
+
+  @Test
+  public void testShutdownUnregisters() {
+    jsonDBTemplate.shutdown();
+    assertFalse(server.isRegistered(databaseName));
+    assertFalse(server.isRegistered(instancesName));
+  }
+}
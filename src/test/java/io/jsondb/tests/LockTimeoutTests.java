@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.LockTimeoutException;
+import io.jsondb.LockWaitStats;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.tests.model.Instance;
+import io.jsondb.tests.util.BlockingCipher;
+import io.jsondb.tests.util.TestUtils;
+
+/**
+ * Unit tests for lock timeouts and lock wait stats
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class LockTimeoutTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/lockTimeoutTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+
+  private JsonDBConfig dbConfig = null;
+  private JsonDBTemplate jsonDBTemplate = null;
+  private BlockingCipher cipher = null;
+  private ExecutorService executor = null;
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    cipher = new BlockingCipher(new DefaultAESCBCCipher("1r8+24pibarAWgS85/Heeg=="));
+    dbConfig = new JsonDBConfig(dbFilesLocation, "io.jsondb.tests.model", cipher, false, null);
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+    executor = Executors.newSingleThreadExecutor();
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    cipher.release();
+    executor.shutdown();
+    executor.awaitTermination(5, TimeUnit.SECONDS);
+    Util.delete(dbFilesFolder);
+  }
+
+  /**
+   * Starts an insert that holds the collection write lock until the cipher is released.
+   */
+  private Future<Void> holdWriteLock() throws InterruptedException {
+    cipher.blockNextEncrypt();
+    CountDownLatch entered = cipher.getEntered();
+    Future<Void> writer = executor.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        jsonDBTemplate.insert(TestUtils.newInstance("07"));
+        return null;
+      }
+    });
+    assertTrue(entered.await(5, TimeUnit.SECONDS));
+    return writer;
+  }
+
+  @Test
+  public void testDefaultTimeout() throws Exception {
+    dbConfig.setLockTimeout(50);
+    Future<Void> writer = holdWriteLock();
+    try {
+      jsonDBTemplate.insert(TestUtils.newInstance("08"));
+      assertTrue("Expected the insert to time out", false);
+    } catch (LockTimeoutException e) {
+      assertTrue(e.getMessage().contains("instances"));
+    }
+    LockWaitStats stats = jsonDBTemplate.getLockWaitStats("instances");
+    assertEquals(1, stats.getTimeouts());
+    assertTrue(stats.getMaxWaitNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+
+    cipher.release();
+    writer.get(5, TimeUnit.SECONDS);
+    jsonDBTemplate.insert(TestUtils.newInstance("08"));
+    assertEquals(8, jsonDBTemplate.findAll(Instance.class).size());
+  }
+
+  @Test
+  public void testPerCallTimeout() throws Exception {
+    Future<Void> writer = holdWriteLock();
+    try {
+      jsonDBTemplate.withLockTimeout(50, TimeUnit.MILLISECONDS, new Supplier<List<Instance>>() {
+        @Override
+        public List<Instance> get() {
+          return jsonDBTemplate.findAll(Instance.class);
+        }
+      });
+      assertTrue("Expected the read to time out", false);
+    } catch (LockTimeoutException e) {
+      assertEquals(1, jsonDBTemplate.getLockWaitStats("instances").getTimeouts());
+    }
+
+    cipher.release();
+    writer.get(5, TimeUnit.SECONDS);
+    List<Instance> instances = jsonDBTemplate.withLockTimeout(50, TimeUnit.MILLISECONDS, new Supplier<List<Instance>>() {
+      @Override
+      public List<Instance> get() {
+        return jsonDBTemplate.findAll(Instance.class);
+      }
+    });
+    assertEquals(7, instances.size());
+  }
+
+  @Test
+  public void testFileLockTimeout() throws Exception {
+    dbConfig.setLockTimeout(50);
+    RandomAccessFile raf = new RandomAccessFile(new File(dbFilesFolder, "lock/instances.json.lock"), "rw");
+    try {
+      FileLock fileLock = raf.getChannel().lock();
+      assertNotNull(fileLock);
+      try {
+        jsonDBTemplate.insert(TestUtils.newInstance("07"));
+        assertTrue("Expected the insert to time out", false);
+      } catch (LockTimeoutException e) {
+        assertTrue(e.getMessage().contains("instances.json"));
+      }
+    } finally {
+      raf.close();
+    }
+    jsonDBTemplate.insert(TestUtils.newInstance("07"));
+    assertEquals(7, jsonDBTemplate.findAll(Instance.class).size());
+  }
+
+  @Test(timeout = 10000)
+  public void testPerCallTimeoutEndsFileLockWait() throws Exception {
+    RandomAccessFile raf = new RandomAccessFile(new File(dbFilesFolder, "lock/instances.json.lock"), "rw");
+    try {
+      raf.getChannel().lock();
+      try {
+        jsonDBTemplate.withLockTimeout(50, TimeUnit.MILLISECONDS, new Supplier<Void>() {
+          @Override
+          public Void get() {
+            jsonDBTemplate.insert(TestUtils.newInstance("07"));
+            return null;
+          }
+        });
+        assertTrue("Expected the insert to time out", false);
+      } catch (LockTimeoutException e) {
+        assertTrue(e.getMessage().contains("50ms"));
+      }
+    } finally {
+      raf.close();
+    }
+    assertEquals(6, jsonDBTemplate.findAll(Instance.class).size());
+  }
+
+  @Test
+  public void testReloadTimeoutKeepsCollection() throws Exception {
+    dbConfig.setLockTimeout(50);
+    RandomAccessFile raf = new RandomAccessFile(new File(dbFilesFolder, "lock/instances.json.lock"), "rw");
+    try {
+      raf.getChannel().lock();
+      try {
+        jsonDBTemplate.reloadCollection("instances");
+        assertTrue("Expected the reload to time out", false);
+      } catch (LockTimeoutException e) {
+        assertTrue(e.getMessage().contains("instances.json"));
+      }
+    } finally {
+      raf.close();
+    }
+    assertTrue(jsonDBTemplate.collectionExists("instances"));
+    assertEquals(6, jsonDBTemplate.findAll(Instance.class).size());
+  }
+
+  @Test
+  public void testAcquisitionsRecorded() {
+    LockWaitStats stats = jsonDBTemplate.getLockWaitStats("instances");
+    long before = stats.getAcquisitions();
+    jsonDBTemplate.findAll(Instance.class);
+    jsonDBTemplate.insert(TestUtils.newInstance("07"));
+    assertEquals(before + 2, stats.getAcquisitions());
+    assertEquals(0, stats.getTimeouts());
+  }
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import io.jsondb.InvalidJsonDbApiUsageException;
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.MemoryStats;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.metrics.HeapEstimator;
+import io.jsondb.metrics.InMemoryMetricsRegistry;
+import io.jsondb.metrics.MetricNames;
+import io.jsondb.tests.model.Host;
+import io.jsondb.tests.model.Instance;
+
+/**
+ * Unit tests for the heap estimates of memoryStats()
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class MemoryStatsTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/memoryStatsTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+
+  private JsonDBConfig dbConfig = null;
+  private JsonDBTemplate jsonDBTemplate = null;
+  private InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    dbConfig = new JsonDBConfig(dbFilesLocation, "io.jsondb.tests.model",
+        new DefaultAESCBCCipher("1r8+24pibarAWgS85/Heeg=="), false, null);
+    dbConfig.setMetricsRegistry(metrics);
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+  }
+
+  @After
+  public void tearDown() {
+    jsonDBTemplate.shutdown();
+    Util.delete(dbFilesFolder);
+  }
+
+  private void insertInstances(int from, int to) {
+    List<Instance> instances = new ArrayList<Instance>();
+    for (int i = from; i < to; i++) {
+      Instance instance = new Instance();
+      instance.setId(String.format("%04d", i));
+      instance.setHostname("ec2-54-191-" + i);
+      instance.setPrivateKey("b87eb02f5dd7e5232d7b0fc30a5015e4");
+      instance.setPublicKey("d3aa045f71bf4d1dffd2c5f485a4bc1d");
+      instances.add(instance);
+    }
+    jsonDBTemplate.insert(instances, Instance.class);
+  }
+
+  @Test
+  public void testMemoryStatsOfCollection() {
+    MemoryStats stats = jsonDBTemplate.memoryStats("instances");
+    assertEquals("instances", stats.getCollectionName());
+    assertEquals(6, stats.getDocumentCount());
+    assertEquals(6, stats.getSampledDocuments());
+    assertTrue(stats.getDocumentBytes() > 0);
+    assertEquals(0, stats.getIndexBytes());
+    assertEquals(0, stats.getCacheBytes());
+    assertTrue(stats.getContextBytes() > 0);
+    assertEquals(stats.getDocumentBytes() + stats.getContextBytes(), stats.getTotalBytes());
+
+    insertInstances(100, 200);
+    MemoryStats grown = jsonDBTemplate.memoryStats("instances");
+    assertEquals(106, grown.getDocumentCount());
+    assertTrue(grown.getDocumentBytes() > 10 * stats.getDocumentBytes());
+    // The context does not hold the documents themselves
+    assertTrue(grown.getContextBytes() < grown.getDocumentBytes() / 10);
+  }
+
+  @Test
+  public void testSampledEstimateIsCloseToFullMeasurement() {
+    insertInstances(100, 1100);
+    dbConfig.setMemoryStatsSampleSize(0);
+    MemoryStats measured = jsonDBTemplate.memoryStats("instances");
+    assertEquals(1006, measured.getSampledDocuments());
+
+    dbConfig.setMemoryStatsSampleSize(50);
+    MemoryStats sampled = jsonDBTemplate.memoryStats("instances");
+    assertEquals(1006, sampled.getDocumentCount());
+    assertTrue(sampled.getSampledDocuments() >= 50 && sampled.getSampledDocuments() <= 51);
+    double error = Math.abs(sampled.getDocumentBytes() - measured.getDocumentBytes()) / (double) measured.getDocumentBytes();
+    assertTrue("Sampling error " + error, error < 0.05);
+  }
+
+  @Test
+  public void testIndexAndCacheBytes() {
+    dbConfig.setQueryCacheSize(10);
+    jsonDBTemplate.createCollection(Host.class);
+    List<Host> hosts = new ArrayList<Host>();
+    for (int i = 0; i < 50; i++) {
+      Host host = new Host();
+      host.setId(String.format("%02d", i));
+      host.setHostname("host" + i);
+      host.setRack("r" + (i % 5));
+      hosts.add(host);
+    }
+    jsonDBTemplate.insert(hosts, Host.class);
+
+    MemoryStats stats = jsonDBTemplate.memoryStats("hosts");
+    assertTrue(stats.getIndexBytes() > 0);
+    assertEquals(0, stats.getCacheBytes());
+
+    assertEquals(10, jsonDBTemplate.find("/.[rack='r1']", Host.class).size());
+    stats = jsonDBTemplate.memoryStats("hosts");
+    assertTrue(stats.getCacheBytes() > 0);
+  }
+
+  @Test
+  public void testMemoryStatsPublishedAsGauges() {
+    Map<String, MemoryStats> allStats = jsonDBTemplate.memoryStats();
+    assertTrue(allStats.containsKey("instances"));
+    MemoryStats stats = allStats.get("instances");
+    assertEquals(Long.valueOf(stats.getTotalBytes()), metrics.getGauge("instances", MetricNames.HEAP_TOTAL));
+    assertEquals(Long.valueOf(stats.getDocumentBytes()), metrics.getGauge("instances", MetricNames.HEAP_DOCUMENTS));
+    assertEquals(Long.valueOf(stats.getContextBytes()), metrics.getGauge("instances", MetricNames.HEAP_CONTEXT));
+  }
+
+  @Test(expected=InvalidJsonDbApiUsageException.class)
+  public void testMemoryStatsOfUnknownCollection() {
+    jsonDBTemplate.memoryStats("unknown");
+  }
+
+  @Test
+  public void testHeapEstimator() {
+    assertEquals(0, HeapEstimator.deepSize(null));
+    assertEquals(24, HeapEstimator.deepSize(Long.valueOf(1234567)));
+    assertEquals(HeapEstimator.string("abc"), HeapEstimator.deepSize("abc"));
+    assertEquals(HeapEstimator.array(10, 4), HeapEstimator.deepSize(new int[10]));
+
+    Instance instance = new Instance();
+    instance.setId("01");
+    instance.setHostname("ec2-54-191-01");
+    long withStrings = HeapEstimator.deepSize(instance);
+    assertTrue(withStrings > HeapEstimator.string("01") + HeapEstimator.string("ec2-54-191-01"));
+    assertEquals(withStrings - HeapEstimator.string("ec2-54-191-01"), HeapEstimator.deepSize(instance, instance.getHostname()));
+  }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import io.jsondb.InvalidJsonDbApiUsageException;
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBOperations;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.metrics.InMemoryMetricsRegistry;
+import io.jsondb.metrics.LatencyHistogram;
+import io.jsondb.metrics.MeteredOperations;
+import io.jsondb.metrics.MetricNames;
+import io.jsondb.tests.model.Instance;
+import io.jsondb.tests.util.TestUtils;
+
+/**
+ * Unit tests for the metrics recorded in a MetricsRegistry
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class MetricsTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/metricsTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+
+  private InMemoryMetricsRegistry registry = null;
+  private JsonDBTemplate jsonDBTemplate = null;
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    registry = new InMemoryMetricsRegistry();
+    JsonDBConfig dbConfig = new JsonDBConfig(dbFilesLocation, "io.jsondb.tests.model",
+        new DefaultAESCBCCipher("1r8+24pibarAWgS85/Heeg=="), false, null);
+    dbConfig.setMetricsRegistry(registry);
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+  }
+
+  @After
+  public void tearDown() {
+    Util.delete(dbFilesFolder);
+  }
+
+  @Test
+  public void testLoadRecordsBytesRead() {
+    assertEquals(instancesJson.length(), registry.getCounter("instances", MetricNames.BYTES_READ));
+    assertEquals(1, registry.getHistogram("instances", MetricNames.LOAD).getCount());
+  }
+
+  @Test
+  public void testReadsRecordCopies() {
+    List<Instance> instances = jsonDBTemplate.findAll(Instance.class);
+    List<Instance> found = jsonDBTemplate.find("/.[id>'03']", Instance.class);
+    assertNotNull(jsonDBTemplate.findById("01", Instance.class));
+
+    assertEquals(instances.size() + found.size() + 1, registry.getCounter("instances", MetricNames.DOCUMENTS_COPIED));
+    assertEquals(3, registry.getHistogram("instances", MetricNames.COPY).getCount());
+  }
+
+  @Test
+  public void testWritesRecordFileMetrics() {
+    jsonDBTemplate.insert(TestUtils.newInstance("07"));
+    jsonDBTemplate.remove(TestUtils.newInstance("07"), Instance.class);
+
+    assertEquals(2, registry.getHistogram("instances", MetricNames.FILE_WRITE).getCount());
+    assertEquals(2, registry.getHistogram("instances", MetricNames.FILE_RENAME).getCount());
+    long written = registry.getCounter("instances", MetricNames.BYTES_WRITTEN);
+    assertTrue(written > 2 * instancesJson.length());
+    assertTrue(registry.getHistogram("instances", MetricNames.LOCK_WAIT).getCount() >= 2);
+  }
+
+  @Test
+  public void testMeteredOperations() {
+    JsonDBOperations metered = MeteredOperations.wrap(jsonDBTemplate, registry);
+    metered.findById("01", Instance.class);
+    metered.findAll("instances");
+    metered.getCollectionNames();
+    try {
+      metered.insert(TestUtils.newInstance("01"));
+      fail("Expected the duplicate insert to fail");
+    } catch (InvalidJsonDbApiUsageException e) {
+      //expected, the exception is passed through unwrapped
+    }
+
+    assertEquals(1, registry.getHistogram("instances", "findById").getCount());
+    assertEquals(1, registry.getHistogram("instances", "findAll").getCount());
+    assertEquals(1, registry.getHistogram(MetricNames.ALL_COLLECTIONS, "getCollectionNames").getCount());
+    assertEquals(1, registry.getHistogram("instances", "insert").getCount());
+    assertEquals(1, registry.getCounter("instances", "insert" + MetricNames.ERRORS_SUFFIX));
+    assertEquals(0, registry.getCounter("instances", "findById" + MetricNames.ERRORS_SUFFIX));
+  }
+
+  @Test
+  public void testHistogramPercentiles() {
+    LatencyHistogram histogram = new LatencyHistogram();
+    for (int i = 1; i <= 1000; i++) {
+      histogram.record(i);
+    }
+    assertEquals(1000, histogram.getCount());
+    assertEquals(1000, histogram.getMaxNanos());
+    assertEquals(500, histogram.getMeanNanos());
+    long median = histogram.getPercentileNanos(50);
+    assertTrue(median >= 500 && median <= 563);
+    long p99 = histogram.getPercentileNanos(99);
+    assertTrue(p99 >= 990 && p99 <= 1000);
+    assertEquals(1000, histogram.getPercentileNanos(100));
+    assertEquals(0, new LatencyHistogram().getPercentileNanos(99));
+  }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.query.Update;
+import io.jsondb.tests.model.Instance;
+import io.jsondb.tests.util.BlockingCipher;
+import io.jsondb.tests.util.TestUtils;
+
+/**
+ * Unit tests for the lock-free findById path
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class OptimisticReadTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/optimisticReadTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+
+  private JsonDBTemplate jsonDBTemplate = null;
+  private BlockingCipher cipher = null;
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    cipher = new BlockingCipher(new DefaultAESCBCCipher("1r8+24pibarAWgS85/Heeg=="));
+    JsonDBConfig dbConfig = new JsonDBConfig(dbFilesLocation, "io.jsondb.tests.model", cipher, false, null);
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Util.delete(dbFilesFolder);
+  }
+
+  @Test
+  public void testFindByIdSeesWrites() {
+    jsonDBTemplate.insert(TestUtils.newInstance("07"));
+    assertEquals("b87eb02f5dd7e5232d7b0fc30a5015e4", jsonDBTemplate.findById("07", Instance.class).getPrivateKey());
+
+    jsonDBTemplate.findAndModify("/.[id='01']", Update.update("hostname", "modified"), Instance.class);
+    assertEquals("modified", jsonDBTemplate.findById("01", Instance.class).getHostname());
+
+    jsonDBTemplate.remove(jsonDBTemplate.findById("02", Instance.class), Instance.class);
+    assertNull(jsonDBTemplate.findById("02", Instance.class));
+  }
+
+  @Test
+  public void testFindByIdFollowsReload() throws Exception {
+    jsonDBTemplate.insert(TestUtils.newInstance("07"));
+    assertNotNull(jsonDBTemplate.findById("07", Instance.class));
+
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    jsonDBTemplate.reloadCollection("instances");
+    assertNull(jsonDBTemplate.findById("07", Instance.class));
+    assertNotNull(jsonDBTemplate.findById("01", Instance.class));
+  }
+
+  @Test
+  public void testFindByIdReturnsCopy() {
+    Instance instance = jsonDBTemplate.findById("01", Instance.class);
+    instance.setHostname("changed by caller");
+    assertEquals("ec2-54-191-01", jsonDBTemplate.findById("01", Instance.class).getHostname());
+  }
+
+  @Test
+  public void testFindByIdDoesNotWaitForWriter() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    try {
+      cipher.blockNextEncrypt();
+      CountDownLatch entered = cipher.getEntered();
+      Future<Void> writer = executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          jsonDBTemplate.insert(TestUtils.newInstance("07"));
+          return null;
+        }
+      });
+      assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+      //The writer now holds the collection write lock
+      Future<Instance> reader = executor.submit(new Callable<Instance>() {
+        @Override
+        public Instance call() throws Exception {
+          return jsonDBTemplate.findById("01", Instance.class);
+        }
+      });
+      assertNotNull(reader.get(5, TimeUnit.SECONDS));
+      assertNull(jsonDBTemplate.findById("07", Instance.class));
+
+      cipher.release();
+      writer.get(5, TimeUnit.SECONDS);
+      assertNotNull(jsonDBTemplate.findById("07", Instance.class));
+    } finally {
+      cipher.release();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testFindByIdDuringConcurrentWrites() throws Exception {
+    final String[] stableIds = {"01", "02", "03", "04", "05", "06"};
+    final AtomicBoolean writing = new AtomicBoolean(true);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Integer>> readers = new ArrayList<Future<Integer>>();
+      for (int r = 0; r < 3; r++) {
+        readers.add(executor.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws Exception {
+            int reads = 0;
+            while (writing.get() || reads < stableIds.length) {
+              String id = stableIds[reads % stableIds.length];
+              Instance instance = jsonDBTemplate.findById(id, Instance.class);
+              assertNotNull(instance);
+              assertEquals(id, instance.getId());
+              reads++;
+            }
+            return reads;
+          }
+        }));
+      }
+      for (int i = 0; i < 50; i++) {
+        Instance instance = TestUtils.newInstance(String.format("1%02d", i));
+        jsonDBTemplate.insert(instance);
+        if (i % 2 == 0) {
+          jsonDBTemplate.remove(instance, Instance.class);
+        }
+      }
+      writing.set(false);
+      for (Future<Integer> reader : readers) {
+        assertTrue(reader.get(30, TimeUnit.SECONDS) >= stableIds.length);
+      }
+      assertEquals(31, jsonDBTemplate.getCollection(Instance.class).size());
+    } finally {
+      writing.set(false);
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.crypto.ICipher;
+import io.jsondb.tests.model.Instance;
+
+/**
+ * Unit tests that verify parallel query execution returns the same results as sequential execution.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class ParallelQueryTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/parallelQueryTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+
+  private JsonDBTemplate jsonDBTemplate = null;
+  private ForkJoinPool pool = null;
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    ICipher cipher = new DefaultAESCBCCipher("1r8+24pibarAWgS85/Heeg==");
+    jsonDBTemplate = new JsonDBTemplate(dbFilesLocation, "io.jsondb.tests.model", cipher);
+    pool = new ForkJoinPool(4);
+    jsonDBTemplate.getDbConfig().setParallelQueryPool(pool);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    pool.shutdown();
+    Util.delete(dbFilesFolder);
+  }
+
+  @Test
+  public void testFind_SameResultsAndOrderAsSequential() {
+    String jxQuery = String.format("/.[publicKey='%s']", "d3aa045f71bf4d1dffd2c5f485a4bc1d");
+    List<Instance> sequential = jsonDBTemplate.find(jxQuery, Instance.class);
+
+    jsonDBTemplate.getDbConfig().setParallelQueryThreshold(1);
+    List<Instance> parallel = jsonDBTemplate.find(jxQuery, Instance.class);
+
+    assertEquals(sequential.size(), parallel.size());
+    for (int i = 0; i < sequential.size(); i++) {
+      assertEquals(sequential.get(i).getId(), parallel.get(i).getId());
+      assertEquals(sequential.get(i).getPrivateKey(), parallel.get(i).getPrivateKey());
+    }
+  }
+
+  @Test
+  public void testFindAll_Parallel() {
+    List<Instance> sequential = jsonDBTemplate.findAll(Instance.class);
+
+    jsonDBTemplate.getDbConfig().setParallelQueryThreshold(1);
+    List<Instance> parallel = jsonDBTemplate.findAll(Instance.class);
+
+    assertEquals(sequential.size(), parallel.size());
+    for (int i = 0; i < sequential.size(); i++) {
+      assertEquals(sequential.get(i).getId(), parallel.get(i).getId());
+      assertEquals(sequential.get(i).getPrivateKey(), parallel.get(i).getPrivateKey());
+    }
+  }
+
+  @Test
+  public void testCount() {
+    String jxQuery = String.format("/.[id>'%s']", "03");
+    int sequential = jsonDBTemplate.count(jxQuery, Instance.class);
+    assertEquals(3, sequential);
+
+    jsonDBTemplate.getDbConfig().setParallelQueryThreshold(1);
+    assertEquals(sequential, jsonDBTemplate.count(jxQuery, Instance.class));
+    assertEquals(6, jsonDBTemplate.count("/.", Instance.class));
+  }
+
+  @Test
+  public void testBelowThresholdRunsSequentially() {
+    jsonDBTemplate.getDbConfig().setParallelQueryThreshold(1000);
+    assertEquals(6, jsonDBTemplate.findAll(Instance.class).size());
+    assertEquals(0, pool.getStealCount());
+  }
+}
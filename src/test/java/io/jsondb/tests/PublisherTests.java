@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBException;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.reactive.DocumentChange;
+import io.jsondb.reactive.Flow;
+import io.jsondb.tests.model.Instance;
+import io.jsondb.tests.util.TestUtils;
+
+/**
+ * Unit tests for the publishers of query results and document changes
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class PublisherTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/publisherTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+
+  private JsonDBConfig dbConfig = null;
+  private JsonDBTemplate jsonDBTemplate = null;
+
+  /**
+   * Records what it receives and requests items only when told to.
+   */
+  private static class RecordingSubscriber<T> implements Flow.Subscriber<T> {
+    final List<T> items = new CopyOnWriteArrayList<T>();
+    final CountDownLatch terminated = new CountDownLatch(1);
+    volatile Flow.Subscription subscription;
+    volatile Throwable error;
+    volatile boolean completed;
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+      this.subscription = subscription;
+    }
+
+    @Override
+    public void onNext(T item) {
+      items.add(item);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+      error = throwable;
+      terminated.countDown();
+    }
+
+    @Override
+    public void onComplete() {
+      completed = true;
+      terminated.countDown();
+    }
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    dbConfig = new JsonDBConfig(dbFilesLocation, "io.jsondb.tests.model", new DefaultAESCBCCipher("1r8+24pibarAWgS85/Heeg=="), false, null);
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Util.delete(dbFilesFolder);
+  }
+
+  @Test
+  public void testFindAllFollowsDemand() {
+    RecordingSubscriber<Instance> subscriber = new RecordingSubscriber<Instance>();
+    jsonDBTemplate.findAllAsPublisher(Instance.class).subscribe(subscriber);
+    assertEquals(0, subscriber.items.size());
+
+    subscriber.subscription.request(2);
+    assertEquals(2, subscriber.items.size());
+    assertEquals("01", subscriber.items.get(0).getId());
+    assertEquals("b87eb02f5dd7e5232d7b0fc30a5015e4", subscriber.items.get(0).getPrivateKey());
+
+    subscriber.subscription.request(Long.MAX_VALUE);
+    assertEquals(6, subscriber.items.size());
+    assertTrue(subscriber.completed);
+  }
+
+  @Test
+  public void testFindAndCancel() {
+    RecordingSubscriber<Instance> subscriber = new RecordingSubscriber<Instance>() {
+      @Override
+      public void onNext(Instance item) {
+        super.onNext(item);
+        subscription.cancel();
+      }
+    };
+    jsonDBTemplate.findAsPublisher("/.[publicKey='d3aa045f71bf4d1dffd2c5f485a4bc1d']", Instance.class).subscribe(subscriber);
+    subscriber.subscription.request(10);
+    assertEquals(1, subscriber.items.size());
+    assertTrue(!subscriber.completed);
+  }
+
+  @Test
+  public void testEmptyResultCompletesWithoutDemand() {
+    RecordingSubscriber<Instance> subscriber = new RecordingSubscriber<Instance>();
+    jsonDBTemplate.findAsPublisher("/.[id='none']", Instance.class).subscribe(subscriber);
+    assertTrue(subscriber.completed);
+  }
+
+  @Test
+  public void testNonPositiveRequestFails() {
+    RecordingSubscriber<Instance> subscriber = new RecordingSubscriber<Instance>();
+    jsonDBTemplate.findAllAsPublisher(Instance.class).subscribe(subscriber);
+    subscriber.subscription.request(0);
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+    assertEquals(0, subscriber.items.size());
+  }
+
+  @Test
+  public void testNonPositiveRequestFromOnNextFailsAfterItReturns() {
+    final AtomicBoolean inOnNext = new AtomicBoolean();
+    final AtomicBoolean overlapped = new AtomicBoolean();
+    RecordingSubscriber<Instance> subscriber = new RecordingSubscriber<Instance>() {
+      @Override
+      public void onNext(Instance item) {
+        inOnNext.set(true);
+        super.onNext(item);
+        subscription.request(-1);
+        inOnNext.set(false);
+      }
+
+      @Override
+      public void onError(Throwable throwable) {
+        overlapped.set(inOnNext.get());
+        super.onError(throwable);
+      }
+    };
+    jsonDBTemplate.findAllAsPublisher(Instance.class).subscribe(subscriber);
+    subscriber.subscription.request(3);
+    assertTrue(subscriber.error instanceof IllegalArgumentException);
+    assertFalse(overlapped.get());
+    assertEquals(1, subscriber.items.size());
+  }
+
+  @Test
+  public void testChanges() throws Exception {
+    final CountDownLatch received = new CountDownLatch(3);
+    RecordingSubscriber<DocumentChange<Instance>> subscriber = new RecordingSubscriber<DocumentChange<Instance>>() {
+      @Override
+      public void onNext(DocumentChange<Instance> item) {
+        super.onNext(item);
+        received.countDown();
+      }
+    };
+    jsonDBTemplate.changes(Instance.class).subscribe(subscriber);
+    subscriber.subscription.request(Long.MAX_VALUE);
+
+    jsonDBTemplate.insert(TestUtils.newInstance("07"));
+    Instance instance = TestUtils.newInstance("07");
+    instance.setHostname("modified");
+    jsonDBTemplate.save(instance, Instance.class);
+    jsonDBTemplate.remove(instance, Instance.class);
+
+    assertTrue(received.await(5, TimeUnit.SECONDS));
+    assertEquals(DocumentChange.Type.INSERTED, subscriber.items.get(0).getType());
+    assertEquals("b87eb02f5dd7e5232d7b0fc30a5015e4", subscriber.items.get(0).getDocument().getPrivateKey());
+    assertEquals(DocumentChange.Type.UPDATED, subscriber.items.get(1).getType());
+    assertEquals("modified", subscriber.items.get(1).getDocument().getHostname());
+    assertEquals(DocumentChange.Type.REMOVED, subscriber.items.get(2).getType());
+    assertEquals("07", subscriber.items.get(2).getId());
+    assertEquals("instances", subscriber.items.get(2).getCollectionName());
+    assertNull(subscriber.error);
+  }
+
+  @Test
+  public void testSlowChangeSubscriberFails() throws Exception {
+    dbConfig.setChangeBufferSize(2);
+    JsonDBTemplate template = new JsonDBTemplate(dbConfig);
+    RecordingSubscriber<DocumentChange<Instance>> subscriber = new RecordingSubscriber<DocumentChange<Instance>>();
+    template.changes(Instance.class).subscribe(subscriber);
+
+    template.insert(TestUtils.newInstance("07"));
+    template.insert(TestUtils.newInstance("08"));
+    template.insert(TestUtils.newInstance("09"));
+
+    assertTrue(subscriber.terminated.await(5, TimeUnit.SECONDS));
+    assertTrue(subscriber.error instanceof JsonDBException);
+    assertEquals(0, subscriber.items.size());
+    assertEquals(9, template.findAll(Instance.class).size());
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.crypto.ICipher;
+import io.jsondb.query.QueryResultCache;
+import io.jsondb.query.Update;
+import io.jsondb.tests.model.Instance;
+
+/**
+ * Unit tests for the versioned query result cache.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class QueryResultCacheTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/queryResultCacheTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+
+  private JsonDBTemplate jsonDBTemplate = null;
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    ICipher cipher = new DefaultAESCBCCipher("1r8+24pibarAWgS85/Heeg==");
+    jsonDBTemplate = new JsonDBTemplate(dbFilesLocation, "io.jsondb.tests.model", cipher);
+    jsonDBTemplate.getDbConfig().setQueryCacheSize(2);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Util.delete(dbFilesFolder);
+  }
+
+  @Test
+  public void testRepeatedFindIsServedFromCache() {
+    String jxQuery = "/.[publicKey='d3aa045f71bf4d1dffd2c5f485a4bc1d']";
+    List<Instance> first = jsonDBTemplate.find(jxQuery, Instance.class);
+    List<Instance> second = jsonDBTemplate.find(jxQuery, Instance.class);
+
+    assertEquals(5, first.size());
+    assertEquals(5, second.size());
+    assertEquals(first.get(0).getPrivateKey(), second.get(0).getPrivateKey());
+
+    QueryResultCache cache = jsonDBTemplate.getQueryResultCache("instances");
+    assertEquals(1, cache.getHitCount());
+    assertEquals(1, cache.getMissCount());
+    assertEquals(0.5, cache.getHitRate(), 0.0001);
+  }
+
+  @Test
+  public void testCachedResultsAreCopies() {
+    String jxQuery = "/.[id='01']";
+    List<Instance> first = jsonDBTemplate.find(jxQuery, Instance.class);
+    first.get(0).setHostname("changed");
+
+    List<Instance> second = jsonDBTemplate.find(jxQuery, Instance.class);
+    assertEquals("ec2-54-191-01", second.get(0).getHostname());
+  }
+
+  @Test
+  public void testWritesInvalidateCachedResults() {
+    String jxQuery = "/.[publicKey='d3aa045f71bf4d1dffd2c5f485a4bc1d']";
+    assertEquals(5, jsonDBTemplate.find(jxQuery, Instance.class).size());
+
+    Instance instance = new Instance();
+    instance.setId("07");
+    instance.setHostname("ec2-54-191-07");
+    instance.setPrivateKey("b87eb02f5dd7e5232d7b0fc30a5015e4");
+    instance.setPublicKey("d3aa045f71bf4d1dffd2c5f485a4bc1d");
+    jsonDBTemplate.insert(instance);
+    assertEquals(6, jsonDBTemplate.find(jxQuery, Instance.class).size());
+
+    jsonDBTemplate.findAndModify("/.[id='07']", Update.update("publicKey", "none"), Instance.class);
+    assertEquals(5, jsonDBTemplate.find(jxQuery, Instance.class).size());
+    assertEquals(5, jsonDBTemplate.count(jxQuery, Instance.class));
+
+    jsonDBTemplate.remove(jsonDBTemplate.findById("01", Instance.class), Instance.class);
+    assertEquals(4, jsonDBTemplate.find(jxQuery, Instance.class).size());
+
+    QueryResultCache cache = jsonDBTemplate.getQueryResultCache("instances");
+    assertEquals(1, cache.getHitCount());
+  }
+
+  @Test
+  public void testLeastRecentlyUsedEntryIsEvicted() {
+    jsonDBTemplate.find("/.[id='01']", Instance.class);
+    jsonDBTemplate.find("/.[id='02']", Instance.class);
+    jsonDBTemplate.find("/.[id='01']", Instance.class);
+    jsonDBTemplate.find("/.[id='03']", Instance.class);
+
+    QueryResultCache cache = jsonDBTemplate.getQueryResultCache("instances");
+    assertEquals(2, cache.size());
+    assertEquals(1, cache.getEvictionCount());
+    long hits = cache.getHitCount();
+    jsonDBTemplate.find("/.[id='01']", Instance.class);
+    assertEquals(hits + 1, cache.getHitCount());
+    long misses = cache.getMissCount();
+    jsonDBTemplate.find("/.[id='02']", Instance.class);
+    assertEquals(misses + 1, cache.getMissCount());
+  }
+
+  @Test
+  public void testCacheDisabledByDefault() {
+    jsonDBTemplate.getDbConfig().setQueryCacheSize(0);
+    assertNull(jsonDBTemplate.getQueryResultCache("instances"));
+  }
+}
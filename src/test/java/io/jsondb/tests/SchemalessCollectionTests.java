@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.io.Files;
+
+import io.jsondb.InvalidJsonDbApiUsageException;
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.id.SequenceIdGenerator;
+import io.jsondb.query.Update;
+import io.jsondb.tests.model.Instance;
+
+/**
+ * Unit tests for schemaless collections whose documents are ObjectNodes
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class SchemalessCollectionTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/schemalessTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File configsJson = new File(dbFilesFolder, "configs.json");
+
+  private JsonDBConfig dbConfig = null;
+  private JsonDBTemplate jsonDBTemplate = null;
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), new File(dbFilesFolder, "instances.json"));
+    dbConfig = new JsonDBConfig(dbFilesLocation, "io.jsondb.tests.model", null, false, null);
+    dbConfig.registerSchemalessCollection("configs", "key");
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+    jsonDBTemplate.createCollection("configs");
+
+    jsonDBTemplate.insert(newConfig("alpha", "us-east", 8080), "configs");
+    jsonDBTemplate.insert(newConfig("beta", "us-west", 8080), "configs");
+    jsonDBTemplate.insert(newConfig("gamma", "us-east", 9090), "configs");
+  }
+
+  @After
+  public void tearDown() {
+    jsonDBTemplate.shutdown();
+    Util.delete(dbFilesFolder);
+  }
+
+  private ObjectNode newConfig(String key, String region, int port) {
+    ObjectNode config = JsonNodeFactory.instance.objectNode();
+    config.put("key", key);
+    config.put("region", region);
+    ObjectNode server = config.putObject("server");
+    server.put("port", port);
+    server.putArray("tags").add("web").add(region);
+    return config;
+  }
+
+  @Test
+  public void testFindByIdReturnsCopy() {
+    ObjectNode alpha = jsonDBTemplate.findById("alpha", "configs");
+    assertEquals("us-east", alpha.get("region").asText());
+    alpha.put("region", "changed");
+
+    ObjectNode again = jsonDBTemplate.findById("alpha", "configs");
+    assertEquals("us-east", again.get("region").asText());
+  }
+
+  @Test
+  public void testFindWithJXPath() {
+    List<ObjectNode> east = jsonDBTemplate.find("/.[region='us-east']", "configs");
+    assertEquals(2, east.size());
+
+    List<ObjectNode> port8080 = jsonDBTemplate.find("/.[server/port=8080]", "configs");
+    assertEquals(2, port8080.size());
+
+    List<ObjectNode> tagged = jsonDBTemplate.find("/.[server/tags='us-west']", "configs");
+    assertEquals(1, tagged.size());
+    assertEquals("beta", tagged.get(0).get("key").asText());
+  }
+
+  @Test
+  public void testFindByPointer() {
+    List<ObjectNode> port9090 = jsonDBTemplate.findByPointer("/server/port", 9090, "configs");
+    assertEquals(1, port9090.size());
+    assertEquals("gamma", port9090.get(0).get("key").asText());
+
+    assertEquals(2, jsonDBTemplate.findByPointer("/server/tags/1", "us-east", "configs").size());
+    assertEquals(0, jsonDBTemplate.findByPointer("/missing", "x", "configs").size());
+  }
+
+  @Test
+  public void testFindByPointerOnTypedCollection() {
+    try {
+      jsonDBTemplate.findByPointer("/hostname", "x", "instances");
+    } catch (InvalidJsonDbApiUsageException e) {
+      return;
+    }
+    throw new AssertionError("findByPointer should be restricted to schemaless collections");
+  }
+
+  @Test
+  public void testFindAndModifyAndRemove() {
+    ObjectNode modified = jsonDBTemplate.findAndModify("/.[key='beta']", Update.update("region", "eu-west"), "configs");
+    assertEquals("eu-west", modified.get("region").asText());
+    assertEquals(8080, modified.get("server").get("port").asInt());
+
+    ObjectNode gamma = jsonDBTemplate.findById("gamma", "configs");
+    ObjectNode removed = jsonDBTemplate.remove(gamma, "configs");
+    assertNotNull(removed);
+    assertEquals(2, jsonDBTemplate.findAll("configs").size());
+  }
+
+  @Test
+  public void testPersistedAndReloaded() throws Exception {
+    jsonDBTemplate.findAndModify("/.[key='beta']", Update.update("region", "eu-west"), "configs");
+    List<String> lines = Files.readLines(configsJson, Charset.forName("UTF-8"));
+    assertEquals(4, lines.size());
+    assertEquals("{\"schemaVersion\":\"1.0\"}", lines.get(0));
+
+    jsonDBTemplate.shutdown();
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+    List<ObjectNode> all = jsonDBTemplate.findAll("configs");
+    assertEquals(3, all.size());
+    ObjectNode beta = jsonDBTemplate.findById("beta", "configs");
+    assertEquals("eu-west", beta.get("region").asText());
+    assertEquals("us-west", beta.get("server").get("tags").get(1).asText());
+  }
+
+  @Test
+  public void testGeneratedId() {
+    ObjectNode config = JsonNodeFactory.instance.objectNode();
+    config.put("region", "ap-south");
+    jsonDBTemplate.insert(config, "configs");
+
+    List<ObjectNode> south = jsonDBTemplate.find("/.[region='ap-south']", "configs");
+    assertEquals(1, south.size());
+    String key = south.get(0).get("key").asText();
+    assertTrue(key.length() > 0);
+    assertNotNull(jsonDBTemplate.findById(key, "configs"));
+  }
+
+  @Test
+  public void testNumericIdReloaded() {
+    dbConfig.setIdGenerator("configs", new SequenceIdGenerator());
+    ObjectNode generated = JsonNodeFactory.instance.objectNode();
+    generated.put("region", "ap-south");
+    jsonDBTemplate.insert(generated, "configs");
+    ObjectNode explicit = JsonNodeFactory.instance.objectNode();
+    explicit.put("key", 7);
+    explicit.put("region", "ap-east");
+    jsonDBTemplate.insert(explicit, "configs");
+
+    jsonDBTemplate.reLoadDB();
+    assertNotNull(jsonDBTemplate.findById(1L, "configs"));
+    assertNotNull(jsonDBTemplate.findById(1, "configs"));
+    assertNotNull(jsonDBTemplate.findById(7L, "configs"));
+
+    ObjectNode updated = jsonDBTemplate.findById(7, "configs");
+    updated.put("region", "ap-north");
+    jsonDBTemplate.save(updated, "configs");
+    jsonDBTemplate.upsert(updated, "configs");
+    assertEquals(5, jsonDBTemplate.findAll("configs").size());
+    assertEquals("ap-north", ((ObjectNode) jsonDBTemplate.findById(7L, "configs")).get("region").asText());
+  }
+
+  @Test(expected = InvalidJsonDbApiUsageException.class)
+  public void testPojoRejected() {
+    Instance instance = new Instance();
+    instance.setId("100");
+    jsonDBTemplate.insert(instance, "configs");
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+
+import com.google.common.io.Files;
+
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.metrics.SlowOperationLog;
+import io.jsondb.tests.model.Instance;
+import io.jsondb.tests.util.TestUtils;
+
+/**
+ * Unit tests for the slow operation log
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class SlowOperationLogTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/slowOperationLogTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+
+  private List<List<Object>> warnings = new ArrayList<List<Object>>();
+  private JsonDBConfig dbConfig = null;
+  private JsonDBTemplate jsonDBTemplate = null;
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    dbConfig = new JsonDBConfig(dbFilesLocation, "io.jsondb.tests.model",
+        new DefaultAESCBCCipher("1r8+24pibarAWgS85/Heeg=="), false, null);
+    dbConfig.setSlowOperationLog(new SlowOperationLog(recordingLogger()));
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+  }
+
+  @After
+  public void tearDown() {
+    Util.delete(dbFilesFolder);
+  }
+
+  /**
+   * A logger that keeps the arguments of every warn(String, Object...) call
+   */
+  private Logger recordingLogger() {
+    return (Logger) Proxy.newProxyInstance(Logger.class.getClassLoader(), new Class<?>[] {Logger.class},
+        new InvocationHandler() {
+          @Override
+          public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getName().equals("warn") && (args.length == 2) && (args[1] instanceof Object[])) {
+              synchronized (warnings) {
+                warnings.add(Arrays.asList((Object[]) args[1]));
+              }
+            }
+            return method.getReturnType() == boolean.class ? Boolean.TRUE : null;
+          }
+        });
+  }
+
+  @Test
+  public void testNothingLoggedByDefault() {
+    jsonDBTemplate.find("/.[id>'03']", Instance.class);
+    jsonDBTemplate.insert(TestUtils.newInstance("07"));
+    assertTrue(warnings.isEmpty());
+  }
+
+  @Test
+  public void testSlowQueryIsLogged() {
+    dbConfig.setSlowOperationThreshold(SlowOperationLog.Operation.QUERY, 1, TimeUnit.NANOSECONDS);
+    List<Instance> found = jsonDBTemplate.find("/.[id>'03']", Instance.class);
+
+    assertEquals(1, warnings.size());
+    List<Object> args = warnings.get(0);
+    assertEquals("find", args.get(0));
+    assertEquals("instances", args.get(1));
+    assertEquals(6, args.get(6));
+    assertEquals(found.size(), args.get(7));
+    assertEquals("/.[id>'03']", args.get(9));
+  }
+
+  @Test
+  public void testSlowRewriteIsLogged() {
+    dbConfig.setSlowOperationThreshold(SlowOperationLog.Operation.REWRITE, 1, TimeUnit.NANOSECONDS);
+    jsonDBTemplate.find("/.[id>'03']", Instance.class);
+    jsonDBTemplate.insert(TestUtils.newInstance("07"));
+
+    assertEquals(1, warnings.size());
+    List<Object> args = warnings.get(0);
+    assertEquals("instances", args.get(0));
+    assertEquals(7, args.get(5));
+    assertEquals(instancesJson.length(), args.get(6));
+  }
+
+  @Test
+  public void testLogIsRateLimited() throws InterruptedException {
+    dbConfig.setSlowOperationThreshold(SlowOperationLog.Operation.QUERY, 1, TimeUnit.NANOSECONDS);
+    dbConfig.setSlowOperationLogInterval(500);
+    for (int i = 0; i < 5; i++) {
+      jsonDBTemplate.count("/.[id>'03']", Instance.class);
+    }
+    assertEquals(1, warnings.size());
+    assertEquals("count", warnings.get(0).get(0));
+
+    Thread.sleep(600);
+    jsonDBTemplate.count("/.[id>'03']", Instance.class);
+    assertEquals(2, warnings.size());
+    assertEquals(4L, warnings.get(1).get(8));
+  }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.io.Files;
+
+import io.jsondb.CollectionSnapshot;
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.query.Update;
+import io.jsondb.tests.model.Instance;
+import io.jsondb.tests.util.BlockingCipher;
+import io.jsondb.tests.util.TestUtils;
+
+/**
+ * Unit tests for multi-version snapshot reads
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class SnapshotReadTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/snapshotReadTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+
+  private JsonDBTemplate jsonDBTemplate = null;
+  private BlockingCipher cipher = null;
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    cipher = new BlockingCipher(new DefaultAESCBCCipher("1r8+24pibarAWgS85/Heeg=="));
+    JsonDBConfig dbConfig = new JsonDBConfig(dbFilesLocation, "io.jsondb.tests.model", cipher, false, null);
+    dbConfig.setSnapshotReads(true);
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Util.delete(dbFilesFolder);
+  }
+
+  @Test
+  public void testReadsSeeWrites() {
+    assertEquals(6, jsonDBTemplate.findAll(Instance.class).size());
+    jsonDBTemplate.insert(TestUtils.newInstance("07"));
+    jsonDBTemplate.findAndModify("/.[id='01']", Update.update("hostname", "modified"), Instance.class);
+    jsonDBTemplate.remove(jsonDBTemplate.findById("02", Instance.class), Instance.class);
+
+    assertEquals(6, jsonDBTemplate.findAll(Instance.class).size());
+    assertEquals(6, jsonDBTemplate.getCollection(Instance.class).size());
+    assertEquals(1, jsonDBTemplate.count("/.[hostname='modified']", Instance.class));
+    assertEquals("01", jsonDBTemplate.findOne("/.[hostname='modified']", Instance.class).getId());
+    assertNull(jsonDBTemplate.findById("02", Instance.class));
+    assertEquals("b87eb02f5dd7e5232d7b0fc30a5015e4", jsonDBTemplate.findById("07", Instance.class).getPrivateKey());
+    assertEquals(2, jsonDBTemplate.findByIds(Arrays.asList("07", "02", "03"), Instance.class).size());
+  }
+
+  @Test
+  public void testReadsDoNotWaitForWriter() throws Exception {
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      cipher.blockNextEncrypt();
+      CountDownLatch entered = cipher.getEntered();
+      Future<Void> writer = executor.submit(new Callable<Void>() {
+        @Override
+        public Void call() throws Exception {
+          jsonDBTemplate.insert(TestUtils.newInstance("07"));
+          return null;
+        }
+      });
+      assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+      //The writer now holds the collection write lock
+      List<Instance> instances = jsonDBTemplate.find("/.", Instance.class);
+      assertEquals(6, instances.size());
+      assertNotNull(jsonDBTemplate.findById("01", Instance.class));
+      assertNull(jsonDBTemplate.findById("07", Instance.class));
+
+      cipher.release();
+      writer.get(5, TimeUnit.SECONDS);
+      assertNotNull(jsonDBTemplate.findById("07", Instance.class));
+    } finally {
+      cipher.release();
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testSnapshotsFollowCollectionOrderAcrossCompactions() {
+    Map<Object, String> live = new LinkedHashMap<Object, String>();
+    for (int i = 0; i < 100; i++) {
+      live.put(i, "v" + i);
+    }
+    CollectionSnapshot<String> snapshot = new CollectionSnapshot<String>(live, 0);
+    Random random = new Random(42);
+    for (int write = 1; write <= 500; write++) {
+      List<Entry<Object, String>> changes = new ArrayList<Entry<Object, String>>();
+      for (int c = 0; c < 3; c++) {
+        Integer id = random.nextInt(150);
+        String document = random.nextInt(3) == 0 ? null : "w" + write + "-" + c;
+        //A LinkedHashMap keeps the position of a replaced entry and appends a new one
+        if (null == document) {
+          live.remove(id);
+        } else {
+          live.put(id, document);
+        }
+        changes.add(new AbstractMap.SimpleImmutableEntry<Object, String>(id, document));
+      }
+      CollectionSnapshot<String> previous = snapshot;
+      List<String> previousDocuments = new ArrayList<String>(previous.getDocuments());
+      snapshot = snapshot.withChanges(changes, write);
+
+      assertEquals(new ArrayList<String>(live.values()), snapshot.getDocuments());
+      assertEquals(live.size(), snapshot.size());
+      for (int id = 0; id < 150; id++) {
+        assertEquals(live.get(id), snapshot.get(id));
+      }
+      assertEquals(previousDocuments, previous.getDocuments());
+    }
+  }
+}
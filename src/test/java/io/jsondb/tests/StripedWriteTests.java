@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.google.common.io.Files;
+
+import io.jsondb.InvalidJsonDbApiUsageException;
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.crypto.ICipher;
+import io.jsondb.tests.model.Instance;
+import io.jsondb.tests.util.TestUtils;
+
+/**
+ * Unit tests for single document writes in striped concurrency mode
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class StripedWriteTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/stripedWriteTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+
+  private JsonDBTemplate jsonDBTemplate = null;
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    ICipher cipher = new DefaultAESCBCCipher("1r8+24pibarAWgS85/Heeg==");
+    JsonDBConfig dbConfig = new JsonDBConfig(dbFilesLocation, "io.jsondb.tests.model", cipher, false, null);
+    dbConfig.setLockStripes(16);
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Util.delete(dbFilesFolder);
+  }
+
+  @Test
+  public void testConcurrentInsertsAreAllPersisted() throws Exception {
+    final int threads = 8;
+    final int insertsPerThread = 25;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int t = 0; t < threads; t++) {
+        final int thread = t;
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int i = 0; i < insertsPerThread; i++) {
+              jsonDBTemplate.insert(TestUtils.newInstance("t" + thread + "-" + i));
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+    long flushCount = jsonDBTemplate.getWriteStripes("instances").getFlushCount();
+    assertTrue(flushCount > 0 && flushCount <= threads * insertsPerThread);
+
+    jsonDBTemplate.reloadCollection("instances");
+    assertEquals(6 + threads * insertsPerThread, jsonDBTemplate.findAll(Instance.class).size());
+    assertEquals("b87eb02f5dd7e5232d7b0fc30a5015e4", jsonDBTemplate.findById("t3-7", Instance.class).getPrivateKey());
+  }
+
+  @Test(timeout = 20000)
+  public void testWritesProceedWhileFlushWaitsForFile() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    RandomAccessFile raf = new RandomAccessFile(new File(dbFilesFolder, "lock/instances.json.lock"), "rw");
+    try {
+      Future<Void> first;
+      Future<Void> second;
+      raf.getChannel().lock();
+      try {
+        first = executor.submit(insert("07"));
+        while (null == jsonDBTemplate.findById("07", Instance.class)) {
+          Thread.sleep(10);
+        }
+        //Give the flush time to get to the file lock
+        Thread.sleep(200);
+        second = executor.submit(insert("08"));
+        while (null == jsonDBTemplate.findById("08", Instance.class)) {
+          Thread.sleep(10);
+        }
+        assertFalse(first.isDone());
+        assertFalse(second.isDone());
+      } finally {
+        raf.close();
+      }
+      first.get();
+      second.get();
+    } finally {
+      executor.shutdown();
+    }
+    jsonDBTemplate.reloadCollection("instances");
+    assertNotNull(jsonDBTemplate.findById("07", Instance.class));
+    assertNotNull(jsonDBTemplate.findById("08", Instance.class));
+  }
+
+  private Callable<Void> insert(final String id) {
+    return new Callable<Void>() {
+      @Override
+      public Void call() throws Exception {
+        //A file lock held in this JVM only counts as busy, rather than failing, when waited for with a timeout
+        return jsonDBTemplate.withLockTimeout(10, TimeUnit.SECONDS, new Supplier<Void>() {
+          @Override
+          public Void get() {
+            jsonDBTemplate.insert(TestUtils.newInstance(id));
+            return null;
+          }
+        });
+      }
+    };
+  }
+
+  @Test
+  public void testSaveUpsertAndRemove() {
+    Instance instance = jsonDBTemplate.findById("01", Instance.class);
+    instance.setHostname("ec2-54-191-saved");
+    jsonDBTemplate.save(instance, Instance.class);
+    jsonDBTemplate.upsert(TestUtils.newInstance("07"));
+    Instance removed = jsonDBTemplate.remove(jsonDBTemplate.findById("02", Instance.class), Instance.class);
+    assertNotNull(removed);
+
+    jsonDBTemplate.reloadCollection("instances");
+    assertEquals("ec2-54-191-saved", jsonDBTemplate.findById("01", Instance.class).getHostname());
+    assertEquals("b87eb02f5dd7e5232d7b0fc30a5015e4", jsonDBTemplate.findById("01", Instance.class).getPrivateKey());
+    assertNotNull(jsonDBTemplate.findById("07", Instance.class));
+    assertNull(jsonDBTemplate.findById("02", Instance.class));
+  }
+
+  @Test
+  public void testInsert_DuplicateId() {
+    expectedException.expect(InvalidJsonDbApiUsageException.class);
+    expectedException.expectMessage("Object already present in Collection. Use Update or Upsert operation instead of Insert");
+    jsonDBTemplate.insert(TestUtils.newInstance("01"));
+  }
+
+  @Test
+  public void testRemove_UnknownId() {
+    expectedException.expect(InvalidJsonDbApiUsageException.class);
+    expectedException.expectMessage("Objects with Id 99 not found in collection instances");
+    jsonDBTemplate.remove(TestUtils.newInstance("99"), Instance.class);
+  }
+}
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import io.jsondb.InvalidJsonDbApiUsageException;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.query.Update;
+import io.jsondb.tests.model.Instance;
+import io.jsondb.tests.model.SiteNote;
+
+/**
+ * Unit tests for full text search over @TextIndexed fields
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class TextIndexTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/textIndexTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+
+  private JsonDBTemplate jsonDBTemplate = null;
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    jsonDBTemplate = new JsonDBTemplate(dbFilesLocation, "io.jsondb.tests.model");
+    jsonDBTemplate.createCollection(SiteNote.class);
+
+    List<SiteNote> notes = new ArrayList<SiteNote>();
+    notes.add(newNote("001", "Primary data center in US East, all flash storage"));
+    notes.add(newNote("002", "Disaster recovery note: east coast, spinning disks"));
+    notes.add(newNote("003", "Edge location serving the US west region"));
+    jsonDBTemplate.insert(notes, SiteNote.class);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Util.delete(dbFilesFolder);
+  }
+
+  private SiteNote newNote(String id, String description) {
+    SiteNote note = new SiteNote();
+    note.setId(id);
+    note.setLocation("somewhere");
+    note.setDescription(description);
+    return note;
+  }
+
+  private List<String> ids(List<SiteNote> notes) {
+    List<String> ids = new ArrayList<String>();
+    for (SiteNote note : notes) {
+      ids.add(note.getId());
+    }
+    return ids;
+  }
+
+  @Test
+  public void testTermQueries() {
+    assertEquals(2, jsonDBTemplate.findByText("east", SiteNote.class).size());
+    assertEquals(2, jsonDBTemplate.findByText("US", SiteNote.class).size());
+    assertEquals("[001]", ids(jsonDBTemplate.findByText("east flash", SiteNote.class)).toString());
+    assertEquals(0, jsonDBTemplate.findByText("tape", SiteNote.class).size());
+    assertEquals(0, jsonDBTemplate.findByText("", SiteNote.class).size());
+  }
+
+  @Test
+  public void testPhraseQueries() {
+    assertEquals("[001]", ids(jsonDBTemplate.findByText("\"us east\"", SiteNote.class)).toString());
+    assertEquals("[002]", ids(jsonDBTemplate.findByText("\"east coast\"", SiteNote.class)).toString());
+    assertEquals(0, jsonDBTemplate.findByText("\"east us\"", SiteNote.class).size());
+    assertEquals("[003]", ids(jsonDBTemplate.findByText("region \"us west\"", SiteNote.class)).toString());
+  }
+
+  @Test
+  public void testIndexFollowsWrites() {
+    jsonDBTemplate.insert(newNote("004", "Tape archive vault"));
+    assertEquals("[004]", ids(jsonDBTemplate.findByText("tape", SiteNote.class)).toString());
+
+    jsonDBTemplate.save(newNote("004", "Cold storage vault"), SiteNote.class);
+    assertEquals(0, jsonDBTemplate.findByText("tape", SiteNote.class).size());
+    assertEquals("[004]", ids(jsonDBTemplate.findByText("cold", SiteNote.class)).toString());
+
+    jsonDBTemplate.upsert(newNote("005", "Cold standby"));
+    assertEquals(2, jsonDBTemplate.findByText("cold", SiteNote.class).size());
+
+    jsonDBTemplate.findAndModify("/.[id='001']", Update.update("description", "Decommissioned"), SiteNote.class);
+    assertEquals("[002]", ids(jsonDBTemplate.findByText("east", SiteNote.class)).toString());
+
+    jsonDBTemplate.remove(jsonDBTemplate.findById("002", SiteNote.class), SiteNote.class);
+    assertEquals(0, jsonDBTemplate.findByText("east", SiteNote.class).size());
+
+    jsonDBTemplate.findAllAndRemove("/.[location='somewhere']", SiteNote.class);
+    assertEquals(0, jsonDBTemplate.findByText("cold", SiteNote.class).size());
+  }
+
+  @Test
+  public void testIndexRebuiltOnReload() {
+    jsonDBTemplate.reloadCollection("sitenotes");
+    assertEquals(2, jsonDBTemplate.findByText("east", SiteNote.class).size());
+  }
+
+  @Test
+  public void testFindByText_NoTextIndex() {
+    jsonDBTemplate.createCollection(Instance.class);
+    expectedException.expect(InvalidJsonDbApiUsageException.class);
+    expectedException.expectMessage("Collection by name 'instances' does not have any @TextIndexed fields");
+    jsonDBTemplate.findByText("anything", Instance.class);
+  }
+}
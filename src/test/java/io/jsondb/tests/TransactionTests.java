@@ -0,0 +1,273 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import com.google.common.io.Files;
+
+import io.jsondb.InvalidJsonDbApiUsageException;
+import io.jsondb.JsonDBException;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Transaction;
+import io.jsondb.TransactionCallback;
+import io.jsondb.Util;
+import io.jsondb.crypto.DefaultAESCBCCipher;
+import io.jsondb.crypto.ICipher;
+import io.jsondb.io.WriteAheadLog;
+import io.jsondb.tests.model.Host;
+import io.jsondb.tests.model.Instance;
+import io.jsondb.tests.util.TestUtils;
+
+/**
+ * Unit tests for multi-collection transactions and their write-ahead log
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class TransactionTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/transactionTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File instancesJson = new File(dbFilesFolder, "instances.json");
+  private File walFile = new File(dbFilesFolder, WriteAheadLog.FILE_NAME);
+
+  private ICipher cipher = null;
+  private JsonDBTemplate jsonDBTemplate = null;
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/instances.json"), instancesJson);
+    cipher = new DefaultAESCBCCipher("1r8+24pibarAWgS85/Heeg==");
+    jsonDBTemplate = new JsonDBTemplate(dbFilesLocation, "io.jsondb.tests.model", cipher);
+    jsonDBTemplate.createCollection(Host.class);
+    jsonDBTemplate.insert(newHost("01", "alpha"));
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Util.delete(dbFilesFolder);
+  }
+
+  private Host newHost(String id, String hostname) {
+    Host host = new Host();
+    host.setId(id);
+    host.setHostname(hostname);
+    host.setRack("r1");
+    return host;
+  }
+
+  @Test
+  public void testCommitAcrossCollections() {
+    String result = jsonDBTemplate.inTransaction(new TransactionCallback<String>() {
+      @Override
+      public String doInTransaction(Transaction transaction) {
+        transaction.insert(TestUtils.newInstance("07"));
+        transaction.save(newHost("01", "alpha-renamed"));
+        transaction.remove(TestUtils.newInstance("02"));
+        return "done";
+      }
+    });
+    assertEquals("done", result);
+    assertFalse(walFile.exists());
+
+    assertEquals("b87eb02f5dd7e5232d7b0fc30a5015e4", jsonDBTemplate.findById("07", Instance.class).getPrivateKey());
+    assertNull(jsonDBTemplate.findById("02", Instance.class));
+    assertEquals("alpha-renamed", jsonDBTemplate.findById("01", Host.class).getHostname());
+
+    //The collection files hold the committed state
+    JsonDBTemplate reopened = new JsonDBTemplate(dbFilesLocation, "io.jsondb.tests.model", cipher);
+    assertEquals(6, reopened.findAll(Instance.class).size());
+    assertNotNull(reopened.findById("07", Instance.class));
+    assertEquals("alpha-renamed", reopened.findById("01", Host.class).getHostname());
+  }
+
+  @Test
+  public void testChangesWithinTransactionBuildOnEachOther() {
+    jsonDBTemplate.inTransaction(new TransactionCallback<Void>() {
+      @Override
+      public Void doInTransaction(Transaction transaction) {
+        transaction.insert(newHost("02", "beta"));
+        transaction.save(newHost("02", "beta-renamed"));
+        transaction.insert(newHost("03", "gamma"));
+        transaction.remove(newHost("03", "gamma"));
+        return null;
+      }
+    });
+    assertEquals("beta-renamed", jsonDBTemplate.findById("02", Host.class).getHostname());
+    assertNull(jsonDBTemplate.findById("03", Host.class));
+    assertEquals(2, jsonDBTemplate.findAll(Host.class).size());
+  }
+
+  @Test
+  public void testFailedCheckCommitsNothing() {
+    try {
+      jsonDBTemplate.inTransaction(new TransactionCallback<Void>() {
+        @Override
+        public Void doInTransaction(Transaction transaction) {
+          transaction.insert(TestUtils.newInstance("07"));
+          transaction.save(newHost("99", "missing"));
+          return null;
+        }
+      });
+      assertTrue("Expected the transaction to fail", false);
+    } catch (InvalidJsonDbApiUsageException e) {
+      assertTrue(e.getMessage().contains("not found"));
+    }
+    assertNull(jsonDBTemplate.findById("07", Instance.class));
+    assertEquals(6, jsonDBTemplate.findAll(Instance.class).size());
+    assertFalse(walFile.exists());
+  }
+
+  @Test
+  public void testUniqueConstraintChecked() {
+    expectedException.expect(InvalidJsonDbApiUsageException.class);
+    jsonDBTemplate.inTransaction(new TransactionCallback<Void>() {
+      @Override
+      public Void doInTransaction(Transaction transaction) {
+        transaction.insert(TestUtils.newInstance("07"));
+        transaction.insert(newHost("02", "alpha"));
+        return null;
+      }
+    });
+  }
+
+  @Test
+  public void testUniqueValueOfRemovedDocumentReused() {
+    jsonDBTemplate.inTransaction(new TransactionCallback<Void>() {
+      @Override
+      public Void doInTransaction(Transaction transaction) {
+        transaction.remove(newHost("01", "alpha"));
+        transaction.insert(newHost("02", "alpha"));
+        return null;
+      }
+    });
+    assertNull(jsonDBTemplate.findById("01", Host.class));
+    assertEquals("alpha", jsonDBTemplate.findById("02", Host.class).getHostname());
+    assertFalse(walFile.exists());
+  }
+
+  @Test
+  public void testCallbackExceptionCommitsNothing() {
+    try {
+      jsonDBTemplate.inTransaction(new TransactionCallback<Void>() {
+        @Override
+        public Void doInTransaction(Transaction transaction) {
+          transaction.insert(TestUtils.newInstance("07"));
+          throw new IllegalStateException("abort");
+        }
+      });
+      assertTrue("Expected the callback exception", false);
+    } catch (IllegalStateException e) {
+      assertEquals("abort", e.getMessage());
+    }
+    assertNull(jsonDBTemplate.findById("07", Instance.class));
+  }
+
+  @Test
+  public void testRecoveryReplaysCompleteRecordsOnly() throws Exception {
+    String instance = "{\"id\":\"07\",\"hostname\":\"ec2-54-191-07\","
+        + "\"privateKey\":\"Zf9vl5K6WV6BA3eL7JbnrfPMjfJxc9Rkoo0zlROQlgTslmcp9iFzos+MP93GZqop\","
+        + "\"publicKey\":\"d3aa045f71bf4d1dffd2c5f485a4bc1d\"}";
+    String removed = "{\"id\":\"01\",\"hostname\":\"alpha\",\"rack\":\"r1\"}";
+    String committed = "{\"txId\":1,\"collections\":{"
+        + "\"hosts\":[{\"op\":\"remove\",\"document\":" + removed + "}],"
+        + "\"instances\":[{\"op\":\"put\",\"document\":" + instance + "}]}}\n";
+    String torn = "{\"txId\":2,\"collections\":{\"instances\":[{\"op\":\"remove\",\"document\":{\"id\":\"03\"";
+
+    FileOutputStream fos = new FileOutputStream(walFile);
+    try {
+      fos.write((committed + torn).getBytes(StandardCharsets.UTF_8));
+    } finally {
+      fos.close();
+    }
+
+    JsonDBTemplate recovered = new JsonDBTemplate(dbFilesLocation, "io.jsondb.tests.model", cipher);
+    assertFalse(walFile.exists());
+    assertEquals("b87eb02f5dd7e5232d7b0fc30a5015e4", recovered.findById("07", Instance.class).getPrivateKey());
+    assertNotNull(recovered.findById("03", Instance.class));
+    assertNull(recovered.findById("01", Host.class));
+
+    JsonDBTemplate reopened = new JsonDBTemplate(dbFilesLocation, "io.jsondb.tests.model", cipher);
+    assertEquals(7, reopened.findAll(Instance.class).size());
+    assertEquals(0, reopened.findAll(Host.class).size());
+  }
+
+  @Test
+  public void testFailedCommitNotReplayedOverLaterWrites() throws Exception {
+    jsonDBTemplate.getDbConfig().setLockTimeout(50);
+    RandomAccessFile raf = new RandomAccessFile(new File(dbFilesFolder, "lock/instances.json.lock"), "rw");
+    try {
+      raf.getChannel().lock();
+      try {
+        jsonDBTemplate.inTransaction(new TransactionCallback<Void>() {
+          @Override
+          public Void doInTransaction(Transaction transaction) {
+            transaction.insert(newHost("02", "beta"));
+            Instance instance = TestUtils.newInstance("03");
+            instance.setHostname("from-transaction");
+            transaction.save(instance);
+            return null;
+          }
+        });
+        assertTrue("Expected the commit to fail", false);
+      } catch (JsonDBException e) {
+        assertTrue(walFile.exists());
+      }
+    } finally {
+      raf.close();
+    }
+    byte[] loggedRecord = Files.toByteArray(walFile);
+
+    Instance instance = TestUtils.newInstance("03");
+    instance.setHostname("written-later");
+    jsonDBTemplate.save(instance, Instance.class);
+    assertFalse(walFile.exists());
+
+    JsonDBTemplate reopened = new JsonDBTemplate(dbFilesLocation, "io.jsondb.tests.model", cipher);
+    assertEquals("written-later", reopened.findById("03", Instance.class).getHostname());
+    assertEquals("beta", reopened.findById("02", Host.class).getHostname());
+
+    //As if the process died after the file was written but before the record left the log
+    Files.write(loggedRecord, walFile);
+    reopened = new JsonDBTemplate(dbFilesLocation, "io.jsondb.tests.model", cipher);
+    assertFalse(walFile.exists());
+    assertEquals("written-later", reopened.findById("03", Instance.class).getHostname());
+    assertEquals(2, reopened.findAll(Host.class).size());
+  }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import io.jsondb.InvalidJsonDbApiUsageException;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.query.Update;
+import io.jsondb.tests.model.Host;
+
+/**
+ * Unit tests for unique constraints enforced through @Indexed(unique = true) fields
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class UniqueIndexTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/uniqueIndexTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+
+  private JsonDBTemplate jsonDBTemplate = null;
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    jsonDBTemplate = new JsonDBTemplate(dbFilesLocation, "io.jsondb.tests.model");
+    jsonDBTemplate.createCollection(Host.class);
+
+    List<Host> hosts = new ArrayList<Host>();
+    hosts.add(newHost("01", "alpha", "r1"));
+    hosts.add(newHost("02", "beta", "r1"));
+    hosts.add(newHost("03", "gamma", "r2"));
+    jsonDBTemplate.insert(hosts, Host.class);
+  }
+
+  @After
+  public void tearDown() throws Exception {
+    Util.delete(dbFilesFolder);
+  }
+
+  private Host newHost(String id, String hostname, String rack) {
+    Host host = new Host();
+    host.setId(id);
+    host.setHostname(hostname);
+    host.setRack(rack);
+    return host;
+  }
+
+  @Test
+  public void testInsert_DuplicateUniqueValue() {
+    expectedException.expect(InvalidJsonDbApiUsageException.class);
+    expectedException.expectMessage("Value 'alpha' for unique field 'hostname' is already used by document with Id: '01' in Collection by name 'hosts'");
+    jsonDBTemplate.insert(newHost("04", "alpha", "r3"));
+  }
+
+  @Test
+  public void testInsert_NonUniqueIndexAllowsDuplicates() {
+    jsonDBTemplate.insert(newHost("04", "delta", "r1"));
+    assertEquals(4, jsonDBTemplate.getCollection(Host.class).size());
+  }
+
+  @Test
+  public void testInsert_NullValuesAreNotConstrained() {
+    jsonDBTemplate.insert(newHost("04", null, "r1"));
+    jsonDBTemplate.insert(newHost("05", null, "r1"));
+    assertEquals(5, jsonDBTemplate.getCollection(Host.class).size());
+  }
+
+  @Test
+  public void testInsertBatch_RejectedBeforeAnythingIsWritten() {
+    List<Host> hosts = new ArrayList<Host>();
+    hosts.add(newHost("04", "delta", "r3"));
+    hosts.add(newHost("05", "delta", "r3"));
+    try {
+      jsonDBTemplate.insert(hosts, Host.class);
+      fail("Expected the batch to be rejected");
+    } catch (InvalidJsonDbApiUsageException e) {
+      assertEquals("Duplicate value 'delta' for unique field 'hostname' within the passed in parameter", e.getMessage());
+    }
+    assertNull(jsonDBTemplate.findById("04", Host.class));
+    jsonDBTemplate.reloadCollection("hosts");
+    assertEquals(3, jsonDBTemplate.getCollection(Host.class).size());
+  }
+
+  @Test
+  public void testSave_KeepingOwnValueAndTakingFreedValue() {
+    jsonDBTemplate.save(newHost("01", "alpha", "r9"), Host.class);
+    jsonDBTemplate.save(newHost("01", "omega", "r9"), Host.class);
+    jsonDBTemplate.save(newHost("02", "alpha", "r9"), Host.class);
+    assertEquals("alpha", jsonDBTemplate.findById("02", Host.class).getHostname());
+  }
+
+  @Test
+  public void testSave_DuplicateUniqueValue() {
+    expectedException.expect(InvalidJsonDbApiUsageException.class);
+    expectedException.expectMessage("Value 'beta' for unique field 'hostname' is already used by document with Id: '02'");
+    jsonDBTemplate.save(newHost("01", "beta", "r1"), Host.class);
+  }
+
+  @Test
+  public void testUpsertBatch_SwapValues() {
+    List<Host> hosts = new ArrayList<Host>();
+    hosts.add(newHost("01", "beta", "r1"));
+    hosts.add(newHost("02", "alpha", "r1"));
+    jsonDBTemplate.upsert(hosts, Host.class);
+    assertEquals("beta", jsonDBTemplate.findById("01", Host.class).getHostname());
+    assertEquals("alpha", jsonDBTemplate.findById("02", Host.class).getHostname());
+  }
+
+  @Test
+  public void testUpsert_DuplicateUniqueValue() {
+    expectedException.expect(InvalidJsonDbApiUsageException.class);
+    expectedException.expectMessage("Value 'gamma' for unique field 'hostname' is already used by document with Id: '03'");
+    jsonDBTemplate.upsert(newHost("09", "gamma", "r1"));
+  }
+
+  @Test
+  public void testFindAndModify_DuplicateUniqueValue() {
+    expectedException.expect(InvalidJsonDbApiUsageException.class);
+    expectedException.expectMessage("Value 'gamma' for unique field 'hostname' is already used by document with Id: '03'");
+    jsonDBTemplate.findAndModify("/.[id='01']", Update.update("hostname", "gamma"), Host.class);
+  }
+
+  @Test
+  public void testFindAllAndModify_DuplicateUniqueValue() {
+    try {
+      jsonDBTemplate.findAllAndModify("/.[rack='r1']", Update.update("hostname", "shared"), Host.class);
+      fail("Expected the modification to be rejected");
+    } catch (InvalidJsonDbApiUsageException e) {
+      assertEquals("Duplicate value 'shared' for unique field 'hostname' within the passed in parameter", e.getMessage());
+    }
+    assertEquals("alpha", jsonDBTemplate.findById("01", Host.class).getHostname());
+  }
+
+  @Test
+  public void testRemove_FreesUniqueValue() {
+    jsonDBTemplate.remove(jsonDBTemplate.findById("01", Host.class), Host.class);
+    jsonDBTemplate.insert(newHost("04", "alpha", "r1"));
+    assertEquals("04", jsonDBTemplate.findOne("/.[hostname='alpha']", Host.class).getId());
+  }
+}
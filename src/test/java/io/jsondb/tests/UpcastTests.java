@@ -0,0 +1,186 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.io.Files;
+
+import io.jsondb.DocumentUpcaster;
+import io.jsondb.InvalidJsonDbApiUsageException;
+import io.jsondb.JsonDBConfig;
+import io.jsondb.JsonDBTemplate;
+import io.jsondb.Util;
+import io.jsondb.metrics.InMemoryMetricsRegistry;
+import io.jsondb.metrics.MetricNames;
+import io.jsondb.tests.model.LoadBalancer;
+
+/**
+ * Unit tests for upgrading documents of older schema versions with registered upcasters
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class UpcastTests {
+  private String dbFilesLocation = "src/test/resources/dbfiles/upcastTests";
+  private File dbFilesFolder = new File(dbFilesLocation);
+  private File loadbalancerJson = new File(dbFilesFolder, "loadbalancer.json");
+
+  private JsonDBConfig dbConfig = null;
+  private JsonDBTemplate jsonDBTemplate = null;
+  private InMemoryMetricsRegistry metrics = new InMemoryMetricsRegistry();
+
+  private DocumentUpcaster renameDeletedField = new DocumentUpcaster() {
+    @Override
+    public void upcast(ObjectNode document) {
+      document.set("osName", document.remove("deletedField"));
+    }
+  };
+
+  @Before
+  public void setUp() throws Exception {
+    dbFilesFolder.mkdir();
+    Files.copy(new File("src/test/resources/dbfiles/loadbalancer.json"), loadbalancerJson);
+    dbConfig = new JsonDBConfig(dbFilesLocation, "io.jsondb.tests.model", null, true, null);
+    dbConfig.setMetricsRegistry(metrics);
+  }
+
+  @After
+  public void tearDown() {
+    if (null != jsonDBTemplate) {
+      jsonDBTemplate.shutdown();
+    }
+    Util.delete(dbFilesFolder);
+  }
+
+  private String firstLine() throws Exception {
+    return Files.readFirstLine(loadbalancerJson, Charset.forName("UTF-8"));
+  }
+
+  @Test
+  public void testUpcastOnLoad() throws Exception {
+    dbConfig.setUpcastPersistDelay(-1);
+    dbConfig.registerUpcaster(LoadBalancer.class, "0.5", "1.0", renameDeletedField);
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+
+    assertFalse(jsonDBTemplate.isCollectionReadonly(LoadBalancer.class));
+    LoadBalancer lb = jsonDBTemplate.findById("001", LoadBalancer.class);
+    assertEquals("yes", lb.getOsName());
+    assertEquals("admin", lb.getUsername());
+    assertEquals(10, metrics.getCounter("loadbalancer", MetricNames.DOCUMENTS_UPCAST));
+  }
+
+  @Test
+  public void testUpcastChain() throws Exception {
+    dbConfig.setUpcastPersistDelay(-1);
+    dbConfig.registerUpcaster("loadbalancer", "0.5", "0.8", renameDeletedField);
+    dbConfig.registerUpcaster("loadbalancer", "0.8", "1.0", new DocumentUpcaster() {
+      @Override
+      public void upcast(ObjectNode document) {
+        document.put("username", document.get("username").asText().toUpperCase());
+      }
+    });
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+
+    LoadBalancer lb = jsonDBTemplate.findById("002", LoadBalancer.class);
+    assertEquals("yes", lb.getOsName());
+    assertEquals("ADMIN", lb.getUsername());
+  }
+
+  @Test
+  public void testUpcastPersistedInBackground() throws Exception {
+    dbConfig.setUpcastPersistDelay(10);
+    dbConfig.registerUpcaster(LoadBalancer.class, "0.5", "1.0", renameDeletedField);
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+
+    for (int i = 0; i < 500 && jsonDBTemplate.isUpcastPending("loadbalancer"); i++) {
+      Thread.sleep(10);
+    }
+    assertFalse(jsonDBTemplate.isUpcastPending("loadbalancer"));
+    assertEquals("{\"schemaVersion\":\"1.0\"}", firstLine());
+
+    List<String> lines = Files.readLines(loadbalancerJson, Charset.forName("UTF-8"));
+    assertEquals(11, lines.size());
+    assertTrue(lines.get(1).contains("\"osName\":\"yes\""));
+    assertFalse(lines.get(1).contains("deletedField"));
+  }
+
+  @Test
+  public void testUpcastPersistedByNextWrite() throws Exception {
+    dbConfig.setUpcastPersistDelay(-1);
+    dbConfig.registerUpcaster(LoadBalancer.class, "0.5", "1.0", renameDeletedField);
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+
+    assertTrue(jsonDBTemplate.isUpcastPending("loadbalancer"));
+    assertEquals("{\"schemaVersion\":\"0.5\"}", firstLine());
+
+    LoadBalancer lb = new LoadBalancer();
+    lb.setId("011");
+    lb.setHostname("eclb-54-11");
+    lb.setUsername("admin");
+    lb.setOsName("linux");
+    jsonDBTemplate.insert(lb);
+
+    assertFalse(jsonDBTemplate.isUpcastPending("loadbalancer"));
+    assertEquals("{\"schemaVersion\":\"1.0\"}", firstLine());
+    assertTrue(Files.readLines(loadbalancerJson, Charset.forName("UTF-8")).get(1).contains("\"osName\":\"yes\""));
+  }
+
+  @Test
+  public void testWriteBeforeDelaySkipsBackgroundRewrite() throws Exception {
+    dbConfig.setUpcastPersistDelay(200);
+    dbConfig.registerUpcaster(LoadBalancer.class, "0.5", "1.0", renameDeletedField);
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+
+    jsonDBTemplate.findAndRemove("/.[id='010']", LoadBalancer.class);
+    assertFalse(jsonDBTemplate.isUpcastPending("loadbalancer"));
+
+    Thread.sleep(400);
+    assertEquals(1, metrics.getHistogram("loadbalancer", MetricNames.FILE_WRITE).getCount());
+  }
+
+  @Test
+  public void testIncompleteChainStaysReadonly() throws Exception {
+    dbConfig.registerUpcaster(LoadBalancer.class, "0.5", "0.8", renameDeletedField);
+    jsonDBTemplate = new JsonDBTemplate(dbConfig);
+
+    assertTrue(jsonDBTemplate.isCollectionReadonly(LoadBalancer.class));
+    assertFalse(jsonDBTemplate.isUpcastPending("loadbalancer"));
+    assertNull(jsonDBTemplate.findById("001", LoadBalancer.class).getOsName());
+  }
+
+  @Test(expected = InvalidJsonDbApiUsageException.class)
+  public void testDuplicateRegistration() {
+    dbConfig.registerUpcaster(LoadBalancer.class, "0.5", "1.0", renameDeletedField);
+    dbConfig.registerUpcaster(LoadBalancer.class, "0.5", "1.0", renameDeletedField);
+  }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright (c) 2016 Farooq Khan
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to
+ * deal in the Software without restriction, including without limitation the
+ * rights to use, copy, modify, merge, publish, distribute, sublicense, and/or
+ * sell copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL
+ * THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+package io.jsondb.tests.util;
+
+import java.util.concurrent.CountDownLatch;
+
+import io.jsondb.crypto.ICipher;
+
+/**
+ * A cipher that can be made to block while encrypting, encryption happens while a writer holds the collection write lock.
+ *
+ * @version 1.0 19-Oct-2026
+ */
+public class BlockingCipher implements ICipher {
+  private final ICipher delegate;
+  private volatile CountDownLatch entered = null;
+  private volatile CountDownLatch release = null;
+
+  public BlockingCipher(ICipher delegate) {
+    this.delegate = delegate;
+  }
+
+  /**
+   * Makes the next call to encrypt block until {@link #release()} is called.
+   */
+  public void blockNextEncrypt() {
+    entered = new CountDownLatch(1);
+    release = new CountDownLatch(1);
+  }
+
+  /**
+   * @return a latch that opens once the blocked encrypt call has been entered
+   */
+  public CountDownLatch getEntered() {
+    return entered;
+  }
+
+  public void release() {
+    CountDownLatch r = release;
+    if (null != r) {
+      r.countDown();
+    }
+  }
+
+  @Override
+  public String encrypt(String plainText) {
+    CountDownLatch e = entered;
+    if (null != e) {
+      entered = null;
+      e.countDown();
+      try {
+        release.await();
+      } catch (InterruptedException ie) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return delegate.encrypt(plainText);
+  }
+
+  @Override
+  public String decrypt(String cipherText) {
+    return delegate.decrypt(cipherText);
+  }
+}
@@ -28,6 +28,8 @@ import java.util.Scanner;
 import org.hamcrest.MatcherAssert;
 import org.hamcrest.collection.IsIterableContainingInOrder;
 
+import io.jsondb.tests.model.Instance;
+
 /**
  * @author Farooq Khan
  * @version 1.0 06-Oct-2016
@@ -68,6 +70,19 @@ public class TestUtils {
     }
   }
   
+  /**
+   * @param id id of the new instance
+   * @return an Instance with all its fields set, like the ones in instances.json
+   */
+  public static Instance newInstance(String id) {
+    Instance instance = new Instance();
+    instance.setId(id);
+    instance.setHostname("ec2-54-191-" + id);
+    instance.setPrivateKey("b87eb02f5dd7e5232d7b0fc30a5015e4");
+    instance.setPublicKey("d3aa045f71bf4d1dffd2c5f485a4bc1d");
+    return instance;
+  }
+
   public static boolean isMac() {
     String OS = System.getProperty("os.name").toLowerCase();
     return (OS.indexOf("mac") >= 0);